@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.benchmarks;
+
+import net.shibboleth.shared.xml.XMLParserException;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.w3c.dom.Element;
+import se.swedenconnect.opensaml.OpenSAMLInitializer;
+import se.swedenconnect.opensaml.OpenSAMLSecurityExtensionConfig;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Support methods for the benchmarks.
+ *
+ * @author Martin Lindström
+ */
+public class BenchmarkSupport {
+
+  /**
+   * Initializes the OpenSAML library (if not already initialized).
+   *
+   * @throws Exception for init errors
+   */
+  public static synchronized void initializeOpenSAML() throws Exception {
+    if (!OpenSAMLInitializer.getInstance().isInitialized()) {
+      OpenSAMLInitializer.getInstance().initialize(new OpenSAMLSecurityExtensionConfig());
+    }
+  }
+
+  /**
+   * Parses the supplied XML into a DOM element.
+   *
+   * @param xml the XML to parse
+   * @return the document element
+   * @throws XMLParserException for parsing errors
+   */
+  public static Element parse(final String xml) throws XMLParserException {
+    return XMLObjectProviderRegistrySupport.getParserPool()
+        .parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)))
+        .getDocumentElement();
+  }
+
+  private BenchmarkSupport() {
+  }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.swedenconnect.opensaml.eidas.ext.attributes.CurrentAddressStructuredType;
+import se.swedenconnect.opensaml.eidas.ext.attributes.CurrentAddressType;
+import se.swedenconnect.opensaml.eidas.ext.attributes.impl.CurrentAddressStructuredTypeImpl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building a complete address using {@link CurrentAddressStructuredTypeImpl} with the previous
+ * implementation that used reflection and builder factory lookups for each element
+ * ({@link LegacyCurrentAddressStructuredTypeImpl}).
+ *
+ * @author Martin Lindström
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CurrentAddressStructuredTypeBenchmark {
+
+  /**
+   * Initializes OpenSAML.
+   *
+   * @throws Exception for errors
+   */
+  @Setup
+  public void setup() throws Exception {
+    BenchmarkSupport.initializeOpenSAML();
+  }
+
+  /**
+   * Builds an address using the current implementation.
+   *
+   * @return the address
+   */
+  @Benchmark
+  public CurrentAddressStructuredType current() {
+    return fill(new CurrentAddressStructuredTypeImpl(CurrentAddressType.TYPE_NAME.getNamespaceURI(),
+        CurrentAddressType.TYPE_NAME.getLocalPart(), CurrentAddressType.TYPE_NAME.getPrefix()));
+  }
+
+  /**
+   * Builds an address using the previous implementation.
+   *
+   * @return the address
+   */
+  @Benchmark
+  public CurrentAddressStructuredType legacy() {
+    return fill(new LegacyCurrentAddressStructuredTypeImpl(CurrentAddressType.TYPE_NAME.getNamespaceURI(),
+        CurrentAddressType.TYPE_NAME.getLocalPart(), CurrentAddressType.TYPE_NAME.getPrefix()));
+  }
+
+  /**
+   * Assigns all address elements.
+   *
+   * @param address the address to fill
+   * @return the address
+   */
+  private static CurrentAddressStructuredType fill(final CurrentAddressStructuredType address) {
+    address.setPoBox("1234");
+    address.setLocatorDesignator("28");
+    address.setLocatorName("DIGIT building");
+    address.setCvaddressArea("Etterbeek");
+    address.setThoroughfare("Rue Belliard");
+    address.setPostName("Brussels");
+    address.setAdminunitFirstline("BE");
+    address.setAdminunitSecondline("Brussels-Capital Region");
+    address.setPostCode("1040");
+    return address;
+  }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.benchmarks;
+
+import net.shibboleth.shared.codec.Base64Support;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.core.xml.io.Unmarshaller;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Element;
+import se.swedenconnect.opensaml.eidas.ext.attributes.CurrentAddressType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the StAX-based {@code CurrentAddressTypeUnmarshaller} with the previous implementation that re-parsed the
+ * decoded address elements into a synthetic DOM document ({@link LegacyCurrentAddressTypeUnmarshaller}).
+ *
+ * @author Martin Lindström
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CurrentAddressTypeUnmarshallerBenchmark {
+
+  /** The address elements that are Base64-encoded into the attribute value. */
+  private static final String ADDRESS_ELEMENTS = "<eidas:PoBox>1234</eidas:PoBox>"
+      + "<eidas:LocatorDesignator>28</eidas:LocatorDesignator>"
+      + "<eidas:LocatorName>DIGIT building</eidas:LocatorName>"
+      + "<eidas:CvaddressArea>Etterbeek</eidas:CvaddressArea>"
+      + "<eidas:Thoroughfare>Rue Belliard</eidas:Thoroughfare>"
+      + "<eidas:PostName>Brussels</eidas:PostName>"
+      + "<eidas:AdminunitFirstline>BE</eidas:AdminunitFirstline>"
+      + "<eidas:AdminunitSecondline>Brussels-Capital Region</eidas:AdminunitSecondline>"
+      + "<eidas:PostCode>1040</eidas:PostCode>";
+
+  /** The attribute value element to unmarshall. */
+  private Element attributeValue;
+
+  /** The unmarshaller registered for CurrentAddressType. */
+  private Unmarshaller unmarshaller;
+
+  /** The previous implementation. */
+  private Unmarshaller legacyUnmarshaller;
+
+  /**
+   * Initializes OpenSAML and builds the input.
+   *
+   * @throws Exception for errors
+   */
+  @Setup
+  public void setup() throws Exception {
+    BenchmarkSupport.initializeOpenSAML();
+
+    final String value = Base64Support.encode(ADDRESS_ELEMENTS.getBytes(StandardCharsets.UTF_8), true);
+    final String xml = "<saml2:Assertion xmlns:saml2=\"urn:oasis:names:tc:SAML:2.0:assertion\""
+        + " xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\" ID=\"_a1\" IssueInstant=\"2026-01-01T00:00:00Z\""
+        + " Version=\"2.0\">"
+        + "<saml2:Issuer>https://eidas.example.com/proxy</saml2:Issuer>"
+        + "<saml2:AttributeStatement xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">"
+        + "<saml2:Attribute FriendlyName=\"CurrentAddress\""
+        + " Name=\"http://eidas.europa.eu/attributes/naturalperson/CurrentAddress\""
+        + " NameFormat=\"urn:oasis:names:tc:SAML:2.0:attrname-format:uri\">"
+        + "<saml2:AttributeValue xmlns:eidas-natural=\"http://eidas.europa.eu/attributes/naturalperson\""
+        + " xsi:type=\"eidas-natural:CurrentAddressType\">" + value + "</saml2:AttributeValue>"
+        + "</saml2:Attribute>"
+        + "</saml2:AttributeStatement>"
+        + "</saml2:Assertion>";
+
+    this.attributeValue = (Element) BenchmarkSupport.parse(xml)
+        .getElementsByTagNameNS("urn:oasis:names:tc:SAML:2.0:assertion", "AttributeValue")
+        .item(0);
+    this.unmarshaller = XMLObjectSupport.getUnmarshaller(CurrentAddressType.TYPE_NAME);
+    this.legacyUnmarshaller = new LegacyCurrentAddressTypeUnmarshaller();
+  }
+
+  /**
+   * Unmarshalls using the StAX-based unmarshaller.
+   *
+   * @return the unmarshalled object
+   * @throws Exception for errors
+   */
+  @Benchmark
+  public XMLObject stax() throws Exception {
+    return this.unmarshaller.unmarshall(this.attributeValue);
+  }
+
+  /**
+   * Unmarshalls using the previous implementation.
+   *
+   * @return the unmarshalled object
+   * @throws Exception for errors
+   */
+  @Benchmark
+  public XMLObject legacy() throws Exception {
+    return this.legacyUnmarshaller.unmarshall(this.attributeValue);
+  }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.benchmarks;
+
+import org.opensaml.core.xml.io.MarshallingException;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.saml2.core.AuthnRequest;
+import org.opensaml.saml.saml2.core.Extensions;
+import org.opensaml.saml.saml2.core.Issuer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Element;
+import se.swedenconnect.opensaml.eidas.ext.ExtensionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares creating and marshalling an {@code AuthnRequest} whose {@code Extensions} are built and marshalled for
+ * each request, with one whose {@code Extensions} are created from an {@link ExtensionTemplate}.
+ * <p>
+ * The extensions are the {@link Fixture#REQUESTED_ATTRIBUTES} and {@link Fixture#SP_TYPE} fixtures. Run with
+ * {@code -prof gc} to also record the allocation rate (bytes allocated per operation).
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExtensionTemplateBenchmark {
+
+  /** The template holding the extensions. */
+  private ExtensionTemplate template;
+
+  /**
+   * Initializes OpenSAML and creates the template.
+   *
+   * @throws Exception for errors
+   */
+  @Setup
+  public void setup() throws Exception {
+    BenchmarkSupport.initializeOpenSAML();
+    this.template = ExtensionTemplate.create(List.of(Fixture.REQUESTED_ATTRIBUTES.create(), Fixture.SP_TYPE.create()));
+  }
+
+  /**
+   * Builds the extension elements and marshalls a request holding them.
+   *
+   * @return the marshalled request
+   * @throws MarshallingException for marshalling errors
+   */
+  @Benchmark
+  public Element buildExtensions() throws MarshallingException {
+    final Extensions extensions = (Extensions) XMLObjectSupport.buildXMLObject(Extensions.DEFAULT_ELEMENT_NAME);
+    extensions.getUnknownXMLObjects().add(Fixture.REQUESTED_ATTRIBUTES.create());
+    extensions.getUnknownXMLObjects().add(Fixture.SP_TYPE.create());
+    return XMLObjectSupport.marshall(createAuthnRequest(extensions));
+  }
+
+  /**
+   * Creates the extensions from the template and marshalls a request holding them.
+   *
+   * @return the marshalled request
+   * @throws MarshallingException for marshalling errors
+   */
+  @Benchmark
+  public Element templateExtensions() throws MarshallingException {
+    return XMLObjectSupport.marshall(createAuthnRequest(this.template.createExtensions()));
+  }
+
+  private static AuthnRequest createAuthnRequest(final Extensions extensions) {
+    final AuthnRequest request = (AuthnRequest) XMLObjectSupport.buildXMLObject(AuthnRequest.DEFAULT_ELEMENT_NAME);
+    request.setID("_a8c1e4f0b7d2");
+    request.setIssueInstant(Instant.now());
+    request.setDestination("https://proxy.example.com/sso");
+    final Issuer issuer = (Issuer) XMLObjectSupport.buildXMLObject(Issuer.DEFAULT_ELEMENT_NAME);
+    issuer.setValue("https://sp.example.com");
+    request.setIssuer(issuer);
+    request.setExtensions(extensions);
+    return request;
+  }
+
+}
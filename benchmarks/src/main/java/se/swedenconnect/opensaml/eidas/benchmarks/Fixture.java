@@ -0,0 +1,331 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.benchmarks;
+
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.saml2.core.Attribute;
+import se.swedenconnect.opensaml.eidas.ext.NodeCountry;
+import se.swedenconnect.opensaml.eidas.ext.RequestedAttributeTemplates;
+import se.swedenconnect.opensaml.eidas.ext.RequestedAttributes;
+import se.swedenconnect.opensaml.eidas.ext.SPType;
+import se.swedenconnect.opensaml.eidas.ext.SPTypeEnumeration;
+import se.swedenconnect.opensaml.eidas.ext.attributes.AttributeConstants;
+import se.swedenconnect.opensaml.eidas.ext.attributes.AttributeUtils;
+import se.swedenconnect.opensaml.eidas.ext.attributes.BirthNameType;
+import se.swedenconnect.opensaml.eidas.ext.attributes.CountryOfBirthType;
+import se.swedenconnect.opensaml.eidas.ext.attributes.CountryOfResidenceType;
+import se.swedenconnect.opensaml.eidas.ext.attributes.CurrentAddressStructuredType;
+import se.swedenconnect.opensaml.eidas.ext.attributes.CurrentAddressType;
+import se.swedenconnect.opensaml.eidas.ext.attributes.CurrentFamilyNameType;
+import se.swedenconnect.opensaml.eidas.ext.attributes.CurrentGivenNameType;
+import se.swedenconnect.opensaml.eidas.ext.attributes.DateOfBirthType;
+import se.swedenconnect.opensaml.eidas.ext.attributes.GenderType;
+import se.swedenconnect.opensaml.eidas.ext.attributes.GenderTypeEnumeration;
+import se.swedenconnect.opensaml.eidas.ext.attributes.NationalityType;
+import se.swedenconnect.opensaml.eidas.ext.attributes.PersonIdentifierType;
+import se.swedenconnect.opensaml.eidas.ext.attributes.PlaceOfBirthType;
+import se.swedenconnect.opensaml.eidas.metadata.DistributionPoint;
+import se.swedenconnect.opensaml.eidas.metadata.DistributionPoints;
+import se.swedenconnect.opensaml.eidas.metadata.Endpoint;
+import se.swedenconnect.opensaml.eidas.metadata.MetadataList;
+import se.swedenconnect.opensaml.eidas.metadata.MetadataLocation;
+import se.swedenconnect.opensaml.eidas.metadata.MetadataServiceList;
+import se.swedenconnect.opensaml.eidas.metadata.MetadataServiceListVersion;
+import se.swedenconnect.opensaml.eidas.metadata.SchemeInformation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Synthetic, but realistic, fixtures for each of the eIDAS objects that have a registered marshaller/unmarshaller
+ * pair. Each fixture creates a new object on every call to {@link #create()}.
+ *
+ * @author Martin Lindström
+ */
+public enum Fixture {
+
+  /** A {@code RequestedAttributes} extension holding the natural person minimum data set and optional attributes. */
+  REQUESTED_ATTRIBUTES(Fixture::requestedAttributes),
+
+  /** An {@code SPType} extension. */
+  SP_TYPE(() -> {
+    final SPType spType = build(SPType.DEFAULT_ELEMENT_NAME);
+    spType.setType(SPTypeEnumeration.PUBLIC);
+    return spType;
+  }),
+
+  /** A {@code NodeCountry} extension. */
+  NODE_COUNTRY(() -> {
+    final NodeCountry nodeCountry = build(NodeCountry.DEFAULT_ELEMENT_NAME);
+    nodeCountry.setNodeCountry("SE");
+    return nodeCountry;
+  }),
+
+  /** A {@code PersonIdentifier} attribute. */
+  PERSON_IDENTIFIER(() -> {
+    final PersonIdentifierType value = AttributeUtils.createAttributeValueObject(PersonIdentifierType.class);
+    value.setValue("SE/BE/199102154719");
+    return attribute(AttributeConstants.EIDAS_PERSON_IDENTIFIER_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_PERSON_IDENTIFIER_ATTRIBUTE_FRIENDLY_NAME, value);
+  }),
+
+  /** A {@code CurrentFamilyName} attribute holding a non-latin value and its transliteration. */
+  CURRENT_FAMILY_NAME(() -> {
+    final CurrentFamilyNameType value = AttributeUtils.createAttributeValueObject(CurrentFamilyNameType.class);
+    value.setValue("Παπαδόπουλος");
+    value.setLatinScript(false);
+    final CurrentFamilyNameType transliterated =
+        AttributeUtils.createAttributeValueObject(CurrentFamilyNameType.class);
+    transliterated.setValue("Papadopoulos");
+    return attribute(AttributeConstants.EIDAS_CURRENT_FAMILY_NAME_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_CURRENT_FAMILY_NAME_ATTRIBUTE_FRIENDLY_NAME, value, transliterated);
+  }),
+
+  /** A {@code CurrentGivenName} attribute. */
+  CURRENT_GIVEN_NAME(() -> {
+    final CurrentGivenNameType value = AttributeUtils.createAttributeValueObject(CurrentGivenNameType.class);
+    value.setValue("Karl-Gustav");
+    return attribute(AttributeConstants.EIDAS_CURRENT_GIVEN_NAME_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_CURRENT_GIVEN_NAME_ATTRIBUTE_FRIENDLY_NAME, value);
+  }),
+
+  /** A {@code DateOfBirth} attribute. */
+  DATE_OF_BIRTH(() -> {
+    final DateOfBirthType value = AttributeUtils.createAttributeValueObject(DateOfBirthType.class);
+    value.setDate(LocalDate.of(1991, 2, 15));
+    return attribute(AttributeConstants.EIDAS_DATE_OF_BIRTH_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_DATE_OF_BIRTH_ATTRIBUTE_FRIENDLY_NAME, value);
+  }),
+
+  /** A {@code Gender} attribute. */
+  GENDER(() -> {
+    final GenderType value = AttributeUtils.createAttributeValueObject(GenderType.class);
+    value.setGender(GenderTypeEnumeration.FEMALE);
+    return attribute(AttributeConstants.EIDAS_GENDER_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_GENDER_ATTRIBUTE_FRIENDLY_NAME, value);
+  }),
+
+  /** A {@code CurrentAddress} attribute where all address elements are assigned. */
+  CURRENT_ADDRESS(() -> {
+    final CurrentAddressType value = address(AttributeUtils.createAttributeValueObject(CurrentAddressType.class));
+    return attribute(AttributeConstants.EIDAS_CURRENT_ADDRESS_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_CURRENT_ADDRESS_ATTRIBUTE_FRIENDLY_NAME, value);
+  }),
+
+  /**
+   * A standalone {@code CurrentAddressStructuredType} attribute value where all address elements are assigned. Unlike
+   * {@link #CURRENT_ADDRESS}, the address elements are marshalled as child elements, so this fixture measures the
+   * address element builders and the structured type marshaller/unmarshaller.
+   */
+  CURRENT_ADDRESS_STRUCTURED(
+      () -> address(AttributeUtils.createAttributeValueObject(CurrentAddressStructuredType.class))),
+
+  /** A {@code BirthName} attribute. */
+  BIRTH_NAME(() -> {
+    final BirthNameType value = AttributeUtils.createAttributeValueObject(BirthNameType.class);
+    value.setValue("Karl-Gustav Andersson");
+    value.setLatinScript(true);
+    return attribute(AttributeConstants.EIDAS_BIRTH_NAME_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_BIRTH_NAME_ATTRIBUTE_FRIENDLY_NAME, value);
+  }),
+
+  /** A {@code PlaceOfBirth} attribute. */
+  PLACE_OF_BIRTH(() -> {
+    final PlaceOfBirthType value = AttributeUtils.createAttributeValueObject(PlaceOfBirthType.class);
+    value.setValue("Östersund");
+    return attribute(AttributeConstants.EIDAS_PLACE_OF_BIRTH_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_PLACE_OF_BIRTH_ATTRIBUTE_FRIENDLY_NAME, value);
+  }),
+
+  /** A {@code Nationality} attribute holding two nationalities. */
+  NATIONALITY(() -> {
+    final NationalityType value = AttributeUtils.createAttributeValueObject(NationalityType.class);
+    value.setValue("SE");
+    final NationalityType value2 = AttributeUtils.createAttributeValueObject(NationalityType.class);
+    value2.setValue("FI");
+    return attribute(AttributeConstants.EIDAS_NATIONALITY_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_NATIONALITY_ATTRIBUTE_FRIENDLY_NAME, value, value2);
+  }),
+
+  /** A {@code CountryOfBirth} attribute. */
+  COUNTRY_OF_BIRTH(() -> {
+    final CountryOfBirthType value = AttributeUtils.createAttributeValueObject(CountryOfBirthType.class);
+    value.setValue("SE");
+    return attribute(AttributeConstants.EIDAS_COUNTRY_OF_BIRTH_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_COUNTRY_OF_BIRTH_ATTRIBUTE_FRIENDLY_NAME, value);
+  }),
+
+  /** A {@code CountryOfResidence} attribute. */
+  COUNTRY_OF_RESIDENCE(() -> {
+    final CountryOfResidenceType value = AttributeUtils.createAttributeValueObject(CountryOfResidenceType.class);
+    value.setValue("BE");
+    return attribute(AttributeConstants.EIDAS_COUNTRY_OF_RESIDENCE_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_COUNTRY_OF_RESIDENCE_ATTRIBUTE_FRIENDLY_NAME, value);
+  }),
+
+  /**
+   * A complete {@code MetadataServiceList} covering all EU/EEA countries, where each country has a proxy service and
+   * a connector location, each with a signing certificate.
+   */
+  METADATA_SERVICE_LIST(Fixture::metadataServiceList);
+
+  /** The countries included in the metadata service list fixture. */
+  private static final List<String> COUNTRIES = List.of(
+      "AT", "BE", "BG", "CY", "CZ", "DE", "DK", "EE", "ES", "FI", "FR", "GR", "HR", "HU", "IE", "IS", "IT", "LI",
+      "LT", "LU", "LV", "MT", "NL", "NO", "PL", "PT", "RO", "SE", "SI", "SK");
+
+  /** Lazily loaded metadata signing certificate. */
+  private static X509Certificate metadataSigningCertificate;
+
+  /** The object factory. */
+  private final Supplier<XMLObject> factory;
+
+  /**
+   * Constructor.
+   *
+   * @param factory the object factory
+   */
+  Fixture(final Supplier<XMLObject> factory) {
+    this.factory = factory;
+  }
+
+  /**
+   * Creates a new fixture object.
+   *
+   * @return a newly created object
+   */
+  public XMLObject create() {
+    return this.factory.get();
+  }
+
+  private static RequestedAttributes requestedAttributes() {
+    final RequestedAttributes requestedAttributes = build(RequestedAttributes.DEFAULT_ELEMENT_NAME);
+    requestedAttributes.getRequestedAttributes().addAll(List.of(
+        RequestedAttributeTemplates.PERSON_IDENTIFIER(true, true),
+        RequestedAttributeTemplates.CURRENT_FAMILY_NAME(true, true),
+        RequestedAttributeTemplates.CURRENT_GIVEN_NAME(true, true),
+        RequestedAttributeTemplates.DATE_OF_BIRTH(true, true),
+        RequestedAttributeTemplates.GENDER(false, true),
+        RequestedAttributeTemplates.CURRENT_ADDRESS(false, true),
+        RequestedAttributeTemplates.create(AttributeConstants.EIDAS_BIRTH_NAME_ATTRIBUTE_NAME,
+            AttributeConstants.EIDAS_BIRTH_NAME_ATTRIBUTE_FRIENDLY_NAME, Attribute.URI_REFERENCE, false),
+        RequestedAttributeTemplates.create(AttributeConstants.EIDAS_PLACE_OF_BIRTH_ATTRIBUTE_NAME,
+            AttributeConstants.EIDAS_PLACE_OF_BIRTH_ATTRIBUTE_FRIENDLY_NAME, Attribute.URI_REFERENCE, false)));
+    return requestedAttributes;
+  }
+
+  private static MetadataServiceList metadataServiceList() {
+    final MetadataServiceList list = build(MetadataServiceList.DEFAULT_ELEMENT_NAME);
+    list.setVersion(MetadataServiceListVersion.VERSION_10);
+    list.setID("_bench-mdsl");
+    final Instant issueDate = Instant.parse("2026-01-01T00:00:00Z");
+    list.setIssueDate(issueDate);
+    list.setNextUpdate(issueDate.plus(Duration.ofDays(30)));
+
+    final SchemeInformation schemeInformation = build(SchemeInformation.DEFAULT_ELEMENT_NAME);
+    schemeInformation.setIssuerName("eIDAS Benchmark Operator");
+    schemeInformation.setSchemeIdentifier("http://eidas.example.com/mdsl");
+    schemeInformation.setSchemeTerritory("EU");
+    list.setSchemeInformation(schemeInformation);
+
+    final X509Certificate certificate = getMetadataSigningCertificate();
+    for (final String country : COUNTRIES) {
+      final String base = "https://eidas." + country.toLowerCase() + ".example.com";
+      final MetadataList metadataList = build(MetadataList.DEFAULT_ELEMENT_NAME);
+      metadataList.setTerritory(country);
+      metadataList.getMetadataLocations().add(
+          metadataLocation(base + "/proxy/metadata", Endpoint.PROXY_SERVICE_ENDPOINT_TYPE, certificate));
+      metadataList.getMetadataLocations().add(
+          metadataLocation(base + "/connector/metadata", Endpoint.CONNECTOR_ENDPOINT_TYPE, certificate));
+      list.getMetadataLists().add(metadataList);
+    }
+
+    final DistributionPoints distributionPoints = build(DistributionPoints.DEFAULT_ELEMENT_NAME);
+    final DistributionPoint distributionPoint = build(DistributionPoint.DEFAULT_ELEMENT_NAME);
+    distributionPoint.setURI("https://eidas.example.com/mdsl.xml");
+    distributionPoints.getDistributionPoints().add(distributionPoint);
+    list.setDistributionPoints(distributionPoints);
+
+    return list;
+  }
+
+  private static MetadataLocation metadataLocation(
+      final String location, final String endpointType, final X509Certificate certificate) {
+    final MetadataLocation metadataLocation = build(MetadataLocation.DEFAULT_ELEMENT_NAME);
+    metadataLocation.setLocation(location);
+    final Endpoint endpoint = build(Endpoint.DEFAULT_ELEMENT_NAME);
+    endpoint.setEndpointType(endpointType);
+    endpoint.setEntityID(location);
+    metadataLocation.getEndpoints().add(endpoint);
+    metadataLocation.setX509Certificate(certificate);
+    return metadataLocation;
+  }
+
+  private static <T extends CurrentAddressStructuredType> T address(final T address) {
+    address.setPoBox("1234");
+    address.setLocatorDesignator("28");
+    address.setLocatorName("DIGIT building");
+    address.setCvaddressArea("Etterbeek");
+    address.setThoroughfare("Rue Belliard");
+    address.setPostName("Brussels");
+    address.setAdminunitFirstline("BE");
+    address.setAdminunitSecondline("Brussels-Capital Region");
+    address.setPostCode("1040");
+    return address;
+  }
+
+  private static Attribute attribute(final String name, final String friendlyName, final XMLObject... values) {
+    final Attribute attribute = AttributeUtils.createAttribute(name, friendlyName);
+    for (final XMLObject value : values) {
+      AttributeUtils.addAttributeValue(attribute, value);
+    }
+    return attribute;
+  }
+
+  private static synchronized X509Certificate getMetadataSigningCertificate() {
+    if (metadataSigningCertificate == null) {
+      try (final InputStream is = Fixture.class.getResourceAsStream("/metadata-signing.crt")) {
+        metadataSigningCertificate =
+            (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(is);
+      }
+      catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      catch (final CertificateException e) {
+        throw new IllegalStateException("Failed to load benchmark certificate", e);
+      }
+    }
+    return metadataSigningCertificate;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends XMLObject> T build(final QName elementName) {
+    return (T) XMLObjectSupport.buildXMLObject(elementName);
+  }
+
+}
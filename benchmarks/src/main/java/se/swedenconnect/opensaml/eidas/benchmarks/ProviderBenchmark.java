@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.benchmarks;
+
+import net.shibboleth.shared.xml.SerializeSupport;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.core.xml.io.MarshallingException;
+import org.opensaml.core.xml.io.Unmarshaller;
+import org.opensaml.core.xml.io.UnmarshallingException;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Element;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures marshalling and unmarshalling for each of the eIDAS object providers using the fixtures from
+ * {@link Fixture}.
+ * <p>
+ * Run with {@code -prof gc} to also record the allocation rate (bytes allocated per operation).
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProviderBenchmark {
+
+  /** The fixture to benchmark. */
+  @Param
+  public Fixture fixture;
+
+  /** The object that is marshalled. */
+  private XMLObject object;
+
+  /** The DOM element that is unmarshalled. */
+  private Element element;
+
+  /** The unmarshaller for the element. */
+  private Unmarshaller unmarshaller;
+
+  /**
+   * Initializes OpenSAML and creates the fixture object along with its DOM representation. The DOM is serialized and
+   * parsed again so that the unmarshall benchmark does not operate on the DOM cached by the object.
+   *
+   * @throws Exception for errors
+   */
+  @Setup
+  public void setup() throws Exception {
+    BenchmarkSupport.initializeOpenSAML();
+    this.object = this.fixture.create();
+    this.element = BenchmarkSupport.parse(SerializeSupport.nodeToString(XMLObjectSupport.marshall(this.object)));
+    this.unmarshaller = XMLObjectProviderRegistrySupport.getUnmarshallerFactory().getUnmarshaller(this.element);
+  }
+
+  /**
+   * Marshalls the fixture object. The cached DOM is released before each invocation so that the complete tree is
+   * marshalled.
+   *
+   * @return the marshalled element
+   * @throws MarshallingException for marshalling errors
+   */
+  @Benchmark
+  public Element marshall() throws MarshallingException {
+    this.object.releaseDOM();
+    this.object.releaseChildrenDOM(true);
+    return XMLObjectSupport.marshall(this.object);
+  }
+
+  /**
+   * Unmarshalls the fixture element.
+   *
+   * @return the unmarshalled object
+   * @throws UnmarshallingException for unmarshalling errors
+   */
+  @Benchmark
+  public XMLObject unmarshall() throws UnmarshallingException {
+    return this.unmarshaller.unmarshall(this.element);
+  }
+
+}
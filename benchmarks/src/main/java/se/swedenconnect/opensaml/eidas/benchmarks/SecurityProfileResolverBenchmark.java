@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.swedenconnect.opensaml.eidas.xmlsec.Eidas_1_4_SecurityConfiguration;
+import se.swedenconnect.opensaml.eidas.xmlsec.EidasSecurityConfiguration;
+import se.swedenconnect.opensaml.eidas.xmlsec.RelaxedEidasSecurityConfiguration;
+import se.swedenconnect.opensaml.eidas.xmlsec.SecurityProfileResolver;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link SecurityProfileResolver#resolve(String, String)} for a peer that is mapped by its entityID, a peer
+ * that is mapped by its country and a peer that gets the default profile. Resolving a profile should cost no more than
+ * a couple of map lookups, i.e., no configurations are built per request.
+ *
+ * @author Martin Lindström
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecurityProfileResolverBenchmark {
+
+  /** The peer to resolve the profile for. */
+  @Param
+  public Peer peer;
+
+  /** The resolver. */
+  private SecurityProfileResolver resolver;
+
+  /**
+   * Initializes OpenSAML and creates the resolver.
+   *
+   * @throws Exception for errors
+   */
+  @Setup
+  public void setup() throws Exception {
+    BenchmarkSupport.initializeOpenSAML();
+    this.resolver = new SecurityProfileResolver(new EidasSecurityConfiguration());
+    this.resolver.setMappings(
+        Map.of("https://eidas.example.com", new RelaxedEidasSecurityConfiguration()),
+        Map.of("DE", new Eidas_1_4_SecurityConfiguration()));
+  }
+
+  /**
+   * Resolves the profile for the peer.
+   *
+   * @return the resolved profile
+   */
+  @Benchmark
+  public SecurityProfileResolver.ResolvedProfile resolve() {
+    return this.resolver.resolve(this.peer.entityID, this.peer.country);
+  }
+
+  /**
+   * The peers.
+   */
+  public enum Peer {
+
+    /** A peer that is mapped by its entityID. */
+    ENTITY("https://eidas.example.com", "FR"),
+
+    /** A peer that is mapped by its country. */
+    COUNTRY("https://other.example.com", "DE"),
+
+    /** A peer that gets the default profile. */
+    DEFAULT("https://other.example.com", "SE");
+
+    /** The entityID of the peer. */
+    private final String entityID;
+
+    /** The country of the peer. */
+    private final String country;
+
+    Peer(final String entityID, final String country) {
+      this.entityID = entityID;
+      this.country = country;
+    }
+  }
+
+}
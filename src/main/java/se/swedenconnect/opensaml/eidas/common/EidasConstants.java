@@ -34,6 +34,9 @@ public class EidasConstants {
   /** The eIDAS Natural Persons attribute QName prefix. */
   public static final String EIDAS_NP_PREFIX = "eidasnp";
 
+  /** The eIDAS Legal Persons attribute XML Namespace. */
+  public static final String EIDAS_LP_NS = "http://eidas.europa.eu/attributes/legalperson";
+
   /** The eIDAS metadata service list XML namespace. */
   public static final String EIDAS_SERVICELIST_NS = "http://eidas.europa.eu/metadata/servicelist";
 
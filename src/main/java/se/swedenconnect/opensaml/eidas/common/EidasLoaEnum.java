@@ -15,6 +15,9 @@
  */
 package se.swedenconnect.opensaml.eidas.common;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Enumeration representing an eIDAS Level of Assurance.
  *
@@ -65,27 +68,7 @@ public enum EidasLoaEnum {
    * @return the matching enum value or {@code null} is no match is found
    */
   public static EidasLoaEnum parse(final String uri) {
-    if (EidasConstants.EIDAS_LOA_LOW_NON_NOTIFIED.equals(uri)
-        || EidasConstants.EIDAS_LOA_LOW_NON_NOTIFIED2.equals(uri)) {
-      return EidasLoaEnum.LOA_LOW_NON_NOTIFIED;
-    }
-    else if (EidasConstants.EIDAS_LOA_SUBSTANTIAL_NON_NOTIFIED.equals(uri)
-        || EidasConstants.EIDAS_LOA_SUBSTANTIAL_NON_NOTIFIED2.equals(
-        uri)) {
-      return EidasLoaEnum.LOA_SUBSTANTIAL_NON_NOTIFIED;
-    }
-    else if (EidasConstants.EIDAS_LOA_HIGH_NON_NOTIFIED.equals(uri)
-        || EidasConstants.EIDAS_LOA_HIGH_NON_NOTIFIED2.equals(uri)) {
-      return EidasLoaEnum.LOA_HIGH_NON_NOTIFIED;
-    }
-    else {
-      for (final EidasLoaEnum loa : EidasLoaEnum.values()) {
-        if (loa.getUri().equals(uri)) {
-          return loa;
-        }
-      }
-    }
-    return null;
+    return uri != null ? BY_URI.get(uri) : null;
   }
 
   /**
@@ -105,4 +88,18 @@ public enum EidasLoaEnum {
   /** Sorting order. */
   private final int order;
 
+  /** Enum values indexed by their URIs, including the alternate URIs for non-notified LoAs. */
+  private static final Map<String, EidasLoaEnum> BY_URI;
+
+  static {
+    final Map<String, EidasLoaEnum> map = new HashMap<>();
+    for (final EidasLoaEnum loa : EidasLoaEnum.values()) {
+      map.put(loa.getUri(), loa);
+    }
+    map.put(EidasConstants.EIDAS_LOA_LOW_NON_NOTIFIED2, LOA_LOW_NON_NOTIFIED);
+    map.put(EidasConstants.EIDAS_LOA_SUBSTANTIAL_NON_NOTIFIED2, LOA_SUBSTANTIAL_NON_NOTIFIED);
+    map.put(EidasConstants.EIDAS_LOA_HIGH_NON_NOTIFIED2, LOA_HIGH_NON_NOTIFIED);
+    BY_URI = Map.copyOf(map);
+  }
+
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.common;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.opensaml.saml.saml2.core.AuthnContextClassRef;
+import org.opensaml.saml.saml2.core.AuthnContextComparisonTypeEnumeration;
+import org.opensaml.saml.saml2.core.RequestedAuthnContext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A precompiled matcher that tells whether an asserted eIDAS LoA satisfies a requested authentication context.
+ * <p>
+ * The requested URIs and the comparison method are resolved once, into a bit mask where each accepted
+ * {@link EidasLoaEnum} is represented by the bit given by {@link EidasLoaEnum#getOrder()}. Checking an asserted LoA is
+ * then a single bit operation.
+ * </p>
+ * <p>
+ * The comparison methods are interpreted as follows (URIs that are not eIDAS LoA URIs are ignored):
+ * </p>
+ * <ul>
+ * <li>{@code exact} (the default) - the asserted LoA must be one of the requested LoAs.</li>
+ * <li>{@code minimum} - the asserted LoA must be at least as strong as the weakest requested LoA.</li>
+ * <li>{@code better} - the asserted LoA must be stronger than the weakest requested LoA.</li>
+ * <li>{@code maximum} - the asserted LoA must be at most as strong as the strongest requested LoA.</li>
+ * </ul>
+ * <p>
+ * The strength of an LoA is given by {@link EidasLoaEnum#getOrder()}.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public final class EidasLoaMatcher {
+
+  /** The accepted LoAs, where each LoA is represented by the bit {@code 1 << loa.getOrder()}. */
+  private final int mask;
+
+  /**
+   * Constructor.
+   *
+   * @param mask the accepted LoAs
+   */
+  private EidasLoaMatcher(final int mask) {
+    this.mask = mask;
+  }
+
+  /**
+   * Compiles a matcher for the supplied requested authentication context.
+   *
+   * @param requestedAuthnContext the requested authentication context
+   * @return a matcher
+   */
+  @Nonnull
+  public static EidasLoaMatcher compile(@Nonnull final RequestedAuthnContext requestedAuthnContext) {
+    Objects.requireNonNull(requestedAuthnContext, "requestedAuthnContext must not be null");
+    final List<String> uris = new ArrayList<>(requestedAuthnContext.getAuthnContextClassRefs().size());
+    for (final AuthnContextClassRef ref : requestedAuthnContext.getAuthnContextClassRefs()) {
+      uris.add(ref.getURI());
+    }
+    return compile(requestedAuthnContext.getComparison(), uris);
+  }
+
+  /**
+   * Compiles a matcher for the supplied comparison method and requested URIs.
+   *
+   * @param comparison the comparison method ({@code null} means {@code exact})
+   * @param uris the requested LoA URIs
+   * @return a matcher
+   */
+  @Nonnull
+  public static EidasLoaMatcher compile(@Nullable final AuthnContextComparisonTypeEnumeration comparison,
+      @Nonnull final Collection<String> uris) {
+    Objects.requireNonNull(uris, "uris must not be null");
+
+    int requested = 0;
+    for (final String uri : uris) {
+      final EidasLoaEnum loa = EidasLoaEnum.parse(uri);
+      if (loa != null) {
+        requested |= bit(loa);
+      }
+    }
+    if (requested == 0 || comparison == null || comparison == AuthnContextComparisonTypeEnumeration.EXACT) {
+      return new EidasLoaMatcher(requested);
+    }
+
+    final int lowest = Integer.numberOfTrailingZeros(requested);
+    final int highest = Integer.SIZE - 1 - Integer.numberOfLeadingZeros(requested);
+    int mask = 0;
+    for (final EidasLoaEnum loa : EidasLoaEnum.values()) {
+      final int order = loa.getOrder();
+      final boolean accepted;
+      if (comparison == AuthnContextComparisonTypeEnumeration.MINIMUM) {
+        accepted = order >= lowest;
+      }
+      else if (comparison == AuthnContextComparisonTypeEnumeration.BETTER) {
+        accepted = order > lowest;
+      }
+      else {
+        accepted = order <= highest;
+      }
+      if (accepted) {
+        mask |= bit(loa);
+      }
+    }
+    return new EidasLoaMatcher(mask);
+  }
+
+  /**
+   * Tells whether the supplied LoA satisfies the requested authentication context.
+   *
+   * @param loa the asserted LoA
+   * @return {@code true} if the LoA is accepted, and {@code false} otherwise
+   */
+  public boolean matches(@Nullable final EidasLoaEnum loa) {
+    return loa != null && (this.mask & bit(loa)) != 0;
+  }
+
+  /**
+   * Tells whether the supplied LoA URI satisfies the requested authentication context.
+   *
+   * @param uri the asserted LoA URI
+   * @return {@code true} if the LoA is accepted, and {@code false} otherwise
+   */
+  public boolean matches(@Nullable final String uri) {
+    return this.matches(EidasLoaEnum.parse(uri));
+  }
+
+  /**
+   * Tells whether no LoA is accepted, i.e., whether none of the requested URIs were eIDAS LoA URIs.
+   *
+   * @return {@code true} if no LoA is accepted
+   */
+  public boolean isEmpty() {
+    return this.mask == 0;
+  }
+
+  /**
+   * Returns the accepted LoAs.
+   *
+   * @return an unmodifiable set of LoAs
+   */
+  @Nonnull
+  public Set<EidasLoaEnum> getAccepted() {
+    final Set<EidasLoaEnum> accepted = EnumSet.noneOf(EidasLoaEnum.class);
+    for (final EidasLoaEnum loa : EidasLoaEnum.values()) {
+      if (this.matches(loa)) {
+        accepted.add(loa);
+      }
+    }
+    return Collections.unmodifiableSet(accepted);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return "accepted=" + this.getAccepted();
+  }
+
+  private static int bit(final EidasLoaEnum loa) {
+    return 1 << loa.getOrder();
+  }
+
+}
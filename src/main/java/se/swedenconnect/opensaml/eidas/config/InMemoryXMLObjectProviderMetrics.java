@@ -0,0 +1,226 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.config;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.xml.namespace.QName;
+
+/**
+ * A {@link XMLObjectProviderMetrics} implementation that keeps statistics in memory.
+ * <p>
+ * For each provider name, the number of invocations, the total and maximum duration, the total size of the elements
+ * whose size was calculated (see {@link XMLObjectProviderMetrics}), and a latency histogram are recorded, separately
+ * for marshalling and unmarshalling. The histogram has power-of-two buckets in microseconds, i.e., bucket {@code i}
+ * counts invocations that took less than 2<sup>i</sup> microseconds (and at least 2<sup>i-1</sup> for
+ * {@code i > 0}). The last bucket also counts all longer invocations.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public class InMemoryXMLObjectProviderMetrics implements XMLObjectProviderMetrics {
+
+  /** The number of histogram buckets. */
+  public static final int HISTOGRAM_BUCKETS = 24;
+
+  /** Marshalling statistics per provider name. */
+  private final Map<QName, Statistics> marshalling = new ConcurrentHashMap<>();
+
+  /** Unmarshalling statistics per provider name. */
+  private final Map<QName, Statistics> unmarshalling = new ConcurrentHashMap<>();
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean isSizeRequired() {
+    return true;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void marshalled(@Nonnull final QName providerName, final long durationNanos, final int size) {
+    this.marshalling.computeIfAbsent(providerName, n -> new Statistics()).record(durationNanos, size);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void unmarshalled(@Nonnull final QName providerName, final long durationNanos, final int size) {
+    this.unmarshalling.computeIfAbsent(providerName, n -> new Statistics()).record(durationNanos, size);
+  }
+
+  /**
+   * Gets the marshalling statistics for the given provider.
+   *
+   * @param providerName the provider name
+   * @return the statistics, or {@code null} if no elements have been marshalled by the provider
+   */
+  @Nullable
+  public Statistics getMarshallingStatistics(@Nonnull final QName providerName) {
+    return this.marshalling.get(providerName);
+  }
+
+  /**
+   * Gets the unmarshalling statistics for the given provider.
+   *
+   * @param providerName the provider name
+   * @return the statistics, or {@code null} if no elements have been unmarshalled by the provider
+   */
+  @Nullable
+  public Statistics getUnmarshallingStatistics(@Nonnull final QName providerName) {
+    return this.unmarshalling.get(providerName);
+  }
+
+  /**
+   * Gets the marshalling statistics for all providers that have been invoked.
+   *
+   * @return a map of statistics
+   */
+  @Nonnull
+  public Map<QName, Statistics> getMarshallingStatistics() {
+    return Map.copyOf(this.marshalling);
+  }
+
+  /**
+   * Gets the unmarshalling statistics for all providers that have been invoked.
+   *
+   * @return a map of statistics
+   */
+  @Nonnull
+  public Map<QName, Statistics> getUnmarshallingStatistics() {
+    return Map.copyOf(this.unmarshalling);
+  }
+
+  /**
+   * Removes all statistics.
+   */
+  public void reset() {
+    this.marshalling.clear();
+    this.unmarshalling.clear();
+  }
+
+  /**
+   * Statistics for one provider and operation.
+   */
+  public static final class Statistics {
+
+    /** The number of invocations. */
+    private final LongAdder count = new LongAdder();
+
+    /** The total duration in nanoseconds. */
+    private final LongAdder totalNanos = new LongAdder();
+
+    /** The maximum duration in nanoseconds. */
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+    /** The number of invocations for which the size was calculated. */
+    private final LongAdder sizeCount = new LongAdder();
+
+    /** The total size in DOM nodes. */
+    private final LongAdder totalSize = new LongAdder();
+
+    /** The latency histogram. */
+    private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+    private void record(final long durationNanos, final int size) {
+      this.count.increment();
+      this.totalNanos.add(durationNanos);
+      this.maxNanos.accumulate(durationNanos);
+      if (size != UNKNOWN_SIZE) {
+        this.sizeCount.increment();
+        this.totalSize.add(size);
+      }
+      final long micros = durationNanos / 1000;
+      final int bucket = 64 - Long.numberOfLeadingZeros(micros);
+      this.histogram.incrementAndGet(Math.min(bucket, HISTOGRAM_BUCKETS - 1));
+    }
+
+    /**
+     * Gets the number of invocations.
+     *
+     * @return the number of invocations
+     */
+    public long getCount() {
+      return this.count.sum();
+    }
+
+    /**
+     * Gets the total duration of all invocations.
+     *
+     * @return the total duration in nanoseconds
+     */
+    public long getTotalNanos() {
+      return this.totalNanos.sum();
+    }
+
+    /**
+     * Gets the duration of the slowest invocation.
+     *
+     * @return the maximum duration in nanoseconds
+     */
+    public long getMaxNanos() {
+      return this.maxNanos.get();
+    }
+
+    /**
+     * Gets the number of invocations for which the size of the processed element was calculated.
+     *
+     * @return the number of sized invocations
+     */
+    public long getSizeCount() {
+      return this.sizeCount.sum();
+    }
+
+    /**
+     * Gets the total size of all processed elements whose size was calculated.
+     *
+     * @return the total size in DOM nodes
+     */
+    public long getTotalSize() {
+      return this.totalSize.sum();
+    }
+
+    /**
+     * Gets a copy of the latency histogram. See the class documentation for the bucket layout.
+     *
+     * @return the histogram
+     */
+    @Nonnull
+    public long[] getHistogram() {
+      final long[] copy = new long[HISTOGRAM_BUCKETS];
+      for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+        copy[i] = this.histogram.get(i);
+      }
+      return copy;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+      final long count = this.getCount();
+      final long sizeCount = this.getSizeCount();
+      return String.format("count=%d, avg=%dns, max=%dns, avg-size=%d", count,
+          count > 0 ? this.getTotalNanos() / count : 0, this.getMaxNanos(),
+          sizeCount > 0 ? this.getTotalSize() / sizeCount : 0);
+    }
+  }
+
+}
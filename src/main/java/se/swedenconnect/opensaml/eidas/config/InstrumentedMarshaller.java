@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.config;
+
+import jakarta.annotation.Nonnull;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.core.xml.io.Marshaller;
+import org.opensaml.core.xml.io.MarshallingException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.namespace.QName;
+
+/**
+ * A {@link Marshaller} that reports to a {@link XMLObjectProviderMetrics} instance.
+ *
+ * @author Martin Lindström
+ */
+final class InstrumentedMarshaller implements Marshaller {
+
+  /** The nesting depth of instrumented marshaller invocations for the current thread. */
+  private static final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+
+  /** The name under which the marshaller is registered. */
+  private final QName providerName;
+
+  /** The wrapped marshaller. */
+  private final Marshaller marshaller;
+
+  /** The metrics. */
+  private final XMLObjectProviderMetrics metrics;
+
+  /**
+   * Constructor.
+   *
+   * @param providerName the name under which the marshaller is registered
+   * @param marshaller the wrapped marshaller
+   * @param metrics the metrics
+   */
+  InstrumentedMarshaller(
+      final QName providerName, final Marshaller marshaller, final XMLObjectProviderMetrics metrics) {
+    this.providerName = providerName;
+    this.marshaller = marshaller;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Gets the wrapped marshaller.
+   *
+   * @return the wrapped marshaller
+   */
+  Marshaller getMarshaller() {
+    return this.marshaller;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public Element marshall(@Nonnull final XMLObject xmlObject) throws MarshallingException {
+    return this.marshall(() -> this.marshaller.marshall(xmlObject));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public Element marshall(@Nonnull final XMLObject xmlObject, @Nonnull final Document document)
+      throws MarshallingException {
+    return this.marshall(() -> this.marshaller.marshall(xmlObject, document));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public Element marshall(@Nonnull final XMLObject xmlObject, @Nonnull final Element parentElement)
+      throws MarshallingException {
+    return this.marshall(() -> this.marshaller.marshall(xmlObject, parentElement));
+  }
+
+  /**
+   * Invokes the wrapped marshaller and reports the invocation. The size of the produced element is only calculated for
+   * the outermost invocation, and after the duration has been measured.
+   *
+   * @param invocation the marshaller invocation
+   * @return the marshalled element
+   * @throws MarshallingException for marshalling errors
+   */
+  private Element marshall(final MarshallerInvocation invocation) throws MarshallingException {
+    final int[] current = depth.get();
+    final boolean outermost = current[0]++ == 0;
+    try {
+      final long start = System.nanoTime();
+      final Element element = invocation.invoke();
+      final long duration = System.nanoTime() - start;
+      this.metrics.marshalled(this.providerName, duration, size(this.metrics, outermost, element));
+      return element;
+    }
+    finally {
+      current[0]--;
+    }
+  }
+
+  /**
+   * Gets the size to report for the supplied element.
+   *
+   * @param metrics the metrics
+   * @param outermost whether this is the outermost invocation
+   * @param element the element
+   * @return the number of nodes of the element, or {@link XMLObjectProviderMetrics#UNKNOWN_SIZE}
+   */
+  static int size(final XMLObjectProviderMetrics metrics, final boolean outermost, final Element element) {
+    return outermost && metrics.isSizeRequired() ? countNodes(element) : XMLObjectProviderMetrics.UNKNOWN_SIZE;
+  }
+
+  /**
+   * Counts the DOM nodes of the supplied element, including the element itself.
+   *
+   * @param element the element
+   * @return the number of nodes
+   */
+  static int countNodes(final Element element) {
+    int count = 0;
+    Node node = element;
+    while (node != null) {
+      count++;
+      if (node.getFirstChild() != null) {
+        node = node.getFirstChild();
+        continue;
+      }
+      while (node != element && node.getNextSibling() == null) {
+        node = node.getParentNode();
+      }
+      node = node != element ? node.getNextSibling() : null;
+    }
+    return count;
+  }
+
+  /**
+   * A call to the wrapped marshaller.
+   */
+  @FunctionalInterface
+  private interface MarshallerInvocation {
+
+    /**
+     * Invokes the marshaller.
+     *
+     * @return the marshalled element
+     * @throws MarshallingException for marshalling errors
+     */
+    Element invoke() throws MarshallingException;
+  }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.config;
+
+import jakarta.annotation.Nonnull;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.core.xml.io.Unmarshaller;
+import org.opensaml.core.xml.io.UnmarshallingException;
+import org.w3c.dom.Element;
+
+import javax.xml.namespace.QName;
+
+/**
+ * An {@link Unmarshaller} that reports to a {@link XMLObjectProviderMetrics} instance.
+ *
+ * @author Martin Lindström
+ */
+final class InstrumentedUnmarshaller implements Unmarshaller {
+
+  /** The nesting depth of instrumented unmarshaller invocations for the current thread. */
+  private static final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+
+  /** The name under which the unmarshaller is registered. */
+  private final QName providerName;
+
+  /** The wrapped unmarshaller. */
+  private final Unmarshaller unmarshaller;
+
+  /** The metrics. */
+  private final XMLObjectProviderMetrics metrics;
+
+  /**
+   * Constructor.
+   *
+   * @param providerName the name under which the unmarshaller is registered
+   * @param unmarshaller the wrapped unmarshaller
+   * @param metrics the metrics
+   */
+  InstrumentedUnmarshaller(
+      final QName providerName, final Unmarshaller unmarshaller, final XMLObjectProviderMetrics metrics) {
+    this.providerName = providerName;
+    this.unmarshaller = unmarshaller;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Gets the wrapped unmarshaller.
+   *
+   * @return the wrapped unmarshaller
+   */
+  Unmarshaller getUnmarshaller() {
+    return this.unmarshaller;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public XMLObject unmarshall(@Nonnull final Element element) throws UnmarshallingException {
+    final int[] current = depth.get();
+    final boolean outermost = current[0]++ == 0;
+    try {
+      final long start = System.nanoTime();
+      final XMLObject object = this.unmarshaller.unmarshall(element);
+      final long duration = System.nanoTime() - start;
+      this.metrics.unmarshalled(
+          this.providerName, duration, InstrumentedMarshaller.size(this.metrics, outermost, element));
+      return object;
+    }
+    finally {
+      current[0]--;
+    }
+  }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.config;
+
+import jakarta.annotation.Nonnull;
+import net.shibboleth.shared.xml.XMLParserException;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.core.xml.io.Marshaller;
+import org.opensaml.core.xml.io.MarshallerFactory;
+import org.opensaml.core.xml.io.Unmarshaller;
+import org.opensaml.core.xml.io.UnmarshallerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Opt-in instrumentation of the marshallers and unmarshallers that {@link XMLObjectProviderInitializer} registers.
+ * <p>
+ * A call to {@link #install(XMLObjectProviderMetrics)} replaces each marshaller and unmarshaller registered from
+ * {@code saml2-eidas-config.xml} with a wrapper that reports invocations to the given metrics implementation, and
+ * {@link #uninstall()} restores the original objects. When the instrumentation is not installed, the registered
+ * marshallers and unmarshallers are the original ones, so there is no overhead at all.
+ * </p>
+ * <p>
+ * The instrumentation must be installed after OpenSAML has been initialized. See also
+ * {@link InMemoryXMLObjectProviderMetrics}.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public final class XMLObjectProviderInstrumentation {
+
+  /** Logger instance. */
+  private static final Logger log = LoggerFactory.getLogger(XMLObjectProviderInstrumentation.class);
+
+  /** The configuration file holding the providers to instrument. */
+  private static final String CONFIG_RESOURCE = "/saml2-eidas-config.xml";
+
+  /** The installed metrics, or {@code null} if the instrumentation is not installed. */
+  private static XMLObjectProviderMetrics installed;
+
+  /** The provider names, read from the configuration on first use. */
+  private static List<QName> providerNames;
+
+  /**
+   * Installs the instrumentation. If the instrumentation is already installed, the metrics implementation is
+   * replaced.
+   *
+   * @param metrics the metrics implementation to report to
+   * @throws IllegalStateException if OpenSAML has not been initialized or the configuration can not be read
+   */
+  public static synchronized void install(@Nonnull final XMLObjectProviderMetrics metrics)
+      throws IllegalStateException {
+    Objects.requireNonNull(metrics, "metrics must not be null");
+    final MarshallerFactory marshallerFactory = XMLObjectProviderRegistrySupport.getMarshallerFactory();
+    final UnmarshallerFactory unmarshallerFactory = XMLObjectProviderRegistrySupport.getUnmarshallerFactory();
+    final List<QName> names = getProviderNames();
+    for (final QName name : names) {
+      Marshaller marshaller = marshallerFactory.getMarshaller(name);
+      if (marshaller instanceof final InstrumentedMarshaller instrumented) {
+        marshaller = instrumented.getMarshaller();
+      }
+      if (marshaller != null) {
+        marshallerFactory.registerMarshaller(name, new InstrumentedMarshaller(name, marshaller, metrics));
+      }
+      Unmarshaller unmarshaller = unmarshallerFactory.getUnmarshaller(name);
+      if (unmarshaller instanceof final InstrumentedUnmarshaller instrumented) {
+        unmarshaller = instrumented.getUnmarshaller();
+      }
+      if (unmarshaller != null) {
+        unmarshallerFactory.registerUnmarshaller(name, new InstrumentedUnmarshaller(name, unmarshaller, metrics));
+      }
+    }
+    installed = metrics;
+    log.info("Installed instrumentation for {} eIDAS object providers", names.size());
+  }
+
+  /**
+   * Removes the instrumentation and restores the original marshallers and unmarshallers. If the instrumentation is
+   * not installed, the method does nothing.
+   */
+  public static synchronized void uninstall() {
+    if (installed == null) {
+      return;
+    }
+    final MarshallerFactory marshallerFactory = XMLObjectProviderRegistrySupport.getMarshallerFactory();
+    final UnmarshallerFactory unmarshallerFactory = XMLObjectProviderRegistrySupport.getUnmarshallerFactory();
+    for (final QName name : getProviderNames()) {
+      if (marshallerFactory.getMarshaller(name) instanceof final InstrumentedMarshaller instrumented) {
+        marshallerFactory.registerMarshaller(name, instrumented.getMarshaller());
+      }
+      if (unmarshallerFactory.getUnmarshaller(name) instanceof final InstrumentedUnmarshaller instrumented) {
+        unmarshallerFactory.registerUnmarshaller(name, instrumented.getUnmarshaller());
+      }
+    }
+    installed = null;
+    log.info("Removed instrumentation for eIDAS object providers");
+  }
+
+  /**
+   * Tells whether the instrumentation is installed.
+   *
+   * @return {@code true} if the instrumentation is installed and {@code false} otherwise
+   */
+  public static synchronized boolean isInstalled() {
+    return installed != null;
+  }
+
+  /**
+   * Gets the names of the object providers that are registered from {@code saml2-eidas-config.xml}.
+   *
+   * @return a list of provider names
+   * @throws IllegalStateException if the configuration can not be read
+   */
+  @Nonnull
+  public static synchronized List<QName> getProviderNames() throws IllegalStateException {
+    if (providerNames == null) {
+      providerNames = readProviderNames();
+    }
+    return providerNames;
+  }
+
+  private static List<QName> readProviderNames() {
+    try (final InputStream is = XMLObjectProviderInstrumentation.class.getResourceAsStream(CONFIG_RESOURCE)) {
+      if (is == null) {
+        throw new IllegalStateException("Missing resource " + CONFIG_RESOURCE);
+      }
+      final Element config = XMLObjectProviderRegistrySupport.getParserPool().parse(is).getDocumentElement();
+      final NodeList providers = config.getElementsByTagNameNS(config.getNamespaceURI(), "ObjectProvider");
+      final List<QName> names = new ArrayList<>(providers.getLength());
+      for (int i = 0; i < providers.getLength(); i++) {
+        final Element provider = (Element) providers.item(i);
+        final String qualifiedName = provider.getAttributeNS(null, "qualifiedName");
+        final int colon = qualifiedName.indexOf(':');
+        final String prefix = colon > 0 ? qualifiedName.substring(0, colon) : null;
+        names.add(new QName(provider.lookupNamespaceURI(prefix), qualifiedName.substring(colon + 1),
+            prefix != null ? prefix : ""));
+      }
+      return List.copyOf(names);
+    }
+    catch (final IOException | XMLParserException e) {
+      throw new IllegalStateException("Failed to read " + CONFIG_RESOURCE, e);
+    }
+  }
+
+  private XMLObjectProviderInstrumentation() {
+  }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.config;
+
+import jakarta.annotation.Nonnull;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Metrics SPI for the marshallers and unmarshallers that this library registers. See
+ * {@link XMLObjectProviderInstrumentation} for how to install an implementation.
+ * <p>
+ * Durations are inclusive, i.e., the time spent marshalling or unmarshalling an element includes the time spent on its
+ * child elements. Sizes are given as the number of DOM nodes of the element that was produced (marshalling) or
+ * consumed (unmarshalling), including the element itself. Since counting nodes requires a walk of the DOM tree, sizes
+ * are only calculated if {@link #isSizeRequired()} returns {@code true}, and then only for the outermost element of a
+ * marshalling or unmarshalling operation. For all other invocations, {@link #UNKNOWN_SIZE} is passed. The size is
+ * calculated after the duration has been measured, so it never affects the reported durations.
+ * </p>
+ * <p>
+ * Implementations must be thread safe and should be cheap since they are invoked for every element.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public interface XMLObjectProviderMetrics {
+
+  /** The size passed when the size of an element has not been calculated. */
+  int UNKNOWN_SIZE = -1;
+
+  /** A metrics implementation that does nothing. */
+  XMLObjectProviderMetrics NOOP = new XMLObjectProviderMetrics() {
+  };
+
+  /**
+   * Tells whether the implementation uses the sizes of the processed elements. If not, the instrumentation never
+   * walks the DOM tree to calculate them and {@link #UNKNOWN_SIZE} is always passed. The default is {@code false}.
+   *
+   * @return {@code true} if sizes should be calculated and {@code false} otherwise
+   */
+  default boolean isSizeRequired() {
+    return false;
+  }
+
+  /**
+   * Invoked after an element has been marshalled.
+   *
+   * @param providerName the name under which the marshaller is registered (element name or type name)
+   * @param durationNanos the time, in nanoseconds, the marshalling took
+   * @param size the size, in DOM nodes, of the marshalled element, or {@link #UNKNOWN_SIZE}
+   */
+  default void marshalled(@Nonnull final QName providerName, final long durationNanos, final int size) {
+  }
+
+  /**
+   * Invoked after an element has been unmarshalled.
+   *
+   * @param providerName the name under which the unmarshaller is registered (element name or type name)
+   * @param durationNanos the time, in nanoseconds, the unmarshalling took
+   * @param size the size, in DOM nodes, of the unmarshalled element, or {@link #UNKNOWN_SIZE}
+   */
+  default void unmarshalled(@Nonnull final QName providerName, final long durationNanos, final int size) {
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.ext;
+
+import jakarta.annotation.Nonnull;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.core.xml.io.MarshallingException;
+import org.opensaml.core.xml.io.UnmarshallingException;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.saml2.core.Extensions;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * An immutable template for the {@code Extensions} element of an {@code AuthnRequest}.
+ * <p>
+ * The extensions that an SP includes in its requests, such as {@link SPType}, {@link NodeCountry} and
+ * {@link RequestedAttributes}, are usually the same for every request. A template marshalls these elements once. Each
+ * call to {@link #createExtensions()} deep-imports the marshalled DOM into a new document and returns an
+ * {@link Extensions} object that has the DOM cached. When the {@code AuthnRequest} is marshalled, the cached DOM is
+ * adopted into the request document instead of the extension elements being marshalled again.
+ * </p>
+ * <p>
+ * The returned {@link Extensions} object belongs to the caller. Other extension elements may be added to it before
+ * the request is marshalled.
+ * </p>
+ * <p>
+ * Instances are thread safe. See also {@link ExtensionTemplateCache}.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public final class ExtensionTemplate {
+
+  /** The marshalled Extensions element. Guarded by itself since DOM implementations are not thread safe. */
+  private final Element element;
+
+  /**
+   * Constructor.
+   *
+   * @param element the marshalled Extensions element
+   */
+  private ExtensionTemplate(final Element element) {
+    this.element = element;
+  }
+
+  /**
+   * Creates a template holding the supplied extension elements.
+   * <p>
+   * The supplied objects must not have a parent. They are added to the template and should not be used after this
+   * call.
+   * </p>
+   *
+   * @param extensions the extension elements
+   * @return an {@link ExtensionTemplate}
+   * @throws MarshallingException if the elements can not be marshalled
+   */
+  @Nonnull
+  public static ExtensionTemplate create(@Nonnull final Collection<? extends XMLObject> extensions)
+      throws MarshallingException {
+    final Extensions ext = (Extensions) XMLObjectSupport.buildXMLObject(Extensions.DEFAULT_ELEMENT_NAME);
+    ext.getUnknownXMLObjects().addAll(Objects.requireNonNull(extensions, "extensions must not be null"));
+    return new ExtensionTemplate(XMLObjectSupport.marshall(ext));
+  }
+
+  /**
+   * Creates a new {@link Extensions} object from the template. The object has its DOM cached, so it will not be
+   * marshalled again when it is part of a request that is marshalled.
+   *
+   * @return an {@link Extensions} object
+   * @throws IllegalStateException if the template can not be unmarshalled (should never happen)
+   */
+  @Nonnull
+  public Extensions createExtensions() throws IllegalStateException {
+    final Element copy;
+    synchronized (this.element) {
+      final Document document = this.element.getOwnerDocument().getImplementation().createDocument(null, null, null);
+      copy = (Element) document.importNode(this.element, true);
+      document.appendChild(copy);
+    }
+    try {
+      return (Extensions) XMLObjectSupport.getUnmarshaller(copy).unmarshall(copy);
+    }
+    catch (final UnmarshallingException e) {
+      throw new IllegalStateException("Failed to unmarshall extension template", e);
+    }
+  }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.ext;
+
+import jakarta.annotation.Nonnull;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.core.xml.io.MarshallingException;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A size-bounded cache of {@link ExtensionTemplate} objects, keyed by an SP configuration (for example the SP
+ * entityID).
+ * <p>
+ * When the cache is full, the least recently used template is evicted. If the configuration for a key changes, the
+ * template must be removed using {@link #remove(Object)}.
+ * </p>
+ * <p>
+ * Instances are thread safe.
+ * </p>
+ *
+ * @param <K> the key type
+ * @author Martin Lindström
+ */
+public class ExtensionTemplateCache<K> {
+
+  /** The default maximum number of templates. */
+  public static final int DEFAULT_MAX_SIZE = 100;
+
+  /** The maximum number of templates. */
+  private final int maxSize;
+
+  /** The templates, in access order. */
+  private final LinkedHashMap<K, ExtensionTemplate> templates = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * Constructor setting up a cache holding at most {@value #DEFAULT_MAX_SIZE} templates.
+   */
+  public ExtensionTemplateCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param maxSize the maximum number of templates
+   */
+  public ExtensionTemplateCache(final int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize must be greater than 0");
+    }
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Gets the template for the given key. If no template is cached, a template is created from the extension elements
+   * given by the supplier.
+   *
+   * @param key the key
+   * @param extensions supplies the extension elements if a template needs to be created
+   * @return an {@link ExtensionTemplate}
+   * @throws MarshallingException if a template can not be created
+   */
+  @Nonnull
+  public ExtensionTemplate get(@Nonnull final K key,
+      @Nonnull final Supplier<? extends Collection<? extends XMLObject>> extensions) throws MarshallingException {
+    Objects.requireNonNull(key, "key must not be null");
+    synchronized (this.templates) {
+      final ExtensionTemplate template = this.templates.get(key);
+      if (template != null) {
+        return template;
+      }
+    }
+    final ExtensionTemplate template =
+        ExtensionTemplate.create(Objects.requireNonNull(extensions, "extensions must not be null").get());
+    synchronized (this.templates) {
+      final ExtensionTemplate existing = this.templates.putIfAbsent(key, template);
+      if (existing != null) {
+        return existing;
+      }
+      this.evict();
+    }
+    return template;
+  }
+
+  /**
+   * Removes the template for the given key.
+   *
+   * @param key the key
+   */
+  public void remove(@Nonnull final K key) {
+    synchronized (this.templates) {
+      this.templates.remove(key);
+    }
+  }
+
+  /**
+   * Removes all templates.
+   */
+  public void clear() {
+    synchronized (this.templates) {
+      this.templates.clear();
+    }
+  }
+
+  /**
+   * Gets the number of cached templates.
+   *
+   * @return the number of templates
+   */
+  public int size() {
+    synchronized (this.templates) {
+      return this.templates.size();
+    }
+  }
+
+  /**
+   * Evicts the least recently used templates until the cache size is within bounds. Must be called while holding the
+   * lock.
+   */
+  private void evict() {
+    while (this.templates.size() > this.maxSize) {
+      final Map.Entry<K, ExtensionTemplate> eldest = this.templates.entrySet().iterator().next();
+      this.templates.remove(eldest.getKey());
+    }
+  }
+
+}
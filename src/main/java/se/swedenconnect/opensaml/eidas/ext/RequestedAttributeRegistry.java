@@ -0,0 +1,285 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.ext;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.opensaml.core.xml.XMLObjectBuilder;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.saml.saml2.core.Attribute;
+
+import se.swedenconnect.opensaml.eidas.ext.attributes.AttributeConstants;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Builds {@link RequestedAttribute} and {@link RequestedAttributes} objects from {@link Definition} records.
+ * <p>
+ * This is an alternative to {@link RequestedAttributeTemplates} for code that creates many requests. The builders for
+ * {@link RequestedAttribute} and {@link RequestedAttributes} are resolved once, when the registry is created, and
+ * each call to {@link #create(Definition)} builds a fresh object using the cached builder and the values of the
+ * definition. A definition is resolved (i.e., the name and friendly name are looked up) when it is created, so
+ * applications that load their attribute sets from configuration should create the definitions once and reuse them.
+ * </p>
+ * <p>
+ * The registry does not keep prebuilt prototypes keyed by (attribute name, isRequired, friendly name flag). OpenSAML
+ * objects are mutable and can only have one parent, so a prototype can not be shared and would have to be copied
+ * field by field anyway. A resolved definition already holds exactly the values of such a prototype, and copying them
+ * from the definition avoids the map lookup (and key allocation) that a prototype cache would add to every call.
+ * </p>
+ * <p>
+ * The registry knows the friendly names for all attributes defined in {@link AttributeConstants}. Attributes may be
+ * given using either their name or their friendly name.
+ * </p>
+ * <p>
+ * Since the registry resolves builders from the OpenSAML registry, it must be created after OpenSAML has been
+ * initialized. Instances are thread safe.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public final class RequestedAttributeRegistry {
+
+  /** Friendly names for all known attributes, indexed by attribute name. */
+  private static final Map<String, String> FRIENDLY_NAMES = Map.ofEntries(
+      Map.entry(AttributeConstants.EIDAS_PERSON_IDENTIFIER_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_PERSON_IDENTIFIER_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_CURRENT_FAMILY_NAME_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_CURRENT_FAMILY_NAME_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_CURRENT_GIVEN_NAME_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_CURRENT_GIVEN_NAME_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_DATE_OF_BIRTH_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_DATE_OF_BIRTH_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_GENDER_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_GENDER_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_CURRENT_ADDRESS_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_CURRENT_ADDRESS_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_BIRTH_NAME_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_BIRTH_NAME_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_PLACE_OF_BIRTH_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_PLACE_OF_BIRTH_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_NATIONALITY_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_NATIONALITY_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_COUNTRY_OF_BIRTH_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_COUNTRY_OF_BIRTH_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_TOWN_OF_BIRTH_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_TOWN_OF_BIRTH_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_COUNTRY_OF_RESIDENCE_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_COUNTRY_OF_RESIDENCE_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_PHONE_NUMBER_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_PHONE_NUMBER_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_EMAIL_ADDRESS_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_EMAIL_ADDRESS_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_REPRESENTATIVE_PERSON_IDENTIFIER_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_REPRESENTATIVE_PERSON_IDENTIFIER_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_REPRESENTATIVE_CURRENT_FAMILY_NAME_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_REPRESENTATIVE_CURRENT_FAMILY_NAME_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_REPRESENTATIVE_CURRENT_GIVEN_NAME_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_REPRESENTATIVE_CURRENT_GIVEN_NAME_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_REPRESENTATIVE_DATE_OF_BIRTH_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_REPRESENTATIVE_DATE_OF_BIRTH_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_REPRESENTATIVE_GENDER_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_REPRESENTATIVE_GENDER_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_REPRESENTATIVE_CURRENT_ADDRESS_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_REPRESENTATIVE_CURRENT_ADDRESS_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_REPRESENTATIVE_BIRTH_NAME_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_REPRESENTATIVE_BIRTH_NAME_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_REPRESENTATIVE_PLACE_OF_BIRTH_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_REPRESENTATIVE_PLACE_OF_BIRTH_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_LEGAL_PERSON_IDENTIFIER_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_LEGAL_PERSON_IDENTIFIER_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_LEGAL_NAME_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_LEGAL_NAME_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_LEGAL_PERSON_ADDRESS_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_LEGAL_PERSON_ADDRESS_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_VAT_REGISTRATION_NUMBER_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_VAT_REGISTRATION_NUMBER_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_TAX_REFERENCE_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_TAX_REFERENCE_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_D_2012_17_EU_IDENTIFIER_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_D_2012_17_EU_IDENTIFIER_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_LEI_ATTRIBUTE_NAME, AttributeConstants.EIDAS_LEI_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_EORI_ATTRIBUTE_NAME, AttributeConstants.EIDAS_EORI_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_SEED_ATTRIBUTE_NAME, AttributeConstants.EIDAS_SEED_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_SIC_ATTRIBUTE_NAME, AttributeConstants.EIDAS_SIC_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_REPRESENTATIVE_LEGAL_PERSON_IDENTIFIER_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_REPRESENTATIVE_LEGAL_PERSON_IDENTIFIER_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_REPRESENTATIVE_LEGAL_NAME_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_REPRESENTATIVE_LEGAL_NAME_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_REPRESENTATIVE_LEGAL_PERSON_ADDRESS_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_REPRESENTATIVE_LEGAL_PERSON_ADDRESS_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_REPRESENTATIVE_VAT_REGISTRATION_NUMBER_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_REPRESENTATIVE_VAT_REGISTRATION_NUMBER_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_REPRESENTATIVE_TAX_REFERENCE_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_REPRESENTATIVE_TAX_REFERENCE_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_REPRESENTATIVE_D_2012_17_EU_IDENTIFIER_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_REPRESENTATIVE_D_2012_17_EU_IDENTIFIER_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_REPRESENTATIVE_LEI_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_REPRESENTATIVE_LEI_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_REPRESENTATIVE_EORI_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_REPRESENTATIVE_EORI_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_REPRESENTATIVE_SEED_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_REPRESENTATIVE_SEED_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EIDAS_REPRESENTATIVE_SIC_ATTRIBUTE_NAME,
+          AttributeConstants.EIDAS_REPRESENTATIVE_SIC_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EJUSTICE_NATURAL_PERSON_ROLE_ATTRIBUTE_NAME,
+          AttributeConstants.EJUSTICE_NATURAL_PERSON_ROLE_ATTRIBUTE_FRIENDLY_NAME),
+      Map.entry(AttributeConstants.EJUSTICE_LEGAL_PERSON_ROLE_ATTRIBUTE_NAME,
+          AttributeConstants.EJUSTICE_LEGAL_PERSON_ROLE_ATTRIBUTE_FRIENDLY_NAME));
+
+  /** Attribute names for all known attributes, indexed by friendly name. */
+  private static final Map<String, String> NAMES = FRIENDLY_NAMES.entrySet().stream()
+      .collect(Collectors.toUnmodifiableMap(Map.Entry::getValue, Map.Entry::getKey));
+
+  /** The builder for RequestedAttribute objects. */
+  private final XMLObjectBuilder<RequestedAttribute> requestedAttributeBuilder;
+
+  /** The builder for RequestedAttributes objects. */
+  private final XMLObjectBuilder<RequestedAttributes> requestedAttributesBuilder;
+
+  /**
+   * Constructor.
+   *
+   * @throws IllegalStateException if OpenSAML has not been initialized
+   */
+  public RequestedAttributeRegistry() throws IllegalStateException {
+    this.requestedAttributeBuilder = getBuilder(RequestedAttribute.class, RequestedAttribute.DEFAULT_ELEMENT_NAME);
+    this.requestedAttributesBuilder = getBuilder(RequestedAttributes.class, RequestedAttributes.DEFAULT_ELEMENT_NAME);
+  }
+
+  /**
+   * Creates a {@code RequestedAttribute} object.
+   *
+   * @param name the attribute name, or the friendly name of a known attribute
+   * @param isRequired flag to tell whether the attribute is required
+   * @param includeFriendlyName flag that tells whether the friendly name should be included (ignored if the attribute
+   *     is not known)
+   * @return a {@link RequestedAttribute} object
+   */
+  @Nonnull
+  public RequestedAttribute create(
+      @Nonnull final String name, @Nullable final Boolean isRequired, final boolean includeFriendlyName) {
+    return this.create(Definition.of(name, isRequired, includeFriendlyName));
+  }
+
+  /**
+   * Creates a {@code RequestedAttribute} object.
+   *
+   * @param definition the attribute definition
+   * @return a {@link RequestedAttribute} object
+   */
+  @Nonnull
+  public RequestedAttribute create(@Nonnull final Definition definition) {
+    Objects.requireNonNull(definition, "definition must not be null");
+    final RequestedAttribute ra = this.requestedAttributeBuilder.buildObject(RequestedAttribute.DEFAULT_ELEMENT_NAME);
+    ra.setName(definition.name());
+    ra.setFriendlyName(definition.friendlyName());
+    ra.setNameFormat(Attribute.URI_REFERENCE);
+    ra.setIsRequired(definition.isRequired());
+    return ra;
+  }
+
+  /**
+   * Creates a {@code RequestedAttributes} element holding the given attributes. This is intended for attribute sets
+   * that are read from configuration.
+   *
+   * @param definitions the attribute definitions
+   * @return a {@link RequestedAttributes} object
+   */
+  @Nonnull
+  public RequestedAttributes createRequestedAttributes(@Nonnull final Collection<Definition> definitions) {
+    final RequestedAttributes requestedAttributes =
+        this.requestedAttributesBuilder.buildObject(RequestedAttributes.DEFAULT_ELEMENT_NAME);
+    for (final Definition definition : Objects.requireNonNull(definitions, "definitions must not be null")) {
+      requestedAttributes.getRequestedAttributes().add(this.create(definition));
+    }
+    return requestedAttributes;
+  }
+
+  /**
+   * Creates a {@code RequestedAttributes} element holding the given attributes.
+   *
+   * @param attributes a map where the keys are attribute names (or friendly names) and the values tell whether the
+   *     attribute is required
+   * @param includeFriendlyName flag that tells whether friendly names should be included
+   * @return a {@link RequestedAttributes} object
+   */
+  @Nonnull
+  public RequestedAttributes createRequestedAttributes(
+      @Nonnull final Map<String, Boolean> attributes, final boolean includeFriendlyName) {
+    return this.createRequestedAttributes(Objects.requireNonNull(attributes, "attributes must not be null")
+        .entrySet()
+        .stream()
+        .map(e -> Definition.of(e.getKey(), e.getValue(), includeFriendlyName))
+        .toList());
+  }
+
+  private static <T> XMLObjectBuilder<T> getBuilder(final Class<T> type, final QName name) {
+    final XMLObjectBuilder<?> builder = XMLObjectProviderRegistrySupport.getBuilderFactory().getBuilder(name);
+    if (builder == null) {
+      throw new IllegalStateException("No builder for " + name + " - has OpenSAML been initialized?");
+    }
+    @SuppressWarnings("unchecked")
+    final XMLObjectBuilder<T> typedBuilder = (XMLObjectBuilder<T>) builder;
+    return typedBuilder;
+  }
+
+  /**
+   * The resolved definition of a requested attribute. Use {@link #of(String, Boolean, boolean)} to resolve a
+   * definition from an attribute name or friendly name.
+   *
+   * @param name the attribute name
+   * @param friendlyName the friendly name (may be {@code null})
+   * @param isRequired flag to tell whether the attribute is required
+   */
+  public record Definition(@Nonnull String name, @Nullable String friendlyName, @Nullable Boolean isRequired) {
+
+    /**
+     * Constructor asserting that the name is set.
+     *
+     * @param name the attribute name
+     * @param friendlyName the friendly name (may be {@code null})
+     * @param isRequired flag to tell whether the attribute is required
+     */
+    public Definition {
+      Objects.requireNonNull(name, "name must not be null");
+    }
+
+    /**
+     * Resolves a definition. If the supplied name is the friendly name of a known attribute, it is replaced with the
+     * attribute name.
+     *
+     * @param name the attribute name, or the friendly name of a known attribute
+     * @param isRequired flag to tell whether the attribute is required
+     * @param includeFriendlyName flag that tells whether the friendly name should be included (ignored if the
+     *     attribute is not known)
+     * @return a {@link Definition}
+     */
+    @Nonnull
+    public static Definition of(
+        @Nonnull final String name, @Nullable final Boolean isRequired, final boolean includeFriendlyName) {
+      final String attributeName = NAMES.getOrDefault(Objects.requireNonNull(name, "name must not be null"), name);
+      return new Definition(
+          attributeName, includeFriendlyName ? FRIENDLY_NAMES.get(attributeName) : null, isRequired);
+    }
+  }
+
+}
@@ -191,6 +191,139 @@ public class AttributeConstants {
   /** Representative PlaceOfBirth friendly name. */
   public static final String EIDAS_REPRESENTATIVE_PLACE_OF_BIRTH_ATTRIBUTE_FRIENDLY_NAME = "RepresentativePlaceOfBirth";
 
+  /** Attribute name for LegalPersonIdentifier. */
+  public static final String EIDAS_LEGAL_PERSON_IDENTIFIER_ATTRIBUTE_NAME =
+      LEGAL_PERSON_PREFIX + "LegalPersonIdentifier";
+
+  /** Friendly name for LegalPersonIdentifier. */
+  public static final String EIDAS_LEGAL_PERSON_IDENTIFIER_ATTRIBUTE_FRIENDLY_NAME = "LegalPersonIdentifier";
+
+  /** Attribute name for LegalName. */
+  public static final String EIDAS_LEGAL_NAME_ATTRIBUTE_NAME = LEGAL_PERSON_PREFIX + "LegalName";
+
+  /** Friendly name for LegalName. */
+  public static final String EIDAS_LEGAL_NAME_ATTRIBUTE_FRIENDLY_NAME = "LegalName";
+
+  /** Attribute name for LegalPersonAddress. */
+  public static final String EIDAS_LEGAL_PERSON_ADDRESS_ATTRIBUTE_NAME = LEGAL_PERSON_PREFIX + "LegalPersonAddress";
+
+  /** Friendly name for LegalPersonAddress. */
+  public static final String EIDAS_LEGAL_PERSON_ADDRESS_ATTRIBUTE_FRIENDLY_NAME = "LegalAddress";
+
+  /** Attribute name for VATRegistrationNumber. */
+  public static final String EIDAS_VAT_REGISTRATION_NUMBER_ATTRIBUTE_NAME =
+      LEGAL_PERSON_PREFIX + "VATRegistrationNumber";
+
+  /** Friendly name for VATRegistrationNumber. */
+  public static final String EIDAS_VAT_REGISTRATION_NUMBER_ATTRIBUTE_FRIENDLY_NAME = "VATRegistration";
+
+  /** Attribute name for TaxReference. */
+  public static final String EIDAS_TAX_REFERENCE_ATTRIBUTE_NAME = LEGAL_PERSON_PREFIX + "TaxReference";
+
+  /** Friendly name for TaxReference. */
+  public static final String EIDAS_TAX_REFERENCE_ATTRIBUTE_FRIENDLY_NAME = "TaxReference";
+
+  /** Attribute name for D-2012-17-EUIdentifier. */
+  public static final String EIDAS_D_2012_17_EU_IDENTIFIER_ATTRIBUTE_NAME =
+      LEGAL_PERSON_PREFIX + "D-2012-17-EUIdentifier";
+
+  /** Friendly name for D-2012-17-EUIdentifier. */
+  public static final String EIDAS_D_2012_17_EU_IDENTIFIER_ATTRIBUTE_FRIENDLY_NAME = "D-2012-17-EUIdentifier";
+
+  /** Attribute name for LEI. */
+  public static final String EIDAS_LEI_ATTRIBUTE_NAME = LEGAL_PERSON_PREFIX + "LEI";
+
+  /** Friendly name for LEI. */
+  public static final String EIDAS_LEI_ATTRIBUTE_FRIENDLY_NAME = "LEI";
+
+  /** Attribute name for EORI. */
+  public static final String EIDAS_EORI_ATTRIBUTE_NAME = LEGAL_PERSON_PREFIX + "EORI";
+
+  /** Friendly name for EORI. */
+  public static final String EIDAS_EORI_ATTRIBUTE_FRIENDLY_NAME = "EORI";
+
+  /** Attribute name for SEED. */
+  public static final String EIDAS_SEED_ATTRIBUTE_NAME = LEGAL_PERSON_PREFIX + "SEED";
+
+  /** Friendly name for SEED. */
+  public static final String EIDAS_SEED_ATTRIBUTE_FRIENDLY_NAME = "SEED";
+
+  /** Attribute name for SIC. */
+  public static final String EIDAS_SIC_ATTRIBUTE_NAME = LEGAL_PERSON_PREFIX + "SIC";
+
+  /** Friendly name for SIC. */
+  public static final String EIDAS_SIC_ATTRIBUTE_FRIENDLY_NAME = "SIC";
+
+  /** Attribute name for representative LegalPersonIdentifier. */
+  public static final String EIDAS_REPRESENTATIVE_LEGAL_PERSON_IDENTIFIER_ATTRIBUTE_NAME =
+      REPRESENTATIVE_LEGAL_PERSON_PREFIX + "LegalPersonIdentifier";
+
+  /** Representative LegalPersonIdentifier friendly name. */
+  public static final String EIDAS_REPRESENTATIVE_LEGAL_PERSON_IDENTIFIER_ATTRIBUTE_FRIENDLY_NAME =
+      "RepresentativeLegalPersonIdentifier";
+
+  /** Attribute name for representative LegalName. */
+  public static final String EIDAS_REPRESENTATIVE_LEGAL_NAME_ATTRIBUTE_NAME =
+      REPRESENTATIVE_LEGAL_PERSON_PREFIX + "LegalName";
+
+  /** Representative LegalName friendly name. */
+  public static final String EIDAS_REPRESENTATIVE_LEGAL_NAME_ATTRIBUTE_FRIENDLY_NAME = "RepresentativeLegalName";
+
+  /** Attribute name for representative LegalPersonAddress. */
+  public static final String EIDAS_REPRESENTATIVE_LEGAL_PERSON_ADDRESS_ATTRIBUTE_NAME =
+      REPRESENTATIVE_LEGAL_PERSON_PREFIX + "LegalPersonAddress";
+
+  /** Representative LegalPersonAddress friendly name. */
+  public static final String EIDAS_REPRESENTATIVE_LEGAL_PERSON_ADDRESS_ATTRIBUTE_FRIENDLY_NAME =
+      "RepresentativeLegalAddress";
+
+  /** Attribute name for representative VATRegistrationNumber. */
+  public static final String EIDAS_REPRESENTATIVE_VAT_REGISTRATION_NUMBER_ATTRIBUTE_NAME =
+      REPRESENTATIVE_LEGAL_PERSON_PREFIX + "VATRegistrationNumber";
+
+  /** Representative VATRegistrationNumber friendly name. */
+  public static final String EIDAS_REPRESENTATIVE_VAT_REGISTRATION_NUMBER_ATTRIBUTE_FRIENDLY_NAME =
+      "RepresentativeVATRegistration";
+
+  /** Attribute name for representative TaxReference. */
+  public static final String EIDAS_REPRESENTATIVE_TAX_REFERENCE_ATTRIBUTE_NAME =
+      REPRESENTATIVE_LEGAL_PERSON_PREFIX + "TaxReference";
+
+  /** Representative TaxReference friendly name. */
+  public static final String EIDAS_REPRESENTATIVE_TAX_REFERENCE_ATTRIBUTE_FRIENDLY_NAME = "RepresentativeTaxReference";
+
+  /** Attribute name for representative D-2012-17-EUIdentifier. */
+  public static final String EIDAS_REPRESENTATIVE_D_2012_17_EU_IDENTIFIER_ATTRIBUTE_NAME =
+      REPRESENTATIVE_LEGAL_PERSON_PREFIX + "D-2012-17-EUIdentifier";
+
+  /** Representative D-2012-17-EUIdentifier friendly name. */
+  public static final String EIDAS_REPRESENTATIVE_D_2012_17_EU_IDENTIFIER_ATTRIBUTE_FRIENDLY_NAME =
+      "RepresentativeD-2012-17-EUIdentifier";
+
+  /** Attribute name for representative LEI. */
+  public static final String EIDAS_REPRESENTATIVE_LEI_ATTRIBUTE_NAME = REPRESENTATIVE_LEGAL_PERSON_PREFIX + "LEI";
+
+  /** Representative LEI friendly name. */
+  public static final String EIDAS_REPRESENTATIVE_LEI_ATTRIBUTE_FRIENDLY_NAME = "RepresentativeLEI";
+
+  /** Attribute name for representative EORI. */
+  public static final String EIDAS_REPRESENTATIVE_EORI_ATTRIBUTE_NAME = REPRESENTATIVE_LEGAL_PERSON_PREFIX + "EORI";
+
+  /** Representative EORI friendly name. */
+  public static final String EIDAS_REPRESENTATIVE_EORI_ATTRIBUTE_FRIENDLY_NAME = "RepresentativeEORI";
+
+  /** Attribute name for representative SEED. */
+  public static final String EIDAS_REPRESENTATIVE_SEED_ATTRIBUTE_NAME = REPRESENTATIVE_LEGAL_PERSON_PREFIX + "SEED";
+
+  /** Representative SEED friendly name. */
+  public static final String EIDAS_REPRESENTATIVE_SEED_ATTRIBUTE_FRIENDLY_NAME = "RepresentativeSEED";
+
+  /** Attribute name for representative SIC. */
+  public static final String EIDAS_REPRESENTATIVE_SIC_ATTRIBUTE_NAME = REPRESENTATIVE_LEGAL_PERSON_PREFIX + "SIC";
+
+  /** Representative SIC friendly name. */
+  public static final String EIDAS_REPRESENTATIVE_SIC_ATTRIBUTE_FRIENDLY_NAME = "RepresentativeSIC";
+
   /** Attribute name for eJusticeNaturalPersonRole. */
   public static final String EJUSTICE_NATURAL_PERSON_ROLE_ATTRIBUTE_NAME =
       EJUSTICE_NATURAL_PERSON_PREFIX + "eJusticeNaturalPersonRole";
@@ -15,6 +15,8 @@
  */
 package se.swedenconnect.opensaml.eidas.ext.attributes;
 
+import java.util.Map;
+
 import javax.xml.namespace.QName;
 
 import org.opensaml.core.xml.XMLObject;
@@ -34,6 +36,39 @@ public class AttributeUtils {
   /** Builder for Attribute types. */
   private static final AttributeBuilder attributeBuilder = new AttributeBuilder();
 
+  /** The schema types of the attribute value types defined by this library. */
+  private static final Map<Class<?>, QName> eidasSchemaTypes = Map.ofEntries(
+      Map.entry(PersonIdentifierType.class, PersonIdentifierType.TYPE_NAME),
+      Map.entry(CurrentFamilyNameType.class, CurrentFamilyNameType.TYPE_NAME),
+      Map.entry(CurrentGivenNameType.class, CurrentGivenNameType.TYPE_NAME),
+      Map.entry(DateOfBirthType.class, DateOfBirthType.TYPE_NAME),
+      Map.entry(GenderType.class, GenderType.TYPE_NAME),
+      Map.entry(CurrentAddressType.class, CurrentAddressType.TYPE_NAME),
+      Map.entry(CurrentAddressStructuredType.class, CurrentAddressStructuredType.TYPE_NAME),
+      Map.entry(BirthNameType.class, BirthNameType.TYPE_NAME),
+      Map.entry(PlaceOfBirthType.class, PlaceOfBirthType.TYPE_NAME),
+      Map.entry(NationalityType.class, NationalityType.TYPE_NAME),
+      Map.entry(CountryOfBirthType.class, CountryOfBirthType.TYPE_NAME),
+      Map.entry(CountryOfResidenceType.class, CountryOfResidenceType.TYPE_NAME));
+
+  /** Resolved schema types, per attribute value class. */
+  private static final ClassValue<QName> attributeValueSchemaTypes = new ClassValue<>() {
+
+    @Override
+    protected QName computeValue(final Class<?> type) {
+      final QName schemaType = eidasSchemaTypes.get(type);
+      if (schemaType != null) {
+        return schemaType;
+      }
+      try {
+        return (QName) type.getDeclaredField("TYPE_NAME").get(null);
+      }
+      catch (final NoSuchFieldException | IllegalArgumentException | IllegalAccessException | SecurityException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  };
+
   // Hidden constructor
   private AttributeUtils() {
   }
@@ -71,6 +106,12 @@ public class AttributeUtils {
    * Creates an {@code AttributeValue} object of the given class. The type of the attribute value will be the field that
    * is declared as {@code TYPE_NAME} of the given class.
    * <p>
+   * The schema type is resolved once per class. For the attribute value types defined by this library, for example
+   * {@link CurrentFamilyNameType}, the schema type is known beforehand. For other types, the {@code TYPE_NAME} field is
+   * read. The builder is looked up in the builder factory for each call, so builders registered by the application,
+   * also after the first call, are used.
+   * </p>
+   * <p>
    * After the object has been constructed, its setter methods should be called to setup the value object before adding
    * it to the attribute itself.
    * </p>
@@ -81,13 +122,7 @@ public class AttributeUtils {
    * @see #createAttributeValueObject(QName, Class)
    */
   public static <T extends XMLObject> T createAttributeValueObject(final Class<T> clazz) {
-    try {
-      final QName schemaType = (QName) clazz.getDeclaredField("TYPE_NAME").get(null);
-      return createAttributeValueObject(schemaType, clazz);
-    }
-    catch (final NoSuchFieldException | IllegalArgumentException | IllegalAccessException | SecurityException e) {
-      throw new RuntimeException(e);
-    }
+    return createAttributeValueObject(attributeValueSchemaTypes.get(clazz), clazz);
   }
 
   /**
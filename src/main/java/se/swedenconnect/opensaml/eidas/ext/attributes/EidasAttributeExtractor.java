@@ -0,0 +1,469 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.ext.attributes;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import net.shibboleth.shared.xml.XMLConstants;
+import net.shibboleth.shared.xml.XMLParserException;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.core.xml.io.Unmarshaller;
+import org.opensaml.core.xml.io.UnmarshallingException;
+import org.opensaml.core.xml.schema.XSAny;
+import org.opensaml.core.xml.schema.XSString;
+import org.opensaml.core.xml.schema.XSURI;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.saml2.core.Attribute;
+import org.opensaml.saml.saml2.core.AttributeStatement;
+import org.opensaml.saml.saml2.core.AttributeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import se.swedenconnect.opensaml.eidas.common.EidasConstants;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Extracts eIDAS attributes into typed {@link EidasNaturalPerson} and {@link EidasLegalPerson} views.
+ * <p>
+ * The extractor dispatches on the attribute name using a precomputed hash table that covers the natural person, legal
+ * person, representative and e-Justice attributes defined in {@link AttributeConstants}, so each attribute is handled
+ * with a single lookup and the values are processed in one pass. Attributes that are not known, or that the extractor
+ * has not been configured to extract (see {@link #forAttributes(Collection)}), are skipped without looking at their
+ * values.
+ * </p>
+ * <p>
+ * Values are read using their eIDAS types (for example {@link DateOfBirthType}) when available. For values of other
+ * types, the string content is used. If an attribute holds both a Latin script value and a non-Latin script value
+ * (see {@link TransliterationStringType}), the Latin script value is used. A {@code LegalPersonAddress} value that
+ * has not been unmarshalled as a {@link CurrentAddressType} (it usually has a schema type that is not registered) is
+ * decoded using the {@code CurrentAddressType} unmarshaller, since it holds the same Base64-encoded address structure.
+ * </p>
+ * <p>
+ * Instances are immutable and thread safe.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public final class EidasAttributeExtractor {
+
+  /** Logger instance. */
+  private static final Logger log = LoggerFactory.getLogger(EidasAttributeExtractor.class);
+
+  /** Handlers for all supported attributes, indexed by attribute name. */
+  private static final Map<String, Handler> ALL_HANDLERS = createHandlers();
+
+  /** Extractor for all supported attributes. */
+  private static final EidasAttributeExtractor ALL = new EidasAttributeExtractor(ALL_HANDLERS);
+
+  /** The handlers of this extractor. */
+  private final Map<String, Handler> handlers;
+
+  /**
+   * Constructor.
+   *
+   * @param handlers the handlers
+   */
+  private EidasAttributeExtractor(final Map<String, Handler> handlers) {
+    this.handlers = handlers;
+  }
+
+  /**
+   * Returns an extractor that extracts all supported attributes.
+   *
+   * @return an extractor
+   */
+  @Nonnull
+  public static EidasAttributeExtractor getInstance() {
+    return ALL;
+  }
+
+  /**
+   * Returns an extractor that only extracts the given attributes. All other attributes are skipped.
+   *
+   * @param attributeNames the names of the attributes to extract
+   * @return an extractor
+   */
+  @Nonnull
+  public static EidasAttributeExtractor forAttributes(@Nonnull final Collection<String> attributeNames) {
+    final Map<String, Handler> handlers = new HashMap<>();
+    for (final String name : Objects.requireNonNull(attributeNames, "attributeNames must not be null")) {
+      final Handler handler = name != null ? ALL_HANDLERS.get(name) : null;
+      if (handler != null) {
+        handlers.put(name, handler);
+      }
+    }
+    return new EidasAttributeExtractor(Map.copyOf(handlers));
+  }
+
+  /**
+   * Extracts the attributes of the supplied attribute statement.
+   *
+   * @param attributeStatement the attribute statement
+   * @return the extracted attributes
+   */
+  @Nonnull
+  public EidasAttributes extract(@Nonnull final AttributeStatement attributeStatement) {
+    return this.extract(
+        Objects.requireNonNull(attributeStatement, "attributeStatement must not be null").getAttributes());
+  }
+
+  /**
+   * Extracts the supplied attributes.
+   *
+   * @param attributes the attributes
+   * @return the extracted attributes
+   */
+  @Nonnull
+  public EidasAttributes extract(@Nonnull final Collection<? extends Attribute> attributes) {
+    final Context context = new Context();
+    for (final Attribute attribute : Objects.requireNonNull(attributes, "attributes must not be null")) {
+      final String name = attribute.getName();
+      final Handler handler = name != null ? this.handlers.get(name) : null;
+      if (handler != null && !attribute.getAttributeValues().isEmpty()) {
+        handler.handle(context, attribute.getAttributeValues());
+      }
+    }
+    return new EidasAttributes(
+        context.naturalPerson != null ? context.naturalPerson.build() : null,
+        context.representativeNaturalPerson != null ? context.representativeNaturalPerson.build() : null,
+        context.legalPerson != null ? context.legalPerson.build() : null,
+        context.representativeLegalPerson != null ? context.representativeLegalPerson.build() : null,
+        context.eJusticeNaturalPersonRole, context.eJusticeLegalPersonRole);
+  }
+
+  /**
+   * Creates the handlers for all supported attributes.
+   *
+   * @return a map of handlers
+   */
+  private static Map<String, Handler> createHandlers() {
+    final Map<String, Handler> handlers = new HashMap<>();
+
+    addNaturalPersonHandler(handlers, AttributeConstants.EIDAS_PERSON_IDENTIFIER_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_PERSON_IDENTIFIER_ATTRIBUTE_NAME,
+        (b, v) -> b.personIdentifier(getString(v)));
+    addNaturalPersonHandler(handlers, AttributeConstants.EIDAS_CURRENT_FAMILY_NAME_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_CURRENT_FAMILY_NAME_ATTRIBUTE_NAME,
+        (b, v) -> b.currentFamilyName(getLatinString(v)));
+    addNaturalPersonHandler(handlers, AttributeConstants.EIDAS_CURRENT_GIVEN_NAME_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_CURRENT_GIVEN_NAME_ATTRIBUTE_NAME,
+        (b, v) -> b.currentGivenName(getLatinString(v)));
+    addNaturalPersonHandler(handlers, AttributeConstants.EIDAS_DATE_OF_BIRTH_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_DATE_OF_BIRTH_ATTRIBUTE_NAME,
+        (b, v) -> b.dateOfBirth(getDate(v)));
+    addNaturalPersonHandler(handlers, AttributeConstants.EIDAS_GENDER_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_GENDER_ATTRIBUTE_NAME,
+        (b, v) -> b.gender(getGender(v)));
+    addNaturalPersonHandler(handlers, AttributeConstants.EIDAS_CURRENT_ADDRESS_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_CURRENT_ADDRESS_ATTRIBUTE_NAME,
+        (b, v) -> b.currentAddress(getAddress(v)));
+    addNaturalPersonHandler(handlers, AttributeConstants.EIDAS_BIRTH_NAME_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_BIRTH_NAME_ATTRIBUTE_NAME,
+        (b, v) -> b.birthName(getLatinString(v)));
+    addNaturalPersonHandler(handlers, AttributeConstants.EIDAS_PLACE_OF_BIRTH_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_PLACE_OF_BIRTH_ATTRIBUTE_NAME,
+        (b, v) -> b.placeOfBirth(getString(v)));
+
+    // The attributes below have no representative counterparts
+    addNaturalPersonHandler(handlers, AttributeConstants.EIDAS_NATIONALITY_ATTRIBUTE_NAME, null,
+        (b, v) -> b.nationalities(getStrings(v)));
+    addNaturalPersonHandler(handlers, AttributeConstants.EIDAS_COUNTRY_OF_BIRTH_ATTRIBUTE_NAME, null,
+        (b, v) -> b.countryOfBirth(getString(v)));
+    addNaturalPersonHandler(handlers, AttributeConstants.EIDAS_TOWN_OF_BIRTH_ATTRIBUTE_NAME, null,
+        (b, v) -> b.townOfBirth(getString(v)));
+    addNaturalPersonHandler(handlers, AttributeConstants.EIDAS_COUNTRY_OF_RESIDENCE_ATTRIBUTE_NAME, null,
+        (b, v) -> b.countryOfResidence(getString(v)));
+    addNaturalPersonHandler(handlers, AttributeConstants.EIDAS_PHONE_NUMBER_ATTRIBUTE_NAME, null,
+        (b, v) -> b.phoneNumber(getString(v)));
+    addNaturalPersonHandler(handlers, AttributeConstants.EIDAS_EMAIL_ADDRESS_ATTRIBUTE_NAME, null,
+        (b, v) -> b.emailAddress(getString(v)));
+
+    addLegalPersonHandler(handlers, AttributeConstants.EIDAS_LEGAL_PERSON_IDENTIFIER_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_LEGAL_PERSON_IDENTIFIER_ATTRIBUTE_NAME,
+        (b, v) -> b.legalPersonIdentifier(getString(v)));
+    addLegalPersonHandler(handlers, AttributeConstants.EIDAS_LEGAL_NAME_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_LEGAL_NAME_ATTRIBUTE_NAME,
+        (b, v) -> b.legalName(getLatinString(v)));
+    addLegalPersonHandler(handlers, AttributeConstants.EIDAS_LEGAL_PERSON_ADDRESS_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_LEGAL_PERSON_ADDRESS_ATTRIBUTE_NAME,
+        (b, v) -> b.legalPersonAddress(getAddress(v)));
+    addLegalPersonHandler(handlers, AttributeConstants.EIDAS_VAT_REGISTRATION_NUMBER_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_VAT_REGISTRATION_NUMBER_ATTRIBUTE_NAME,
+        (b, v) -> b.vatRegistrationNumber(getString(v)));
+    addLegalPersonHandler(handlers, AttributeConstants.EIDAS_TAX_REFERENCE_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_TAX_REFERENCE_ATTRIBUTE_NAME,
+        (b, v) -> b.taxReference(getString(v)));
+    addLegalPersonHandler(handlers, AttributeConstants.EIDAS_D_2012_17_EU_IDENTIFIER_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_D_2012_17_EU_IDENTIFIER_ATTRIBUTE_NAME,
+        (b, v) -> b.euIdentifier(getString(v)));
+    addLegalPersonHandler(handlers, AttributeConstants.EIDAS_LEI_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_LEI_ATTRIBUTE_NAME,
+        (b, v) -> b.lei(getString(v)));
+    addLegalPersonHandler(handlers, AttributeConstants.EIDAS_EORI_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_EORI_ATTRIBUTE_NAME,
+        (b, v) -> b.eori(getString(v)));
+    addLegalPersonHandler(handlers, AttributeConstants.EIDAS_SEED_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_SEED_ATTRIBUTE_NAME,
+        (b, v) -> b.seed(getString(v)));
+    addLegalPersonHandler(handlers, AttributeConstants.EIDAS_SIC_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_SIC_ATTRIBUTE_NAME,
+        (b, v) -> b.sic(getString(v)));
+
+    handlers.put(AttributeConstants.EJUSTICE_NATURAL_PERSON_ROLE_ATTRIBUTE_NAME,
+        (c, v) -> c.eJusticeNaturalPersonRole = getString(v));
+    handlers.put(AttributeConstants.EJUSTICE_LEGAL_PERSON_ROLE_ATTRIBUTE_NAME,
+        (c, v) -> c.eJusticeLegalPersonRole = getString(v));
+    return Map.copyOf(handlers);
+  }
+
+  /**
+   * Adds the handler for a natural person attribute, and for its representative counterpart (if any).
+   *
+   * @param handlers the handlers to update
+   * @param name the attribute name
+   * @param representativeName the attribute name of the representative attribute, or {@code null}
+   * @param setter assigns the attribute values to a builder
+   */
+  private static void addNaturalPersonHandler(final Map<String, Handler> handlers, final String name,
+      final String representativeName, final BiConsumer<EidasNaturalPerson.Builder, List<XMLObject>> setter) {
+    handlers.put(name, (c, v) -> setter.accept(c.naturalPerson(), v));
+    if (representativeName != null) {
+      handlers.put(representativeName, (c, v) -> setter.accept(c.representativeNaturalPerson(), v));
+    }
+  }
+
+  /**
+   * Adds the handlers for a legal person attribute and its representative counterpart.
+   *
+   * @param handlers the handlers to update
+   * @param name the attribute name
+   * @param representativeName the attribute name of the representative attribute
+   * @param setter assigns the attribute values to a builder
+   */
+  private static void addLegalPersonHandler(final Map<String, Handler> handlers, final String name,
+      final String representativeName, final BiConsumer<EidasLegalPerson.Builder, List<XMLObject>> setter) {
+    handlers.put(name, (c, v) -> setter.accept(c.legalPerson(), v));
+    handlers.put(representativeName, (c, v) -> setter.accept(c.representativeLegalPerson(), v));
+  }
+
+  /**
+   * Returns the string value of an attribute value object.
+   *
+   * @param value the attribute value
+   * @return the string value, or {@code null}
+   */
+  private static String toString(final XMLObject value) {
+    if (value instanceof final EidasAttributeValueType eidasValue) {
+      return eidasValue.toStringValue();
+    }
+    if (value instanceof final XSString xsString) {
+      return xsString.getValue();
+    }
+    if (value instanceof final XSAny xsAny) {
+      return xsAny.getTextContent();
+    }
+    if (value instanceof final XSURI xsUri) {
+      return xsUri.getURI();
+    }
+    return null;
+  }
+
+  private static String getString(final List<XMLObject> values) {
+    return toString(values.get(0));
+  }
+
+  private static List<String> getStrings(final List<XMLObject> values) {
+    final List<String> strings = new ArrayList<>(values.size());
+    for (final XMLObject value : values) {
+      final String s = toString(value);
+      if (s != null) {
+        strings.add(s);
+      }
+    }
+    return strings;
+  }
+
+  /**
+   * Returns the Latin script value of a transliterated attribute. If no value is marked as non-Latin, the first value
+   * is returned.
+   *
+   * @param values the attribute values
+   * @return the string value
+   */
+  private static String getLatinString(final List<XMLObject> values) {
+    if (values.size() > 1) {
+      for (final XMLObject value : values) {
+        if (!(value instanceof final TransliterationStringType t) || !Boolean.FALSE.equals(t.getLatinScript())) {
+          return toString(value);
+        }
+      }
+    }
+    return getString(values);
+  }
+
+  /**
+   * Returns the address held by an address attribute. If the value has not been unmarshalled as a
+   * {@link CurrentAddressType}, its Base64-encoded contents are unmarshalled as a {@code CurrentAddressType} value.
+   * The namespace declarations in scope for the value (if it has a DOM) are kept, so that prefixed address elements
+   * can be resolved.
+   *
+   * @param values the attribute values
+   * @return the address, or {@code null} if the value can not be decoded
+   */
+  private static CurrentAddressType getAddress(final List<XMLObject> values) {
+    final XMLObject value = values.get(0);
+    if (value instanceof final CurrentAddressType address) {
+      return address;
+    }
+    final String encoding = toString(value);
+    if (encoding == null || encoding.isBlank()) {
+      return null;
+    }
+    try {
+      final Element element = XMLObjectProviderRegistrySupport.getParserPool().newDocument().createElementNS(
+          AttributeValue.DEFAULT_ELEMENT_NAME.getNamespaceURI(), AttributeValue.DEFAULT_ELEMENT_LOCAL_NAME);
+      element.setAttributeNS(XMLConstants.XMLNS_NS, XMLConstants.XMLNS_PREFIX + ":" + EidasConstants.EIDAS_NP_PREFIX,
+          EidasConstants.EIDAS_NP_NS);
+      element.setAttributeNS(XMLConstants.XMLNS_NS, XMLConstants.XMLNS_PREFIX + ":" + XMLConstants.XSI_PREFIX,
+          XMLConstants.XSI_NS);
+      for (Node node = value.getDOM(); node instanceof final Element e; node = node.getParentNode()) {
+        final NamedNodeMap attributes = e.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+          final Attr attribute = (Attr) attributes.item(i);
+          if (XMLConstants.XMLNS_NS.equals(attribute.getNamespaceURI())
+              && !element.hasAttributeNS(XMLConstants.XMLNS_NS, attribute.getLocalName())) {
+            element.setAttributeNS(XMLConstants.XMLNS_NS, attribute.getName(), attribute.getValue());
+          }
+        }
+      }
+      element.setAttributeNS(XMLConstants.XSI_NS, XMLConstants.XSI_PREFIX + ":type",
+          EidasConstants.EIDAS_NP_PREFIX + ":" + CurrentAddressType.TYPE_LOCAL_NAME);
+      element.setTextContent(encoding.trim());
+
+      final Unmarshaller unmarshaller = XMLObjectSupport.getUnmarshaller(element);
+      if (unmarshaller != null && unmarshaller.unmarshall(element) instanceof final CurrentAddressType address) {
+        return address;
+      }
+      log.warn("No CurrentAddressType unmarshaller available - can not decode address");
+    }
+    catch (final XMLParserException | UnmarshallingException e) {
+      log.warn("Failed to decode address - {}", e.getMessage(), e);
+    }
+    return null;
+  }
+
+  private static LocalDate getDate(final List<XMLObject> values) {
+    if (values.get(0) instanceof final DateOfBirthType dateOfBirth) {
+      return dateOfBirth.getDate();
+    }
+    final String value = getString(values);
+    try {
+      return value != null ? LocalDate.parse(value.trim()) : null;
+    }
+    catch (final DateTimeParseException e) {
+      return null;
+    }
+  }
+
+  private static GenderTypeEnumeration getGender(final List<XMLObject> values) {
+    if (values.get(0) instanceof final GenderType gender) {
+      return gender.getGender();
+    }
+    final String value = getString(values);
+    return value != null ? GenderTypeEnumeration.fromValue(value.trim()) : null;
+  }
+
+  /**
+   * Handles the values of an attribute.
+   */
+  @FunctionalInterface
+  private interface Handler {
+
+    /**
+     * Handles the (non-empty) values of an attribute.
+     *
+     * @param context the extraction context
+     * @param values the attribute values
+     */
+    void handle(final Context context, final List<XMLObject> values);
+  }
+
+  /**
+   * The state of an extraction. Builders are only created for the persons that have attributes.
+   */
+  private static final class Context {
+
+    /** Natural person builder. */
+    private EidasNaturalPerson.Builder naturalPerson;
+
+    /** Representative natural person builder. */
+    private EidasNaturalPerson.Builder representativeNaturalPerson;
+
+    /** Legal person builder. */
+    private EidasLegalPerson.Builder legalPerson;
+
+    /** Representative legal person builder. */
+    private EidasLegalPerson.Builder representativeLegalPerson;
+
+    /** The eJusticeNaturalPersonRole value. */
+    private String eJusticeNaturalPersonRole;
+
+    /** The eJusticeLegalPersonRole value. */
+    private String eJusticeLegalPersonRole;
+
+    EidasNaturalPerson.Builder naturalPerson() {
+      if (this.naturalPerson == null) {
+        this.naturalPerson = new EidasNaturalPerson.Builder();
+      }
+      return this.naturalPerson;
+    }
+
+    EidasNaturalPerson.Builder representativeNaturalPerson() {
+      if (this.representativeNaturalPerson == null) {
+        this.representativeNaturalPerson = new EidasNaturalPerson.Builder();
+      }
+      return this.representativeNaturalPerson;
+    }
+
+    EidasLegalPerson.Builder legalPerson() {
+      if (this.legalPerson == null) {
+        this.legalPerson = new EidasLegalPerson.Builder();
+      }
+      return this.legalPerson;
+    }
+
+    EidasLegalPerson.Builder representativeLegalPerson() {
+      if (this.representativeLegalPerson == null) {
+        this.representativeLegalPerson = new EidasLegalPerson.Builder();
+      }
+      return this.representativeLegalPerson;
+    }
+  }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.ext.attributes;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * The result of extracting eIDAS attributes using {@link EidasAttributeExtractor}.
+ *
+ * @author Martin Lindström
+ */
+public final class EidasAttributes {
+
+  /** The natural person. */
+  private final EidasNaturalPerson naturalPerson;
+
+  /** The representative natural person. */
+  private final EidasNaturalPerson representativeNaturalPerson;
+
+  /** The legal person. */
+  private final EidasLegalPerson legalPerson;
+
+  /** The representative legal person. */
+  private final EidasLegalPerson representativeLegalPerson;
+
+  /** The eJusticeNaturalPersonRole value. */
+  private final String eJusticeNaturalPersonRole;
+
+  /** The eJusticeLegalPersonRole value. */
+  private final String eJusticeLegalPersonRole;
+
+  /**
+   * Constructor.
+   *
+   * @param naturalPerson the natural person
+   * @param representativeNaturalPerson the representative natural person
+   * @param legalPerson the legal person
+   * @param representativeLegalPerson the representative legal person
+   * @param eJusticeNaturalPersonRole the eJusticeNaturalPersonRole value
+   * @param eJusticeLegalPersonRole the eJusticeLegalPersonRole value
+   */
+  EidasAttributes(final EidasNaturalPerson naturalPerson, final EidasNaturalPerson representativeNaturalPerson,
+      final EidasLegalPerson legalPerson, final EidasLegalPerson representativeLegalPerson,
+      final String eJusticeNaturalPersonRole, final String eJusticeLegalPersonRole) {
+    this.naturalPerson = naturalPerson;
+    this.representativeNaturalPerson = representativeNaturalPerson;
+    this.legalPerson = legalPerson;
+    this.representativeLegalPerson = representativeLegalPerson;
+    this.eJusticeNaturalPersonRole = eJusticeNaturalPersonRole;
+    this.eJusticeLegalPersonRole = eJusticeLegalPersonRole;
+  }
+
+  /**
+   * Returns the natural person attributes.
+   *
+   * @return the natural person, or {@code null} if no natural person attributes were extracted
+   */
+  @Nullable
+  public EidasNaturalPerson getNaturalPerson() {
+    return this.naturalPerson;
+  }
+
+  /**
+   * Returns the representative natural person attributes.
+   *
+   * @return the representative natural person, or {@code null} if no such attributes were extracted
+   */
+  @Nullable
+  public EidasNaturalPerson getRepresentativeNaturalPerson() {
+    return this.representativeNaturalPerson;
+  }
+
+  /**
+   * Returns the legal person attributes.
+   *
+   * @return the legal person, or {@code null} if no legal person attributes were extracted
+   */
+  @Nullable
+  public EidasLegalPerson getLegalPerson() {
+    return this.legalPerson;
+  }
+
+  /**
+   * Returns the representative legal person attributes.
+   *
+   * @return the representative legal person, or {@code null} if no such attributes were extracted
+   */
+  @Nullable
+  public EidasLegalPerson getRepresentativeLegalPerson() {
+    return this.representativeLegalPerson;
+  }
+
+  /**
+   * Returns the value of the e-Justice {@code eJusticeNaturalPersonRole} attribute.
+   *
+   * @return the role, or {@code null}
+   */
+  @Nullable
+  public String getEJusticeNaturalPersonRole() {
+    return this.eJusticeNaturalPersonRole;
+  }
+
+  /**
+   * Returns the value of the e-Justice {@code eJusticeLegalPersonRole} attribute.
+   *
+   * @return the role, or {@code null}
+   */
+  @Nullable
+  public String getEJusticeLegalPersonRole() {
+    return this.eJusticeLegalPersonRole;
+  }
+
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.ext.attributes;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * An immutable, typed, view of the eIDAS legal person attributes of an assertion. The same class is used for the
+ * attributes of a representative legal person.
+ * <p>
+ * The {@code LegalPersonAddress} value holds the same Base64-encoded address structure as a {@code CurrentAddress}
+ * value, and it is decoded into a {@link CurrentAddressType} object.
+ * </p>
+ * <p>
+ * Instances are created using {@link EidasAttributeExtractor}.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public final class EidasLegalPerson {
+
+  /** The unique identifier of the legal person. */
+  private final String legalPersonIdentifier;
+
+  /** The legal name. */
+  private final String legalName;
+
+  /** The legal person address. */
+  private final CurrentAddressType legalPersonAddress;
+
+  /** The VAT registration number. */
+  private final String vatRegistrationNumber;
+
+  /** The tax reference number. */
+  private final String taxReference;
+
+  /** The identifier used for cross-border exchange of information between registers. */
+  private final String euIdentifier;
+
+  /** The Legal Entity Identifier. */
+  private final String lei;
+
+  /** The Economic Operator Registration and Identification number. */
+  private final String eori;
+
+  /** The System for Exchange of Excise Data identifier. */
+  private final String seed;
+
+  /** The Standard Industrial Classification. */
+  private final String sic;
+
+  /**
+   * Constructor.
+   *
+   * @param builder the builder
+   */
+  private EidasLegalPerson(final Builder builder) {
+    this.legalPersonIdentifier = builder.legalPersonIdentifier;
+    this.legalName = builder.legalName;
+    this.legalPersonAddress = builder.legalPersonAddress;
+    this.vatRegistrationNumber = builder.vatRegistrationNumber;
+    this.taxReference = builder.taxReference;
+    this.euIdentifier = builder.euIdentifier;
+    this.lei = builder.lei;
+    this.eori = builder.eori;
+    this.seed = builder.seed;
+    this.sic = builder.sic;
+  }
+
+  /**
+   * Returns the unique identifier of the legal person (LegalPersonIdentifier).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getLegalPersonIdentifier() {
+    return this.legalPersonIdentifier;
+  }
+
+  /**
+   * Returns the legal name (LegalName). If the attribute holds both a Latin script value and a non-Latin script
+   * value, the Latin script value is returned.
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getLegalName() {
+    return this.legalName;
+  }
+
+  /**
+   * Returns the legal person address (LegalPersonAddress).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public CurrentAddressType getLegalPersonAddress() {
+    return this.legalPersonAddress;
+  }
+
+  /**
+   * Returns the VAT registration number (VATRegistrationNumber).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getVatRegistrationNumber() {
+    return this.vatRegistrationNumber;
+  }
+
+  /**
+   * Returns the tax reference number (TaxReference).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getTaxReference() {
+    return this.taxReference;
+  }
+
+  /**
+   * Returns the identifier used for cross-border exchange of information between registers
+   * (D-2012-17-EUIdentifier).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getEuIdentifier() {
+    return this.euIdentifier;
+  }
+
+  /**
+   * Returns the Legal Entity Identifier (LEI).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getLei() {
+    return this.lei;
+  }
+
+  /**
+   * Returns the Economic Operator Registration and Identification number (EORI).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getEori() {
+    return this.eori;
+  }
+
+  /**
+   * Returns the System for Exchange of Excise Data identifier (SEED).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getSeed() {
+    return this.seed;
+  }
+
+  /**
+   * Returns the Standard Industrial Classification (SIC).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getSic() {
+    return this.sic;
+  }
+
+  /**
+   * Builder for {@link EidasLegalPerson} objects.
+   */
+  static final class Builder {
+
+    /** LegalPersonIdentifier. */
+    private String legalPersonIdentifier;
+
+    /** LegalName. */
+    private String legalName;
+
+    /** LegalPersonAddress. */
+    private CurrentAddressType legalPersonAddress;
+
+    /** VatRegistrationNumber. */
+    private String vatRegistrationNumber;
+
+    /** TaxReference. */
+    private String taxReference;
+
+    /** EuIdentifier. */
+    private String euIdentifier;
+
+    /** Lei. */
+    private String lei;
+
+    /** Eori. */
+    private String eori;
+
+    /** Seed. */
+    private String seed;
+
+    /** Sic. */
+    private String sic;
+
+    Builder legalPersonIdentifier(final String legalPersonIdentifier) {
+      this.legalPersonIdentifier = legalPersonIdentifier;
+      return this;
+    }
+
+    Builder legalName(final String legalName) {
+      this.legalName = legalName;
+      return this;
+    }
+
+    Builder legalPersonAddress(final CurrentAddressType legalPersonAddress) {
+      this.legalPersonAddress = legalPersonAddress;
+      return this;
+    }
+
+    Builder vatRegistrationNumber(final String vatRegistrationNumber) {
+      this.vatRegistrationNumber = vatRegistrationNumber;
+      return this;
+    }
+
+    Builder taxReference(final String taxReference) {
+      this.taxReference = taxReference;
+      return this;
+    }
+
+    Builder euIdentifier(final String euIdentifier) {
+      this.euIdentifier = euIdentifier;
+      return this;
+    }
+
+    Builder lei(final String lei) {
+      this.lei = lei;
+      return this;
+    }
+
+    Builder eori(final String eori) {
+      this.eori = eori;
+      return this;
+    }
+
+    Builder seed(final String seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    Builder sic(final String sic) {
+      this.sic = sic;
+      return this;
+    }
+
+    EidasLegalPerson build() {
+      return new EidasLegalPerson(this);
+    }
+
+  }
+
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.ext.attributes;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable, typed, view of the eIDAS natural person attributes of an assertion. The same class is used for the
+ * attributes of a representative natural person.
+ * <p>
+ * Instances are created using {@link EidasAttributeExtractor}.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public final class EidasNaturalPerson {
+
+  /** The unique identifier of the person. */
+  private final String personIdentifier;
+
+  /** The current family name. */
+  private final String currentFamilyName;
+
+  /** The current given name. */
+  private final String currentGivenName;
+
+  /** The date of birth. */
+  private final LocalDate dateOfBirth;
+
+  /** The gender. */
+  private final GenderTypeEnumeration gender;
+
+  /** The current address. */
+  private final CurrentAddressType currentAddress;
+
+  /** The birth name. */
+  private final String birthName;
+
+  /** The place of birth. */
+  private final String placeOfBirth;
+
+  /** The nationalities. */
+  private final List<String> nationalities;
+
+  /** The country of birth. */
+  private final String countryOfBirth;
+
+  /** The town of birth. */
+  private final String townOfBirth;
+
+  /** The country of residence. */
+  private final String countryOfResidence;
+
+  /** The phone number. */
+  private final String phoneNumber;
+
+  /** The e-mail address. */
+  private final String emailAddress;
+
+  /**
+   * Constructor.
+   *
+   * @param builder the builder
+   */
+  private EidasNaturalPerson(final Builder builder) {
+    this.personIdentifier = builder.personIdentifier;
+    this.currentFamilyName = builder.currentFamilyName;
+    this.currentGivenName = builder.currentGivenName;
+    this.dateOfBirth = builder.dateOfBirth;
+    this.gender = builder.gender;
+    this.currentAddress = builder.currentAddress;
+    this.birthName = builder.birthName;
+    this.placeOfBirth = builder.placeOfBirth;
+    this.nationalities = List.copyOf(builder.nationalities);
+    this.countryOfBirth = builder.countryOfBirth;
+    this.townOfBirth = builder.townOfBirth;
+    this.countryOfResidence = builder.countryOfResidence;
+    this.phoneNumber = builder.phoneNumber;
+    this.emailAddress = builder.emailAddress;
+  }
+
+  /**
+   * Returns the unique identifier of the person (PersonIdentifier).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getPersonIdentifier() {
+    return this.personIdentifier;
+  }
+
+  /**
+   * Returns the current family name (CurrentFamilyName). If the attribute holds both a Latin script value and a
+   * non-Latin script value, the Latin script value is returned.
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getCurrentFamilyName() {
+    return this.currentFamilyName;
+  }
+
+  /**
+   * Returns the current given name (CurrentGivenName). If the attribute holds both a Latin script value and a
+   * non-Latin script value, the Latin script value is returned.
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getCurrentGivenName() {
+    return this.currentGivenName;
+  }
+
+  /**
+   * Returns the date of birth (DateOfBirth).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public LocalDate getDateOfBirth() {
+    return this.dateOfBirth;
+  }
+
+  /**
+   * Returns the gender (Gender).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public GenderTypeEnumeration getGender() {
+    return this.gender;
+  }
+
+  /**
+   * Returns the current address (CurrentAddress).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public CurrentAddressType getCurrentAddress() {
+    return this.currentAddress;
+  }
+
+  /**
+   * Returns the birth name (BirthName). If the attribute holds both a Latin script value and a non-Latin script
+   * value, the Latin script value is returned.
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getBirthName() {
+    return this.birthName;
+  }
+
+  /**
+   * Returns the place of birth (PlaceOfBirth).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getPlaceOfBirth() {
+    return this.placeOfBirth;
+  }
+
+  /**
+   * Returns the nationalities (Nationality).
+   *
+   * @return an unmodifiable (possibly empty) list
+   */
+  @Nonnull
+  public List<String> getNationalities() {
+    return this.nationalities;
+  }
+
+  /**
+   * Returns the country of birth (CountryOfBirth).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getCountryOfBirth() {
+    return this.countryOfBirth;
+  }
+
+  /**
+   * Returns the town of birth (TownOfBirth).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getTownOfBirth() {
+    return this.townOfBirth;
+  }
+
+  /**
+   * Returns the country of residence (CountryOfResidence).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getCountryOfResidence() {
+    return this.countryOfResidence;
+  }
+
+  /**
+   * Returns the phone number (PhoneNumber).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getPhoneNumber() {
+    return this.phoneNumber;
+  }
+
+  /**
+   * Returns the e-mail address (EmailAddress).
+   *
+   * @return the value, or {@code null} if not available
+   */
+  @Nullable
+  public String getEmailAddress() {
+    return this.emailAddress;
+  }
+
+  /**
+   * Builder for {@link EidasNaturalPerson} objects.
+   */
+  static final class Builder {
+
+    /** PersonIdentifier. */
+    private String personIdentifier;
+
+    /** CurrentFamilyName. */
+    private String currentFamilyName;
+
+    /** CurrentGivenName. */
+    private String currentGivenName;
+
+    /** DateOfBirth. */
+    private LocalDate dateOfBirth;
+
+    /** Gender. */
+    private GenderTypeEnumeration gender;
+
+    /** CurrentAddress. */
+    private CurrentAddressType currentAddress;
+
+    /** BirthName. */
+    private String birthName;
+
+    /** PlaceOfBirth. */
+    private String placeOfBirth;
+
+    /** Nationalities. */
+    private final List<String> nationalities = new ArrayList<>();
+
+    /** CountryOfBirth. */
+    private String countryOfBirth;
+
+    /** TownOfBirth. */
+    private String townOfBirth;
+
+    /** CountryOfResidence. */
+    private String countryOfResidence;
+
+    /** PhoneNumber. */
+    private String phoneNumber;
+
+    /** EmailAddress. */
+    private String emailAddress;
+
+    Builder personIdentifier(final String personIdentifier) {
+      this.personIdentifier = personIdentifier;
+      return this;
+    }
+
+    Builder currentFamilyName(final String currentFamilyName) {
+      this.currentFamilyName = currentFamilyName;
+      return this;
+    }
+
+    Builder currentGivenName(final String currentGivenName) {
+      this.currentGivenName = currentGivenName;
+      return this;
+    }
+
+    Builder dateOfBirth(final LocalDate dateOfBirth) {
+      this.dateOfBirth = dateOfBirth;
+      return this;
+    }
+
+    Builder gender(final GenderTypeEnumeration gender) {
+      this.gender = gender;
+      return this;
+    }
+
+    Builder currentAddress(final CurrentAddressType currentAddress) {
+      this.currentAddress = currentAddress;
+      return this;
+    }
+
+    Builder birthName(final String birthName) {
+      this.birthName = birthName;
+      return this;
+    }
+
+    Builder placeOfBirth(final String placeOfBirth) {
+      this.placeOfBirth = placeOfBirth;
+      return this;
+    }
+
+    Builder nationalities(final List<String> nationalities) {
+      this.nationalities.addAll(nationalities);
+      return this;
+    }
+
+    Builder countryOfBirth(final String countryOfBirth) {
+      this.countryOfBirth = countryOfBirth;
+      return this;
+    }
+
+    Builder townOfBirth(final String townOfBirth) {
+      this.townOfBirth = townOfBirth;
+      return this;
+    }
+
+    Builder countryOfResidence(final String countryOfResidence) {
+      this.countryOfResidence = countryOfResidence;
+      return this;
+    }
+
+    Builder phoneNumber(final String phoneNumber) {
+      this.phoneNumber = phoneNumber;
+      return this;
+    }
+
+    Builder emailAddress(final String emailAddress) {
+      this.emailAddress = emailAddress;
+      return this;
+    }
+
+    EidasNaturalPerson build() {
+      return new EidasNaturalPerson(this);
+    }
+
+  }
+
+}
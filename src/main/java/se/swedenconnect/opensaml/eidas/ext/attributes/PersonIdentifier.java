@@ -0,0 +1,232 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.ext.attributes;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An immutable, parsed representation of an eIDAS uniqueness identifier ({@link PersonIdentifierType}) on the form
+ * {@code CC/CC/identifier}.
+ * <p>
+ * The value is split once into its three parts. The first slash ends the Nationality Code, the second slash ends the
+ * destination Nationality Code and the remainder of the value is the identifier string. Empty parts are represented
+ * as {@code null}.
+ * </p>
+ * <p>
+ * Parsing is lenient, i.e., any string can be parsed. Use {@link #isValid()} or {@link #parseStrict(String)} to check
+ * that the value is well-formed. A well-formed value consists of two ISO 3166-1 alpha-2 codes (two upper case letters)
+ * followed by a non-empty identifier string that does not contain white space or control characters.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public final class PersonIdentifier {
+
+  /** The separator between the parts of the identifier. */
+  private static final char SEPARATOR = '/';
+
+  /** The complete value. */
+  private final String value;
+
+  /** The Nationality Code. */
+  private final String nationalityCode;
+
+  /** The destination Nationality Code. */
+  private final String destinationNationalityCode;
+
+  /** The identifier string. */
+  private final String identifierString;
+
+  /** Whether the value is well-formed. */
+  private final boolean valid;
+
+  /**
+   * Constructor.
+   *
+   * @param value the value
+   */
+  private PersonIdentifier(final String value) {
+    this.value = value;
+    final int first = value.indexOf(SEPARATOR);
+    final int second = first >= 0 ? value.indexOf(SEPARATOR, first + 1) : -1;
+    this.nationalityCode = part(value, 0, first >= 0 ? first : value.length());
+    this.destinationNationalityCode = first >= 0 ? part(value, first + 1, second >= 0 ? second : value.length()) : null;
+    this.identifierString = second >= 0 ? part(value, second + 1, value.length()) : null;
+    this.valid = isValid(value);
+  }
+
+  /**
+   * Parses the supplied value. Leading and trailing white space is ignored.
+   *
+   * @param value the value to parse
+   * @return a {@link PersonIdentifier}
+   */
+  @Nonnull
+  public static PersonIdentifier parse(@Nonnull final String value) {
+    return new PersonIdentifier(Objects.requireNonNull(value, "value must not be null").strip());
+  }
+
+  /**
+   * Parses the supplied value and asserts that it is well-formed. Leading and trailing white space is ignored.
+   *
+   * @param value the value to parse
+   * @return a {@link PersonIdentifier}
+   * @throws IllegalArgumentException if the value is not a well-formed identifier
+   */
+  @Nonnull
+  public static PersonIdentifier parseStrict(@Nonnull final String value) throws IllegalArgumentException {
+    final PersonIdentifier identifier = parse(value);
+    if (!identifier.isValid()) {
+      throw new IllegalArgumentException("Invalid eIDAS person identifier: " + value);
+    }
+    return identifier;
+  }
+
+  /**
+   * Predicate that tells whether the supplied value is a well-formed identifier. Leading and trailing white space is
+   * not accepted.
+   * <p>
+   * The check is made without creating any objects.
+   * </p>
+   *
+   * @param value the value to check
+   * @return {@code true} if the value is well-formed and {@code false} otherwise
+   */
+  public static boolean isValid(@Nullable final CharSequence value) {
+    if (value == null || value.length() < 7) {
+      return false;
+    }
+    if (!isCountryCode(value, 0) || value.charAt(2) != SEPARATOR
+        || !isCountryCode(value, 3) || value.charAt(5) != SEPARATOR) {
+      return false;
+    }
+    for (int i = 6; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (Character.isWhitespace(c) || Character.isISOControl(c)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks the supplied identifiers and returns those that are not well-formed (see {@link #isValid(CharSequence)}).
+   * Intended for batch jobs that need to validate large numbers of identifiers.
+   *
+   * @param values the values to check
+   * @return a list of the invalid values (in the order they were given), or an empty list if all values are valid
+   */
+  @Nonnull
+  public static List<String> findInvalid(@Nonnull final Collection<String> values) {
+    List<String> invalid = null;
+    for (final String value : Objects.requireNonNull(values, "values must not be null")) {
+      if (!isValid(value)) {
+        if (invalid == null) {
+          invalid = new ArrayList<>();
+        }
+        invalid.add(value);
+      }
+    }
+    return invalid != null ? invalid : List.of();
+  }
+
+  /**
+   * Gets the complete identifier value.
+   *
+   * @return the value
+   */
+  @Nonnull
+  public String getValue() {
+    return this.value;
+  }
+
+  /**
+   * Gets the Nationality Code of the identifier (first part).
+   *
+   * @return the Nationality Code, or {@code null}
+   */
+  @Nullable
+  public String getNationalityCode() {
+    return this.nationalityCode;
+  }
+
+  /**
+   * Gets the Nationality Code of the destination country or international organization (second part).
+   *
+   * @return the destination Nationality Code, or {@code null}
+   */
+  @Nullable
+  public String getDestinationNationalityCode() {
+    return this.destinationNationalityCode;
+  }
+
+  /**
+   * Gets the identifier string (third part).
+   *
+   * @return the identifier string, or {@code null}
+   */
+  @Nullable
+  public String getIdentifierString() {
+    return this.identifierString;
+  }
+
+  /**
+   * Tells whether the identifier is well-formed.
+   *
+   * @return {@code true} if the identifier is well-formed and {@code false} otherwise
+   */
+  public boolean isValid() {
+    return this.valid;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int hashCode() {
+    return this.value.hashCode();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    return obj instanceof final PersonIdentifier other && this.value.equals(other.value);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return this.value;
+  }
+
+  private static String part(final String value, final int begin, final int end) {
+    return begin < end ? value.substring(begin, end) : null;
+  }
+
+  private static boolean isCountryCode(final CharSequence value, final int pos) {
+    final char c1 = value.charAt(pos);
+    final char c2 = value.charAt(pos + 1);
+    return c1 >= 'A' && c1 <= 'Z' && c2 >= 'A' && c2 <= 'Z';
+  }
+
+}
@@ -110,4 +110,17 @@ public interface PersonIdentifierType extends XSString, SAMLObject, EidasAttribu
    */
   String getIdentifierString();
 
+  /**
+   * Returns the parsed representation of the uniqueness identifier (see {@link PersonIdentifier#parse(String)}).
+   * <p>
+   * The default implementation parses the value on each invocation. Implementations may cache the parsed value.
+   * </p>
+   *
+   * @return the parsed identifier, or {@code null} if no value has been assigned
+   */
+  default PersonIdentifier getPersonIdentifier() {
+    final String value = this.getValue();
+    return value != null ? PersonIdentifier.parse(value) : null;
+  }
+
 }
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.ext.attributes.impl;
+
+import java.util.Arrays;
+
+/**
+ * Encoder that writes {@code CurrentAddressStructuredType} elements into their Base64-encoded form, as used by the
+ * {@code CurrentAddressType}.
+ * <p>
+ * The elements are UTF-8 encoded and Base64-encoded incrementally into a character buffer, so no intermediate strings
+ * or byte arrays are created. The Base64 output is chunked into lines of 76 characters separated by a line feed.
+ * </p>
+ * <p>
+ * An encoder is not thread safe, but may be re-used after {@link #reset()} has been called.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+final class CurrentAddressEncoder {
+
+  /** The Base64 alphabet. */
+  private static final char[] ALPHABET =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+  /** The maximum number of Base64 characters on each line. */
+  private static final int LINE_LENGTH = 76;
+
+  /** The initial size of the character buffer. */
+  private static final int INITIAL_CAPACITY = 512;
+
+  /** Buffers larger than this are not kept between uses. */
+  private static final int MAX_RETAINED_CAPACITY = 8192;
+
+  /** The Base64 output. */
+  private char[] chars = new char[INITIAL_CAPACITY];
+
+  /** The number of characters written to {@link #chars}. */
+  private int length;
+
+  /** The number of characters written on the current line. */
+  private int lineLength;
+
+  /** Bytes not yet encoded (at most 2). */
+  private int pending;
+
+  /** The number of bytes held in {@link #pending}. */
+  private int pendingCount;
+
+  /**
+   * Resets the encoder so that it can be used for a new value.
+   */
+  void reset() {
+    if (this.chars.length > MAX_RETAINED_CAPACITY) {
+      this.chars = new char[INITIAL_CAPACITY];
+    }
+    this.length = 0;
+    this.lineLength = 0;
+    this.pending = 0;
+    this.pendingCount = 0;
+  }
+
+  /**
+   * Tells whether anything has been written since the encoder was reset.
+   *
+   * @return {@code true} if nothing has been written and {@code false} otherwise
+   */
+  boolean isEmpty() {
+    return this.length == 0 && this.pendingCount == 0;
+  }
+
+  /**
+   * Writes an address element, i.e., {@code <prefix:localName>value</prefix:localName>}. The value is escaped.
+   *
+   * @param prefix the namespace prefix
+   * @param localName the element local name
+   * @param value the element value
+   */
+  void writeElement(final String prefix, final String localName, final String value) {
+    this.write('<');
+    this.writeName(prefix, localName);
+    this.write('>');
+    this.writeUtf8(value, true);
+    this.write('<');
+    this.write('/');
+    this.writeName(prefix, localName);
+    this.write('>');
+  }
+
+  /**
+   * Completes the encoding and returns the Base64-encoded string.
+   *
+   * @return the Base64 encoding of everything written since the encoder was reset
+   */
+  String toBase64String() {
+    if (this.pendingCount == 1) {
+      this.appendChar(ALPHABET[(this.pending >> 2) & 0x3F]);
+      this.appendChar(ALPHABET[(this.pending << 4) & 0x3F]);
+      this.appendChar('=');
+      this.appendChar('=');
+    }
+    else if (this.pendingCount == 2) {
+      this.appendChar(ALPHABET[(this.pending >> 10) & 0x3F]);
+      this.appendChar(ALPHABET[(this.pending >> 4) & 0x3F]);
+      this.appendChar(ALPHABET[(this.pending << 2) & 0x3F]);
+      this.appendChar('=');
+    }
+    this.pending = 0;
+    this.pendingCount = 0;
+    return new String(this.chars, 0, this.length);
+  }
+
+  /**
+   * Writes a qualified name.
+   *
+   * @param prefix the prefix
+   * @param localName the local name
+   */
+  private void writeName(final String prefix, final String localName) {
+    this.writeUtf8(prefix, false);
+    this.write(':');
+    this.writeUtf8(localName, false);
+  }
+
+  /**
+   * Writes the UTF-8 encoding of the supplied string. Unpaired surrogates are written as {@code '?'}, which is what
+   * {@link String#getBytes(java.nio.charset.Charset)} does.
+   *
+   * @param s the string to write
+   * @param escape whether the characters {@code &}, {@code <} and {@code >} should be escaped
+   */
+  private void writeUtf8(final String s, final boolean escape) {
+    final int len = s.length();
+    for (int i = 0; i < len; i++) {
+      final char c = s.charAt(i);
+      if (c < 0x80) {
+        if (escape && c == '&') {
+          this.writeAscii("&amp;");
+        }
+        else if (escape && c == '<') {
+          this.writeAscii("&lt;");
+        }
+        else if (escape && c == '>') {
+          this.writeAscii("&gt;");
+        }
+        else {
+          this.write(c);
+        }
+      }
+      else if (c < 0x800) {
+        this.write(0xC0 | (c >> 6));
+        this.write(0x80 | (c & 0x3F));
+      }
+      else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+          final int cp = Character.toCodePoint(c, s.charAt(++i));
+          this.write(0xF0 | (cp >> 18));
+          this.write(0x80 | ((cp >> 12) & 0x3F));
+          this.write(0x80 | ((cp >> 6) & 0x3F));
+          this.write(0x80 | (cp & 0x3F));
+        }
+        else {
+          this.write('?');
+        }
+      }
+      else {
+        this.write(0xE0 | (c >> 12));
+        this.write(0x80 | ((c >> 6) & 0x3F));
+        this.write(0x80 | (c & 0x3F));
+      }
+    }
+  }
+
+  /**
+   * Writes an ASCII string.
+   *
+   * @param s the string
+   */
+  private void writeAscii(final String s) {
+    for (int i = 0; i < s.length(); i++) {
+      this.write(s.charAt(i));
+    }
+  }
+
+  /**
+   * Writes one byte to the Base64 encoder.
+   *
+   * @param b the byte (only the lower 8 bits are used)
+   */
+  private void write(final int b) {
+    this.pending = (this.pending << 8) | (b & 0xFF);
+    if (++this.pendingCount == 3) {
+      this.appendChar(ALPHABET[(this.pending >> 18) & 0x3F]);
+      this.appendChar(ALPHABET[(this.pending >> 12) & 0x3F]);
+      this.appendChar(ALPHABET[(this.pending >> 6) & 0x3F]);
+      this.appendChar(ALPHABET[this.pending & 0x3F]);
+      this.pending = 0;
+      this.pendingCount = 0;
+    }
+  }
+
+  /**
+   * Appends a Base64 character to the output, inserting a line feed when a line is full.
+   *
+   * @param c the character
+   */
+  private void appendChar(final char c) {
+    if (this.lineLength == LINE_LENGTH) {
+      this.ensureCapacity(1);
+      this.chars[this.length++] = '\n';
+      this.lineLength = 0;
+    }
+    this.ensureCapacity(1);
+    this.chars[this.length++] = c;
+    this.lineLength++;
+  }
+
+  /**
+   * Makes sure that the buffer has room for additional characters.
+   *
+   * @param additional the number of characters to add
+   */
+  private void ensureCapacity(final int additional) {
+    if (this.length + additional > this.chars.length) {
+      this.chars = Arrays.copyOf(this.chars, Math.max(this.chars.length * 2, this.length + additional));
+    }
+  }
+
+}
@@ -43,6 +43,42 @@ import java.util.List;
  */
 public class CurrentAddressStructuredTypeImpl extends AbstractXMLObject implements CurrentAddressStructuredType {
 
+  /** PoBox element. */
+  private static final AddressElement<PoBox> PO_BOX =
+      new AddressElement<>(PoBox.DEFAULT_ELEMENT_NAME, PoBox.class);
+
+  /** LocatorDesignator element. */
+  private static final AddressElement<LocatorDesignator> LOCATOR_DESIGNATOR =
+      new AddressElement<>(LocatorDesignator.DEFAULT_ELEMENT_NAME, LocatorDesignator.class);
+
+  /** LocatorName element. */
+  private static final AddressElement<LocatorName> LOCATOR_NAME =
+      new AddressElement<>(LocatorName.DEFAULT_ELEMENT_NAME, LocatorName.class);
+
+  /** CvaddressArea element. */
+  private static final AddressElement<CvaddressArea> CVADDRESS_AREA =
+      new AddressElement<>(CvaddressArea.DEFAULT_ELEMENT_NAME, CvaddressArea.class);
+
+  /** Thoroughfare element. */
+  private static final AddressElement<Thoroughfare> THOROUGHFARE =
+      new AddressElement<>(Thoroughfare.DEFAULT_ELEMENT_NAME, Thoroughfare.class);
+
+  /** PostName element. */
+  private static final AddressElement<PostName> POST_NAME =
+      new AddressElement<>(PostName.DEFAULT_ELEMENT_NAME, PostName.class);
+
+  /** AdminunitFirstline element. */
+  private static final AddressElement<AdminunitFirstline> ADMINUNIT_FIRSTLINE =
+      new AddressElement<>(AdminunitFirstline.DEFAULT_ELEMENT_NAME, AdminunitFirstline.class);
+
+  /** AdminunitSecondline element. */
+  private static final AddressElement<AdminunitSecondline> ADMINUNIT_SECONDLINE =
+      new AddressElement<>(AdminunitSecondline.DEFAULT_ELEMENT_NAME, AdminunitSecondline.class);
+
+  /** PostCode element. */
+  private static final AddressElement<PostCode> POST_CODE =
+      new AddressElement<>(PostCode.DEFAULT_ELEMENT_NAME, PostCode.class);
+
   /** PoBox */
   private PoBox poBox;
 
@@ -121,7 +157,7 @@ public class CurrentAddressStructuredTypeImpl extends AbstractXMLObject implemen
   /** {@inheritDoc} */
   @Override
   public void setPoBox(final String poBox) {
-    this.poBox = this.prepareForAssignment(this.poBox, this.createXSString(PoBox.class, poBox));
+    this.poBox = this.prepareForAssignment(this.poBox, this.createXSString(PO_BOX, poBox));
   }
 
   /** {@inheritDoc} */
@@ -134,8 +170,7 @@ public class CurrentAddressStructuredTypeImpl extends AbstractXMLObject implemen
   @Override
   public void setLocatorDesignator(final String locatorDesignator) {
     this.locatorDesignator =
-        this.prepareForAssignment(this.locatorDesignator, this.createXSString(LocatorDesignator.class,
-            locatorDesignator));
+        this.prepareForAssignment(this.locatorDesignator, this.createXSString(LOCATOR_DESIGNATOR, locatorDesignator));
   }
 
   /** {@inheritDoc} */
@@ -147,7 +182,7 @@ public class CurrentAddressStructuredTypeImpl extends AbstractXMLObject implemen
   /** {@inheritDoc} */
   @Override
   public void setLocatorName(final String locatorName) {
-    this.locatorName = this.prepareForAssignment(this.locatorName, this.createXSString(LocatorName.class, locatorName));
+    this.locatorName = this.prepareForAssignment(this.locatorName, this.createXSString(LOCATOR_NAME, locatorName));
   }
 
   /** {@inheritDoc} */
@@ -160,7 +195,7 @@ public class CurrentAddressStructuredTypeImpl extends AbstractXMLObject implemen
   @Override
   public void setCvaddressArea(final String cvaddressArea) {
     this.cvaddressArea =
-        this.prepareForAssignment(this.cvaddressArea, this.createXSString(CvaddressArea.class, cvaddressArea));
+        this.prepareForAssignment(this.cvaddressArea, this.createXSString(CVADDRESS_AREA, cvaddressArea));
   }
 
   /** {@inheritDoc} */
@@ -173,7 +208,7 @@ public class CurrentAddressStructuredTypeImpl extends AbstractXMLObject implemen
   @Override
   public void setThoroughfare(final String thoroughfare) {
     this.thoroughfare =
-        this.prepareForAssignment(this.thoroughfare, this.createXSString(Thoroughfare.class, thoroughfare));
+        this.prepareForAssignment(this.thoroughfare, this.createXSString(THOROUGHFARE, thoroughfare));
   }
 
   /** {@inheritDoc} */
@@ -185,7 +220,7 @@ public class CurrentAddressStructuredTypeImpl extends AbstractXMLObject implemen
   /** {@inheritDoc} */
   @Override
   public void setPostName(final String postName) {
-    this.postName = this.prepareForAssignment(this.postName, this.createXSString(PostName.class, postName));
+    this.postName = this.prepareForAssignment(this.postName, this.createXSString(POST_NAME, postName));
   }
 
   /** {@inheritDoc} */
@@ -198,8 +233,8 @@ public class CurrentAddressStructuredTypeImpl extends AbstractXMLObject implemen
   @Override
   public void setAdminunitFirstline(final String adminunitFirstline) {
     this.adminunitFirstline =
-        this.prepareForAssignment(this.adminunitFirstline, this.createXSString(AdminunitFirstline.class,
-            adminunitFirstline));
+        this.prepareForAssignment(this.adminunitFirstline,
+            this.createXSString(ADMINUNIT_FIRSTLINE, adminunitFirstline));
   }
 
   /** {@inheritDoc} */
@@ -212,8 +247,8 @@ public class CurrentAddressStructuredTypeImpl extends AbstractXMLObject implemen
   @Override
   public void setAdminunitSecondline(final String adminunitSecondline) {
     this.adminunitSecondline =
-        this.prepareForAssignment(this.adminunitSecondline, this.createXSString(AdminunitSecondline.class,
-            adminunitSecondline));
+        this.prepareForAssignment(this.adminunitSecondline,
+            this.createXSString(ADMINUNIT_SECONDLINE, adminunitSecondline));
   }
 
   /** {@inheritDoc} */
@@ -225,7 +260,7 @@ public class CurrentAddressStructuredTypeImpl extends AbstractXMLObject implemen
   /** {@inheritDoc} */
   @Override
   public void setPostCode(final String postCode) {
-    this.postCode = this.prepareForAssignment(this.postCode, this.createXSString(PostCode.class, postCode));
+    this.postCode = this.prepareForAssignment(this.postCode, this.createXSString(POST_CODE, postCode));
   }
 
   /** {@inheritDoc} */
@@ -237,30 +272,60 @@ public class CurrentAddressStructuredTypeImpl extends AbstractXMLObject implemen
   /**
    * Utility method for creating an OpenSAML object given its type and assigns the value.
    *
-   * @param clazz the class to create
+   * @param element the address element to create
    * @param value the string value to assign
    * @return the XML object or {@code null} if value is {@code null}
    */
-  private <T extends XSString> T createXSString(final Class<T> clazz, final String value) {
+  private <T extends XSString> T createXSString(final AddressElement<T> element, final String value) {
     if (value == null) {
       return null;
     }
-    final QName elementName;
-    final String localName;
-    try {
-      elementName = (QName) clazz.getDeclaredField("DEFAULT_ELEMENT_NAME").get(null);
-      localName = (String) clazz.getDeclaredField("DEFAULT_ELEMENT_LOCAL_NAME").get(null);
-    }
-    catch (final NoSuchFieldException | IllegalArgumentException | IllegalAccessException | SecurityException e) {
-      throw new RuntimeException(e);
-    }
-    final XMLObjectBuilder<? extends XMLObject> builder =
-        XMLObjectProviderRegistrySupport.getBuilderFactory().getBuilder(elementName);
-    final Object object = builder.buildObject(
-        new QName(this.getElementQName().getNamespaceURI(), localName, this.getElementQName().getPrefix()));
-    final T xsstring = clazz.cast(object);
+    final T xsstring = element.build(this.getElementQName().getNamespaceURI(), this.getElementQName().getPrefix());
     xsstring.setValue(value);
     return xsstring;
   }
 
+  /**
+   * Holds the element name and type for an address element. The builder for the element is looked up in the
+   * {@link XMLObjectProviderRegistrySupport#getBuilderFactory() builder factory} each time an element is created (a
+   * single map lookup), so that builders registered by the application, also after the first use, are honoured.
+   *
+   * @param <T> the element type
+   */
+  private static final class AddressElement<T extends XSString> {
+
+    /** The default element name, used to look up the builder. */
+    private final QName elementName;
+
+    /** The element type. */
+    private final Class<T> type;
+
+    /**
+     * Constructor.
+     *
+     * @param elementName the default element name
+     * @param type the element type
+     */
+    AddressElement(final QName elementName, final Class<T> type) {
+      this.elementName = elementName;
+      this.type = type;
+    }
+
+    /**
+     * Builds an element.
+     *
+     * @param namespaceURI the namespace URI of the element
+     * @param namespacePrefix the namespace prefix of the element
+     * @return the element
+     */
+    T build(final String namespaceURI, final String namespacePrefix) {
+      final XMLObjectBuilder<?> builder =
+          XMLObjectProviderRegistrySupport.getBuilderFactory().getBuilder(this.elementName);
+      if (builder == null) {
+        throw new IllegalStateException("No builder registered for " + this.elementName);
+      }
+      return this.type.cast(builder.buildObject(namespaceURI, this.elementName.getLocalPart(), namespacePrefix));
+    }
+  }
+
 }
@@ -15,16 +15,19 @@
  */
 package se.swedenconnect.opensaml.eidas.ext.attributes.impl;
 
+import org.opensaml.core.xml.Namespace;
 import org.opensaml.core.xml.XMLObject;
 import org.opensaml.core.xml.schema.XSString;
 import se.swedenconnect.opensaml.eidas.ext.attributes.CurrentAddressType;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.xml.namespace.QName;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * Implementation of {@code CurrentAddressType}.
@@ -33,6 +36,12 @@ import java.util.Objects;
  */
 public class CurrentAddressTypeImpl extends CurrentAddressStructuredTypeImpl implements CurrentAddressType {
 
+  /** The namespace prefix used for the address elements when marshalling (cached by the marshaller). */
+  private String addressElementPrefix;
+
+  /** The namespace declarations of the object at the time {@link #addressElementPrefix} was cached. */
+  private Set<Namespace> addressElementPrefixDeclarations;
+
   /**
    * Constructor.
    *
@@ -82,4 +91,44 @@ public class CurrentAddressTypeImpl extends CurrentAddressStructuredTypeImpl imp
     // Not supported
   }
 
+  /**
+   * Assigns the schema type and invalidates the cached address element prefix.
+   */
+  @Override
+  protected void setSchemaType(@Nullable final QName type) {
+    super.setSchemaType(type);
+    this.addressElementPrefix = null;
+  }
+
+  /**
+   * Returns the namespace prefix that the marshaller has cached for the address elements.
+   * <p>
+   * The prefix is resolved from the namespaces of the object's namespace manager, i.e., the namespaces of the element
+   * name, the schema type, the explicit namespace declarations and the address elements. The element name is fixed, the
+   * schema type is tracked by {@link #setSchemaType(QName)} and the address elements are always created in the
+   * namespace of the element name. The namespace declarations are compared with the ones in effect when the prefix was
+   * cached, and the cached prefix is dropped if they have changed. Namespaces declared by ancestors are not part of the
+   * lookup, so re-parenting the object does not affect the prefix.
+   * </p>
+   *
+   * @return the cached prefix, or {@code null} if no valid prefix is cached
+   */
+  String getCachedAddressElementPrefix() {
+    if (this.addressElementPrefix != null
+        && !this.getNamespaceManager().getNamespaceDeclarations().equals(this.addressElementPrefixDeclarations)) {
+      this.addressElementPrefix = null;
+    }
+    return this.addressElementPrefix;
+  }
+
+  /**
+   * Caches the namespace prefix to use for the address elements when marshalling.
+   *
+   * @param prefix the prefix
+   */
+  void setCachedAddressElementPrefix(final String prefix) {
+    this.addressElementPrefix = prefix;
+    this.addressElementPrefixDeclarations = this.getNamespaceManager().getNamespaceDeclarations();
+  }
+
 }
@@ -15,8 +15,6 @@
  */
 package se.swedenconnect.opensaml.eidas.ext.attributes.impl;
 
-import net.shibboleth.shared.codec.Base64Support;
-import net.shibboleth.shared.codec.EncodingException;
 import net.shibboleth.shared.xml.ElementSupport;
 import org.opensaml.core.xml.Namespace;
 import org.opensaml.core.xml.XMLObject;
@@ -25,11 +23,11 @@ import org.opensaml.core.xml.io.MarshallingException;
 import org.opensaml.core.xml.schema.XSString;
 import org.w3c.dom.Element;
 import se.swedenconnect.opensaml.eidas.ext.attributes.CurrentAddressType;
+import se.swedenconnect.opensaml.eidas.jfr.CurrentAddressEncodingEvent;
+import se.swedenconnect.opensaml.eidas.jfr.EidasEvent;
 
 import javax.annotation.Nonnull;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * The marshaller for {@code CurrentAddressType}.
@@ -46,6 +44,10 @@ import java.util.Optional;
  */
 public class CurrentAddressTypeMarshaller extends AbstractXMLObjectMarshaller {
 
+  /** Per-thread encoders. */
+  private static final ThreadLocal<CurrentAddressEncoder> encoders =
+      ThreadLocal.withInitial(CurrentAddressEncoder::new);
+
   /**
    * Even though we do have child elements, we need to serialize those, Base64-encode them and add them as a
    * Base64-encoded string value. Therefore, we pretend that there are no child elements, and let
@@ -59,50 +61,114 @@ public class CurrentAddressTypeMarshaller extends AbstractXMLObjectMarshaller {
   /**
    * The element content of a {@code CurrentAddressType} is the Base64-encoding of the serialized value of the
    * {@code CurrentAddressStructuredType}. So ... we have to get there by iterating over our child elements.
+   * <p>
+   * The child elements are written and Base64-encoded using a per-thread {@link CurrentAddressEncoder}, so the only
+   * object created for the element content is the resulting string.
+   * </p>
+   * <p>
+   * A {@link CurrentAddressEncodingEvent} is emitted if JFR is recording.
+   * </p>
    */
   @Override
   protected void marshallElementContent(final XMLObject xmlObject, @Nonnull final Element domElement)
       throws MarshallingException {
+    final CurrentAddressEncodingEvent event = new CurrentAddressEncodingEvent();
+    event.begin();
+    try {
+      event.setSize(this.encodeElementContent(xmlObject, domElement));
+      event.setOutcome(EidasEvent.SUCCESS);
+    }
+    catch (final MarshallingException | RuntimeException e) {
+      event.setOutcome(EidasEvent.FAILED);
+      throw e;
+    }
+    finally {
+      event.commit();
+    }
+  }
 
-    // Find out if the our namespace already has been defined, and if so, get the prefix.
-    //
-    final String namespace = CurrentAddressType.TYPE_NAME.getNamespaceURI();
-    final Optional<String> _prefix = xmlObject.getNamespaceManager()
-        .getNamespaces()
-        .stream()
-        .filter(n -> namespace.equals(n.getNamespaceURI()))
-        .map(Namespace::getNamespacePrefix)
-        .findFirst();
-    final String prefix = _prefix.isPresent() ? _prefix.get() : CurrentAddressType.TYPE_NAME.getPrefix();
-
-    final StringBuilder sb = new StringBuilder();
+  /**
+   * Encodes the child elements and adds the Base64-encoding as the element content.
+   *
+   * @param xmlObject the object being marshalled
+   * @param domElement the DOM element
+   * @return the length of the Base64-encoded content
+   * @throws MarshallingException for marshalling errors
+   */
+  private int encodeElementContent(final XMLObject xmlObject, final Element domElement)
+      throws MarshallingException {
 
     final List<XMLObject> childXMLObjects = xmlObject.getOrderedChildren();
-    if (childXMLObjects != null && !childXMLObjects.isEmpty()) {
-      for (final XMLObject childXMLObject : childXMLObjects) {
-        if (childXMLObject == null) {
-          continue;
-        }
-        if (!(childXMLObject instanceof final XSString childString)) {
-          throw new MarshallingException("Unexpected type of child element - " + childXMLObject.getClass().getName());
-        }
-        if (childString.getValue() == null) {
-          continue;
-        }
-        final String localPart = childString.getElementQName().getLocalPart();
-        sb.append(String.format("<%s:%s>%s</%s:%s>", prefix, localPart, childString.getValue(), prefix, localPart));
-      }
+    if (childXMLObjects == null || childXMLObjects.isEmpty()) {
+      return 0;
     }
-    if (!sb.isEmpty()) {
-      try {
-        final byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
-        final String base64String = Base64Support.encode(bytes, true);
-        ElementSupport.appendTextContent(domElement, base64String);
+
+    String prefix = null;
+    final CurrentAddressEncoder encoder = encoders.get();
+    encoder.reset();
+
+    for (final XMLObject childXMLObject : childXMLObjects) {
+      if (childXMLObject == null) {
+        continue;
+      }
+      if (!(childXMLObject instanceof final XSString childString)) {
+        throw new MarshallingException("Unexpected type of child element - " + childXMLObject.getClass().getName());
       }
-      catch (final EncodingException e) {
-        throw new MarshallingException(e);
+      if (childString.getValue() == null) {
+        continue;
       }
+      if (prefix == null) {
+        prefix = getPrefix(xmlObject);
+      }
+      encoder.writeElement(prefix, childString.getElementQName().getLocalPart(), childString.getValue());
+    }
+    if (encoder.isEmpty()) {
+      return 0;
     }
+    final String encoding = encoder.toBase64String();
+    ElementSupport.appendTextContent(domElement, encoding);
+    return encoding.length();
+  }
+
+  /**
+   * Finds out if our namespace already has been defined, and if so, returns the prefix. If not, the default prefix is
+   * returned.
+   * <p>
+   * For {@link CurrentAddressTypeImpl} objects the result is cached by the object, and the cache is invalidated when
+   * the namespaces that the lookup depends on change (see
+   * {@link CurrentAddressTypeImpl#getCachedAddressElementPrefix()}).
+   * </p>
+   *
+   * @param xmlObject the object being marshalled
+   * @return the prefix to use for the address elements
+   */
+  private static String getPrefix(final XMLObject xmlObject) {
+    if (xmlObject instanceof final CurrentAddressTypeImpl address) {
+      String prefix = address.getCachedAddressElementPrefix();
+      if (prefix == null) {
+        prefix = resolvePrefix(xmlObject);
+        address.setCachedAddressElementPrefix(prefix);
+      }
+      return prefix;
+    }
+    return resolvePrefix(xmlObject);
+  }
+
+  /**
+   * Resolves the prefix to use for the address elements by looking among the namespaces in use by the object.
+   *
+   * @param xmlObject the object being marshalled
+   * @return the prefix to use for the address elements
+   */
+  private static String resolvePrefix(final XMLObject xmlObject) {
+    final String namespace = CurrentAddressType.TYPE_NAME.getNamespaceURI();
+    return xmlObject.getNamespaceManager()
+        .getNamespaces()
+        .stream()
+        .filter(n -> namespace.equals(n.getNamespaceURI()))
+        .map(Namespace::getNamespacePrefix)
+        .findFirst()
+        .orElse(CurrentAddressType.TYPE_NAME.getPrefix());
   }
 
 }
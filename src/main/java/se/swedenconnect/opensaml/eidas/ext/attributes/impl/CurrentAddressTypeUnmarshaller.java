@@ -19,9 +19,7 @@ import net.shibboleth.shared.codec.Base64Support;
 import net.shibboleth.shared.codec.DecodingException;
 import net.shibboleth.shared.primitive.StringSupport;
 import net.shibboleth.shared.xml.XMLConstants;
-import net.shibboleth.shared.xml.XMLParserException;
 import org.opensaml.core.xml.XMLObject;
-import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
 import org.opensaml.core.xml.io.UnmarshallingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,16 +29,45 @@ import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.Text;
 import se.swedenconnect.opensaml.eidas.common.EidasConstants;
+import se.swedenconnect.opensaml.eidas.ext.attributes.CurrentAddressStructuredType;
 import se.swedenconnect.opensaml.eidas.ext.attributes.CurrentAddressType;
+import se.swedenconnect.opensaml.eidas.ext.attributes.address.AdminunitFirstline;
+import se.swedenconnect.opensaml.eidas.ext.attributes.address.AdminunitSecondline;
+import se.swedenconnect.opensaml.eidas.ext.attributes.address.CvaddressArea;
+import se.swedenconnect.opensaml.eidas.ext.attributes.address.LocatorDesignator;
+import se.swedenconnect.opensaml.eidas.ext.attributes.address.LocatorName;
+import se.swedenconnect.opensaml.eidas.ext.attributes.address.PoBox;
+import se.swedenconnect.opensaml.eidas.ext.attributes.address.PostCode;
+import se.swedenconnect.opensaml.eidas.ext.attributes.address.PostName;
+import se.swedenconnect.opensaml.eidas.ext.attributes.address.Thoroughfare;
+import se.swedenconnect.opensaml.eidas.jfr.CurrentAddressDecodingEvent;
+import se.swedenconnect.opensaml.eidas.jfr.EidasEvent;
 
 import javax.annotation.Nonnull;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.lang.ref.WeakReference;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Thread safe unmarshaller for {@link CurrentAddressType}.
+ * <p>
+ * The Base64-encoded text content of the element is decoded and read using a StAX reader, and the address elements
+ * found are assigned directly to the object being unmarshalled. No intermediate DOM documents are created.
+ * </p>
+ * <p>
+ * The address elements are accepted in the natural person namespace as well as in the legal person namespace, since
+ * the legal person address ({@code LegalPersonAddress}) uses the same Base64-encoded address structure.
+ * </p>
  *
  * @author Martin Lindström
  */
@@ -49,149 +76,293 @@ public class CurrentAddressTypeUnmarshaller extends CurrentAddressStructuredType
   /** Class logger. */
   private final static Logger log = LoggerFactory.getLogger(CurrentAddressTypeUnmarshaller.class);
 
+  /** The local name of the element wrapping the decoded address elements while reading them. */
+  private static final String WRAPPER_ELEMENT = "CurrentAddress";
+
+  /** The factory used to create StAX readers. The factory is thread safe once configured. */
+  private static final XMLInputFactory inputFactory = createInputFactory();
+
+  /** The namespace declaration for the eidas prefix. */
+  private static final String EIDAS_PREFIX_DECLARATION = XMLConstants.XMLNS_PREFIX + ":" + EidasConstants.EIDAS_PREFIX;
+
+  /** The namespace declaration for the eidasnp prefix. */
+  private static final String EIDAS_NP_PREFIX_DECLARATION =
+      XMLConstants.XMLNS_PREFIX + ":" + EidasConstants.EIDAS_NP_PREFIX;
+
+  /** Per-thread cache of namespace bindings for the document being unmarshalled. */
+  private static final ThreadLocal<NamespaceBindingsCache> namespaceBindingsCache =
+      ThreadLocal.withInitial(NamespaceBindingsCache::new);
+
   /**
    * Special handling of the Base64 encoded value that represents the address elements.
    */
-  @Nonnull
   @Override
-  public XMLObject unmarshall(final Element domElement) throws UnmarshallingException {
-
-    Document newDocument = null;
+  protected void unmarshallTextContent(@Nonnull final XMLObject xmlObject, @Nonnull final Text content)
+      throws UnmarshallingException {
+    this.parseContents(content, (Element) content.getParentNode(), (CurrentAddressStructuredType) xmlObject);
+  }
 
-    Node childNode = domElement.getFirstChild();
-    while (childNode != null) {
-      if (childNode.getNodeType() != Node.TEXT_NODE) {
-        // We skip everything except for a text node.
-        log.info("Ignoring node {} - it is not a text node", childNode.getNodeName());
-      }
-      else {
-        newDocument = this.parseContents((Text) childNode, domElement);
-        if (newDocument != null) {
-          break;
-        }
-      }
-      childNode = childNode.getNextSibling();
+  /**
+   * Parses the Base64-encoded contents of a {@code CurrentAddressType} element and assigns the address elements that
+   * this encoding represents to the supplied object. A {@link CurrentAddressDecodingEvent} is emitted if JFR is
+   * recording.
+   *
+   * @param node the text node to parse
+   * @param domElement the DOM element that we are unmarshalling
+   * @param address the object to update
+   * @throws UnmarshallingException for unmarshalling errors
+   */
+  private void parseContents(final Text node, final Element domElement, final CurrentAddressStructuredType address)
+      throws UnmarshallingException {
+    final CurrentAddressDecodingEvent event = new CurrentAddressDecodingEvent();
+    event.begin();
+    try {
+      event.setSize(this.decodeContents(node, domElement, address));
+      event.setOutcome(EidasEvent.SUCCESS);
+    }
+    catch (final UnmarshallingException | RuntimeException e) {
+      event.setOutcome(EidasEvent.FAILED);
+      throw e;
+    }
+    finally {
+      event.commit();
     }
-
-    return super.unmarshall(newDocument != null ? newDocument.getDocumentElement() : domElement);
   }
 
   /**
-   * Parses the Base64-encoded contents of a {@code CurrentAddressType} element into the actual elements that this
-   * encoding represents.
+   * Decodes the Base64-encoded contents of a {@code CurrentAddressType} element and assigns the address elements that
+   * this encoding represents to the supplied object.
    *
-   * @param node the text node to parse @param domElement the DOM element that we are unmarshalling @return a new DOM
-   *          document holding a clone of the {@code domElement} with its previous text node child replaced with the
-   *          parsed elements @throws UnmarshallingException for unmarshalling errors @throws
+   * @param node the text node to parse
+   * @param domElement the DOM element that we are unmarshalling
+   * @param address the object to update
+   * @return the number of decoded bytes
+   * @throws UnmarshallingException for unmarshalling errors
    */
-  private Document parseContents(final Text node, final Element domElement) throws UnmarshallingException {
+  private int decodeContents(final Text node, final Element domElement, final CurrentAddressStructuredType address)
+      throws UnmarshallingException {
 
     final String textContent = StringSupport.trimOrNull(node.getWholeText());
     if (textContent == null) {
       log.error("Expected Base64 encoded address elements");
-      return null;
+      return 0;
     }
 
     // First Base64-decode the contents ...
     //
+    final byte[] bytes;
     try {
-      final byte[] bytes = Base64Support.decode(textContent);
-      final String addressElements = new String(bytes, StandardCharsets.UTF_8);
+      bytes = Base64Support.decode(textContent);
+    }
+    catch (final DecodingException e) {
+      throw new UnmarshallingException(e);
+    }
 
-      // Then build a fake XML document holding the contents in element form.
-      //
+    // The elements represented by the decoded bytes may have a namespace prefix, so we find out which
+    // bindings are in scope and declare them on a wrapper element that is streamed together with the
+    // address elements.
+    //
+    final Map<String, String> bindings = namespaceBindingsCache.get().getBindings(domElement);
 
-      // The elements represented in 'addressElements' may have a namespace prefix,
-      // so we find out if we need to include that in the XML definition.
+    final StringBuilder sb = new StringBuilder();
+    sb.append('<').append(WRAPPER_ELEMENT);
+    for (final Map.Entry<String, String> entry : bindings.entrySet()) {
+      appendNamespaceDeclaration(entry.getKey(), entry.getValue(), sb);
+    }
 
-      final Map<String, String> bindings = getNamespaceBindings(domElement);
+    // There has been cases when the eidas: namespace prefix has been used to represent
+    // address elements, but the response/assertion itself did not define that prefix.
+    // So, let's be a little bit proactive ...
+    //
+    if (!bindings.containsKey(EIDAS_PREFIX_DECLARATION)) {
+      appendNamespaceDeclaration(EIDAS_PREFIX_DECLARATION, EidasConstants.EIDAS_NP_NS, sb);
+    }
+    if (!bindings.containsKey(EIDAS_NP_PREFIX_DECLARATION)) {
+      appendNamespaceDeclaration(EIDAS_NP_PREFIX_DECLARATION, EidasConstants.EIDAS_NP_NS, sb);
+    }
+    sb.append('>');
 
-      // There has been cases when the eidas: namespace prefix has been used to represent
-      // address elements, but the response/assertion itself did not define that prefix.
-      // So, let's be a little bit proactive ...
-      //
-      if (!bindings.containsKey(XMLConstants.XMLNS_PREFIX + ":" + EidasConstants.EIDAS_PREFIX)) {
-        bindings.put(XMLConstants.XMLNS_PREFIX + ":" + EidasConstants.EIDAS_PREFIX, EidasConstants.EIDAS_NP_NS);
-      }
-      if (!bindings.containsKey(XMLConstants.XMLNS_PREFIX + ":" + EidasConstants.EIDAS_NP_PREFIX)) {
-        bindings.put(XMLConstants.XMLNS_PREFIX + ":" + EidasConstants.EIDAS_NP_PREFIX, EidasConstants.EIDAS_NP_NS);
-      }
+    final InputStream contents = new SequenceInputStream(
+        new SequenceInputStream(
+            new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)),
+            new ByteArrayInputStream(bytes)),
+        new ByteArrayInputStream(("</" + WRAPPER_ELEMENT + ">").getBytes(StandardCharsets.UTF_8)));
 
-      final StringBuilder sb = new StringBuilder();
-      sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
-      sb.append("<").append(domElement.getNodeName());
-      for (final Map.Entry<String, String> entry : bindings.entrySet()) {
-        sb.append(" ").append(entry.getKey()).append("=\"").append(entry.getValue()).append("\"");
-      }
-      sb.append('>');
-      sb.append(addressElements);
-      sb.append("</").append(domElement.getNodeName()).append(">");
-
-      // Parse into an XML document.
-      //
-      final Document doc = XMLObjectProviderRegistrySupport.getParserPool()
-          .parse(new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)));
-
-      // Copy the input dom element and replace its child node with our new nodes.
-      //
-      final Document newDoc = XMLObjectProviderRegistrySupport.getParserPool().newDocument();
-      final Element newDom = (Element) domElement.cloneNode(true);
-      for (final Map.Entry<String, String> entry : bindings.entrySet()) {
-        newDom.setAttributeNS(XMLConstants.XMLNS_NS, entry.getKey(), entry.getValue());
-      }
-      newDoc.adoptNode(newDom);
-      for (Node child; (child = newDom.getFirstChild()) != null; newDom.removeChild(child)) {
+    // Then read the address elements and assign them ...
+    //
+    try {
+      final XMLStreamReader reader = inputFactory.createXMLStreamReader(contents, StandardCharsets.UTF_8.name());
+      try {
+        final StringBuilder value = new StringBuilder();
+        String localName = null;
+        int depth = 0;
+
+        while (reader.hasNext()) {
+          final int event = reader.next();
+          if (event == XMLStreamConstants.START_ELEMENT) {
+            depth++;
+            if (depth == 2) {
+              localName = EidasConstants.EIDAS_NP_NS.equals(reader.getNamespaceURI())
+                  || EidasConstants.EIDAS_LP_NS.equals(reader.getNamespaceURI()) ? reader.getLocalName() : null;
+              value.setLength(0);
+            }
+          }
+          else if (event == XMLStreamConstants.END_ELEMENT) {
+            if (depth == 2 && localName != null) {
+              assignValue(address, localName, StringSupport.trimOrNull(value.toString()));
+            }
+            depth--;
+          }
+          else if (depth == 2 && localName != null && (event == XMLStreamConstants.CHARACTERS
+              || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE)) {
+            value.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+          }
+        }
       }
-      Node newChild = doc.getDocumentElement().getFirstChild();
-      while (newChild != null) {
-        final Node importedChild = newDoc.importNode(newChild, true);
-        newDom.appendChild(importedChild);
-        newChild = newChild.getNextSibling();
+      finally {
+        reader.close();
       }
-      newDoc.appendChild(newDom);
-
-      return newDoc;
     }
-    catch (final XMLParserException | DecodingException e) {
+    catch (final XMLStreamException e) {
       throw new UnmarshallingException(e);
     }
+    return bytes.length;
   }
 
   /**
-   * Returns a map holding all registered namespace bindings, where the key is the qualified name of the namespace and
-   * the value part is the URI.
+   * Assigns the value of an address element, given its local name, to the supplied address object.
    *
-   * @param element the element to start from
-   * @return a namespace map
+   * @param address the address object
+   * @param localName the local name of the address element
+   * @param value the value (may be {@code null})
    */
-  private static Map<String, String> getNamespaceBindings(final Element element) {
-    final Map<String, String> namespaceMap = new HashMap<>();
-    getNamespaceBindings(element, namespaceMap);
-    return namespaceMap;
+  private static void assignValue(
+      final CurrentAddressStructuredType address, final String localName, final String value) {
+    switch (localName) {
+      case PoBox.DEFAULT_ELEMENT_LOCAL_NAME -> address.setPoBox(value);
+      case LocatorDesignator.DEFAULT_ELEMENT_LOCAL_NAME -> address.setLocatorDesignator(value);
+      case LocatorName.DEFAULT_ELEMENT_LOCAL_NAME -> address.setLocatorName(value);
+      case CvaddressArea.DEFAULT_ELEMENT_LOCAL_NAME -> address.setCvaddressArea(value);
+      case Thoroughfare.DEFAULT_ELEMENT_LOCAL_NAME -> address.setThoroughfare(value);
+      case PostName.DEFAULT_ELEMENT_LOCAL_NAME -> address.setPostName(value);
+      case AdminunitFirstline.DEFAULT_ELEMENT_LOCAL_NAME -> address.setAdminunitFirstline(value);
+      case AdminunitSecondline.DEFAULT_ELEMENT_LOCAL_NAME -> address.setAdminunitSecondline(value);
+      case PostCode.DEFAULT_ELEMENT_LOCAL_NAME -> address.setPostCode(value);
+      default -> log.debug("Ignoring unknown address element {}", localName);
+    }
   }
 
   /**
-   * Helper method to {@link #getNamespaceBindings(Element)}
+   * Appends a namespace declaration attribute, escaping the characters that may not appear in a double-quoted attribute
+   * value.
    *
-   * @param element the element to parse
-   * @param namespaceMap the map to fill
+   * @param name the attribute name, for example {@code xmlns:eidas}
+   * @param value the namespace URI
+   * @param sb the builder to write to
    */
-  private static void getNamespaceBindings(final Element element, final Map<String, String> namespaceMap) {
-    if (element == null) {
-      return;
+  private static void appendNamespaceDeclaration(final String name, final String value, final StringBuilder sb) {
+    sb.append(' ').append(name).append("=\"");
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      switch (c) {
+        case '&' -> sb.append("&amp;");
+        case '<' -> sb.append("&lt;");
+        case '"' -> sb.append("&quot;");
+        default -> sb.append(c);
+      }
     }
-    final NamedNodeMap attrs = element.getAttributes();
-    for (int i = 0; i < attrs.getLength(); i++) {
-      final Node node = attrs.item(i);
-      final String name = node.getNodeName();
-      if ((name != null
-          && (XMLConstants.XMLNS_PREFIX.equals(name) || name.startsWith(XMLConstants.XMLNS_PREFIX + ":")))) {
-        namespaceMap.put(name, node.getNodeValue());
+    sb.append('"');
+  }
+
+  /**
+   * Creates the {@link XMLInputFactory} used to read the decoded address elements. DTD:s and external entities are not
+   * supported.
+   *
+   * @return an {@link XMLInputFactory}
+   */
+  private static XMLInputFactory createInputFactory() {
+    final XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    return factory;
+  }
+
+  /**
+   * A cache of the namespace bindings that are in scope for the elements of a DOM document. The ancestors of a
+   * {@code CurrentAddressType} element are shared by all address values of a message, so with the cache each ancestor
+   * is only scanned once during the unmarshalling of a message, even if the message holds several address values.
+   * <p>
+   * The cache is scoped to one unmarshalling pass over a document. OpenSAML does not tell an unmarshaller when the
+   * outermost unmarshall call starts or returns, so a new pass is detected instead. The cache is reset when an element
+   * from another document is unmarshalled, or when an address element that has already been unmarshalled in the
+   * current pass is unmarshalled again (the document is unmarshalled anew, and may have been modified since). Changes
+   * to namespace declarations made between the unmarshalling of two disjoint parts of the same document, without any
+   * other document being unmarshalled in between, are not detected. The cache only holds weak references to the
+   * document and its elements.
+   * </p>
+   */
+  private static final class NamespaceBindingsCache {
+
+    /** The document whose bindings are cached. */
+    private WeakReference<Document> document;
+
+    /**
+     * The resolved bindings for each element, where the key is the qualified name of the namespace declaration and the
+     * value is the URI. DOM nodes use identity equality, so this map behaves as a (weak) identity map.
+     */
+    private final Map<Element, Map<String, String>> bindings = new WeakHashMap<>();
+
+    /**
+     * Returns a map holding all namespace bindings in scope for the given address element, where the key is the
+     * qualified name of the namespace declaration and the value part is the URI.
+     *
+     * @param element the address element
+     * @return an unmodifiable namespace map
+     */
+    Map<String, String> getBindings(final Element element) {
+      final Document owner = element.getOwnerDocument();
+      if (this.document == null || this.document.get() != owner || this.bindings.containsKey(element)) {
+        this.bindings.clear();
+        this.document = new WeakReference<>(owner);
       }
+      return this.resolve(element);
     }
-    final Node parent = element.getParentNode();
-    if (parent instanceof Element) {
-      getNamespaceBindings((Element) parent, namespaceMap);
+
+    /**
+     * Resolves the bindings for the supplied element. Bindings declared by the element override the bindings declared
+     * by its ancestors.
+     *
+     * @param element the element
+     * @return an unmodifiable namespace map
+     */
+    private Map<String, String> resolve(final Element element) {
+      final Map<String, String> cached = this.bindings.get(element);
+      if (cached != null) {
+        return cached;
+      }
+      final Node parent = element.getParentNode();
+      final Map<String, String> parentBindings =
+          parent instanceof final Element parentElement ? this.resolve(parentElement) : Collections.emptyMap();
+
+      Map<String, String> elementBindings = null;
+      final NamedNodeMap attrs = element.getAttributes();
+      for (int i = 0; i < attrs.getLength(); i++) {
+        final Node node = attrs.item(i);
+        final String name = node.getNodeName();
+        if (name != null
+            && (XMLConstants.XMLNS_PREFIX.equals(name) || name.startsWith(XMLConstants.XMLNS_PREFIX + ":"))) {
+          if (elementBindings == null) {
+            elementBindings = new HashMap<>(parentBindings);
+          }
+          elementBindings.put(name, node.getNodeValue());
+        }
+      }
+      final Map<String, String> resolved =
+          elementBindings != null ? Collections.unmodifiableMap(elementBindings) : parentBindings;
+      this.bindings.put(element, resolved);
+      return resolved;
     }
   }
 
@@ -19,6 +19,7 @@ import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import org.opensaml.core.xml.schema.impl.XSStringImpl;
 
+import se.swedenconnect.opensaml.eidas.ext.attributes.PersonIdentifier;
 import se.swedenconnect.opensaml.eidas.ext.attributes.PersonIdentifierType;
 
 import java.util.Objects;
@@ -30,6 +31,12 @@ import java.util.Objects;
  */
 public class PersonIdentifierTypeImpl extends XSStringImpl implements PersonIdentifierType {
 
+  /** The parsed value, lazily created and reset when the value is assigned. */
+  private PersonIdentifier personIdentifier;
+
+  /** The parts of the value, as returned by the part accessors, lazily created and reset when the value is assigned. */
+  private String[] parts;
+
   /**
    * Constructor.
    *
@@ -42,6 +49,23 @@ public class PersonIdentifierTypeImpl extends XSStringImpl implements PersonIden
     super(namespaceURI, elementLocalName, namespacePrefix);
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public void setValue(@Nullable final String newValue) {
+    super.setValue(newValue);
+    this.personIdentifier = null;
+    this.parts = null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public PersonIdentifier getPersonIdentifier() {
+    if (this.personIdentifier == null && this.getValue() != null) {
+      this.personIdentifier = PersonIdentifier.parse(this.getValue());
+    }
+    return this.personIdentifier;
+  }
+
   /** {@inheritDoc} */
   @Override
   public String getNationalityCode() {
@@ -61,18 +85,16 @@ public class PersonIdentifierTypeImpl extends XSStringImpl implements PersonIden
   }
 
   /**
-   * Extracts the given part from the unique identifier.
+   * Returns the given part of the unique identifier. The value is split the first time a part is requested.
    *
    * @param pos position
    * @return the part or {@code null}
    */
   private String getPart(final int pos) {
-    final String value = this.getValue();
-    if (value == null) {
-      return null;
+    if (this.parts == null && this.getValue() != null) {
+      this.parts = this.getValue().split("/");
     }
-    final String[] parts = value.split("/");
-    return parts.length >= pos + 1 ? parts[pos] : null;
+    return this.parts != null && this.parts.length >= pos + 1 ? this.parts[pos] : null;
   }
 
   /** {@inheritDoc} */
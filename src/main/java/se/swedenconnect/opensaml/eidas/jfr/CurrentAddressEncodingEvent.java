@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.jfr;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for the encoding of the contents of a {@code CurrentAddressType} element.
+ *
+ * @author Martin Lindström
+ */
+@Name("se.swedenconnect.opensaml.eidas.CurrentAddressEncoding")
+@Label("CurrentAddress Encoding")
+@Description("Encoding of the contents of a CurrentAddressType element")
+public final class CurrentAddressEncodingEvent extends EidasEvent {
+
+  /** The size of the Base64-encoded contents. */
+  @Label("Size")
+  @DataAmount
+  private int size;
+
+  /**
+   * Assigns the size of the Base64-encoded contents.
+   *
+   * @param size the size in bytes
+   */
+  public void setSize(final int size) {
+    this.size = size;
+  }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base class for the JFR events of this library.
+ * <p>
+ * Events are used according to the following pattern, where {@code doWork} is the code being timed. If recording is
+ * turned off, the calls to {@code begin} and {@code commit} are no-ops.
+ * </p>
+ *
+ * <pre>{@code
+ * final MyEvent event = new MyEvent();
+ * event.begin();
+ * try {
+ *   doWork();
+ *   event.setOutcome(EidasEvent.SUCCESS);
+ * }
+ * catch (final Exception e) {
+ *   event.setOutcome(EidasEvent.FAILED);
+ *   throw e;
+ * }
+ * finally {
+ *   event.commit();
+ * }}
+ * </pre>
+ *
+ * @author Martin Lindström
+ */
+@Category({ "eIDAS" })
+@StackTrace(false)
+public abstract class EidasEvent extends jdk.jfr.Event {
+
+  /** Outcome for successful operations. */
+  public static final String SUCCESS = "success";
+
+  /** Outcome for failed operations. */
+  public static final String FAILED = "failed";
+
+  /** The outcome of the operation. */
+  @Label("Outcome")
+  @Description("The outcome of the operation")
+  private String outcome;
+
+  /**
+   * Assigns the outcome of the operation.
+   *
+   * @param outcome the outcome
+   */
+  public void setOutcome(final String outcome) {
+    this.outcome = outcome;
+  }
+
+}
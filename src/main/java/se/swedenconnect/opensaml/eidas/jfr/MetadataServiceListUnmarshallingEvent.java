@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for the unmarshalling of a {@code MetadataServiceList}.
+ *
+ * @author Martin Lindström
+ */
+@Name("se.swedenconnect.opensaml.eidas.MetadataServiceListUnmarshalling")
+@Label("MetadataServiceList Unmarshalling")
+@Description("Unmarshalling of a MetadataServiceList")
+public final class MetadataServiceListUnmarshallingEvent extends EidasEvent {
+
+  /**
+   * The DOM user data key that {@code MetadataServiceListStreamReader} assigns to the document element that it passes
+   * to the unmarshaller. That element holds no metadata lists, so the unmarshaller does not emit an event for it, and
+   * the reader emits the event itself.
+   */
+  public static final String STREAMED_ELEMENT_KEY = MetadataServiceListUnmarshallingEvent.class.getName() + ".streamed";
+
+  /** The number of MetadataList elements. */
+  @Label("Metadata Lists")
+  private int metadataLists;
+
+  /** The number of MetadataLocation elements. */
+  @Label("Metadata Locations")
+  private int metadataLocations;
+
+  /**
+   * Assigns the number of {@code MetadataList} elements.
+   *
+   * @param metadataLists the number of elements
+   */
+  public void setMetadataLists(final int metadataLists) {
+    this.metadataLists = metadataLists;
+  }
+
+  /**
+   * Assigns the number of {@code MetadataLocation} elements.
+   *
+   * @param metadataLocations the number of elements
+   */
+  public void setMetadataLocations(final int metadataLocations) {
+    this.metadataLocations = metadataLocations;
+  }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for the validation of the signature of a {@code MetadataServiceList}.
+ *
+ * @author Martin Lindström
+ */
+@Name("se.swedenconnect.opensaml.eidas.MetadataServiceListSignatureValidation")
+@Label("MetadataServiceList Signature Validation")
+@Description("Validation of the signature of a MetadataServiceList")
+public final class SignatureValidationEvent extends EidasEvent {
+
+  /** Outcome for validations that were answered from the verified signature cache. */
+  public static final String CACHED = "cached";
+
+  /** The signature algorithm URI. */
+  @Label("Signature Algorithm")
+  private String algorithm;
+
+  /** The number of certificates that were tried. */
+  @Label("Certificates Tried")
+  private int certificates;
+
+  /**
+   * Assigns the signature algorithm URI.
+   *
+   * @param algorithm the algorithm URI
+   */
+  public void setAlgorithm(final String algorithm) {
+    this.algorithm = algorithm;
+  }
+
+  /**
+   * Assigns the number of certificates that were tried.
+   *
+   * @param certificates the number of certificates
+   */
+  public void setCertificates(final int certificates) {
+    this.certificates = certificates;
+  }
+
+}
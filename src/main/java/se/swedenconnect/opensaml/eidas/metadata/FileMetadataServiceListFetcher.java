@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.metadata;
+
+import jakarta.annotation.Nonnull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * A {@link MetadataServiceListFetcher} that reads the metadata service list from a local file.
+ *
+ * @author Martin Lindström
+ */
+public class FileMetadataServiceListFetcher implements MetadataServiceListFetcher {
+
+  /** The file holding the metadata service list. */
+  private final Path file;
+
+  /**
+   * Constructor.
+   *
+   * @param file the file holding the metadata service list
+   */
+  public FileMetadataServiceListFetcher(@Nonnull final Path file) {
+    this.file = Objects.requireNonNull(file, "file must not be null");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public InputStream fetch() throws IOException {
+    return Files.newInputStream(this.file);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return this.file.toString();
+  }
+
+}
@@ -17,11 +17,20 @@ package se.swedenconnect.opensaml.eidas.metadata;
 
 import org.opensaml.core.xml.AttributeExtensibleXMLObject;
 import org.opensaml.saml.common.SAMLObject;
+import org.opensaml.xmlsec.keyinfo.KeyInfoSupport;
 import org.opensaml.xmlsec.signature.KeyInfo;
+import org.opensaml.xmlsec.signature.X509Data;
 import se.swedenconnect.opensaml.eidas.common.EidasConstants;
 
 import javax.xml.namespace.QName;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
 import java.util.List;
 
 /**
@@ -139,6 +148,56 @@ public interface MetadataLocation extends SAMLObject, AttributeExtensibleXMLObje
    */
   void addX509Certificate(final X509Certificate certificate);
 
+  /**
+   * Returns the X.509 certificates held by the key info elements (see {@link #getKeyInfos()}). Certificates that can
+   * not be decoded are not included.
+   * <p>
+   * The default implementation decodes the certificates on each invocation. Implementations may cache the result as
+   * long as {@link #getKeyInfos()} is not modified.
+   * </p>
+   *
+   * @return an unmodifiable (possibly empty) list of certificates
+   */
+  default List<X509Certificate> getX509Certificates() {
+    final List<X509Certificate> certificates = new ArrayList<>();
+    for (final KeyInfo keyInfo : this.getKeyInfos()) {
+      for (final X509Data x509Data : keyInfo.getX509Datas()) {
+        for (final org.opensaml.xmlsec.signature.X509Certificate cert : x509Data.getX509Certificates()) {
+          try {
+            final X509Certificate certificate = KeyInfoSupport.getCertificate(cert);
+            if (certificate != null) {
+              certificates.add(certificate);
+            }
+          }
+          catch (final CertificateException e) {
+            // Not included
+          }
+        }
+      }
+    }
+    return Collections.unmodifiableList(certificates);
+  }
+
+  /**
+   * Returns the hex-encoded SHA-256 fingerprints of the certificates returned by {@link #getX509Certificates()}. The
+   * fingerprint at a given index belongs to the certificate at the same index.
+   *
+   * @return an unmodifiable (possibly empty) list of fingerprints
+   */
+  default List<String> getX509CertificateFingerprints() {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      final List<String> fingerprints = new ArrayList<>();
+      for (final X509Certificate certificate : this.getX509Certificates()) {
+        fingerprints.add(HexFormat.of().formatHex(digest.digest(certificate.getEncoded())));
+      }
+      return Collections.unmodifiableList(fingerprints);
+    }
+    catch (final NoSuchAlgorithmException | CertificateEncodingException e) {
+      throw new IllegalStateException("Failed to calculate certificate fingerprint", e);
+    }
+  }
+
   /**
    * Returns the location attribute, i.e., the URL from where the metadata endpoint(s) can be obtained.
    *
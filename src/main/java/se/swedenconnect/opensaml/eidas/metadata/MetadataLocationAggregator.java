@@ -0,0 +1,493 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.metadata;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import net.shibboleth.shared.xml.XMLParserException;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.core.xml.io.Unmarshaller;
+import org.opensaml.core.xml.io.UnmarshallingException;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.security.impl.SAMLSignatureProfileValidator;
+import org.opensaml.security.x509.BasicX509Credential;
+import org.opensaml.xmlsec.signature.SignableXMLObject;
+import org.opensaml.xmlsec.signature.support.SignatureException;
+import org.opensaml.xmlsec.signature.support.SignaturePrevalidator;
+import org.opensaml.xmlsec.signature.support.SignatureValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Element;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Fetches and verifies the SAML metadata for all metadata locations of a {@link MetadataServiceList}.
+ * <p>
+ * Each location is handled by its own virtual thread, so the time it takes to process a complete list is roughly the
+ * time it takes to process the slowest location. The metadata is obtained using a {@link MetadataLocationFetcher}, and
+ * its signature is verified against the certificates of the location (see
+ * {@link MetadataLocation#getX509Certificates()}). Suspended locations, and locations belonging to suspended metadata
+ * lists, are skipped.
+ * </p>
+ * <p>
+ * The result for each location holds the verified metadata, or the reason why the location failed, along with the
+ * time it took to process the location. A failure for one location does not affect the others.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public class MetadataLocationAggregator {
+
+  /** Logger instance. */
+  private static final Logger log = LoggerFactory.getLogger(MetadataLocationAggregator.class);
+
+  /** The default timeout (1 minute). */
+  public static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(1);
+
+  /** The fetcher. */
+  private final MetadataLocationFetcher fetcher;
+
+  /** Validates signatures against the SAML signature profile. */
+  private final SignaturePrevalidator signatureProfileValidator = new SAMLSignatureProfileValidator();
+
+  /** The maximum time to wait for all locations to be processed. */
+  private Duration timeout = DEFAULT_TIMEOUT;
+
+  /**
+   * Constructor.
+   *
+   * @param fetcher the fetcher used to obtain the metadata
+   */
+  public MetadataLocationAggregator(@Nonnull final MetadataLocationFetcher fetcher) {
+    this.fetcher = Objects.requireNonNull(fetcher, "fetcher must not be null");
+  }
+
+  /**
+   * Fetches and verifies the metadata for all metadata locations of the supplied metadata service list.
+   * <p>
+   * The caller is responsible for validating the signature of the metadata service list before this method is
+   * invoked, since its certificates are used to verify the metadata.
+   * </p>
+   *
+   * @param metadataServiceList the (validated) metadata service list
+   * @return the aggregated result
+   */
+  @Nonnull
+  public Result aggregate(@Nonnull final MetadataServiceList metadataServiceList) {
+    Objects.requireNonNull(metadataServiceList, "metadataServiceList must not be null");
+    final long started = System.nanoTime();
+
+    final List<LocationResult> results = new ArrayList<>();
+    final List<Task> tasks = new ArrayList<>();
+
+    final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    try {
+      for (final MetadataList metadataList : metadataServiceList.getMetadataLists()) {
+        for (final MetadataLocation metadataLocation : metadataList.getMetadataLocations()) {
+          if (metadataList.getSuspend() || metadataLocation.getSuspend()) {
+            log.debug("Skipping suspended metadata location {}", metadataLocation.getLocation());
+            tasks.add(new Task(metadataList.getTerritory(), metadataLocation, null));
+          }
+          else {
+            tasks.add(new Task(metadataList.getTerritory(), metadataLocation, executor.submit(
+                () -> this.process(metadataList.getTerritory(), metadataLocation))));
+          }
+        }
+      }
+
+      final long deadline = started + this.timeout.toNanos();
+      for (final Task task : tasks) {
+        results.add(task.await(deadline));
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    final Result result = new Result(results, Duration.ofNanos(System.nanoTime() - started));
+    log.info("Aggregated metadata from {} locations in {} ({} successful, {} failed, {} skipped)",
+        results.size(), result.getDuration(), result.getSuccessful().size(), result.getFailed().size(),
+        result.getSkipped().size());
+    return result;
+  }
+
+  /**
+   * Fetches and verifies the metadata for one metadata location.
+   *
+   * @param territory the territory of the location
+   * @param metadataLocation the location
+   * @return the result
+   */
+  @Nonnull
+  public LocationResult process(@Nullable final String territory, @Nonnull final MetadataLocation metadataLocation) {
+    final long started = System.nanoTime();
+    final String location = metadataLocation.getLocation();
+    try {
+      if (location == null) {
+        throw new IOException("MetadataLocation has no Location attribute");
+      }
+      final List<X509Certificate> certificates = metadataLocation.getX509Certificates();
+      if (certificates.isEmpty()) {
+        throw new SignatureException("MetadataLocation has no certificates to verify metadata against");
+      }
+
+      final Element element;
+      try (final InputStream is = this.fetcher.fetch(location)) {
+        element = XMLObjectProviderRegistrySupport.getParserPool().parse(is).getDocumentElement();
+      }
+      catch (final XMLParserException e) {
+        throw new IOException("Failed to parse metadata - " + e.getMessage(), e);
+      }
+      final Unmarshaller unmarshaller = XMLObjectSupport.getUnmarshaller(element);
+      if (unmarshaller == null) {
+        throw new UnmarshallingException("No unmarshaller available for " + element.getLocalName());
+      }
+      final XMLObject metadata = unmarshaller.unmarshall(element);
+      final X509Certificate verifiedBy = this.verify(metadata, certificates);
+
+      final Duration duration = Duration.ofNanos(System.nanoTime() - started);
+      log.debug("Metadata from {} verified in {}", location, duration);
+      return new LocationResult(territory, location, Status.SUCCESS, metadata, verifiedBy, duration, null);
+    }
+    catch (final IOException | UnmarshallingException | SignatureException | RuntimeException e) {
+      final Duration duration = Duration.ofNanos(System.nanoTime() - started);
+      log.warn("Failed to obtain metadata from {} - {}", location, e.getMessage());
+      return new LocationResult(territory, location, Status.FAILED, null, null, duration, e);
+    }
+  }
+
+  /**
+   * Verifies the signature of the supplied metadata using the supplied certificates.
+   *
+   * @param metadata the metadata
+   * @param certificates the certificates to try
+   * @return the certificate that verified the signature
+   * @throws SignatureException if the signature can not be verified
+   */
+  private X509Certificate verify(final XMLObject metadata, final List<X509Certificate> certificates)
+      throws SignatureException {
+    if (!(metadata instanceof final SignableXMLObject signable) || signable.getSignature() == null) {
+      throw new SignatureException("Metadata is not signed");
+    }
+    this.signatureProfileValidator.validate(signable.getSignature());
+    for (final X509Certificate certificate : certificates) {
+      try {
+        SignatureValidator.validate(signable.getSignature(), new BasicX509Credential(certificate));
+        return certificate;
+      }
+      catch (final SignatureException e) {
+        log.trace("Signature validation using '{}' failed - {}", certificate.getSubjectX500Principal(),
+            e.getMessage());
+      }
+    }
+    throw new SignatureException(certificates.size() == 1
+        ? "Signature validation failed"
+        : String.format("Signature validation failed - none of the %d certificates verified the signature",
+            certificates.size()));
+  }
+
+  /**
+   * Assigns the maximum time to wait for all locations to be processed. Locations that have not been processed when
+   * the timeout expires are reported as failed. The default is {@link #DEFAULT_TIMEOUT}.
+   *
+   * @param timeout the timeout
+   */
+  public void setTimeout(@Nonnull final Duration timeout) {
+    if (Objects.requireNonNull(timeout, "timeout must not be null").isNegative() || timeout.isZero()) {
+      throw new IllegalArgumentException("timeout must be positive");
+    }
+    this.timeout = timeout;
+  }
+
+  /**
+   * A submitted location.
+   *
+   * @param territory the territory
+   * @param metadataLocation the location
+   * @param future the result ({@code null} if the location is skipped)
+   */
+  private record Task(String territory, MetadataLocation metadataLocation, Future<LocationResult> future) {
+
+    /**
+     * Waits for the result.
+     *
+     * @param deadline the deadline (in {@link System#nanoTime()} time)
+     * @return the result
+     */
+    LocationResult await(final long deadline) {
+      if (this.future == null) {
+        return new LocationResult(this.territory, this.metadataLocation.getLocation(), Status.SKIPPED, null, null,
+            Duration.ZERO, null);
+      }
+      try {
+        return this.future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+      }
+      catch (final TimeoutException e) {
+        this.future.cancel(true);
+        return this.failed(new TimeoutException("Timed out waiting for metadata"));
+      }
+      catch (final ExecutionException e) {
+        return this.failed(e.getCause() instanceof final Exception cause ? cause : e);
+      }
+      catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        this.future.cancel(true);
+        return this.failed(e);
+      }
+    }
+
+    private LocationResult failed(final Exception error) {
+      log.warn("Failed to obtain metadata from {} - {}", this.metadataLocation.getLocation(), error.getMessage());
+      return new LocationResult(this.territory, this.metadataLocation.getLocation(), Status.FAILED, null, null,
+          null, error);
+    }
+  }
+
+  /**
+   * The status of a metadata location.
+   */
+  public enum Status {
+
+    /** The metadata was obtained and its signature was verified. */
+    SUCCESS,
+
+    /** The metadata could not be obtained or verified. */
+    FAILED,
+
+    /** The location was suspended and was not processed. */
+    SKIPPED
+  }
+
+  /**
+   * The result of processing one metadata location.
+   */
+  public static final class LocationResult {
+
+    /** The territory. */
+    private final String territory;
+
+    /** The location URL. */
+    private final String location;
+
+    /** The status. */
+    private final Status status;
+
+    /** The verified metadata. */
+    private final XMLObject metadata;
+
+    /** The certificate that verified the metadata. */
+    private final X509Certificate verifiedBy;
+
+    /** The processing time. */
+    private final Duration duration;
+
+    /** The error. */
+    private final Exception error;
+
+    /**
+     * Constructor.
+     *
+     * @param territory the territory
+     * @param location the location URL
+     * @param status the status
+     * @param metadata the verified metadata (for successful locations)
+     * @param verifiedBy the certificate that verified the metadata (for successful locations)
+     * @param duration the processing time ({@code null} if not known)
+     * @param error the error (for failed locations)
+     */
+    private LocationResult(final String territory, final String location, final Status status,
+        final XMLObject metadata, final X509Certificate verifiedBy, final Duration duration, final Exception error) {
+      this.territory = territory;
+      this.location = location;
+      this.status = status;
+      this.metadata = metadata;
+      this.verifiedBy = verifiedBy;
+      this.duration = duration;
+      this.error = error;
+    }
+
+    /**
+     * Returns the territory of the location.
+     *
+     * @return the territory
+     */
+    @Nullable
+    public String getTerritory() {
+      return this.territory;
+    }
+
+    /**
+     * Returns the location URL.
+     *
+     * @return the location URL
+     */
+    @Nullable
+    public String getLocation() {
+      return this.location;
+    }
+
+    /**
+     * Returns the status.
+     *
+     * @return the status
+     */
+    @Nonnull
+    public Status getStatus() {
+      return this.status;
+    }
+
+    /**
+     * Returns the verified metadata, i.e., an {@code EntityDescriptor} or {@code EntitiesDescriptor}.
+     *
+     * @return the metadata, or {@code null} if the location was not successfully processed
+     */
+    @Nullable
+    public XMLObject getMetadata() {
+      return this.metadata;
+    }
+
+    /**
+     * Returns the certificate that verified the signature of the metadata.
+     *
+     * @return the certificate, or {@code null} if the location was not successfully processed
+     */
+    @Nullable
+    public X509Certificate getVerifiedBy() {
+      return this.verifiedBy;
+    }
+
+    /**
+     * Returns the time it took to process the location.
+     *
+     * @return the processing time, or {@code null} if processing did not complete in time
+     */
+    @Nullable
+    public Duration getDuration() {
+      return this.duration;
+    }
+
+    /**
+     * Returns the error for a failed location.
+     *
+     * @return the error, or {@code null} if the location did not fail
+     */
+    @Nullable
+    public Exception getError() {
+      return this.error;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+      return String.format("territory='%s', location='%s', status=%s, duration=%s%s", this.territory, this.location,
+          this.status, this.duration, this.error != null ? ", error='" + this.error.getMessage() + "'" : "");
+    }
+
+  }
+
+  /**
+   * The aggregated result for all metadata locations.
+   */
+  public static final class Result {
+
+    /** The result for each location (in document order). */
+    private final List<LocationResult> results;
+
+    /** The total processing time. */
+    private final Duration duration;
+
+    /**
+     * Constructor.
+     *
+     * @param results the result for each location
+     * @param duration the total processing time
+     */
+    private Result(final List<LocationResult> results, final Duration duration) {
+      this.results = List.copyOf(results);
+      this.duration = duration;
+    }
+
+    /**
+     * Returns the results for all locations.
+     *
+     * @return an unmodifiable list of results
+     */
+    @Nonnull
+    public List<LocationResult> getResults() {
+      return this.results;
+    }
+
+    /**
+     * Returns the results for the successfully processed locations.
+     *
+     * @return a list of results
+     */
+    @Nonnull
+    public List<LocationResult> getSuccessful() {
+      return this.getResults(Status.SUCCESS);
+    }
+
+    /**
+     * Returns the results for the failed locations.
+     *
+     * @return a list of results
+     */
+    @Nonnull
+    public List<LocationResult> getFailed() {
+      return this.getResults(Status.FAILED);
+    }
+
+    /**
+     * Returns the results for the skipped (suspended) locations.
+     *
+     * @return a list of results
+     */
+    @Nonnull
+    public List<LocationResult> getSkipped() {
+      return this.getResults(Status.SKIPPED);
+    }
+
+    /**
+     * Returns the total processing time.
+     *
+     * @return the processing time
+     */
+    @Nonnull
+    public Duration getDuration() {
+      return this.duration;
+    }
+
+    private List<LocationResult> getResults(final Status status) {
+      return this.results.stream().filter(r -> r.getStatus() == status).toList();
+    }
+
+  }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.metadata;
+
+import jakarta.annotation.Nonnull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Interface for obtaining the SAML metadata that a {@link MetadataLocation} refers to.
+ * <p>
+ * Implementations must be thread safe, since a {@link MetadataLocationAggregator} invokes the fetcher for several
+ * locations concurrently.
+ * </p>
+ *
+ * @author Martin Lindström
+ * @see ResourceMetadataLocationFetcher
+ */
+@FunctionalInterface
+public interface MetadataLocationFetcher {
+
+  /**
+   * Fetches the SAML metadata from the given location. The caller is responsible for closing the returned stream.
+   *
+   * @param location the location URL (see {@link MetadataLocation#getLocation()})
+   * @return a stream holding the SAML metadata
+   * @throws IOException if the metadata can not be fetched
+   */
+  InputStream fetch(@Nonnull final String location) throws IOException;
+
+}
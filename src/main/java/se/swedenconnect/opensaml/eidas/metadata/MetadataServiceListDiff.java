@@ -0,0 +1,484 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.metadata;
+
+import jakarta.annotation.Nonnull;
+import se.swedenconnect.opensaml.eidas.metadata.MetadataServiceListIndex.IndexedEndpoint;
+import se.swedenconnect.opensaml.eidas.metadata.MetadataServiceListIndex.IndexedLocation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The structural differences between two versions of a metadata service list.
+ * <p>
+ * Metadata locations are identified by their location URL, and endpoints by their entityID and endpoint type. The
+ * diff holds the added and removed locations, the locations whose certificates have changed ("re-keyed"), the
+ * locations whose effective suspend flag or territory has changed, the added and removed endpoints, and the endpoints
+ * whose effective suspend or hide-from-discovery flags (or territory or location) have changed. This makes it
+ * possible for components that keep state derived from the metadata service list to only update the affected entries
+ * when a new version of the list has been obtained.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public final class MetadataServiceListDiff {
+
+  /** Locations present only in the current version. */
+  private final List<IndexedLocation> addedLocations;
+
+  /** Locations present only in the previous version. */
+  private final List<IndexedLocation> removedLocations;
+
+  /** Locations (from the current version) whose certificates have changed. */
+  private final List<IndexedLocation> rekeyedLocations;
+
+  /** Locations present in both versions, but with a different suspend flag or territory. */
+  private final List<LocationChange> changedLocations;
+
+  /** Endpoints present only in the current version. */
+  private final List<IndexedEndpoint> addedEndpoints;
+
+  /** Endpoints present only in the previous version. */
+  private final List<IndexedEndpoint> removedEndpoints;
+
+  /** Endpoints present in both versions, but with different flags, territory or location. */
+  private final List<EndpointChange> changedEndpoints;
+
+  /**
+   * Compares two versions of a metadata service list.
+   *
+   * @param previous the previous version (may be {@code null}, in which case everything in {@code current} is
+   *     reported as added)
+   * @param current the current version
+   * @return the differences between the lists
+   */
+  @Nonnull
+  public static MetadataServiceListDiff compare(
+      final MetadataServiceListIndex previous, @Nonnull final MetadataServiceListIndex current) {
+    return new MetadataServiceListDiff(previous, Objects.requireNonNull(current, "current must not be null"));
+  }
+
+  /**
+   * Compares two versions of a metadata service list.
+   *
+   * @param previous the previous version (may be {@code null}, in which case everything in {@code current} is
+   *     reported as added)
+   * @param current the current version
+   * @return the differences between the lists
+   */
+  @Nonnull
+  public static MetadataServiceListDiff compare(
+      final MetadataServiceList previous, @Nonnull final MetadataServiceList current) {
+    return compare(previous != null ? MetadataServiceListIndex.compile(previous) : null,
+        MetadataServiceListIndex.compile(Objects.requireNonNull(current, "current must not be null")));
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param previous the previous version (may be {@code null})
+   * @param current the current version
+   */
+  private MetadataServiceListDiff(final MetadataServiceListIndex previous, final MetadataServiceListIndex current) {
+    final Map<String, IndexedLocation> previousLocations =
+        previous != null ? locationsByUrl(previous) : Collections.emptyMap();
+    final Map<String, IndexedLocation> currentLocations = locationsByUrl(current);
+
+    final List<IndexedLocation> added = new ArrayList<>();
+    final List<IndexedLocation> rekeyed = new ArrayList<>();
+    final List<LocationChange> changedLocs = new ArrayList<>();
+    for (final IndexedLocation location : currentLocations.values()) {
+      final IndexedLocation previousLocation = previousLocations.get(location.getLocation());
+      if (previousLocation == null) {
+        added.add(location);
+        continue;
+      }
+      if (!previousLocation.getEncodedCertificates().equals(location.getEncodedCertificates())) {
+        rekeyed.add(location);
+      }
+      final LocationChange change = new LocationChange(previousLocation, location);
+      if (change.isChanged()) {
+        changedLocs.add(change);
+      }
+    }
+    final List<IndexedLocation> removed = new ArrayList<>();
+    for (final IndexedLocation location : previousLocations.values()) {
+      if (!currentLocations.containsKey(location.getLocation())) {
+        removed.add(location);
+      }
+    }
+    this.addedLocations = List.copyOf(added);
+    this.removedLocations = List.copyOf(removed);
+    this.rekeyedLocations = List.copyOf(rekeyed);
+    this.changedLocations = List.copyOf(changedLocs);
+
+    final Map<EndpointKey, IndexedEndpoint> previousEndpoints =
+        previous != null ? endpointsByKey(previous) : Collections.emptyMap();
+    final Map<EndpointKey, IndexedEndpoint> currentEndpoints = endpointsByKey(current);
+
+    final List<IndexedEndpoint> addedEps = new ArrayList<>();
+    final List<EndpointChange> changed = new ArrayList<>();
+    for (final Map.Entry<EndpointKey, IndexedEndpoint> e : currentEndpoints.entrySet()) {
+      final IndexedEndpoint previousEndpoint = previousEndpoints.get(e.getKey());
+      if (previousEndpoint == null) {
+        addedEps.add(e.getValue());
+      }
+      else {
+        final EndpointChange change = new EndpointChange(previousEndpoint, e.getValue());
+        if (change.isChanged()) {
+          changed.add(change);
+        }
+      }
+    }
+    final List<IndexedEndpoint> removedEps = new ArrayList<>();
+    for (final Map.Entry<EndpointKey, IndexedEndpoint> e : previousEndpoints.entrySet()) {
+      if (!currentEndpoints.containsKey(e.getKey())) {
+        removedEps.add(e.getValue());
+      }
+    }
+    this.addedEndpoints = List.copyOf(addedEps);
+    this.removedEndpoints = List.copyOf(removedEps);
+    this.changedEndpoints = List.copyOf(changed);
+  }
+
+  /**
+   * Tells whether there are no differences between the lists.
+   *
+   * @return {@code true} if there are no differences
+   */
+  public boolean isEmpty() {
+    return this.addedLocations.isEmpty() && this.removedLocations.isEmpty() && this.rekeyedLocations.isEmpty()
+        && this.changedLocations.isEmpty() && this.addedEndpoints.isEmpty() && this.removedEndpoints.isEmpty()
+        && this.changedEndpoints.isEmpty();
+  }
+
+  /**
+   * Returns the metadata locations that are present in the current version, but not in the previous.
+   *
+   * @return an unmodifiable list of locations
+   */
+  @Nonnull
+  public List<IndexedLocation> getAddedLocations() {
+    return this.addedLocations;
+  }
+
+  /**
+   * Returns the metadata locations that were present in the previous version, but not in the current.
+   *
+   * @return an unmodifiable list of locations
+   */
+  @Nonnull
+  public List<IndexedLocation> getRemovedLocations() {
+    return this.removedLocations;
+  }
+
+  /**
+   * Returns the metadata locations whose certificates differ between the versions. The returned objects are from the
+   * current version.
+   *
+   * @return an unmodifiable list of locations
+   */
+  @Nonnull
+  public List<IndexedLocation> getRekeyedLocations() {
+    return this.rekeyedLocations;
+  }
+
+  /**
+   * Returns the metadata locations that are present in both versions, but whose effective suspend flag or territory
+   * differ. This includes locations that have no endpoints.
+   *
+   * @return an unmodifiable list of location changes
+   */
+  @Nonnull
+  public List<LocationChange> getChangedLocations() {
+    return this.changedLocations;
+  }
+
+  /**
+   * Returns the endpoints that are present in the current version, but not in the previous.
+   *
+   * @return an unmodifiable list of endpoints
+   */
+  @Nonnull
+  public List<IndexedEndpoint> getAddedEndpoints() {
+    return this.addedEndpoints;
+  }
+
+  /**
+   * Returns the endpoints that were present in the previous version, but not in the current.
+   *
+   * @return an unmodifiable list of endpoints
+   */
+  @Nonnull
+  public List<IndexedEndpoint> getRemovedEndpoints() {
+    return this.removedEndpoints;
+  }
+
+  /**
+   * Returns the endpoints that are present in both versions, but whose flags, territory or location differ.
+   *
+   * @return an unmodifiable list of endpoint changes
+   */
+  @Nonnull
+  public List<EndpointChange> getChangedEndpoints() {
+    return this.changedEndpoints;
+  }
+
+  /**
+   * Returns the territories that are affected by the changes.
+   *
+   * @return a sorted set of territories
+   */
+  @Nonnull
+  public Set<String> getAffectedTerritories() {
+    final Set<String> territories = new TreeSet<>();
+    this.addedLocations.forEach(l -> addIfNotNull(territories, l.getTerritory()));
+    this.removedLocations.forEach(l -> addIfNotNull(territories, l.getTerritory()));
+    this.rekeyedLocations.forEach(l -> addIfNotNull(territories, l.getTerritory()));
+    this.changedLocations.forEach(c -> {
+      addIfNotNull(territories, c.getPrevious().getTerritory());
+      addIfNotNull(territories, c.getCurrent().getTerritory());
+    });
+    this.addedEndpoints.forEach(e -> addIfNotNull(territories, e.getTerritory()));
+    this.removedEndpoints.forEach(e -> addIfNotNull(territories, e.getTerritory()));
+    this.changedEndpoints.forEach(c -> {
+      addIfNotNull(territories, c.getPrevious().getTerritory());
+      addIfNotNull(territories, c.getCurrent().getTerritory());
+    });
+    return Collections.unmodifiableSet(territories);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return String.format("added-locations=%d, removed-locations=%d, rekeyed-locations=%d, changed-locations=%d, "
+        + "added-endpoints=%d, removed-endpoints=%d, changed-endpoints=%d", this.addedLocations.size(),
+        this.removedLocations.size(), this.rekeyedLocations.size(), this.changedLocations.size(),
+        this.addedEndpoints.size(), this.removedEndpoints.size(), this.changedEndpoints.size());
+  }
+
+  private static Map<String, IndexedLocation> locationsByUrl(final MetadataServiceListIndex index) {
+    final Map<String, IndexedLocation> locations = new LinkedHashMap<>();
+    for (final IndexedLocation location : index.getLocations()) {
+      if (location.getLocation() != null) {
+        locations.putIfAbsent(location.getLocation(), location);
+      }
+    }
+    return locations;
+  }
+
+  private static Map<EndpointKey, IndexedEndpoint> endpointsByKey(final MetadataServiceListIndex index) {
+    final Map<EndpointKey, IndexedEndpoint> endpoints = new LinkedHashMap<>();
+    for (final IndexedEndpoint endpoint : index.getEndpoints()) {
+      if (endpoint.getEntityID() != null) {
+        endpoints.putIfAbsent(new EndpointKey(endpoint.getEntityID(), endpoint.getEndpointType()), endpoint);
+      }
+    }
+    return endpoints;
+  }
+
+  private static void addIfNotNull(final Set<String> set, final String value) {
+    if (value != null) {
+      set.add(value);
+    }
+  }
+
+  /**
+   * Identifies an endpoint.
+   *
+   * @param entityID the entityID
+   * @param endpointType the endpoint type
+   */
+  private record EndpointKey(String entityID, String endpointType) {
+  }
+
+  /**
+   * Represents a metadata location that is present in both versions of a metadata service list, but whose suspend flag
+   * or territory has changed. Certificate changes are reported separately (see {@link #getRekeyedLocations()}).
+   */
+  public static final class LocationChange {
+
+    /** The location in the previous version. */
+    private final IndexedLocation previous;
+
+    /** The location in the current version. */
+    private final IndexedLocation current;
+
+    /**
+     * Constructor.
+     *
+     * @param previous the location in the previous version
+     * @param current the location in the current version
+     */
+    private LocationChange(final IndexedLocation previous, final IndexedLocation current) {
+      this.previous = previous;
+      this.current = current;
+    }
+
+    /**
+     * Returns the location from the previous version.
+     *
+     * @return the previous location
+     */
+    @Nonnull
+    public IndexedLocation getPrevious() {
+      return this.previous;
+    }
+
+    /**
+     * Returns the location from the current version.
+     *
+     * @return the current location
+     */
+    @Nonnull
+    public IndexedLocation getCurrent() {
+      return this.current;
+    }
+
+    /**
+     * Tells whether the (effective) suspend flag has changed.
+     *
+     * @return {@code true} if the location has been suspended or reinstated
+     */
+    public boolean isSuspendChanged() {
+      return this.previous.isSuspended() != this.current.isSuspended();
+    }
+
+    /**
+     * Tells whether the location has been moved to another territory.
+     *
+     * @return {@code true} if the territory has changed
+     */
+    public boolean isMoved() {
+      return !Objects.equals(this.previous.getTerritory(), this.current.getTerritory());
+    }
+
+    /**
+     * Tells whether anything has changed.
+     *
+     * @return {@code true} if the location has changed
+     */
+    boolean isChanged() {
+      return this.isSuspendChanged() || this.isMoved();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+      return String.format("location='%s', suspend-changed=%s, moved=%s",
+          this.current.getLocation(), this.isSuspendChanged(), this.isMoved());
+    }
+
+  }
+
+  /**
+   * Represents an endpoint that is present in both versions of a metadata service list, but whose flags, territory or
+   * location have changed.
+   */
+  public static final class EndpointChange {
+
+    /** The endpoint in the previous version. */
+    private final IndexedEndpoint previous;
+
+    /** The endpoint in the current version. */
+    private final IndexedEndpoint current;
+
+    /**
+     * Constructor.
+     *
+     * @param previous the endpoint in the previous version
+     * @param current the endpoint in the current version
+     */
+    private EndpointChange(final IndexedEndpoint previous, final IndexedEndpoint current) {
+      this.previous = previous;
+      this.current = current;
+    }
+
+    /**
+     * Returns the endpoint from the previous version.
+     *
+     * @return the previous endpoint
+     */
+    @Nonnull
+    public IndexedEndpoint getPrevious() {
+      return this.previous;
+    }
+
+    /**
+     * Returns the endpoint from the current version.
+     *
+     * @return the current endpoint
+     */
+    @Nonnull
+    public IndexedEndpoint getCurrent() {
+      return this.current;
+    }
+
+    /**
+     * Tells whether the (effective) suspend flag has changed.
+     *
+     * @return {@code true} if the endpoint has been suspended or reinstated
+     */
+    public boolean isSuspendChanged() {
+      return this.previous.isSuspended() != this.current.isSuspended();
+    }
+
+    /**
+     * Tells whether the (effective) hide-from-discovery flag has changed.
+     *
+     * @return {@code true} if the hide-from-discovery flag has changed
+     */
+    public boolean isHideFromDiscoveryChanged() {
+      return this.previous.isHiddenFromDiscovery() != this.current.isHiddenFromDiscovery();
+    }
+
+    /**
+     * Tells whether the endpoint has been moved to another territory or metadata location.
+     *
+     * @return {@code true} if the territory or location has changed
+     */
+    public boolean isMoved() {
+      return !Objects.equals(this.previous.getTerritory(), this.current.getTerritory())
+          || !Objects.equals(this.previous.getLocation(), this.current.getLocation());
+    }
+
+    /**
+     * Tells whether anything has changed.
+     *
+     * @return {@code true} if the endpoint has changed
+     */
+    boolean isChanged() {
+      return this.isSuspendChanged() || this.isHideFromDiscoveryChanged() || this.isMoved();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+      return String.format("entity-id='%s', endpoint-type='%s', suspend-changed=%s, hide-from-discovery-changed=%s, "
+          + "moved=%s", this.current.getEntityID(), this.current.getEndpointType(), this.isSuspendChanged(),
+          this.isHideFromDiscoveryChanged(), this.isMoved());
+    }
+
+  }
+
+}
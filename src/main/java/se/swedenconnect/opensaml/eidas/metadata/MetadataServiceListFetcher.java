@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.metadata;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Interface for obtaining the encoding of a {@link MetadataServiceList}, for example by reading it from file or
+ * downloading it from a distribution point.
+ *
+ * @author Martin Lindström
+ * @see FileMetadataServiceListFetcher
+ */
+@FunctionalInterface
+public interface MetadataServiceListFetcher {
+
+  /**
+   * Fetches the XML encoding of a metadata service list. The caller is responsible for closing the returned stream.
+   *
+   * @return a stream holding the metadata service list
+   * @throws IOException if the metadata service list can not be fetched
+   */
+  InputStream fetch() throws IOException;
+
+}
@@ -0,0 +1,573 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.metadata;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.opensaml.xmlsec.signature.KeyInfo;
+import org.opensaml.xmlsec.signature.X509Certificate;
+import org.opensaml.xmlsec.signature.X509Data;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable, indexed, snapshot of a {@link MetadataServiceList}.
+ * <p>
+ * Looking up an entity in a {@link MetadataServiceList} requires a scan of all {@code MetadataList},
+ * {@code MetadataLocation} and {@code Endpoint} elements. This class compiles a (validated) metadata service list into
+ * hash indexes keyed by entityID, territory, metadata location and endpoint type so that lookups can be made in
+ * constant time. The suspend and hide-from-discovery flags are resolved when the index is compiled, see
+ * {@link IndexedEndpoint#isSuspended()} and {@link IndexedEndpoint#isHiddenFromDiscovery()}.
+ * </p>
+ * <p>
+ * An index never changes after it has been compiled and all of its fields are final. It may therefore be shared
+ * between threads, and a new version is published atomically by replacing the reference to the index (for example
+ * using an {@link java.util.concurrent.atomic.AtomicReference}).
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public final class MetadataServiceListIndex {
+
+  /** Pattern for matching whitespace in Base64-encoded values. */
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  /** The ID of the metadata service list. */
+  private final String id;
+
+  /** The issue date of the metadata service list. */
+  private final Instant issueDate;
+
+  /** The next update of the metadata service list. */
+  private final Instant nextUpdate;
+
+  /** The scheme territory of the metadata service list. */
+  private final String schemeTerritory;
+
+  /** All endpoints in document order. */
+  private final List<IndexedEndpoint> endpoints;
+
+  /** Endpoints indexed by entityID. */
+  private final Map<String, List<IndexedEndpoint>> endpointsByEntityId;
+
+  /** Endpoints indexed by endpoint type. */
+  private final Map<String, List<IndexedEndpoint>> endpointsByType;
+
+  /** All metadata locations in document order. */
+  private final List<IndexedLocation> locations;
+
+  /** Metadata locations indexed by territory. */
+  private final Map<String, List<IndexedLocation>> locationsByTerritory;
+
+  /** Metadata locations indexed by location URL. */
+  private final Map<String, IndexedLocation> locationsByLocation;
+
+  /**
+   * Compiles the supplied metadata service list into an index.
+   * <p>
+   * The caller is responsible for validating the signature of the metadata service list before it is compiled.
+   * </p>
+   *
+   * @param metadataServiceList the metadata service list to compile
+   * @return an index for the metadata service list
+   */
+  @Nonnull
+  public static MetadataServiceListIndex compile(@Nonnull final MetadataServiceList metadataServiceList) {
+    return new MetadataServiceListIndex(
+        Objects.requireNonNull(metadataServiceList, "metadataServiceList must not be null"));
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param mdsl the metadata service list to compile
+   */
+  private MetadataServiceListIndex(@Nonnull final MetadataServiceList mdsl) {
+    this.id = mdsl.getID();
+    this.issueDate = mdsl.getIssueDate();
+    this.nextUpdate = mdsl.getNextUpdate();
+    this.schemeTerritory = mdsl.getSchemeInformation() != null
+        ? mdsl.getSchemeInformation().getSchemeTerritory()
+        : null;
+
+    final List<IndexedEndpoint> allEndpoints = new ArrayList<>();
+    final List<IndexedLocation> allLocations = new ArrayList<>();
+    final Map<String, List<IndexedEndpoint>> byEntityId = new HashMap<>();
+    final Map<String, List<IndexedEndpoint>> byType = new HashMap<>();
+    final Map<String, List<IndexedLocation>> byTerritory = new HashMap<>();
+    final Map<String, IndexedLocation> byLocation = new HashMap<>();
+
+    for (final MetadataList metadataList : mdsl.getMetadataLists()) {
+      final String territory = metadataList.getTerritory();
+      final boolean listSuspended = metadataList.getSuspend();
+
+      for (final MetadataLocation metadataLocation : metadataList.getMetadataLocations()) {
+        final boolean locationSuspended = listSuspended || metadataLocation.getSuspend();
+        final List<IndexedEndpoint> locationEndpoints = new ArrayList<>(metadataLocation.getEndpoints().size());
+
+        for (final Endpoint endpoint : metadataLocation.getEndpoints()) {
+          final IndexedEndpoint indexedEndpoint = new IndexedEndpoint(endpoint.getEntityID(),
+              endpoint.getEndpointType(), territory, metadataLocation.getLocation(),
+              locationSuspended || endpoint.getSuspend(), endpoint.getHideFromDiscovery());
+          locationEndpoints.add(indexedEndpoint);
+          allEndpoints.add(indexedEndpoint);
+
+          if (indexedEndpoint.getEntityID() != null) {
+            byEntityId.computeIfAbsent(indexedEndpoint.getEntityID(), k -> new ArrayList<>(1)).add(indexedEndpoint);
+          }
+          if (indexedEndpoint.getEndpointType() != null) {
+            byType.computeIfAbsent(indexedEndpoint.getEndpointType(), k -> new ArrayList<>()).add(indexedEndpoint);
+          }
+        }
+
+        final IndexedLocation indexedLocation = new IndexedLocation(metadataLocation.getLocation(), territory,
+            locationSuspended, List.copyOf(locationEndpoints), getEncodedCertificates(metadataLocation));
+        allLocations.add(indexedLocation);
+        if (territory != null) {
+          byTerritory.computeIfAbsent(territory, k -> new ArrayList<>()).add(indexedLocation);
+        }
+        if (indexedLocation.getLocation() != null) {
+          byLocation.putIfAbsent(indexedLocation.getLocation(), indexedLocation);
+        }
+      }
+    }
+
+    this.endpoints = List.copyOf(allEndpoints);
+    this.endpointsByEntityId = copyOfMultiMap(byEntityId);
+    this.endpointsByType = copyOfMultiMap(byType);
+    this.locations = List.copyOf(allLocations);
+    this.locationsByTerritory = copyOfMultiMap(byTerritory);
+    this.locationsByLocation = Map.copyOf(byLocation);
+  }
+
+  /**
+   * Returns the ID of the compiled metadata service list.
+   *
+   * @return the ID, or {@code null} if not set
+   */
+  @Nullable
+  public String getID() {
+    return this.id;
+  }
+
+  /**
+   * Returns the issue date of the compiled metadata service list.
+   *
+   * @return the issue date
+   */
+  @Nullable
+  public Instant getIssueDate() {
+    return this.issueDate;
+  }
+
+  /**
+   * Returns the next update time of the compiled metadata service list.
+   *
+   * @return the next update time, or {@code null} if not set
+   */
+  @Nullable
+  public Instant getNextUpdate() {
+    return this.nextUpdate;
+  }
+
+  /**
+   * Returns the scheme territory of the compiled metadata service list.
+   *
+   * @return the scheme territory
+   */
+  @Nullable
+  public String getSchemeTerritory() {
+    return this.schemeTerritory;
+  }
+
+  /**
+   * Returns all endpoints of the metadata service list (in document order).
+   *
+   * @return an unmodifiable list of endpoints
+   */
+  @Nonnull
+  public List<IndexedEndpoint> getEndpoints() {
+    return this.endpoints;
+  }
+
+  /**
+   * Returns the endpoint having the given entityID.
+   * <p>
+   * Note that the same entityID may be used for both a proxy service and a connector endpoint. In these cases the
+   * first endpoint (in document order) is returned. Use {@link #getEndpoint(String, String)} to get the endpoint of a
+   * given type.
+   * </p>
+   *
+   * @param entityID the entityID
+   * @return the endpoint, or {@code null} if no endpoint with the given entityID exists
+   */
+  @Nullable
+  public IndexedEndpoint getEndpoint(@Nonnull final String entityID) {
+    final List<IndexedEndpoint> list = this.endpointsByEntityId.get(entityID);
+    return list != null ? list.get(0) : null;
+  }
+
+  /**
+   * Returns the endpoint having the given entityID and endpoint type.
+   *
+   * @param entityID the entityID
+   * @param endpointType the endpoint type URI, for example {@link Endpoint#PROXY_SERVICE_ENDPOINT_TYPE}
+   * @return the endpoint, or {@code null} if no matching endpoint exists
+   */
+  @Nullable
+  public IndexedEndpoint getEndpoint(@Nonnull final String entityID, @Nonnull final String endpointType) {
+    final List<IndexedEndpoint> list = this.endpointsByEntityId.get(entityID);
+    if (list != null) {
+      for (final IndexedEndpoint endpoint : list) {
+        if (endpointType.equals(endpoint.getEndpointType())) {
+          return endpoint;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns all endpoints having the given entityID.
+   *
+   * @param entityID the entityID
+   * @return an unmodifiable (possibly empty) list of endpoints
+   */
+  @Nonnull
+  public List<IndexedEndpoint> getEndpoints(@Nonnull final String entityID) {
+    return this.endpointsByEntityId.getOrDefault(entityID, Collections.emptyList());
+  }
+
+  /**
+   * Predicate that tells whether the endpoint(s) with the given entityID is suspended.
+   *
+   * @param entityID the entityID
+   * @return {@code true} if there is at least one endpoint with the given entityID and all such endpoints are
+   *     suspended, and {@code false} otherwise
+   */
+  public boolean isSuspended(@Nonnull final String entityID) {
+    final List<IndexedEndpoint> list = this.endpointsByEntityId.get(entityID);
+    if (list == null) {
+      return false;
+    }
+    for (final IndexedEndpoint endpoint : list) {
+      if (!endpoint.isSuspended()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns all endpoints of the given type, for example {@link Endpoint#PROXY_SERVICE_ENDPOINT_TYPE}.
+   *
+   * @param endpointType the endpoint type URI
+   * @return an unmodifiable (possibly empty) list of endpoints
+   */
+  @Nonnull
+  public List<IndexedEndpoint> getEndpointsByType(@Nonnull final String endpointType) {
+    return this.endpointsByType.getOrDefault(endpointType, Collections.emptyList());
+  }
+
+  /**
+   * Returns all metadata locations of the metadata service list (including locations of metadata lists that have no
+   * territory).
+   *
+   * @return an unmodifiable list of all metadata locations, in document order
+   */
+  @Nonnull
+  public List<IndexedLocation> getLocations() {
+    return this.locations;
+  }
+
+  /**
+   * Returns the metadata locations for the given territory (country).
+   *
+   * @param territory the territory
+   * @return an unmodifiable (possibly empty) list of metadata locations
+   */
+  @Nonnull
+  public List<IndexedLocation> getLocationsByTerritory(@Nonnull final String territory) {
+    return this.locationsByTerritory.getOrDefault(territory, Collections.emptyList());
+  }
+
+  /**
+   * Returns the territories that are present in the metadata service list.
+   *
+   * @return an unmodifiable set of territories
+   */
+  @Nonnull
+  public Set<String> getTerritories() {
+    return this.locationsByTerritory.keySet();
+  }
+
+  /**
+   * Returns the metadata location having the given location URL.
+   *
+   * @param location the location URL
+   * @return the metadata location, or {@code null} if no such location exists
+   */
+  @Nullable
+  public IndexedLocation getLocation(@Nonnull final String location) {
+    return this.locationsByLocation.get(location);
+  }
+
+  /**
+   * Returns the Base64-encoded certificates of the supplied metadata location (with all whitespace removed).
+   *
+   * @param metadataLocation the metadata location
+   * @return an unmodifiable list of encoded certificates
+   */
+  private static List<String> getEncodedCertificates(final MetadataLocation metadataLocation) {
+    final List<String> certificates = new ArrayList<>();
+    for (final KeyInfo keyInfo : metadataLocation.getKeyInfos()) {
+      for (final X509Data x509Data : keyInfo.getX509Datas()) {
+        for (final X509Certificate certificate : x509Data.getX509Certificates()) {
+          if (certificate.getValue() != null) {
+            certificates.add(WHITESPACE.matcher(certificate.getValue()).replaceAll(""));
+          }
+        }
+      }
+    }
+    return List.copyOf(certificates);
+  }
+
+  /**
+   * Makes an unmodifiable copy of a map with list values.
+   *
+   * @param map the map to copy
+   * @return an unmodifiable map
+   */
+  private static <T> Map<String, List<T>> copyOfMultiMap(final Map<String, List<T>> map) {
+    final Map<String, List<T>> copy = new HashMap<>(map.size() * 2);
+    for (final Map.Entry<String, List<T>> e : map.entrySet()) {
+      copy.put(e.getKey(), List.copyOf(e.getValue()));
+    }
+    return Map.copyOf(copy);
+  }
+
+  /**
+   * An immutable representation of an {@link Endpoint} within a compiled metadata service list.
+   */
+  public static final class IndexedEndpoint {
+
+    /** The entityID. */
+    private final String entityID;
+
+    /** The endpoint type. */
+    private final String endpointType;
+
+    /** The territory of the endpoint's metadata list. */
+    private final String territory;
+
+    /** The location of the endpoint's metadata location. */
+    private final String location;
+
+    /** The effective suspend flag. */
+    private final boolean suspended;
+
+    /** The hide-from-discovery flag. */
+    private final boolean hideFromDiscovery;
+
+    /**
+     * Constructor.
+     *
+     * @param entityID the entityID
+     * @param endpointType the endpoint type
+     * @param territory the territory
+     * @param location the metadata location URL
+     * @param suspended the effective suspend flag
+     * @param hideFromDiscovery the hide-from-discovery flag
+     */
+    private IndexedEndpoint(final String entityID, final String endpointType, final String territory,
+        final String location, final boolean suspended, final boolean hideFromDiscovery) {
+      this.entityID = entityID;
+      this.endpointType = endpointType;
+      this.territory = territory;
+      this.location = location;
+      this.suspended = suspended;
+      this.hideFromDiscovery = hideFromDiscovery;
+    }
+
+    /**
+     * Returns the entityID of the endpoint.
+     *
+     * @return the entityID
+     */
+    public String getEntityID() {
+      return this.entityID;
+    }
+
+    /**
+     * Returns the endpoint type URI.
+     *
+     * @return the endpoint type
+     */
+    public String getEndpointType() {
+      return this.endpointType;
+    }
+
+    /**
+     * Returns the territory (country) that the endpoint belongs to.
+     *
+     * @return the territory
+     */
+    public String getTerritory() {
+      return this.territory;
+    }
+
+    /**
+     * Returns the URL of the metadata location holding the endpoint.
+     *
+     * @return the metadata location URL
+     */
+    public String getLocation() {
+      return this.location;
+    }
+
+    /**
+     * Tells whether the endpoint is suspended. An endpoint is suspended if its own {@code Suspend} flag is set, or if
+     * the {@code Suspend} flag of its metadata location or metadata list is set.
+     *
+     * @return {@code true} if the endpoint is suspended
+     */
+    public boolean isSuspended() {
+      return this.suspended;
+    }
+
+    /**
+     * Tells whether the endpoint should be hidden from discovery. This is the case if the {@code HideFromDiscovery}
+     * flag is set or if the endpoint is suspended.
+     *
+     * @return {@code true} if the endpoint should be hidden from discovery
+     */
+    public boolean isHiddenFromDiscovery() {
+      return this.hideFromDiscovery || this.suspended;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+      return String.format("entity-id='%s', endpoint-type='%s', territory='%s', suspended=%s, hide-from-discovery=%s",
+          this.entityID, this.endpointType, this.territory, this.suspended, this.hideFromDiscovery);
+    }
+
+  }
+
+  /**
+   * An immutable representation of a {@link MetadataLocation} within a compiled metadata service list.
+   */
+  public static final class IndexedLocation {
+
+    /** The location URL. */
+    private final String location;
+
+    /** The territory of the metadata list holding the location. */
+    private final String territory;
+
+    /** The effective suspend flag. */
+    private final boolean suspended;
+
+    /** The endpoints of the location. */
+    private final List<IndexedEndpoint> endpoints;
+
+    /** The Base64-encoded certificates of the location. */
+    private final List<String> encodedCertificates;
+
+    /**
+     * Constructor.
+     *
+     * @param location the location URL
+     * @param territory the territory
+     * @param suspended the effective suspend flag
+     * @param endpoints the endpoints
+     * @param encodedCertificates the Base64-encoded certificates
+     */
+    private IndexedLocation(final String location, final String territory, final boolean suspended,
+        final List<IndexedEndpoint> endpoints, final List<String> encodedCertificates) {
+      this.location = location;
+      this.territory = territory;
+      this.suspended = suspended;
+      this.endpoints = endpoints;
+      this.encodedCertificates = encodedCertificates;
+    }
+
+    /**
+     * Returns the URL from where the metadata can be obtained.
+     *
+     * @return the location URL
+     */
+    public String getLocation() {
+      return this.location;
+    }
+
+    /**
+     * Returns the territory (country) of the metadata location.
+     *
+     * @return the territory
+     */
+    public String getTerritory() {
+      return this.territory;
+    }
+
+    /**
+     * Tells whether the metadata location is suspended, i.e., if the {@code Suspend} flag of the location or its
+     * metadata list is set.
+     *
+     * @return {@code true} if the location is suspended
+     */
+    public boolean isSuspended() {
+      return this.suspended;
+    }
+
+    /**
+     * Returns the endpoints of this metadata location.
+     *
+     * @return an unmodifiable list of endpoints
+     */
+    public List<IndexedEndpoint> getEndpoints() {
+      return this.endpoints;
+    }
+
+    /**
+     * Returns the Base64-encoded certificates given in the {@code KeyInfo} elements of the metadata location (with
+     * all whitespace removed). These are the certificates that are used to verify the metadata obtained from the
+     * location.
+     *
+     * @return an unmodifiable list of encoded certificates
+     */
+    public List<String> getEncodedCertificates() {
+      return this.encodedCertificates;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+      return String.format("location='%s', territory='%s', suspended=%s, endpoints=%s",
+          this.location, this.territory, this.suspended, this.endpoints);
+    }
+
+  }
+
+}
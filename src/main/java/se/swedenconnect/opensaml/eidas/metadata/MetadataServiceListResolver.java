@@ -0,0 +1,604 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.metadata;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import net.shibboleth.shared.resolver.ResolverException;
+import net.shibboleth.shared.xml.XMLParserException;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.core.xml.io.Unmarshaller;
+import org.opensaml.core.xml.io.UnmarshallingException;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.xmlsec.signature.support.SignatureException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Element;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A resolver that loads a {@link MetadataServiceList}, validates its signature and keeps it up to date by refreshing
+ * it in the background.
+ * <p>
+ * The metadata service list is obtained from a {@link MetadataServiceListFetcher} and its signature is validated using
+ * {@link MetadataServiceListSignatureValidator}. Once validated, the list is compiled into a
+ * {@link MetadataServiceListIndex} and published by replacing a single reference. This means that the
+ * {@link #getMetadataServiceList()} and {@link #getIndex()} methods never block, and that they never wait on I/O or
+ * signature validation.
+ * </p>
+ * <p>
+ * Refreshes are scheduled based on the {@code NextUpdate} attribute of the current list. The delay is the time left
+ * until {@code NextUpdate} multiplied with the refresh delay factor, reduced by a random jitter, and kept within the
+ * configured minimum and maximum refresh delays. If a refresh fails, the previously validated list is kept and a new
+ * attempt is scheduled using an exponential backoff (starting at the minimum refresh delay).
+ * </p>
+ * <p>
+ * A list whose {@code IssueDate} is earlier than the issue date of the current list is rejected.
+ * </p>
+ * <p>
+ * If a snapshot file has been assigned (see {@link #setSnapshotFile(Path)}), each validated list is also written to a
+ * {@link MetadataServiceListSnapshot}. When the fetched document is identical to the one that the snapshot was made
+ * from, and the validation certificates are unchanged, the list is loaded from the snapshot instead of being parsed
+ * and validated again. This makes restarts fast. Note that a list that is loaded from a snapshot has no signature
+ * (see {@link #isLoadedFromSnapshot()}).
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public class MetadataServiceListResolver {
+
+  /** Logger instance. */
+  private static final Logger log = LoggerFactory.getLogger(MetadataServiceListResolver.class);
+
+  /** The default minimum refresh delay (5 minutes). */
+  public static final Duration DEFAULT_MIN_REFRESH_DELAY = Duration.ofMinutes(5);
+
+  /** The default maximum refresh delay (4 hours). */
+  public static final Duration DEFAULT_MAX_REFRESH_DELAY = Duration.ofHours(4);
+
+  /** The default refresh delay factor (0.75). */
+  public static final float DEFAULT_REFRESH_DELAY_FACTOR = 0.75f;
+
+  /** The default jitter (0.1). */
+  public static final float DEFAULT_JITTER = 0.1f;
+
+  /** The fetcher used to obtain the metadata service list. */
+  private final MetadataServiceListFetcher fetcher;
+
+  /** The signature validator. */
+  private final MetadataServiceListSignatureValidator signatureValidator;
+
+  /** The certificates trusted to sign the metadata service list. */
+  private final List<X509Certificate> validationCertificates;
+
+  /** The file where snapshots of validated lists are stored (optional). */
+  private Path snapshotFile;
+
+  /** The current (validated) metadata service list. */
+  private final AtomicReference<Snapshot> current = new AtomicReference<>();
+
+  /** The minimum refresh delay. */
+  private Duration minRefreshDelay = DEFAULT_MIN_REFRESH_DELAY;
+
+  /** The maximum refresh delay. */
+  private Duration maxRefreshDelay = DEFAULT_MAX_REFRESH_DELAY;
+
+  /** The factor that is applied to the time left until NextUpdate when calculating the refresh delay. */
+  private float refreshDelayFactor = DEFAULT_REFRESH_DELAY_FACTOR;
+
+  /** The maximum fraction that a refresh delay is randomly reduced with. */
+  private float jitter = DEFAULT_JITTER;
+
+  /** Whether initialization should fail if the metadata service list can not be loaded. */
+  private boolean failFastInitialization = true;
+
+  /** The clock. */
+  private Clock clock = Clock.systemUTC();
+
+  /** The executor used for scheduling refreshes. */
+  private ScheduledExecutorService executor;
+
+  /** Whether the executor is created (and should be shut down) by this resolver. */
+  private boolean ownsExecutor;
+
+  /** The next scheduled refresh. */
+  private ScheduledFuture<?> scheduledRefresh;
+
+  /** The number of consecutive refresh failures. */
+  private int failures;
+
+  /** Whether the resolver has been destroyed. */
+  private volatile boolean destroyed;
+
+  /**
+   * Constructor.
+   *
+   * @param fetcher the fetcher used to obtain the metadata service list
+   * @param validationCertificate the certificate used to validate the signature of the metadata service list
+   */
+  public MetadataServiceListResolver(
+      @Nonnull final MetadataServiceListFetcher fetcher, @Nonnull final X509Certificate validationCertificate) {
+    this(fetcher, List.of(Objects.requireNonNull(validationCertificate, "validationCertificate must not be null")));
+  }
+
+  /**
+   * Constructor accepting several validation certificates, for example during a key rollover.
+   *
+   * @param fetcher the fetcher used to obtain the metadata service list
+   * @param validationCertificates the certificates that are trusted to sign the metadata service list
+   */
+  public MetadataServiceListResolver(@Nonnull final MetadataServiceListFetcher fetcher,
+      @Nonnull final Collection<X509Certificate> validationCertificates) {
+    this.fetcher = Objects.requireNonNull(fetcher, "fetcher must not be null");
+    if (Objects.requireNonNull(validationCertificates, "validationCertificates must not be null").isEmpty()) {
+      throw new IllegalArgumentException("At least one validation certificate must be given");
+    }
+    this.validationCertificates = List.copyOf(validationCertificates);
+    this.signatureValidator = new MetadataServiceListSignatureValidator(this.validationCertificates);
+  }
+
+  /**
+   * Initializes the resolver by loading the metadata service list and scheduling the next refresh.
+   *
+   * @throws ResolverException if the metadata service list can not be loaded and fail fast initialization is
+   *     enabled
+   */
+  public synchronized void initialize() throws ResolverException {
+    if (this.executor == null) {
+      this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "MetadataServiceListResolver-" + this.fetcher);
+        thread.setDaemon(true);
+        return thread;
+      });
+      this.ownsExecutor = true;
+    }
+    try {
+      this.refreshAndSchedule();
+    }
+    catch (final ResolverException e) {
+      if (this.failFastInitialization) {
+        this.destroy();
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Stops all scheduled refreshes. If the executor was created by the resolver, it is shut down.
+   */
+  public synchronized void destroy() {
+    this.destroyed = true;
+    if (this.scheduledRefresh != null) {
+      this.scheduledRefresh.cancel(false);
+      this.scheduledRefresh = null;
+    }
+    if (this.ownsExecutor && this.executor != null) {
+      this.executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns the current, validated, metadata service list. The returned object is shared and must not be modified.
+   * <p>
+   * If the list was loaded from the snapshot file (see {@link #isLoadedFromSnapshot()}), the returned object is
+   * rebuilt from the snapshot and has no {@code Signature} element. Its signature was validated before the snapshot
+   * was written, so callers must not validate the signature of the returned list again.
+   * </p>
+   *
+   * @return the metadata service list, or {@code null} if no list has been loaded
+   */
+  @Nullable
+  public MetadataServiceList getMetadataServiceList() {
+    final Snapshot snapshot = this.current.get();
+    return snapshot != null ? snapshot.metadataServiceList() : null;
+  }
+
+  /**
+   * Tells whether the current metadata service list was loaded from the snapshot file, in which case it is unsigned
+   * (see {@link #getMetadataServiceList()}).
+   *
+   * @return {@code true} if the current list was loaded from the snapshot file, and {@code false} if it was parsed
+   *     and validated from the fetched document, or if no list has been loaded
+   */
+  public boolean isLoadedFromSnapshot() {
+    final Snapshot snapshot = this.current.get();
+    return snapshot != null && snapshot.fromSnapshot();
+  }
+
+  /**
+   * Returns the index for the current, validated, metadata service list.
+   *
+   * @return the index, or {@code null} if no list has been loaded
+   */
+  @Nullable
+  public MetadataServiceListIndex getIndex() {
+    final Snapshot snapshot = this.current.get();
+    return snapshot != null ? snapshot.index() : null;
+  }
+
+  /**
+   * Returns the time when the current metadata service list was loaded.
+   *
+   * @return the load time, or {@code null} if no list has been loaded
+   */
+  @Nullable
+  public Instant getLastUpdate() {
+    final Snapshot snapshot = this.current.get();
+    return snapshot != null ? snapshot.loaded() : null;
+  }
+
+  /**
+   * Fetches, validates and installs a new metadata service list. If the operation fails, the current list is kept.
+   * <p>
+   * This method does not affect the scheduled refreshes.
+   * </p>
+   *
+   * @return the new metadata service list
+   * @throws ResolverException if the metadata service list can not be fetched, is invalid, or if its signature can
+   *     not be verified
+   */
+  @Nonnull
+  public synchronized MetadataServiceList refresh() throws ResolverException {
+    final FetchResult result = this.fetchAndValidate();
+    final MetadataServiceList mdsl = result.metadataServiceList();
+
+    final Snapshot previous = this.current.get();
+    if (previous != null && previous.metadataServiceList().getIssueDate() != null && mdsl.getIssueDate() != null
+        && mdsl.getIssueDate().isBefore(previous.metadataServiceList().getIssueDate())) {
+      throw new ResolverException(String.format(
+          "Metadata service list from %s was issued %s, which is before the issue date of the current list (%s)",
+          this.fetcher, mdsl.getIssueDate(), previous.metadataServiceList().getIssueDate()));
+    }
+    if (mdsl.getNextUpdate() != null && mdsl.getNextUpdate().isBefore(this.clock.instant())) {
+      log.warn("Metadata service list from {} has expired (NextUpdate: {})", this.fetcher, mdsl.getNextUpdate());
+    }
+
+    this.current.set(new Snapshot(
+        mdsl, MetadataServiceListIndex.compile(mdsl), this.clock.instant(), result.fromSnapshot()));
+    log.info("Metadata service list from {} loaded (ID: '{}', IssueDate: {}, NextUpdate: {})",
+        this.fetcher, mdsl.getID(), mdsl.getIssueDate(), mdsl.getNextUpdate());
+    return mdsl;
+  }
+
+  /**
+   * Refreshes the metadata service list and schedules the next refresh.
+   *
+   * @throws ResolverException if the refresh failed
+   */
+  private synchronized void refreshAndSchedule() throws ResolverException {
+    if (this.destroyed) {
+      return;
+    }
+    try {
+      final MetadataServiceList mdsl = this.refresh();
+      this.failures = 0;
+      this.schedule(this.getRefreshDelay(mdsl.getNextUpdate()));
+    }
+    catch (final ResolverException | RuntimeException e) {
+      this.failures++;
+      final Duration delay = this.getBackoffDelay(this.failures);
+      log.error("Failed to refresh metadata service list from {} - {}, will retry in {}{}",
+          this.fetcher, e.getMessage(), delay,
+          this.current.get() != null ? " (keeping previously loaded list)" : "", e);
+      this.schedule(delay);
+      if (e instanceof final ResolverException re) {
+        throw re;
+      }
+      throw new ResolverException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Schedules a refresh.
+   *
+   * @param delay the delay
+   */
+  private synchronized void schedule(final Duration delay) {
+    if (this.destroyed) {
+      return;
+    }
+    log.debug("Next refresh of metadata service list from {} scheduled in {}", this.fetcher, delay);
+    this.scheduledRefresh = this.executor.schedule(() -> {
+      try {
+        this.refreshAndSchedule();
+      }
+      catch (final ResolverException ignored) {
+        // Logged and rescheduled by refreshAndSchedule
+      }
+    }, delay.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Fetches the metadata service list, unmarshalls it and validates its signature. If the fetched document matches
+   * the snapshot file, the list is loaded from the snapshot instead.
+   *
+   * @return a validated metadata service list
+   * @throws ResolverException for errors
+   */
+  @Nonnull
+  private FetchResult fetchAndValidate() throws ResolverException {
+    final byte[] document;
+    try (final InputStream is = this.fetcher.fetch()) {
+      document = is.readAllBytes();
+    }
+    catch (final IOException e) {
+      throw new ResolverException(String.format("Failed to read metadata service list from %s - %s",
+          this.fetcher, e.getMessage()), e);
+    }
+
+    final byte[] snapshotDigest = this.snapshotFile != null ? this.getSnapshotDigest(document) : null;
+    if (snapshotDigest != null) {
+      try {
+        final MetadataServiceList mdsl = MetadataServiceListSnapshot.read(this.snapshotFile, snapshotDigest);
+        if (mdsl != null) {
+          log.debug("Metadata service list from {} loaded from snapshot {}", this.fetcher, this.snapshotFile);
+          return new FetchResult(mdsl, true);
+        }
+      }
+      catch (final IOException e) {
+        log.warn("Failed to read metadata service list snapshot {} - {}", this.snapshotFile, e.getMessage(), e);
+      }
+    }
+
+    final Element element;
+    try {
+      element = XMLObjectProviderRegistrySupport.getParserPool().parse(new ByteArrayInputStream(document))
+          .getDocumentElement();
+    }
+    catch (final XMLParserException e) {
+      throw new ResolverException(String.format("Failed to read metadata service list from %s - %s",
+          this.fetcher, e.getMessage()), e);
+    }
+
+    final Unmarshaller unmarshaller = XMLObjectSupport.getUnmarshaller(element);
+    if (unmarshaller == null) {
+      throw new ResolverException(String.format("No unmarshaller available for metadata service list from %s",
+          this.fetcher));
+    }
+    final XMLObject object;
+    try {
+      object = unmarshaller.unmarshall(element);
+    }
+    catch (final UnmarshallingException e) {
+      throw new ResolverException(String.format("Failed to unmarshall metadata service list from %s - %s",
+          this.fetcher, e.getMessage()), e);
+    }
+    if (!(object instanceof final MetadataServiceList mdsl)) {
+      throw new ResolverException(String.format("Expected %s from %s, but got %s",
+          MetadataServiceList.DEFAULT_ELEMENT_NAME, this.fetcher, object.getElementQName()));
+    }
+
+    try {
+      this.signatureValidator.validateSignature(mdsl);
+    }
+    catch (final SignatureException e) {
+      throw new ResolverException(String.format("Signature validation of metadata service list from %s failed - %s",
+          this.fetcher, e.getMessage()), e);
+    }
+
+    if (snapshotDigest != null) {
+      try {
+        MetadataServiceListSnapshot.write(mdsl, snapshotDigest, this.snapshotFile);
+      }
+      catch (final IOException e) {
+        log.warn("Failed to write metadata service list snapshot {} - {}", this.snapshotFile, e.getMessage(), e);
+      }
+    }
+    return new FetchResult(mdsl, false);
+  }
+
+  /**
+   * Calculates the digest that binds a snapshot to the fetched document and to the validation certificates. Including
+   * the certificates means that a snapshot is not used after the trusted certificates have been changed.
+   *
+   * @param document the fetched document
+   * @return the digest
+   */
+  private byte[] getSnapshotDigest(final byte[] document) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance(MetadataServiceListSnapshot.DIGEST_ALGORITHM);
+      digest.update(MetadataServiceListSnapshot.digest(document));
+      for (final X509Certificate certificate : this.validationCertificates) {
+        digest.update(certificate.getEncoded());
+      }
+      return digest.digest();
+    }
+    catch (final NoSuchAlgorithmException | CertificateEncodingException e) {
+      throw new IllegalStateException("Failed to calculate snapshot digest", e);
+    }
+  }
+
+  /**
+   * Calculates the delay until the next refresh based on the NextUpdate time of the current list.
+   *
+   * @param nextUpdate the NextUpdate time (may be {@code null})
+   * @return the refresh delay
+   */
+  Duration getRefreshDelay(@Nullable final Instant nextUpdate) {
+    final Duration delay = nextUpdate != null
+        ? Duration.ofMillis((long) (Duration.between(this.clock.instant(), nextUpdate).toMillis()
+            * this.refreshDelayFactor))
+        : this.maxRefreshDelay;
+    return this.clamp(this.applyJitter(delay));
+  }
+
+  /**
+   * Calculates the delay until the next attempt after a failed refresh.
+   *
+   * @param failures the number of consecutive failures
+   * @return the delay
+   */
+  Duration getBackoffDelay(final int failures) {
+    final int shift = Math.min(Math.max(failures - 1, 0), 30);
+    final Duration delay = this.minRefreshDelay.toMillis() > this.maxRefreshDelay.toMillis() >> shift
+        ? this.maxRefreshDelay
+        : this.minRefreshDelay.multipliedBy(1L << shift);
+    return this.clamp(this.applyJitter(delay));
+  }
+
+  private Duration applyJitter(final Duration delay) {
+    if (this.jitter <= 0 || delay.isNegative() || delay.isZero()) {
+      return delay;
+    }
+    final long reduction = (long) (delay.toMillis() * this.jitter * ThreadLocalRandom.current().nextDouble());
+    return delay.minusMillis(reduction);
+  }
+
+  private Duration clamp(final Duration delay) {
+    if (delay.compareTo(this.minRefreshDelay) < 0) {
+      return this.minRefreshDelay;
+    }
+    return delay.compareTo(this.maxRefreshDelay) > 0 ? this.maxRefreshDelay : delay;
+  }
+
+  /**
+   * Assigns the minimum delay between refreshes. This is also the initial delay used after a failed refresh. The
+   * default is {@link #DEFAULT_MIN_REFRESH_DELAY}.
+   *
+   * @param minRefreshDelay the minimum refresh delay
+   */
+  public void setMinRefreshDelay(@Nonnull final Duration minRefreshDelay) {
+    if (Objects.requireNonNull(minRefreshDelay, "minRefreshDelay must not be null").isNegative()) {
+      throw new IllegalArgumentException("minRefreshDelay must not be negative");
+    }
+    this.minRefreshDelay = minRefreshDelay;
+  }
+
+  /**
+   * Assigns the maximum delay between refreshes. The default is {@link #DEFAULT_MAX_REFRESH_DELAY}.
+   *
+   * @param maxRefreshDelay the maximum refresh delay
+   */
+  public void setMaxRefreshDelay(@Nonnull final Duration maxRefreshDelay) {
+    if (Objects.requireNonNull(maxRefreshDelay, "maxRefreshDelay must not be null").isNegative()) {
+      throw new IllegalArgumentException("maxRefreshDelay must not be negative");
+    }
+    this.maxRefreshDelay = maxRefreshDelay;
+  }
+
+  /**
+   * Assigns the factor that is applied to the time left until {@code NextUpdate} when the refresh delay is calculated.
+   * The default is {@link #DEFAULT_REFRESH_DELAY_FACTOR}.
+   *
+   * @param refreshDelayFactor a value between 0 and 1
+   */
+  public void setRefreshDelayFactor(final float refreshDelayFactor) {
+    if (refreshDelayFactor <= 0 || refreshDelayFactor > 1) {
+      throw new IllegalArgumentException("refreshDelayFactor must be greater than 0 and at most 1");
+    }
+    this.refreshDelayFactor = refreshDelayFactor;
+  }
+
+  /**
+   * Assigns the maximum fraction that a refresh delay is randomly reduced with. This spreads out refreshes from
+   * several nodes that use the same metadata service list. The default is {@link #DEFAULT_JITTER}.
+   *
+   * @param jitter a value between 0 (no jitter) and 1
+   */
+  public void setJitter(final float jitter) {
+    if (jitter < 0 || jitter > 1) {
+      throw new IllegalArgumentException("jitter must be between 0 and 1");
+    }
+    this.jitter = jitter;
+  }
+
+  /**
+   * Tells whether {@link #initialize()} should fail if the metadata service list can not be loaded. If {@code false},
+   * the resolver starts without a list and retries in the background. The default is {@code true}.
+   *
+   * @param failFastInitialization whether initialization should fail if the list can not be loaded
+   */
+  public void setFailFastInitialization(final boolean failFastInitialization) {
+    this.failFastInitialization = failFastInitialization;
+  }
+
+  /**
+   * Assigns the executor used to schedule refreshes. If not assigned, a single threaded executor is created (and
+   * shut down by {@link #destroy()}).
+   *
+   * @param executor the executor
+   */
+  public void setExecutor(@Nonnull final ScheduledExecutorService executor) {
+    this.executor = Objects.requireNonNull(executor, "executor must not be null");
+    this.ownsExecutor = false;
+  }
+
+  /**
+   * Assigns the clock to use. Mainly for testing.
+   *
+   * @param clock the clock
+   */
+  public void setClock(@Nonnull final Clock clock) {
+    this.clock = Objects.requireNonNull(clock, "clock must not be null");
+  }
+
+  /**
+   * Assigns the file where a binary snapshot of the latest validated metadata service list is stored. On startup, and
+   * on each refresh, the snapshot is used instead of parsing and validating the fetched document if the document is
+   * unchanged. See {@link MetadataServiceListSnapshot}.
+   * <p>
+   * The file must only be writable by the application since its contents are not signed.
+   * </p>
+   *
+   * @param snapshotFile the snapshot file, or {@code null} to disable snapshots (the default)
+   */
+  public void setSnapshotFile(@Nullable final Path snapshotFile) {
+    this.snapshotFile = snapshotFile;
+  }
+
+  /**
+   * A validated metadata service list, its index, and the time it was loaded.
+   *
+   * @param metadataServiceList the metadata service list
+   * @param index the index
+   * @param loaded the load time
+   * @param fromSnapshot whether the list was loaded from the snapshot file
+   */
+  private record Snapshot(MetadataServiceList metadataServiceList, MetadataServiceListIndex index, Instant loaded,
+      boolean fromSnapshot) {
+  }
+
+  /**
+   * The result of {@link #fetchAndValidate()}.
+   *
+   * @param metadataServiceList the validated metadata service list
+   * @param fromSnapshot whether the list was loaded from the snapshot file
+   */
+  private record FetchResult(MetadataServiceList metadataServiceList, boolean fromSnapshot) {
+  }
+
+}
@@ -15,6 +15,8 @@
  */
 package se.swedenconnect.opensaml.eidas.metadata;
 
+import net.shibboleth.shared.codec.Base64Support;
+import net.shibboleth.shared.codec.DecodingException;
 import net.shibboleth.shared.resolver.CriteriaSet;
 import net.shibboleth.shared.resolver.Criterion;
 import org.opensaml.saml.security.impl.SAMLSignatureProfileValidator;
@@ -23,24 +25,59 @@ import org.opensaml.security.credential.Credential;
 import org.opensaml.security.credential.impl.AbstractCredentialResolver;
 import org.opensaml.security.x509.BasicX509Credential;
 import org.opensaml.security.x509.X509Credential;
+import org.opensaml.security.x509.X509Support;
 import org.opensaml.xmlsec.config.impl.DefaultSecurityConfigurationBootstrap;
+import org.opensaml.xmlsec.signature.KeyInfo;
 import org.opensaml.xmlsec.signature.Signature;
+import org.opensaml.xmlsec.signature.X509Data;
+import org.opensaml.xmlsec.signature.X509IssuerSerial;
+import org.opensaml.xmlsec.signature.X509SKI;
+import org.opensaml.xmlsec.signature.X509SubjectName;
 import org.opensaml.xmlsec.signature.support.SignatureException;
 import org.opensaml.xmlsec.signature.support.SignaturePrevalidator;
+import org.opensaml.xmlsec.signature.support.SignatureValidator;
 import org.opensaml.xmlsec.signature.support.SignatureTrustEngine;
 import org.opensaml.xmlsec.signature.support.impl.ExplicitKeySignatureTrustEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Element;
+import se.swedenconnect.opensaml.eidas.jfr.EidasEvent;
+import se.swedenconnect.opensaml.eidas.jfr.SignatureValidationEvent;
 
 import javax.annotation.Nonnull;
+import javax.security.auth.x500.X500Principal;
+import java.lang.ref.WeakReference;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Utility bean for validating signatures on a {@link MetadataServiceList} object.
+ * <p>
+ * The validator may optionally be configured with a cache of verified signatures, see
+ * {@link #setVerifiedSignatureCacheSize(int)}. When the cache is enabled, a successful validation is remembered for
+ * the configured time to live, and validating the same {@link MetadataServiceList} instance using the same certificate
+ * again returns immediately. The cache is keyed on the identity of the object and holds it weakly. An entry is only
+ * used if the object still has the same DOM as when it was verified; OpenSAML releases the cached DOM of an object
+ * when it is modified, so a list that has been modified after validation is always fully validated again.
+ * </p>
  *
  * @author Martin Lindström
  */
@@ -49,18 +86,131 @@ public class MetadataServiceListSignatureValidator {
   /** Logging instance. */
   private static final Logger log = LoggerFactory.getLogger(MetadataServiceListSignatureValidator.class);
 
+  /** The default time to live for entries in the verified signature cache (1 hour). */
+  public static final Duration DEFAULT_VERIFIED_SIGNATURE_CACHE_TTL = Duration.ofHours(1);
+
+  /** Signer key used in the verified signature cache for validations against the trusted credentials. */
+  private static final Object TRUSTED_CREDENTIALS_SIGNER = new Object();
+
   /** Validator for checking that a Signature is correct with respect to the standards. */
   private final SignaturePrevalidator signatureProfileValidator = new SAMLSignatureProfileValidator();
 
   /** The signature trust engine to be used when validating signatures. */
   private final SignatureTrustEngine signatureTrustEngine;
 
+  /** The trusted credentials used by {@link #validateSignature(MetadataServiceList)}. */
+  private final TrustedCredentials trustedCredentials;
+
+  /** The maximum number of entries in the verified signature cache (0 means that the cache is disabled). */
+  private volatile int verifiedSignatureCacheSize = 0;
+
+  /** The time to live for entries in the verified signature cache. */
+  private volatile Duration verifiedSignatureCacheTtl = DEFAULT_VERIFIED_SIGNATURE_CACHE_TTL;
+
+  /** Verified signatures, keyed by the (weakly held) metadata service list object. Guarded by itself. */
+  private final Map<MetadataServiceList, VerifiedSignatures> verifiedSignatures = new WeakHashMap<>();
+
+  /** The number of cache hits. */
+  private final LongAdder cacheHits = new LongAdder();
+
+  /** The number of cache misses. */
+  private final LongAdder cacheMisses = new LongAdder();
+
+  /** The clock. */
+  private volatile Clock clock = Clock.systemUTC();
+
   /**
    * Constructor setting up the validator bean.
    */
   public MetadataServiceListSignatureValidator() {
+    this(Collections.emptyList());
+  }
+
+  /**
+   * Constructor setting up the validator bean with a set of trusted certificates. This is useful during key rollover
+   * when a metadata service list may be signed by any of several keys. See
+   * {@link #validateSignature(MetadataServiceList)}.
+   *
+   * @param trustedCertificates the trusted signer certificates
+   */
+  public MetadataServiceListSignatureValidator(@Nonnull final Collection<X509Certificate> trustedCertificates) {
     this.signatureTrustEngine = new ExplicitKeySignatureTrustEngine(new StaticCertificateResolver(),
         DefaultSecurityConfigurationBootstrap.buildBasicInlineKeyInfoCredentialResolver());
+    this.trustedCredentials =
+        new TrustedCredentials(Objects.requireNonNull(trustedCertificates, "trustedCertificates must not be null"));
+  }
+
+  /**
+   * Validates the signature of the supplied {@code MetadataServiceList} element using the trusted certificates that
+   * were given when this validator was created.
+   * <p>
+   * The signer certificate is selected based on the {@code KeyInfo} of the signature (X.509 certificate, subject key
+   * identifier, issuer and serial number, or subject name), meaning that only one cryptographic verification is made.
+   * If the signature has no {@code KeyInfo}, or if it does not match any of the trusted certificates, all trusted
+   * certificates are tried.
+   * </p>
+   *
+   * @param mdsl the {@code MetadataServiceList}
+   * @throws SignatureException for validation errors
+   */
+  public void validateSignature(final MetadataServiceList mdsl) throws SignatureException {
+    final SignatureValidationEvent event = new SignatureValidationEvent();
+    event.begin();
+    try {
+      this.doValidateSignature(mdsl, event);
+    }
+    catch (final SignatureException | RuntimeException e) {
+      event.setOutcome(EidasEvent.FAILED);
+      throw e;
+    }
+    finally {
+      event.commit();
+    }
+  }
+
+  /**
+   * Implementation of {@link #validateSignature(MetadataServiceList)}.
+   *
+   * @param mdsl the {@code MetadataServiceList}
+   * @param event the JFR event to update
+   * @throws SignatureException for validation errors
+   */
+  private void doValidateSignature(final MetadataServiceList mdsl, final SignatureValidationEvent event)
+      throws SignatureException {
+    if (this.trustedCredentials.isEmpty()) {
+      throw new SignatureException("No trusted certificates have been configured");
+    }
+    final Signature signature = this.getSignature(mdsl);
+    event.setAlgorithm(signature.getSignatureAlgorithm());
+
+    if (this.isCached(mdsl, TRUSTED_CREDENTIALS_SIGNER)) {
+      event.setOutcome(SignatureValidationEvent.CACHED);
+      return;
+    }
+    this.prevalidate(signature);
+
+    final List<X509Credential> candidates = this.trustedCredentials.resolve(signature.getKeyInfo());
+    event.setCertificates(candidates.size());
+    for (final X509Credential credential : candidates) {
+      try {
+        SignatureValidator.validate(signature, credential);
+        this.addVerified(mdsl, TRUSTED_CREDENTIALS_SIGNER);
+        event.setOutcome(EidasEvent.SUCCESS);
+        log.debug("Signature on MetadataServiceList successfully verified using '{}'",
+            credential.getEntityCertificate().getSubjectX500Principal());
+        return;
+      }
+      catch (final SignatureException e) {
+        log.debug("Signature validation using '{}' failed - {}",
+            credential.getEntityCertificate().getSubjectX500Principal(), e.getMessage());
+      }
+    }
+    final String msg = candidates.size() == 1
+        ? "Signature validation failed"
+        : String.format("Signature validation failed - none of the %d trusted certificates verified the signature",
+            candidates.size());
+    log.warn(msg);
+    throw new SignatureException(msg);
   }
 
   /**
@@ -72,24 +222,46 @@ public class MetadataServiceListSignatureValidator {
    */
   public void validateSignature(final MetadataServiceList mdsl, final X509Certificate signersCertificate)
       throws SignatureException {
+    final SignatureValidationEvent event = new SignatureValidationEvent();
+    event.begin();
+    try {
+      this.doValidateSignature(mdsl, signersCertificate, event);
+    }
+    catch (final SignatureException | RuntimeException e) {
+      event.setOutcome(EidasEvent.FAILED);
+      throw e;
+    }
+    finally {
+      event.commit();
+    }
+  }
+
+  /**
+   * Implementation of {@link #validateSignature(MetadataServiceList, X509Certificate)}.
+   *
+   * @param mdsl the {@code MetadataServiceList}
+   * @param signersCertificate the certificate of the signer
+   * @param event the JFR event to update
+   * @throws SignatureException for validation errors
+   */
+  private void doValidateSignature(final MetadataServiceList mdsl, final X509Certificate signersCertificate,
+      final SignatureValidationEvent event) throws SignatureException {
 
     // The signature to validate.
     //
-    final Signature signature = mdsl.getSignature();
-    if (signature == null) {
-      log.warn("Metadata service list is not signed");
-      throw new SignatureException("Metadata service list has no signature");
+    final Signature signature = this.getSignature(mdsl);
+    event.setAlgorithm(signature.getSignatureAlgorithm());
+
+    // Have we already verified this signature?
+    //
+    if (this.isCached(mdsl, signersCertificate)) {
+      event.setOutcome(SignatureValidationEvent.CACHED);
+      return;
     }
 
     // Is the signature correct according to the SAML signature profile?
     //
-    try {
-      this.signatureProfileValidator.validate(signature);
-    }
-    catch (final SignatureException e) {
-      log.warn("Signature failed pre-validation: {}", e.getMessage());
-      throw e;
-    }
+    this.prevalidate(signature);
 
     // Validate the signature.
     //
@@ -107,9 +279,377 @@ public class MetadataServiceListSignatureValidator {
       throw new SignatureException(msg, e);
     }
 
+    event.setCertificates(1);
+
+    this.addVerified(mdsl, signersCertificate);
+    event.setOutcome(EidasEvent.SUCCESS);
     log.debug("Signature on MetadataServiceList successfully verified");
   }
 
+  /**
+   * Returns the signature of the supplied metadata service list.
+   *
+   * @param mdsl the metadata service list
+   * @return the signature
+   * @throws SignatureException if the list is not signed
+   */
+  private Signature getSignature(final MetadataServiceList mdsl) throws SignatureException {
+    final Signature signature = mdsl.getSignature();
+    if (signature == null) {
+      log.warn("Metadata service list is not signed");
+      throw new SignatureException("Metadata service list has no signature");
+    }
+    return signature;
+  }
+
+  /**
+   * Checks that the signature is correct according to the SAML signature profile.
+   *
+   * @param signature the signature
+   * @throws SignatureException if the check fails
+   */
+  private void prevalidate(final Signature signature) throws SignatureException {
+    try {
+      this.signatureProfileValidator.validate(signature);
+    }
+    catch (final SignatureException e) {
+      log.warn("Signature failed pre-validation: {}", e.getMessage());
+      throw e;
+    }
+  }
+
+  /**
+   * Checks the verified signature cache and updates the hit/miss counters.
+   *
+   * @param mdsl the metadata service list
+   * @param signer the signer certificate, or {@link #TRUSTED_CREDENTIALS_SIGNER}
+   * @return {@code true} if the signature already has been verified
+   */
+  private boolean isCached(final MetadataServiceList mdsl, final Object signer) {
+    if (this.verifiedSignatureCacheSize == 0) {
+      return false;
+    }
+    if (this.isVerified(mdsl, signer)) {
+      this.cacheHits.increment();
+      log.debug("Signature on MetadataServiceList already verified (cached)");
+      return true;
+    }
+    this.cacheMisses.increment();
+    return false;
+  }
+
+  /**
+   * Assigns the maximum number of entries, i.e., metadata service list objects, in the verified signature cache. The
+   * default is 0, meaning that the cache is disabled.
+   *
+   * @param verifiedSignatureCacheSize the maximum number of cached objects
+   */
+  public void setVerifiedSignatureCacheSize(final int verifiedSignatureCacheSize) {
+    if (verifiedSignatureCacheSize < 0) {
+      throw new IllegalArgumentException("verifiedSignatureCacheSize must not be negative");
+    }
+    synchronized (this.verifiedSignatures) {
+      this.verifiedSignatureCacheSize = verifiedSignatureCacheSize;
+      this.evict();
+    }
+  }
+
+  /**
+   * Assigns the time to live for entries in the verified signature cache. The default is
+   * {@link #DEFAULT_VERIFIED_SIGNATURE_CACHE_TTL}.
+   *
+   * @param verifiedSignatureCacheTtl the time to live
+   */
+  public void setVerifiedSignatureCacheTtl(@Nonnull final Duration verifiedSignatureCacheTtl) {
+    if (Objects.requireNonNull(verifiedSignatureCacheTtl, "verifiedSignatureCacheTtl must not be null").isNegative()) {
+      throw new IllegalArgumentException("verifiedSignatureCacheTtl must not be negative");
+    }
+    this.verifiedSignatureCacheTtl = verifiedSignatureCacheTtl;
+  }
+
+  /**
+   * Assigns the clock to use. Mainly for testing.
+   *
+   * @param clock the clock
+   */
+  public void setClock(@Nonnull final Clock clock) {
+    this.clock = Objects.requireNonNull(clock, "clock must not be null");
+  }
+
+  /**
+   * Returns the number of validations that were answered by the verified signature cache.
+   *
+   * @return the number of cache hits
+   */
+  public long getCacheHits() {
+    return this.cacheHits.sum();
+  }
+
+  /**
+   * Returns the number of validations that were not found in the verified signature cache (and therefore were fully
+   * validated). If the cache is disabled, this counter is not updated.
+   *
+   * @return the number of cache misses
+   */
+  public long getCacheMisses() {
+    return this.cacheMisses.sum();
+  }
+
+  /**
+   * Clears the verified signature cache.
+   */
+  public void clearCache() {
+    synchronized (this.verifiedSignatures) {
+      this.verifiedSignatures.clear();
+    }
+  }
+
+  /**
+   * Tells whether the signature of the supplied object has been verified using the given signer, and whether that
+   * verification still is valid, i.e., has not expired and was made on the DOM that the object currently has.
+   *
+   * @param mdsl the metadata service list
+   * @param signer the signer certificate, or {@link #TRUSTED_CREDENTIALS_SIGNER}
+   * @return {@code true} if the signature has already been verified
+   */
+  private boolean isVerified(final MetadataServiceList mdsl, final Object signer) {
+    final Element dom = mdsl.getDOM();
+    if (dom == null) {
+      return false;
+    }
+    synchronized (this.verifiedSignatures) {
+      final VerifiedSignatures entry = this.verifiedSignatures.get(mdsl);
+      if (entry == null) {
+        return false;
+      }
+      if (entry.dom().get() != dom) {
+        this.verifiedSignatures.remove(mdsl);
+        return false;
+      }
+      final Instant expires = entry.expires().get(signer);
+      if (expires == null) {
+        return false;
+      }
+      if (expires.isBefore(this.clock.instant())) {
+        entry.expires().remove(signer);
+        return false;
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Records a successful verification in the verified signature cache.
+   *
+   * @param mdsl the metadata service list
+   * @param signer the signer certificate, or {@link #TRUSTED_CREDENTIALS_SIGNER}
+   */
+  private void addVerified(final MetadataServiceList mdsl, final Object signer) {
+    final Element dom = mdsl.getDOM();
+    if (this.verifiedSignatureCacheSize == 0 || dom == null) {
+      return;
+    }
+    synchronized (this.verifiedSignatures) {
+      VerifiedSignatures entry = this.verifiedSignatures.get(mdsl);
+      if (entry == null || entry.dom().get() != dom) {
+        entry = new VerifiedSignatures(new WeakReference<>(dom), new HashMap<>());
+        this.verifiedSignatures.put(mdsl, entry);
+      }
+      entry.expires().put(signer, this.clock.instant().plus(this.verifiedSignatureCacheTtl));
+      this.evict();
+    }
+  }
+
+  /**
+   * Removes entries from the verified signature cache until it fits the configured size.
+   */
+  private void evict() {
+    final Iterator<MetadataServiceList> keys = this.verifiedSignatures.keySet().iterator();
+    while (this.verifiedSignatures.size() > this.verifiedSignatureCacheSize && keys.hasNext()) {
+      keys.next();
+      keys.remove();
+    }
+  }
+
+  /**
+   * The verifications made for a metadata service list object.
+   *
+   * @param dom the DOM of the object at the time of the verifications
+   * @param expires the expiration time of the verification for each signer
+   */
+  private record VerifiedSignatures(WeakReference<Element> dom, Map<Object, Instant> expires) {
+  }
+
+  /**
+   * The trusted credentials, indexed by certificate fingerprint, subject key identifier, issuer and serial number,
+   * and subject name.
+   */
+  private static class TrustedCredentials {
+
+    /** All trusted credentials. */
+    private final List<X509Credential> credentials;
+
+    /** Credentials indexed by the hex-encoded SHA-256 fingerprint of the certificate. */
+    private final Map<String, X509Credential> byFingerprint = new HashMap<>();
+
+    /** Credentials indexed by the hex-encoded subject key identifier. */
+    private final Map<String, X509Credential> bySubjectKeyIdentifier = new HashMap<>();
+
+    /** Credentials indexed by the canonical issuer name and the serial number. */
+    private final Map<String, X509Credential> byIssuerSerial = new HashMap<>();
+
+    /** Credentials indexed by the canonical subject name. */
+    private final Map<String, X509Credential> bySubjectName = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param certificates the trusted certificates
+     */
+    TrustedCredentials(final Collection<X509Certificate> certificates) {
+      final List<X509Credential> list = new ArrayList<>(certificates.size());
+      for (final X509Certificate certificate : certificates) {
+        final X509Credential credential = new BasicX509Credential(certificate);
+        list.add(credential);
+        try {
+          this.byFingerprint.putIfAbsent(fingerprint(certificate.getEncoded()), credential);
+        }
+        catch (final CertificateEncodingException e) {
+          log.warn("Failed to encode trusted certificate '{}' - {}", certificate.getSubjectX500Principal(),
+              e.getMessage());
+        }
+        final byte[] ski = X509Support.getSubjectKeyIdentifier(certificate);
+        if (ski != null) {
+          this.bySubjectKeyIdentifier.putIfAbsent(HexFormat.of().formatHex(ski), credential);
+        }
+        this.byIssuerSerial.putIfAbsent(
+            issuerSerial(certificate.getIssuerX500Principal(), certificate.getSerialNumber()), credential);
+        this.bySubjectName.putIfAbsent(
+            certificate.getSubjectX500Principal().getName(X500Principal.CANONICAL), credential);
+      }
+      this.credentials = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Tells whether there are no trusted credentials.
+     *
+     * @return {@code true} if no credentials exist
+     */
+    boolean isEmpty() {
+      return this.credentials.isEmpty();
+    }
+
+    /**
+     * Resolves the trusted credential that matches the supplied {@code KeyInfo}. If no match is found, all trusted
+     * credentials are returned.
+     *
+     * @param keyInfo the key info of the signature (may be {@code null})
+     * @return a list of candidate credentials
+     */
+    List<X509Credential> resolve(final KeyInfo keyInfo) {
+      if (keyInfo != null) {
+        for (final X509Data x509Data : keyInfo.getX509Datas()) {
+          for (final org.opensaml.xmlsec.signature.X509Certificate cert : x509Data.getX509Certificates()) {
+            final X509Credential credential = this.lookup(this.byFingerprint, cert.getValue(), true);
+            if (credential != null) {
+              return List.of(credential);
+            }
+          }
+          for (final X509SKI ski : x509Data.getX509SKIs()) {
+            final X509Credential credential = this.lookup(this.bySubjectKeyIdentifier, ski.getValue(), false);
+            if (credential != null) {
+              return List.of(credential);
+            }
+          }
+          for (final X509IssuerSerial issuerSerial : x509Data.getX509IssuerSerials()) {
+            if (issuerSerial.getX509IssuerName() == null || issuerSerial.getX509SerialNumber() == null
+                || issuerSerial.getX509IssuerName().getValue() == null
+                || issuerSerial.getX509SerialNumber().getValue() == null) {
+              continue;
+            }
+            try {
+              final X509Credential credential = this.byIssuerSerial.get(issuerSerial(
+                  new X500Principal(issuerSerial.getX509IssuerName().getValue()),
+                  issuerSerial.getX509SerialNumber().getValue()));
+              if (credential != null) {
+                return List.of(credential);
+              }
+            }
+            catch (final IllegalArgumentException e) {
+              log.debug("Invalid issuer name in KeyInfo - {}", e.getMessage());
+            }
+          }
+          for (final X509SubjectName subjectName : x509Data.getX509SubjectNames()) {
+            if (subjectName.getValue() == null) {
+              continue;
+            }
+            try {
+              final X509Credential credential =
+                  this.bySubjectName.get(new X500Principal(subjectName.getValue()).getName(X500Principal.CANONICAL));
+              if (credential != null) {
+                return List.of(credential);
+              }
+            }
+            catch (final IllegalArgumentException e) {
+              log.debug("Invalid subject name in KeyInfo - {}", e.getMessage());
+            }
+          }
+        }
+      }
+      log.debug("No trusted certificate matched the signature KeyInfo, trying all {} trusted certificates",
+          this.credentials.size());
+      return this.credentials;
+    }
+
+    /**
+     * Looks up a credential based on a Base64-encoded value from the {@code KeyInfo}.
+     *
+     * @param index the index to use
+     * @param base64 the Base64-encoded value
+     * @param digest whether the fingerprint of the decoded value should be used as the key
+     * @return the credential, or {@code null} if no match is found
+     */
+    private X509Credential lookup(final Map<String, X509Credential> index, final String base64, final boolean digest) {
+      if (base64 == null) {
+        return null;
+      }
+      try {
+        final byte[] bytes = Base64Support.decode(base64);
+        return index.get(digest ? fingerprint(bytes) : HexFormat.of().formatHex(bytes));
+      }
+      catch (final DecodingException e) {
+        log.debug("Invalid Base64 in KeyInfo - {}", e.getMessage());
+        return null;
+      }
+    }
+
+    /**
+     * Calculates the hex-encoded SHA-256 fingerprint of the supplied bytes.
+     *
+     * @param bytes the bytes
+     * @return the fingerprint
+     */
+    private static String fingerprint(final byte[] bytes) {
+      try {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+      }
+      catch (final NoSuchAlgorithmException e) {
+        throw new IllegalStateException("SHA-256 not supported", e);
+      }
+    }
+
+    /**
+     * Builds the issuer/serial index key.
+     *
+     * @param issuer the issuer
+     * @param serialNumber the serial number
+     * @return the key
+     */
+    private static String issuerSerial(final X500Principal issuer, final BigInteger serialNumber) {
+      return issuer.getName(X500Principal.CANONICAL) + "|" + serialNumber;
+    }
+  }
+
   /**
    * A static resolver that looks for a {@code X509CertificateCriterion}.
    *
@@ -0,0 +1,429 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.metadata;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import net.shibboleth.shared.xml.SerializeSupport;
+import net.shibboleth.shared.xml.XMLParserException;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.core.xml.io.MarshallingException;
+import org.opensaml.core.xml.io.UnmarshallingException;
+import org.opensaml.core.xml.util.AttributeMap;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.xmlsec.signature.KeyInfo;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Reads and writes compact binary snapshots of validated metadata service lists.
+ * <p>
+ * A snapshot holds the complete contents of a metadata service list, i.e., the ID, issue date, next update, scheme
+ * information, distribution points, and all metadata lists, locations and endpoints along with all of their attributes
+ * (including unknown attributes). The {@code KeyInfo} elements of each metadata location are stored in their
+ * serialized XML form, so they are restored exactly as they appeared in the original document. The only thing that is
+ * not included is the signature, which is replaced by the binding described below. A list read from a snapshot is
+ * therefore not signed.
+ * </p>
+ * <p>
+ * Each snapshot is bound to a digest that the caller calculates over the original (signed) XML document. When a
+ * snapshot is read, the caller supplies the digest of the document it has at hand, and the snapshot is only used if
+ * the digests match. This means that an application may restart without having to parse the XML document and verify
+ * its signature, as long as the document has not changed. Since a snapshot is trusted without any signature
+ * verification, it must be stored where only the application can write to it.
+ * </p>
+ * <p>
+ * Snapshots are read using a memory-mapped file. Only the {@code KeyInfo} elements are parsed when a snapshot is read,
+ * the rest of the list is built directly from the snapshot.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public final class MetadataServiceListSnapshot {
+
+  /** The digest algorithm used by {@link #digest(byte[])}. */
+  public static final String DIGEST_ALGORITHM = "SHA-256";
+
+  /** Magic number that starts each snapshot ("MDSL"). */
+  private static final int MAGIC = 0x4D44534C;
+
+  /** The snapshot format version. */
+  private static final int FORMAT_VERSION = 2;
+
+  /** Length marker for {@code null} strings. */
+  private static final int NULL_LENGTH = -1;
+
+  // Hidden constructor
+  private MetadataServiceListSnapshot() {
+  }
+
+  /**
+   * Calculates a digest over the supplied document using {@value #DIGEST_ALGORITHM}.
+   *
+   * @param document the bytes of the XML document
+   * @return the digest
+   */
+  @Nonnull
+  public static byte[] digest(@Nonnull final byte[] document) {
+    return createDigest().digest(Objects.requireNonNull(document, "document must not be null"));
+  }
+
+  /**
+   * Writes a snapshot of the supplied metadata service list to a file. The snapshot is first written to a temporary
+   * file in the same directory that is then moved into place, so readers never see a partially written snapshot.
+   * <p>
+   * The caller is responsible for validating the signature of the metadata service list before a snapshot is written.
+   * </p>
+   *
+   * @param metadataServiceList the (validated) metadata service list
+   * @param documentDigest the digest of the XML document that the list was obtained from
+   * @param file the file to write to
+   * @throws IOException for write errors
+   */
+  public static void write(@Nonnull final MetadataServiceList metadataServiceList,
+      @Nonnull final byte[] documentDigest, @Nonnull final Path file) throws IOException {
+    Objects.requireNonNull(metadataServiceList, "metadataServiceList must not be null");
+    Objects.requireNonNull(documentDigest, "documentDigest must not be null");
+    Objects.requireNonNull(file, "file must not be null");
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+    try (final DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(documentDigest.length);
+      out.write(documentDigest);
+
+      writeString(out, metadataServiceList.getVersion() != null ? metadataServiceList.getVersion().toString() : null);
+      writeString(out, metadataServiceList.getID());
+      writeInstant(out, metadataServiceList.getIssueDate());
+      writeInstant(out, metadataServiceList.getNextUpdate());
+
+      final SchemeInformation schemeInformation = metadataServiceList.getSchemeInformation();
+      out.writeBoolean(schemeInformation != null);
+      if (schemeInformation != null) {
+        writeString(out, schemeInformation.getIssuerName());
+        writeString(out, schemeInformation.getSchemeIdentifier());
+        writeString(out, schemeInformation.getSchemeTerritory());
+      }
+
+      out.writeInt(metadataServiceList.getMetadataLists().size());
+      for (final MetadataList metadataList : metadataServiceList.getMetadataLists()) {
+        writeString(out, metadataList.getTerritory());
+        writeAttributes(out, metadataList.getUnknownAttributes());
+        out.writeInt(metadataList.getMetadataLocations().size());
+        for (final MetadataLocation metadataLocation : metadataList.getMetadataLocations()) {
+          writeString(out, metadataLocation.getLocation());
+          writeAttributes(out, metadataLocation.getUnknownAttributes());
+          out.writeInt(metadataLocation.getKeyInfos().size());
+          for (final KeyInfo keyInfo : metadataLocation.getKeyInfos()) {
+            final byte[] encoding = serialize(keyInfo, metadataLocation);
+            out.writeInt(encoding.length);
+            out.write(encoding);
+          }
+          out.writeInt(metadataLocation.getEndpoints().size());
+          for (final Endpoint endpoint : metadataLocation.getEndpoints()) {
+            writeString(out, endpoint.getEndpointType());
+            writeString(out, endpoint.getEntityID());
+            writeAttributes(out, endpoint.getUnknownAttributes());
+          }
+        }
+      }
+
+      final DistributionPoints distributionPoints = metadataServiceList.getDistributionPoints();
+      out.writeInt(distributionPoints != null ? distributionPoints.getDistributionPoints().size() : NULL_LENGTH);
+      if (distributionPoints != null) {
+        for (final DistributionPoint distributionPoint : distributionPoints.getDistributionPoints()) {
+          writeString(out, distributionPoint.getURI());
+        }
+      }
+    }
+
+    final Path directory = file.toAbsolutePath().getParent();
+    if (directory != null) {
+      Files.createDirectories(directory);
+    }
+    final Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try {
+      Files.write(tmp, bytes.toByteArray());
+      try {
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (final AtomicMoveNotSupportedException e) {
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * Reads a snapshot and re-creates the metadata service list. The returned object is not signed.
+   * <p>
+   * If the file does not exist, was written using another snapshot format, or if it is bound to another document
+   * digest than the supplied one, {@code null} is returned. In these cases the caller should fall back to reading and
+   * validating the XML document. The caller should also fall back if an {@link IOException} is thrown, which is the
+   * case for all errors, including corrupt snapshot contents.
+   * </p>
+   *
+   * @param file the snapshot file
+   * @param documentDigest the digest of the XML document that the snapshot must be bound to
+   * @return the metadata service list, or {@code null} if no usable snapshot exists
+   * @throws IOException if the file can not be read or is corrupt
+   */
+  @Nullable
+  public static MetadataServiceList read(@Nonnull final Path file, @Nonnull final byte[] documentDigest)
+      throws IOException {
+    Objects.requireNonNull(file, "file must not be null");
+    Objects.requireNonNull(documentDigest, "documentDigest must not be null");
+
+    final MappedByteBuffer buffer;
+    try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    catch (final NoSuchFileException e) {
+      return null;
+    }
+
+    try {
+      if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+        throw new IOException(String.format("%s is not a metadata service list snapshot", file));
+      }
+      if (buffer.getInt() != FORMAT_VERSION) {
+        return null;
+      }
+      final byte[] digest = new byte[readLength(buffer)];
+      buffer.get(digest);
+      if (!MessageDigest.isEqual(digest, documentDigest)) {
+        return null;
+      }
+
+      final MetadataServiceList mdsl = build(MetadataServiceList.DEFAULT_ELEMENT_NAME);
+      final String version = readString(buffer);
+      if (version != null) {
+        mdsl.setVersion(MetadataServiceListVersion.valueOf(version));
+      }
+      mdsl.setID(readString(buffer));
+      mdsl.setIssueDate(readInstant(buffer));
+      mdsl.setNextUpdate(readInstant(buffer));
+
+      if (readBoolean(buffer)) {
+        final SchemeInformation schemeInformation = build(SchemeInformation.DEFAULT_ELEMENT_NAME);
+        schemeInformation.setIssuerName(readString(buffer));
+        schemeInformation.setSchemeIdentifier(readString(buffer));
+        schemeInformation.setSchemeTerritory(readString(buffer));
+        mdsl.setSchemeInformation(schemeInformation);
+      }
+
+      final int noLists = readLength(buffer);
+      for (int i = 0; i < noLists; i++) {
+        final MetadataList metadataList = build(MetadataList.DEFAULT_ELEMENT_NAME);
+        metadataList.setTerritory(readString(buffer));
+        readAttributes(buffer, metadataList.getUnknownAttributes());
+        final int noLocations = readLength(buffer);
+        for (int j = 0; j < noLocations; j++) {
+          final MetadataLocation metadataLocation = build(MetadataLocation.DEFAULT_ELEMENT_NAME);
+          metadataLocation.setLocation(readString(buffer));
+          readAttributes(buffer, metadataLocation.getUnknownAttributes());
+          final int noKeyInfos = readLength(buffer);
+          for (int k = 0; k < noKeyInfos; k++) {
+            final byte[] encoding = new byte[readLength(buffer)];
+            buffer.get(encoding);
+            metadataLocation.getKeyInfos().add(deserialize(encoding));
+          }
+          final int noEndpoints = readLength(buffer);
+          for (int k = 0; k < noEndpoints; k++) {
+            final Endpoint endpoint = build(Endpoint.DEFAULT_ELEMENT_NAME);
+            endpoint.setEndpointType(readString(buffer));
+            endpoint.setEntityID(readString(buffer));
+            readAttributes(buffer, endpoint.getUnknownAttributes());
+            metadataLocation.getEndpoints().add(endpoint);
+          }
+          metadataList.getMetadataLocations().add(metadataLocation);
+        }
+        mdsl.getMetadataLists().add(metadataList);
+      }
+
+      final int noDistributionPoints = buffer.getInt();
+      if (noDistributionPoints != NULL_LENGTH) {
+        checkLength(noDistributionPoints, buffer);
+        final DistributionPoints distributionPoints = build(DistributionPoints.DEFAULT_ELEMENT_NAME);
+        for (int i = 0; i < noDistributionPoints; i++) {
+          final DistributionPoint distributionPoint = build(DistributionPoint.DEFAULT_ELEMENT_NAME);
+          distributionPoint.setURI(readString(buffer));
+          distributionPoints.getDistributionPoints().add(distributionPoint);
+        }
+        mdsl.setDistributionPoints(distributionPoints);
+      }
+      if (buffer.hasRemaining()) {
+        throw new IOException(String.format("Trailing data in metadata service list snapshot %s", file));
+      }
+      return mdsl;
+    }
+    catch (final BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException
+        | DateTimeException | ClassCastException | XMLParserException | UnmarshallingException e) {
+      throw new IOException(String.format("Metadata service list snapshot %s is corrupt", file), e);
+    }
+  }
+
+  private static void writeString(final DataOutputStream out, final String value) throws IOException {
+    if (value == null) {
+      out.writeInt(NULL_LENGTH);
+    }
+    else {
+      final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static void writeInstant(final DataOutputStream out, final Instant value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeLong(value.getEpochSecond());
+      out.writeInt(value.getNano());
+    }
+  }
+
+  private static void writeAttributes(final DataOutputStream out, final AttributeMap attributes) throws IOException {
+    out.writeInt(attributes.size());
+    for (final Map.Entry<QName, String> attribute : attributes.entrySet()) {
+      writeString(out, attribute.getKey().getNamespaceURI());
+      writeString(out, attribute.getKey().getLocalPart());
+      writeString(out, attribute.getKey().getPrefix());
+      writeString(out, attribute.getValue());
+    }
+  }
+
+  private static String readString(final ByteBuffer buffer) {
+    final int length = buffer.getInt();
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+    final byte[] bytes = new byte[checkLength(length, buffer)];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static Instant readInstant(final ByteBuffer buffer) {
+    return readBoolean(buffer) ? Instant.ofEpochSecond(buffer.getLong(), buffer.getInt()) : null;
+  }
+
+  private static void readAttributes(final ByteBuffer buffer, final AttributeMap attributes) {
+    final int size = readLength(buffer);
+    for (int i = 0; i < size; i++) {
+      final QName name = new QName(readString(buffer), readString(buffer), readString(buffer));
+      attributes.put(name, readString(buffer));
+    }
+  }
+
+  private static boolean readBoolean(final ByteBuffer buffer) {
+    return buffer.get() != 0;
+  }
+
+  private static int readLength(final ByteBuffer buffer) {
+    return checkLength(buffer.getInt(), buffer);
+  }
+
+  /**
+   * Makes sure that a length read from the buffer is sane, so that a corrupt file doesn't lead to huge allocations.
+   */
+  private static int checkLength(final int length, final ByteBuffer buffer) {
+    if (length < 0 || length > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    return length;
+  }
+
+  /**
+   * Serializes the supplied {@code KeyInfo}. The element is copied into a new document along with all namespace
+   * declarations that are in scope, so that it can be parsed on its own.
+   */
+  private static byte[] serialize(final KeyInfo keyInfo, final MetadataLocation metadataLocation) throws IOException {
+    try {
+      final Element element = keyInfo.getDOM() != null ? keyInfo.getDOM() : XMLObjectSupport.marshall(keyInfo);
+      final Document document = XMLObjectProviderRegistrySupport.getParserPool().newDocument();
+      final Element copy = (Element) document.importNode(element, true);
+      document.appendChild(copy);
+      for (Node node = element.getParentNode(); node instanceof Element; node = node.getParentNode()) {
+        final NamedNodeMap attributes = node.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+          final Attr attr = (Attr) attributes.item(i);
+          if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attr.getNamespaceURI())
+              && !copy.hasAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, attr.getLocalName())) {
+            copy.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, attr.getName(), attr.getValue());
+          }
+        }
+      }
+      return SerializeSupport.nodeToString(copy).getBytes(StandardCharsets.UTF_8);
+    }
+    catch (final MarshallingException | XMLParserException e) {
+      throw new IOException(String.format("Failed to serialize KeyInfo for metadata location %s",
+          metadataLocation.getLocation()), e);
+    }
+  }
+
+  /**
+   * Parses and unmarshalls a {@code KeyInfo} that was serialized using {@link #serialize(KeyInfo, MetadataLocation)}.
+   */
+  private static KeyInfo deserialize(final byte[] encoding) throws XMLParserException, UnmarshallingException {
+    return (KeyInfo) XMLObjectSupport.unmarshallFromInputStream(
+        XMLObjectProviderRegistrySupport.getParserPool(), new ByteArrayInputStream(encoding));
+  }
+
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    }
+    catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(DIGEST_ALGORITHM + " is not supported", e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends XMLObject> T build(final QName elementName) {
+    return (T) XMLObjectSupport.buildXMLObject(elementName);
+  }
+
+}
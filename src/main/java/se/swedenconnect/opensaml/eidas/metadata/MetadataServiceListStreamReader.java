@@ -0,0 +1,799 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.metadata;
+
+import jakarta.annotation.Nonnull;
+import net.shibboleth.shared.codec.Base64Support;
+import net.shibboleth.shared.codec.DecodingException;
+import net.shibboleth.shared.xml.XMLParserException;
+import org.apache.xml.security.algorithms.SignatureAlgorithm;
+import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.core.xml.io.Unmarshaller;
+import org.opensaml.core.xml.io.UnmarshallingException;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.xmlsec.signature.support.SignatureConstants;
+import org.opensaml.xmlsec.signature.support.SignatureException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import se.swedenconnect.opensaml.eidas.jfr.EidasEvent;
+import se.swedenconnect.opensaml.eidas.jfr.MetadataServiceListUnmarshallingEvent;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A streaming reader for {@link MetadataServiceList} documents.
+ * <p>
+ * The {@code MetadataServiceList} unmarshaller needs the DOM of the complete document before the object
+ * tree can be built, which means that large metadata service lists are held in memory twice. This reader instead
+ * reads the document using StAX and passes each {@code MetadataLocation} (with its {@code Endpoint} and
+ * {@code KeyInfo} elements) to a {@link MetadataLocationHandler} as soon as it has been read. Only the DOM of the
+ * current location is kept in memory.
+ * </p>
+ * <p>
+ * If the reader is created with a set of trusted certificates, the enveloped signature of the document is validated.
+ * The exclusive canonical form of the document is fed to a running digest for each of the supported digest methods
+ * while it is read (the {@code DigestMethod} of the signature is not known until the signature has been read), and
+ * when the end of the document has been reached, the digest matching the signature reference is compared and the
+ * signature over the {@code SignedInfo} element is checked. The signature must hold one reference to the document (the
+ * URI is empty or refers to the ID of the document element) using the enveloped signature and exclusive
+ * canonicalization transforms. Neither the canonical form nor the metadata locations are held in memory, so the heap
+ * needed is bounded by the largest location rather than by the size of the document.
+ * </p>
+ * <p>
+ * This means that the metadata locations are passed to the handler <b>before</b> the signature has been verified. A
+ * handler must treat the locations that it has received as unverified until {@link MetadataLocationHandler#commit()}
+ * is invoked, and discard them if {@link MetadataLocationHandler#abort(Exception)} is invoked instead. The metadata
+ * locations are passed to the handler without a cached DOM.
+ * </p>
+ * <p>
+ * A {@link MetadataServiceListUnmarshallingEvent} holding the number of metadata lists and locations read is emitted
+ * for each read operation if JFR is recording. The event covers the signature validation.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public class MetadataServiceListStreamReader {
+
+  /** Logger instance. */
+  private static final Logger log = LoggerFactory.getLogger(MetadataServiceListStreamReader.class);
+
+  /** The QName for the {@code ds:Signature} element. */
+  private static final QName SIGNATURE_NAME = new QName(SignatureConstants.XMLSIG_NS, "Signature");
+
+  /** The QName for the {@code ds:SignedInfo} element. */
+  private static final QName SIGNED_INFO_NAME = new QName(SignatureConstants.XMLSIG_NS, "SignedInfo");
+
+  /** Supported digest algorithms, mapped to their JCA names. A running digest is calculated for each of them. */
+  private static final Map<String, String> DIGEST_ALGORITHMS = Map.of(
+      SignatureConstants.ALGO_ID_DIGEST_SHA256, "SHA-256",
+      SignatureConstants.ALGO_ID_DIGEST_SHA384, "SHA-384",
+      SignatureConstants.ALGO_ID_DIGEST_SHA512, "SHA-512");
+
+  /** The StAX factory. */
+  private static final XMLInputFactory inputFactory = createInputFactory();
+
+  /** The trusted signer certificates. */
+  private final List<X509Certificate> trustedCertificates;
+
+  /**
+   * Constructor for a reader that does not validate the signature of the metadata service list.
+   */
+  public MetadataServiceListStreamReader() {
+    this.trustedCertificates = Collections.emptyList();
+  }
+
+  /**
+   * Constructor for a reader that validates the signature of the metadata service list using the supplied trusted
+   * certificates.
+   *
+   * @param trustedCertificates the trusted signer certificates
+   */
+  public MetadataServiceListStreamReader(@Nonnull final Collection<X509Certificate> trustedCertificates) {
+    this.trustedCertificates = List.copyOf(
+        Objects.requireNonNull(trustedCertificates, "trustedCertificates must not be null"));
+    if (this.trustedCertificates.isEmpty()) {
+      throw new IllegalArgumentException("At least one trusted certificate must be given");
+    }
+  }
+
+  /**
+   * Reads a metadata service list and passes each {@code MetadataLocation} to the supplied handler.
+   * <p>
+   * The returned {@link MetadataServiceList} holds the attributes, the scheme information, the distribution points
+   * and the signature of the list, but no {@code MetadataList} elements (these have been passed to the handler).
+   * </p>
+   * <p>
+   * Each location is passed to the handler as soon as it has been read. When the complete document has been read,
+   * and, if the reader was created with trusted certificates, the signature has been verified,
+   * {@link MetadataLocationHandler#commit()} is invoked. If reading or signature validation fails,
+   * {@link MetadataLocationHandler#abort(Exception)} is invoked before the exception is thrown, and the locations that
+   * were passed to the handler must be discarded.
+   * </p>
+   *
+   * @param stream the stream to read from
+   * @param handler the handler that receives the metadata locations
+   * @return the metadata service list (without metadata lists)
+   * @throws UnmarshallingException if the document can not be read
+   * @throws SignatureException if the reader was created with trusted certificates and the signature of the
+   *     document is missing, not supported, or not valid
+   */
+  @Nonnull
+  public MetadataServiceList read(@Nonnull final InputStream stream, @Nonnull final MetadataLocationHandler handler)
+      throws UnmarshallingException, SignatureException {
+
+    final boolean validate = !this.trustedCertificates.isEmpty();
+    final ReadContext context;
+    try {
+      context = new ReadContext(XMLObjectProviderRegistrySupport.getParserPool().newDocument(), validate);
+    }
+    catch (final XMLParserException | NoSuchAlgorithmException e) {
+      throw new UnmarshallingException(e);
+    }
+
+    final MetadataServiceListUnmarshallingEvent event = new MetadataServiceListUnmarshallingEvent();
+    event.begin();
+    final MetadataServiceList mdsl;
+    try {
+      mdsl = this.readAndValidate(stream, context, handler);
+      event.setOutcome(EidasEvent.SUCCESS);
+    }
+    catch (final UnmarshallingException | SignatureException | RuntimeException e) {
+      event.setOutcome(EidasEvent.FAILED);
+      handler.abort(e);
+      throw e;
+    }
+    finally {
+      event.setMetadataLists(context.metadataLists);
+      event.setMetadataLocations(context.metadataLocations);
+      event.commit();
+    }
+    handler.commit();
+    return mdsl;
+  }
+
+  /**
+   * Reads the document, passing each metadata location to the handler, and validates its signature (if the reader
+   * was created with trusted certificates).
+   *
+   * @param stream the stream to read from
+   * @param context the read context
+   * @param handler the handler that receives the metadata locations
+   * @return the metadata service list (without metadata lists)
+   * @throws UnmarshallingException if the document can not be read
+   * @throws SignatureException if the signature is missing, not supported, or not valid
+   */
+  private MetadataServiceList readAndValidate(final InputStream stream, final ReadContext context,
+      final MetadataLocationHandler handler) throws UnmarshallingException, SignatureException {
+
+    XMLStreamReader reader = null;
+    try {
+      reader = inputFactory.createXMLStreamReader(stream);
+      this.read(reader, context, handler);
+      context.content.flush();
+      if (context.signedInfo != null) {
+        context.signedInfo.flush();
+      }
+    }
+    catch (final XMLStreamException | IOException e) {
+      throw new UnmarshallingException("Failed to read metadata service list - " + e.getMessage(), e);
+    }
+    finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        }
+        catch (final XMLStreamException ignored) {
+        }
+      }
+    }
+
+    if (context.root == null) {
+      throw new UnmarshallingException("No MetadataServiceList element found");
+    }
+    if (!this.trustedCertificates.isEmpty()) {
+      this.validateSignature(context);
+    }
+
+    final XMLObject object = unmarshall(context.root);
+    if (!(object instanceof final MetadataServiceList mdsl)) {
+      throw new UnmarshallingException("Expected " + MetadataServiceList.DEFAULT_ELEMENT_NAME);
+    }
+    return mdsl;
+  }
+
+  /**
+   * Reads the document.
+   *
+   * @param reader the stream reader
+   * @param context the read context
+   * @param handler the metadata location handler
+   * @throws XMLStreamException for read errors
+   * @throws IOException for canonicalization errors
+   * @throws UnmarshallingException for unmarshalling errors
+   */
+  private void read(final XMLStreamReader reader, final ReadContext context, final MetadataLocationHandler handler)
+      throws XMLStreamException, IOException, UnmarshallingException {
+
+    MetadataList metadataList = null;
+    int depth = 0;
+
+    while (reader.hasNext()) {
+      final int event = reader.next();
+      switch (event) {
+      case XMLStreamConstants.START_ELEMENT -> {
+        depth++;
+        if (depth == 1) {
+          if (!MetadataServiceList.DEFAULT_ELEMENT_NAME.equals(reader.getName())) {
+            throw new UnmarshallingException("Expected " + MetadataServiceList.DEFAULT_ELEMENT_NAME + " but got "
+                + reader.getName());
+          }
+          context.pushScope(reader);
+          context.root = context.createElement(reader);
+          context.root.setUserData(MetadataServiceListUnmarshallingEvent.STREAMED_ELEMENT_KEY, Boolean.TRUE, null);
+          context.document.appendChild(context.root);
+          context.rootId = reader.getAttributeValue(null, MetadataServiceList.ID_ATTR_NAME);
+          context.content.startElement(reader);
+        }
+        else if (depth == 2 && SIGNATURE_NAME.equals(reader.getName())) {
+          context.signatureCount++;
+          context.signature = this.capture(reader, context, context.root, context.signedInfo, SIGNED_INFO_NAME);
+          depth--;
+        }
+        else if (depth == 2 && MetadataList.DEFAULT_ELEMENT_NAME.equals(reader.getName())) {
+          context.pushScope(reader);
+          context.content.startElement(reader);
+          metadataList = (MetadataList) unmarshall(context.createElement(reader));
+          context.metadataLists++;
+        }
+        else if (depth == 3 && metadataList != null
+            && MetadataLocation.DEFAULT_ELEMENT_NAME.equals(reader.getName())) {
+          final MetadataLocation location =
+              (MetadataLocation) unmarshall(this.capture(reader, context, null, context.content, null));
+          location.releaseDOM();
+          location.releaseChildrenDOM(true);
+          context.metadataLocations++;
+          handler.handle(metadataList, location);
+          depth--;
+        }
+        else {
+          // Other elements are kept in the resulting object (below the root), or dropped (below a MetadataList).
+          this.capture(reader, context, depth == 2 ? context.root : null, context.content, null);
+          depth--;
+        }
+      }
+      case XMLStreamConstants.END_ELEMENT -> {
+        context.content.endElement(reader);
+        context.popScope();
+        if (--depth == 1) {
+          metadataList = null;
+        }
+      }
+      case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+        if (depth > 0) {
+          context.content.characters(reader.getText());
+        }
+      }
+      case XMLStreamConstants.PROCESSING_INSTRUCTION -> {
+        if (depth > 0) {
+          context.content.processingInstruction(reader.getPITarget(), reader.getPIData());
+        }
+        else {
+          context.processingInstructionsOutsideRoot = true;
+        }
+      }
+      default -> {
+        // Comments (and document start/end) are not part of the canonical form.
+      }
+      }
+    }
+  }
+
+  /**
+   * Reads the subtree starting at the current {@code START_ELEMENT} event into a DOM element. When this method
+   * returns, the reader is positioned at the corresponding {@code END_ELEMENT} event.
+   *
+   * @param reader the stream reader
+   * @param context the read context
+   * @param parent the node to add the element to (may be {@code null})
+   * @param canonicalizer the canonicalizer that should be fed with the events
+   * @param canonicalizeOnly if non-{@code null}, only the subtree of the element having this name is fed to the
+   *     canonicalizer
+   * @return the element
+   * @throws XMLStreamException for read errors
+   * @throws IOException for canonicalization errors
+   */
+  private Element capture(final XMLStreamReader reader, final ReadContext context, final Node parent,
+      final StreamingExclusiveCanonicalizer canonicalizer, final QName canonicalizeOnly)
+      throws XMLStreamException, IOException {
+
+    final Element top = context.createElement(reader);
+    if (parent != null) {
+      parent.appendChild(top);
+    }
+    Node current = top;
+    int level = 1;
+    int canonicalizeFrom = canonicalizeOnly == null ? 1 : 0;
+    if (canonicalizer != null && canonicalizeFrom > 0) {
+      canonicalizer.startElement(reader);
+    }
+
+    while (level > 0) {
+      final int event = reader.next();
+      final boolean canonicalize = canonicalizer != null && canonicalizeFrom > 0;
+      switch (event) {
+      case XMLStreamConstants.START_ELEMENT -> {
+        level++;
+        final Element element = createElement(context.document, reader);
+        current.appendChild(element);
+        current = element;
+        if (canonicalizer != null) {
+          if (canonicalizeFrom == 0 && canonicalizeOnly.equals(reader.getName())) {
+            canonicalizeFrom = level;
+          }
+          if (canonicalizeFrom > 0) {
+            canonicalizer.startElement(reader);
+          }
+        }
+      }
+      case XMLStreamConstants.END_ELEMENT -> {
+        if (canonicalize) {
+          canonicalizer.endElement(reader);
+          if (canonicalizeFrom == level && canonicalizeOnly != null) {
+            canonicalizeFrom = 0;
+          }
+        }
+        current = current.getParentNode();
+        level--;
+      }
+      case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+        current.appendChild(context.document.createTextNode(reader.getText()));
+        if (canonicalize) {
+          canonicalizer.characters(reader.getText());
+        }
+      }
+      case XMLStreamConstants.PROCESSING_INSTRUCTION -> {
+        current.appendChild(
+            context.document.createProcessingInstruction(reader.getPITarget(), reader.getPIData()));
+        if (canonicalize) {
+          canonicalizer.processingInstruction(reader.getPITarget(), reader.getPIData());
+        }
+      }
+      default -> {
+      }
+      }
+    }
+    return top;
+  }
+
+  /**
+   * Validates the signature of the document.
+   *
+   * @param context the read context
+   * @throws SignatureException for validation errors
+   */
+  private void validateSignature(final ReadContext context) throws SignatureException {
+    if (context.signature == null) {
+      log.warn("Metadata service list is not signed");
+      throw new SignatureException("Metadata service list has no signature");
+    }
+    if (context.signatureCount > 1) {
+      throw new SignatureException("Metadata service list has more than one signature");
+    }
+    if (getChildren(context.signature, "SignedInfo").size() != 1) {
+      throw new SignatureException("Expected exactly one SignedInfo in signature");
+    }
+    final Element signedInfo = getChild(context.signature, "SignedInfo");
+    final Element c14nMethod = getChild(signedInfo, "CanonicalizationMethod");
+    if (!SignatureConstants.ALGO_ID_C14N_EXCL_OMIT_COMMENTS.equals(getAlgorithm(c14nMethod))
+        || getFirstChildElement(c14nMethod) != null) {
+      throw new SignatureException("Unsupported canonicalization method: " + getAlgorithm(c14nMethod));
+    }
+
+    // Check the reference ...
+    //
+    final List<Element> references = getChildren(signedInfo, "Reference");
+    if (references.size() != 1) {
+      throw new SignatureException("Expected exactly one Reference in signature, found " + references.size());
+    }
+    final Element reference = references.get(0);
+    final String uri = reference.hasAttributeNS(null, "URI") ? reference.getAttributeNS(null, "URI") : null;
+    if (uri == null || !(uri.isEmpty() || (context.rootId != null && uri.equals("#" + context.rootId)))) {
+      throw new SignatureException("Signature reference does not refer to the MetadataServiceList element");
+    }
+    if (uri.isEmpty() && context.processingInstructionsOutsideRoot) {
+      throw new SignatureException("Processing instructions outside of the document element are not supported");
+    }
+    final List<String> transforms = new ArrayList<>();
+    final Element transformsElement = getChild(reference, "Transforms");
+    if (transformsElement != null) {
+      for (final Element transform : getChildren(transformsElement, "Transform")) {
+        if (getFirstChildElement(transform) != null) {
+          throw new SignatureException("Transform parameters are not supported");
+        }
+        transforms.add(getAlgorithm(transform));
+      }
+    }
+    if (!List.of(SignatureConstants.TRANSFORM_ENVELOPED_SIGNATURE, SignatureConstants.TRANSFORM_C14N_EXCL_OMIT_COMMENTS)
+        .equals(transforms)) {
+      throw new SignatureException("Unsupported signature transforms: " + transforms);
+    }
+
+    final String digestAlgorithm = getAlgorithm(getChild(reference, "DigestMethod"));
+    final MessageDigest digest = context.digests.get(digestAlgorithm);
+    if (digest == null) {
+      throw new SignatureException("Unsupported digest method: " + digestAlgorithm);
+    }
+    final byte[] digestValue = decode(getChild(reference, "DigestValue"));
+    if (!MessageDigest.isEqual(digestValue, digest.digest())) {
+      log.warn("Signature validation failed - digest mismatch");
+      throw new SignatureException("Signature validation failed - digest mismatch");
+    }
+
+    // Check the signature value ...
+    //
+    final byte[] signatureValue = decode(getChild(context.signature, "SignatureValue"));
+    final byte[] canonicalSignedInfo = context.signedInfoBytes.toByteArray();
+    final Element signatureMethod = getChild(signedInfo, "SignatureMethod");
+
+    for (final X509Certificate certificate : this.getCandidates(context.signature)) {
+      try {
+        final SignatureAlgorithm algorithm = new SignatureAlgorithm(signatureMethod, null, true);
+        algorithm.initVerify(certificate.getPublicKey());
+        algorithm.update(canonicalSignedInfo);
+        if (algorithm.verify(signatureValue)) {
+          log.debug("Signature on MetadataServiceList successfully verified using '{}'",
+              certificate.getSubjectX500Principal());
+          return;
+        }
+      }
+      catch (final XMLSecurityException e) {
+        log.debug("Signature validation using '{}' failed - {}", certificate.getSubjectX500Principal(),
+            e.getMessage());
+      }
+    }
+    log.warn("Signature validation failed");
+    throw new SignatureException("Signature validation failed");
+  }
+
+  /**
+   * Returns the trusted certificates to try. If the {@code KeyInfo} of the signature contains one of the trusted
+   * certificates, only this certificate is returned.
+   *
+   * @param signature the signature element
+   * @return the certificates to try
+   */
+  private List<X509Certificate> getCandidates(final Element signature) {
+    final Element keyInfo = getChild(signature, "KeyInfo");
+    if (keyInfo != null) {
+      for (final Element x509Data : getChildren(keyInfo, "X509Data")) {
+        for (final Element x509Certificate : getChildren(x509Data, "X509Certificate")) {
+          try {
+            final byte[] encoding = Base64Support.decode(x509Certificate.getTextContent());
+            for (final X509Certificate trusted : this.trustedCertificates) {
+              if (MessageDigest.isEqual(encoding, trusted.getEncoded())) {
+                return List.of(trusted);
+              }
+            }
+          }
+          catch (final DecodingException | CertificateEncodingException e) {
+            log.debug("Failed to process certificate from KeyInfo - {}", e.getMessage());
+          }
+        }
+      }
+    }
+    return this.trustedCertificates;
+  }
+
+  /**
+   * Unmarshalls the supplied element.
+   *
+   * @param element the element
+   * @return the unmarshalled object
+   * @throws UnmarshallingException for unmarshalling errors
+   */
+  private static XMLObject unmarshall(final Element element) throws UnmarshallingException {
+    final Unmarshaller unmarshaller = XMLObjectSupport.getUnmarshaller(element);
+    if (unmarshaller == null) {
+      throw new UnmarshallingException("No unmarshaller available for " + element.getLocalName());
+    }
+    return unmarshaller.unmarshall(element);
+  }
+
+  /**
+   * Creates a DOM element for the current {@code START_ELEMENT} event (including its attributes and namespace
+   * declarations).
+   *
+   * @param document the owner document
+   * @param reader the stream reader
+   * @return the element
+   */
+  private static Element createElement(final Document document, final XMLStreamReader reader) {
+    final String prefix = reader.getPrefix();
+    final Element element = document.createElementNS(reader.getNamespaceURI(),
+        prefix == null || prefix.isEmpty() ? reader.getLocalName() : prefix + ":" + reader.getLocalName());
+    for (int i = 0; i < reader.getNamespaceCount(); i++) {
+      declareNamespace(element, reader.getNamespacePrefix(i), reader.getNamespaceURI(i));
+    }
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      final String attributePrefix = reader.getAttributePrefix(i);
+      final String namespaceUri = reader.getAttributeNamespace(i);
+      element.setAttributeNS(namespaceUri == null || namespaceUri.isEmpty() ? null : namespaceUri,
+          attributePrefix == null || attributePrefix.isEmpty()
+              ? reader.getAttributeLocalName(i)
+              : attributePrefix + ":" + reader.getAttributeLocalName(i),
+          reader.getAttributeValue(i));
+    }
+    return element;
+  }
+
+  private static void declareNamespace(final Element element, final String prefix, final String namespaceUri) {
+    element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+        prefix == null || prefix.isEmpty() ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix,
+        namespaceUri != null ? namespaceUri : "");
+  }
+
+  private static Element getChild(final Element parent, final String localName) {
+    if (parent != null) {
+      for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+        if (n instanceof final Element e && SignatureConstants.XMLSIG_NS.equals(e.getNamespaceURI())
+            && localName.equals(e.getLocalName())) {
+          return e;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static List<Element> getChildren(final Element parent, final String localName) {
+    final List<Element> children = new ArrayList<>();
+    if (parent != null) {
+      for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+        if (n instanceof final Element e && SignatureConstants.XMLSIG_NS.equals(e.getNamespaceURI())
+            && localName.equals(e.getLocalName())) {
+          children.add(e);
+        }
+      }
+    }
+    return children;
+  }
+
+  private static Element getFirstChildElement(final Element parent) {
+    if (parent != null) {
+      for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+        if (n instanceof final Element e) {
+          return e;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static String getAlgorithm(final Element element) {
+    return element != null ? element.getAttributeNS(null, "Algorithm") : null;
+  }
+
+  private static byte[] decode(final Element element) throws SignatureException {
+    if (element == null) {
+      throw new SignatureException("Invalid signature - missing element");
+    }
+    try {
+      return Base64Support.decode(element.getTextContent());
+    }
+    catch (final DecodingException e) {
+      throw new SignatureException("Invalid Base64 encoding of " + element.getLocalName(), e);
+    }
+  }
+
+  /**
+   * Creates the {@link XMLInputFactory} used to read the metadata service list. DTD:s and external entities are not
+   * supported.
+   *
+   * @return an {@link XMLInputFactory}
+   */
+  private static XMLInputFactory createInputFactory() {
+    final XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    return factory;
+  }
+
+  /**
+   * Handler that receives the metadata locations read by {@link MetadataServiceListStreamReader}.
+   * <p>
+   * The locations are passed to {@link #handle(MetadataList, MetadataLocation)} as soon as they have been read, and
+   * they are unverified until {@link #commit()} is invoked. If {@link #abort(Exception)} is invoked instead, all
+   * locations received during the read operation must be discarded.
+   * </p>
+   */
+  @FunctionalInterface
+  public interface MetadataLocationHandler {
+
+    /**
+     * Handles a metadata location. The location is unverified until {@link #commit()} is invoked.
+     *
+     * @param metadataList the metadata list that the location belongs to. This object holds the attributes of the
+     *     list (territory, suspend flag), but no metadata locations
+     * @param metadataLocation the metadata location (including its endpoints and key infos), without a cached DOM
+     */
+    void handle(@Nonnull final MetadataList metadataList, @Nonnull final MetadataLocation metadataLocation);
+
+    /**
+     * Invoked when the complete document has been read and its signature has been verified (if the reader validates
+     * signatures). All locations passed to {@link #handle(MetadataList, MetadataLocation)} may now be used.
+     * <p>
+     * The default implementation does nothing.
+     * </p>
+     */
+    default void commit() {
+    }
+
+    /**
+     * Invoked if the document could not be read, or if its signature is not valid. All locations passed to
+     * {@link #handle(MetadataList, MetadataLocation)} must be discarded.
+     * <p>
+     * The default implementation does nothing.
+     * </p>
+     *
+     * @param cause the error that aborted the read operation
+     */
+    default void abort(@Nonnull final Exception cause) {
+    }
+
+  }
+
+  /**
+   * The state for one read operation.
+   */
+  private static final class ReadContext {
+
+    /** The owner document for all created elements. */
+    final Document document;
+
+    /**
+     * Running digests of the canonical form of the document (excluding the signature), keyed by the digest method URI.
+     * Empty if the signature is not validated.
+     */
+    final Map<String, MessageDigest> digests = new HashMap<>();
+
+    /** The canonicalizer for the document. */
+    final StreamingExclusiveCanonicalizer content;
+
+    /** The canonical form of the SignedInfo element. */
+    final ByteArrayOutputStream signedInfoBytes = new ByteArrayOutputStream();
+
+    /** The canonicalizer for the SignedInfo element. */
+    final StreamingExclusiveCanonicalizer signedInfo;
+
+    /** The in-scope namespace declarations for the root and MetadataList elements. */
+    final Deque<Map<String, String>> scopes = new ArrayDeque<>();
+
+    /** The root element (holding all elements except the metadata lists). */
+    Element root;
+
+    /** The ID attribute of the root element. */
+    String rootId;
+
+    /** The signature element. */
+    Element signature;
+
+    /** The number of signature elements that are children of the document element. */
+    int signatureCount;
+
+    /** Whether processing instructions appear outside of the document element. */
+    boolean processingInstructionsOutsideRoot;
+
+    /** The number of metadata lists read. */
+    int metadataLists;
+
+    /** The number of metadata locations read. */
+    int metadataLocations;
+
+    /**
+     * Constructor.
+     *
+     * @param document the owner document
+     * @param validate whether the signature will be validated (if {@code false} no digests are calculated)
+     * @throws NoSuchAlgorithmException if a supported digest algorithm is not available
+     */
+    ReadContext(final Document document, final boolean validate) throws NoSuchAlgorithmException {
+      this.document = document;
+      OutputStream out = OutputStream.nullOutputStream();
+      if (validate) {
+        for (final Map.Entry<String, String> algorithm : DIGEST_ALGORITHMS.entrySet()) {
+          final MessageDigest digest = MessageDigest.getInstance(algorithm.getValue());
+          this.digests.put(algorithm.getKey(), digest);
+          out = new DigestOutputStream(out, digest);
+        }
+      }
+      this.content = new StreamingExclusiveCanonicalizer(out);
+      this.signedInfo = validate ? new StreamingExclusiveCanonicalizer(this.signedInfoBytes) : null;
+    }
+
+    /**
+     * Records the namespace declarations of the current element.
+     *
+     * @param reader the stream reader
+     */
+    void pushScope(final XMLStreamReader reader) {
+      final Map<String, String> scope = new HashMap<>();
+      for (int i = 0; i < reader.getNamespaceCount(); i++) {
+        final String prefix = reader.getNamespacePrefix(i);
+        scope.put(prefix != null ? prefix : "", reader.getNamespaceURI(i));
+      }
+      this.scopes.push(scope);
+    }
+
+    /**
+     * Removes the namespace declarations of the current element.
+     */
+    void popScope() {
+      this.scopes.pop();
+    }
+
+    /**
+     * Creates an element for the current {@code START_ELEMENT} event. All in-scope namespace declarations are added to
+     * the element, so that it can be unmarshalled without its ancestors.
+     *
+     * @param reader the stream reader
+     * @return the element
+     */
+    Element createElement(final XMLStreamReader reader) {
+      final Element element = MetadataServiceListStreamReader.createElement(this.document, reader);
+      final Map<String, String> inScope = new HashMap<>();
+      for (final Map<String, String> scope : this.scopes) {
+        scope.forEach(inScope::putIfAbsent);
+      }
+      inScope.forEach((prefix, uri) -> {
+        if (!element.hasAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+            prefix.isEmpty() ? XMLConstants.XMLNS_ATTRIBUTE : prefix)) {
+          declareNamespace(element, prefix, uri);
+        }
+      });
+      return element;
+    }
+  }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.metadata;
+
+import jakarta.annotation.Nonnull;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A {@link MetadataLocationFetcher} that reads SAML metadata from local files or classpath resources. Each location
+ * URL is mapped to a resource. Resources starting with {@code classpath:} are loaded using the class loader, and all
+ * other resources are treated as file paths.
+ * <p>
+ * Mainly intended for testing, and for setups where the metadata is downloaded by other means.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public class ResourceMetadataLocationFetcher implements MetadataLocationFetcher {
+
+  /** Prefix for classpath resources. */
+  public static final String CLASSPATH_PREFIX = "classpath:";
+
+  /** Resources indexed by location URL. */
+  private final Map<String, String> resources;
+
+  /**
+   * Constructor.
+   *
+   * @param resources a map where the keys are location URLs and the values are file paths or classpath resources
+   */
+  public ResourceMetadataLocationFetcher(@Nonnull final Map<String, String> resources) {
+    this.resources = Map.copyOf(Objects.requireNonNull(resources, "resources must not be null"));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public InputStream fetch(@Nonnull final String location) throws IOException {
+    final String resource = this.resources.get(Objects.requireNonNull(location, "location must not be null"));
+    if (resource == null) {
+      throw new FileNotFoundException(String.format("No resource configured for %s", location));
+    }
+    if (resource.startsWith(CLASSPATH_PREFIX)) {
+      final String name = resource.substring(CLASSPATH_PREFIX.length());
+      final InputStream is = ResourceMetadataLocationFetcher.class.getClassLoader()
+          .getResourceAsStream(name.startsWith("/") ? name.substring(1) : name);
+      if (is == null) {
+        throw new FileNotFoundException(String.format("Classpath resource %s not found", name));
+      }
+      return is;
+    }
+    return Files.newInputStream(Path.of(resource));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return this.resources.toString();
+  }
+
+}
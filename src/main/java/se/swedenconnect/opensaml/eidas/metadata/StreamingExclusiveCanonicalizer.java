@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.metadata;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Writes the Exclusive XML Canonicalization (without comments) of the events read from a {@link XMLStreamReader}.
+ * <p>
+ * The canonicalizer is fed one event at a time, which makes it possible to calculate a digest of a document (or a
+ * subtree) while it is being read. The first element that is fed to the canonicalizer is treated as the apex of the
+ * canonicalized node-set. {@code InclusiveNamespaces} prefix lists are not supported.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+final class StreamingExclusiveCanonicalizer {
+
+  /** Orders attributes by namespace URI and local name (attributes without a namespace first). */
+  private static final Comparator<String[]> ATTRIBUTE_ORDER =
+      Comparator.<String[], String> comparing(a -> a[0]).thenComparing(a -> a[1]);
+
+  /** The writer for the canonical output. */
+  private final Writer writer;
+
+  /** The namespaces rendered for each output element, the innermost element first. */
+  private final Deque<Map<String, String>> rendered = new ArrayDeque<>();
+
+  /**
+   * Constructor.
+   *
+   * @param out the stream to write the canonical (UTF-8) output to
+   */
+  StreamingExclusiveCanonicalizer(final OutputStream out) {
+    this.writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes the start tag for the current {@code START_ELEMENT} event.
+   *
+   * @param reader the stream reader
+   * @throws IOException for write errors
+   */
+  void startElement(final XMLStreamReader reader) throws IOException {
+    final String prefix = nonNull(reader.getPrefix());
+
+    // Find the visibly utilized namespaces that have not already been rendered by an output ancestor ...
+    //
+    final TreeMap<String, String> namespaces = new TreeMap<>();
+    this.addIfNotRendered(prefix, nonNull(reader.getNamespaceURI()), namespaces);
+
+    final int attributeCount = reader.getAttributeCount();
+    final List<String[]> attributes = attributeCount > 0 ? new ArrayList<>(attributeCount) : Collections.emptyList();
+    for (int i = 0; i < attributeCount; i++) {
+      final String attributePrefix = nonNull(reader.getAttributePrefix(i));
+      final String attributeNamespace = nonNull(reader.getAttributeNamespace(i));
+      if (!attributePrefix.isEmpty()) {
+        this.addIfNotRendered(attributePrefix, attributeNamespace, namespaces);
+      }
+      final String localName = reader.getAttributeLocalName(i);
+      attributes.add(new String[] { attributeNamespace, localName,
+          attributePrefix.isEmpty() ? localName : attributePrefix + ":" + localName, reader.getAttributeValue(i) });
+    }
+    attributes.sort(ATTRIBUTE_ORDER);
+
+    this.writer.write('<');
+    this.writer.write(qualifiedName(prefix, reader.getLocalName()));
+    for (final Map.Entry<String, String> ns : namespaces.entrySet()) {
+      this.writer.write(ns.getKey().isEmpty() ? " xmlns=\"" : " xmlns:" + ns.getKey() + "=\"");
+      this.writeEscaped(ns.getValue(), true);
+      this.writer.write('"');
+    }
+    for (final String[] attribute : attributes) {
+      this.writer.write(' ');
+      this.writer.write(attribute[2]);
+      this.writer.write("=\"");
+      this.writeEscaped(attribute[3], true);
+      this.writer.write('"');
+    }
+    this.writer.write('>');
+
+    this.rendered.push(namespaces.isEmpty() ? Collections.emptyMap() : namespaces);
+  }
+
+  /**
+   * Writes the end tag for the current {@code END_ELEMENT} event.
+   *
+   * @param reader the stream reader
+   * @throws IOException for write errors
+   */
+  void endElement(final XMLStreamReader reader) throws IOException {
+    this.writer.write("</");
+    this.writer.write(qualifiedName(nonNull(reader.getPrefix()), reader.getLocalName()));
+    this.writer.write('>');
+    this.rendered.pop();
+  }
+
+  /**
+   * Writes character data.
+   *
+   * @param text the text
+   * @throws IOException for write errors
+   */
+  void characters(final String text) throws IOException {
+    this.writeEscaped(text, false);
+  }
+
+  /**
+   * Writes a processing instruction (that appears within the apex element).
+   *
+   * @param target the PI target
+   * @param data the PI data (may be {@code null})
+   * @throws IOException for write errors
+   */
+  void processingInstruction(final String target, final String data) throws IOException {
+    this.writer.write("<?");
+    this.writer.write(target);
+    if (data != null && !data.isEmpty()) {
+      this.writer.write(' ');
+      this.writer.write(data);
+    }
+    this.writer.write("?>");
+  }
+
+  /**
+   * Flushes the output.
+   *
+   * @throws IOException for write errors
+   */
+  void flush() throws IOException {
+    this.writer.flush();
+  }
+
+  /**
+   * Adds the namespace binding to {@code namespaces} if the nearest output ancestor has not rendered the same binding.
+   *
+   * @param prefix the prefix ("" for the default namespace)
+   * @param namespaceUri the namespace URI ("" for no namespace)
+   * @param namespaces the namespaces to render
+   */
+  private void addIfNotRendered(final String prefix, final String namespaceUri, final Map<String, String> namespaces) {
+    if (XMLConstants.XML_NS_PREFIX.equals(prefix) || namespaces.containsKey(prefix)) {
+      return;
+    }
+    String renderedUri = null;
+    for (final Map<String, String> frame : this.rendered) {
+      renderedUri = frame.get(prefix);
+      if (renderedUri != null) {
+        break;
+      }
+    }
+    if (renderedUri == null ? !namespaceUri.isEmpty() : !renderedUri.equals(namespaceUri)) {
+      namespaces.put(prefix, namespaceUri);
+    }
+  }
+
+  /**
+   * Writes text or an attribute value escaped according to the canonical XML rules.
+   *
+   * @param value the value to write
+   * @param attribute whether the value is an attribute value
+   * @throws IOException for write errors
+   */
+  private void writeEscaped(final String value, final boolean attribute) throws IOException {
+    int start = 0;
+    for (int i = 0; i < value.length(); i++) {
+      final String replacement = switch (value.charAt(i)) {
+        case '&' -> "&amp;";
+        case '<' -> "&lt;";
+        case '>' -> attribute ? null : "&gt;";
+        case '"' -> attribute ? "&quot;" : null;
+        case '\t' -> attribute ? "&#x9;" : null;
+        case '\n' -> attribute ? "&#xA;" : null;
+        case '\r' -> "&#xD;";
+        default -> null;
+      };
+      if (replacement != null) {
+        this.writer.write(value, start, i - start);
+        this.writer.write(replacement);
+        start = i + 1;
+      }
+    }
+    this.writer.write(value, start, value.length() - start);
+  }
+
+  private static String qualifiedName(final String prefix, final String localName) {
+    return prefix.isEmpty() ? localName : prefix + ":" + localName;
+  }
+
+  private static String nonNull(final String value) {
+    return value != null ? value : "";
+  }
+
+}
@@ -32,10 +32,13 @@ import se.swedenconnect.opensaml.eidas.metadata.MetadataLocation;
 
 import javax.annotation.Nonnull;
 import javax.xml.namespace.QName;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HexFormat;
 import java.util.List;
 
 /**
@@ -59,6 +62,9 @@ public class MetadataLocationImpl extends AbstractXMLObject implements MetadataL
 
   private static final QName suspendQname = new QName("Suspend");
 
+  /** The decoded certificates of the key infos (lazily computed, and valid as long as the encodings are unchanged). */
+  private volatile DecodedCertificates decodedCertificates;
+
   /**
    * Constructor.
    *
@@ -117,6 +123,74 @@ public class MetadataLocationImpl extends AbstractXMLObject implements MetadataL
     this.getKeyInfos().add(keyInfo);
   }
 
+  /**
+   * Returns the decoded certificates. The result is cached as long as the encoded certificates of the key infos are
+   * unchanged.
+   */
+  @Override
+  public List<X509Certificate> getX509Certificates() {
+    return this.getDecodedCertificates().certificates();
+  }
+
+  /**
+   * Returns the fingerprints of the decoded certificates. The result is cached as long as the encoded certificates of
+   * the key infos are unchanged.
+   */
+  @Override
+  public List<String> getX509CertificateFingerprints() {
+    return this.getDecodedCertificates().fingerprints();
+  }
+
+  /**
+   * Returns the cached decoded certificates, or decodes them if the encoded certificates have changed since they were
+   * cached.
+   * <p>
+   * The key infos may be modified at any depth (for example by assigning a new value to an {@code X509Certificate}
+   * element), and such changes can not be observed from this object if it has no DOM. Therefore, the cache is keyed by
+   * the encodings of all {@code X509Certificate} elements. Collecting them is cheap compared to decoding and digesting
+   * the certificates, and the comparison is mostly by reference since the encodings are not copied.
+   * </p>
+   *
+   * @return the decoded certificates
+   */
+  private DecodedCertificates getDecodedCertificates() {
+    final List<String> encodings = new ArrayList<>();
+    for (final KeyInfo keyInfo : this.keyInfos) {
+      for (final X509Data x509Data : keyInfo.getX509Datas()) {
+        for (final org.opensaml.xmlsec.signature.X509Certificate cert : x509Data.getX509Certificates()) {
+          encodings.add(cert.getValue());
+        }
+      }
+    }
+    DecodedCertificates decoded = this.decodedCertificates;
+    if (decoded == null || !decoded.encodings().equals(encodings)) {
+      final List<X509Certificate> certificates = MetadataLocation.super.getX509Certificates();
+      decoded = new DecodedCertificates(encodings, certificates, fingerprints(certificates));
+      this.decodedCertificates = decoded;
+    }
+    return decoded;
+  }
+
+  /**
+   * Calculates the hex-encoded SHA-256 fingerprints of the supplied certificates.
+   *
+   * @param certificates the certificates
+   * @return an unmodifiable list of fingerprints
+   */
+  private static List<String> fingerprints(final List<X509Certificate> certificates) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      final List<String> fingerprints = new ArrayList<>(certificates.size());
+      for (final X509Certificate certificate : certificates) {
+        fingerprints.add(HexFormat.of().formatHex(digest.digest(certificate.getEncoded())));
+      }
+      return Collections.unmodifiableList(fingerprints);
+    }
+    catch (final NoSuchAlgorithmException | CertificateEncodingException e) {
+      throw new IllegalStateException("Failed to calculate certificate fingerprint", e);
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   public String getLocation() {
@@ -148,4 +222,15 @@ public class MetadataLocationImpl extends AbstractXMLObject implements MetadataL
     return this.unknownAttributes;
   }
 
+  /**
+   * Decoded certificates along with their fingerprints, and the encodings that they were decoded from.
+   *
+   * @param encodings the Base64-encoded values of all {@code X509Certificate} elements, in document order
+   * @param certificates the decoded certificates
+   * @param fingerprints the hex-encoded SHA-256 fingerprints of the certificates
+   */
+  private record DecodedCertificates(
+      List<String> encodings, List<X509Certificate> certificates, List<String> fingerprints) {
+  }
+
 }
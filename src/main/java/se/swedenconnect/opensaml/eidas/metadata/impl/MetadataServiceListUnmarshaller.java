@@ -22,6 +22,9 @@ import org.opensaml.core.xml.io.UnmarshallingException;
 import org.opensaml.saml.common.AbstractSAMLObjectUnmarshaller;
 import org.opensaml.xmlsec.signature.Signature;
 import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import se.swedenconnect.opensaml.eidas.jfr.EidasEvent;
+import se.swedenconnect.opensaml.eidas.jfr.MetadataServiceListUnmarshallingEvent;
 import se.swedenconnect.opensaml.eidas.metadata.DistributionPoints;
 import se.swedenconnect.opensaml.eidas.metadata.MetadataList;
 import se.swedenconnect.opensaml.eidas.metadata.MetadataServiceList;
@@ -37,6 +40,41 @@ import javax.annotation.Nonnull;
  */
 public class MetadataServiceListUnmarshaller extends AbstractSAMLObjectUnmarshaller {
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * A {@link MetadataServiceListUnmarshallingEvent} is emitted if JFR is recording. No event is emitted for the
+   * document element passed by {@code MetadataServiceListStreamReader}, since it holds no metadata lists and the reader
+   * emits the event itself (with the real counts).
+   * </p>
+   */
+  @Override
+  @Nonnull
+  public XMLObject unmarshall(@Nonnull final Element domElement) throws UnmarshallingException {
+    if (domElement.getUserData(MetadataServiceListUnmarshallingEvent.STREAMED_ELEMENT_KEY) != null) {
+      return super.unmarshall(domElement);
+    }
+    final MetadataServiceListUnmarshallingEvent event = new MetadataServiceListUnmarshallingEvent();
+    event.begin();
+    try {
+      final XMLObject xmlObject = super.unmarshall(domElement);
+      if (event.shouldCommit() && xmlObject instanceof final MetadataServiceList mdsl) {
+        event.setMetadataLists(mdsl.getMetadataLists().size());
+        event.setMetadataLocations(
+            mdsl.getMetadataLists().stream().mapToInt(l -> l.getMetadataLocations().size()).sum());
+      }
+      event.setOutcome(EidasEvent.SUCCESS);
+      return xmlObject;
+    }
+    catch (final UnmarshallingException | RuntimeException e) {
+      event.setOutcome(EidasEvent.FAILED);
+      throw e;
+    }
+    finally {
+      event.commit();
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   protected void processChildElement(@Nonnull final XMLObject parentObject, @Nonnull final XMLObject childObject)
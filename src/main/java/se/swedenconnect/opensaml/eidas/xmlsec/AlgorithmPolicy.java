@@ -0,0 +1,273 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.xmlsec;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.opensaml.security.SecurityException;
+import org.opensaml.xmlsec.DecryptionConfiguration;
+import org.opensaml.xmlsec.SignatureValidationConfiguration;
+import org.opensaml.xmlsec.algorithm.AlgorithmRegistry;
+import org.opensaml.xmlsec.algorithm.AlgorithmSupport;
+import org.opensaml.xmlsec.encryption.support.EncryptionConstants;
+import org.opensaml.xmlsec.signature.support.SignatureConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import se.swedenconnect.opensaml.xmlsec.config.AbstractSecurityConfiguration;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * A compiled form of the algorithm rules of a security configuration, used to pre-screen incoming messages before any
+ * cryptographic work is started.
+ * <p>
+ * The include and exclude lists of the signature validation and decryption configurations are resolved once, in the
+ * same way as OpenSAML resolves them, into hash sets. {@link #check(Element)} then walks the DOM of a message once and
+ * checks the {@code ds:SignatureMethod} and {@code ds:DigestMethod} algorithms of signatures against the signature
+ * validation rules. The {@code xenc:EncryptionMethod} (data encryption and key transport) and
+ * {@code xenc:AgreementMethod} algorithms are checked against the decryption rules.
+ * </p>
+ * <p>
+ * The parameters of these algorithms, i.e., the {@code ds:DigestMethod} and {@code xenc11:MGF} of RSA-OAEP key
+ * transport, the {@code xenc11:KeyDerivationMethod} of key agreement and the {@code ds:DigestMethod} of ConcatKDF key
+ * derivation, are only checked against the exclude list of the decryption rules. The include lists of the eIDAS
+ * profiles only list encryption algorithms, so a parameter is rejected only if it is explicitly excluded.
+ * </p>
+ * <p>
+ * The pre-screen does not replace the checks made by OpenSAML, it only makes it possible to reject messages using
+ * disallowed algorithms early. The rules of a policy are immutable. The policy also counts the number of rejections
+ * per algorithm, see {@link #getRejectionCounts()}.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public final class AlgorithmPolicy {
+
+  /** The key under which rejections of algorithms unknown to the policy and to OpenSAML are counted. */
+  public static final String OTHER_ALGORITHMS = "other";
+
+  /** Logger instance. */
+  private static final Logger log = LoggerFactory.getLogger(AlgorithmPolicy.class);
+
+  /** The signature validation rules. */
+  private final AlgorithmRules signatureRules;
+
+  /** The decryption rules. */
+  private final AlgorithmRules decryptionRules;
+
+  /** The number of rejections per algorithm. */
+  private final Map<String, LongAdder> rejections = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param signatureRules the signature validation rules
+   * @param decryptionRules the decryption rules
+   */
+  private AlgorithmPolicy(final AlgorithmRules signatureRules, final AlgorithmRules decryptionRules) {
+    this.signatureRules = signatureRules;
+    this.decryptionRules = decryptionRules;
+  }
+
+  /**
+   * Compiles the signature validation and decryption configurations of the supplied security configuration into a
+   * policy.
+   *
+   * @param securityConfiguration the security configuration
+   * @return an {@link AlgorithmPolicy}
+   */
+  @Nonnull
+  public static AlgorithmPolicy compile(@Nonnull final AbstractSecurityConfiguration securityConfiguration) {
+    Objects.requireNonNull(securityConfiguration, "securityConfiguration must not be null");
+    return compile(securityConfiguration.getSignatureValidationConfiguration(),
+        securityConfiguration.getDecryptionConfiguration());
+  }
+
+  /**
+   * Compiles the supplied configurations into a policy.
+   *
+   * @param signatureValidationConfiguration the signature validation configuration
+   * @param decryptionConfiguration the decryption configuration
+   * @return an {@link AlgorithmPolicy}
+   */
+  @Nonnull
+  public static AlgorithmPolicy compile(
+      @Nonnull final SignatureValidationConfiguration signatureValidationConfiguration,
+      @Nonnull final DecryptionConfiguration decryptionConfiguration) {
+    return new AlgorithmPolicy(
+        AlgorithmRules.of(Objects.requireNonNull(signatureValidationConfiguration,
+            "signatureValidationConfiguration must not be null")),
+        AlgorithmRules.of(Objects.requireNonNull(decryptionConfiguration,
+            "decryptionConfiguration must not be null")));
+  }
+
+  /**
+   * Tells whether the supplied algorithm is allowed for signature validation (signature or digest method).
+   *
+   * @param algorithm the algorithm URI
+   * @return {@code true} if the algorithm is allowed and {@code false} otherwise
+   */
+  public boolean isSignatureAlgorithmAllowed(@Nonnull final String algorithm) {
+    return this.signatureRules.isAllowed(algorithm);
+  }
+
+  /**
+   * Tells whether the supplied algorithm is allowed for decryption (data encryption, key transport or key agreement).
+   *
+   * @param algorithm the algorithm URI
+   * @return {@code true} if the algorithm is allowed and {@code false} otherwise
+   */
+  public boolean isDecryptionAlgorithmAllowed(@Nonnull final String algorithm) {
+    return this.decryptionRules.isAllowed(algorithm);
+  }
+
+  /**
+   * Checks all signature and encryption algorithms found in the supplied element (and its descendants) and returns the
+   * first algorithm that is not allowed. The rejection counter for that algorithm is incremented.
+   *
+   * @param element the element to check, for example a {@code Response} element
+   * @return the first disallowed algorithm, or {@code null} if all algorithms are allowed
+   */
+  @Nullable
+  public String findDisallowedAlgorithm(@Nonnull final Element element) {
+    Node node = Objects.requireNonNull(element, "element must not be null");
+    while (node != null) {
+      if (node instanceof final Element e) {
+        final String algorithm = this.checkElement(e);
+        if (algorithm != null) {
+          this.rejections.computeIfAbsent(this.getRejectionKey(algorithm), a -> new LongAdder()).increment();
+          return algorithm;
+        }
+      }
+      if (node.getFirstChild() != null) {
+        node = node.getFirstChild();
+        continue;
+      }
+      while (node != element && node.getNextSibling() == null) {
+        node = node.getParentNode();
+      }
+      node = node != element ? node.getNextSibling() : null;
+    }
+    return null;
+  }
+
+  /**
+   * Checks all signature and encryption algorithms found in the supplied element (and its descendants). See
+   * {@link #findDisallowedAlgorithm(Element)}.
+   *
+   * @param element the element to check, for example a {@code Response} element
+   * @throws SecurityException if a disallowed algorithm is found
+   */
+  public void check(@Nonnull final Element element) throws SecurityException {
+    final String algorithm = this.findDisallowedAlgorithm(element);
+    if (algorithm != null) {
+      log.info("Rejecting {} - algorithm '{}' is not allowed", element.getLocalName(), algorithm);
+      throw new SecurityException(String.format("Algorithm '%s' is not allowed", algorithm));
+    }
+  }
+
+  /**
+   * Gets the number of rejections per algorithm.
+   * <p>
+   * Only algorithms listed by the rules of the policy, or registered in the OpenSAML algorithm registry, are counted
+   * under their own URI. Rejections of all other algorithms are counted under {@link #OTHER_ALGORITHMS}, so that
+   * messages with made up algorithm URIs can not grow the map.
+   * </p>
+   *
+   * @return a map where the keys are algorithm URIs (or {@link #OTHER_ALGORITHMS}) and the values the number of
+   *         rejected messages
+   */
+  @Nonnull
+  public Map<String, Long> getRejectionCounts() {
+    return this.rejections.entrySet().stream()
+        .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, e -> e.getValue().sum()));
+  }
+
+  /**
+   * Gets the key under which a rejection of the supplied algorithm is counted.
+   *
+   * @param algorithm the rejected algorithm
+   * @return the algorithm URI if it is known, and {@link #OTHER_ALGORITHMS} otherwise
+   */
+  private String getRejectionKey(final String algorithm) {
+    if (this.signatureRules.isListed(algorithm) || this.decryptionRules.isListed(algorithm)) {
+      return algorithm;
+    }
+    final AlgorithmRegistry registry = AlgorithmSupport.getGlobalAlgorithmRegistry();
+    return registry != null && registry.get(algorithm) != null ? algorithm : OTHER_ALGORITHMS;
+  }
+
+  /**
+   * Checks the algorithm of an element, if the element is one that declares an algorithm.
+   *
+   * @param element the element
+   * @return the algorithm URI if it is disallowed, otherwise {@code null}
+   */
+  private String checkElement(final Element element) {
+    final String ns = element.getNamespaceURI();
+    final String localName = element.getLocalName();
+    final AlgorithmRules rules;
+    boolean parameter = false;
+    if (SignatureConstants.XMLSIG_NS.equals(ns)) {
+      if ("SignatureMethod".equals(localName)) {
+        rules = this.signatureRules;
+      }
+      else if ("DigestMethod".equals(localName) && isParent(element, SignatureConstants.XMLSIG_NS, "Reference")) {
+        rules = this.signatureRules;
+      }
+      else if ("DigestMethod".equals(localName)
+          && (isParent(element, EncryptionConstants.XMLENC_NS, "EncryptionMethod")
+              || isParent(element, EncryptionConstants.XMLENC11_NS, "ConcatKDFParams"))) {
+        rules = this.decryptionRules;
+        parameter = true;
+      }
+      else {
+        return null;
+      }
+    }
+    else if (EncryptionConstants.XMLENC_NS.equals(ns)
+        && ("EncryptionMethod".equals(localName) || "AgreementMethod".equals(localName))) {
+      rules = this.decryptionRules;
+    }
+    else if (EncryptionConstants.XMLENC11_NS.equals(ns)
+        && ("KeyDerivationMethod".equals(localName)
+            || "MGF".equals(localName) && isParent(element, EncryptionConstants.XMLENC_NS, "EncryptionMethod"))) {
+      rules = this.decryptionRules;
+      parameter = true;
+    }
+    else {
+      return null;
+    }
+    final String algorithm = element.getAttributeNS(null, "Algorithm");
+    if (algorithm.isEmpty()) {
+      return null;
+    }
+    return (parameter ? rules.isExcluded(algorithm) : !rules.isAllowed(algorithm)) ? algorithm : null;
+  }
+
+  private static boolean isParent(final Element element, final String ns, final String localName) {
+    final Node parent = element.getParentNode();
+    return parent != null && localName.equals(parent.getLocalName()) && ns.equals(parent.getNamespaceURI());
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.xmlsec;
+
+import org.opensaml.xmlsec.AlgorithmPolicyConfiguration;
+import org.opensaml.xmlsec.AlgorithmPolicyConfiguration.Precedence;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Resolved include/exclude rules for an {@link AlgorithmPolicyConfiguration}.
+ *
+ * @param included the included algorithms (empty means that all algorithms not excluded are allowed)
+ * @param excluded the excluded algorithms
+ * @author Martin Lindström
+ */
+record AlgorithmRules(Set<String> included, Set<String> excluded) {
+
+  /**
+   * Resolves the effective rules the same way as OpenSAML does, i.e., only the list given precedence is used if it is
+   * non-empty.
+   *
+   * @param config the configuration
+   * @return the rules
+   */
+  static AlgorithmRules of(final AlgorithmPolicyConfiguration config) {
+    final Set<String> included = toSet(config.getIncludedAlgorithms());
+    final Set<String> excluded = toSet(config.getExcludedAlgorithms());
+    if (config.getIncludeExcludePrecedence() == Precedence.INCLUDE) {
+      return !included.isEmpty() ? new AlgorithmRules(included, Set.of()) : new AlgorithmRules(Set.of(), excluded);
+    }
+    return !excluded.isEmpty() ? new AlgorithmRules(Set.of(), excluded) : new AlgorithmRules(included, Set.of());
+  }
+
+  /**
+   * Tells whether the supplied algorithm is allowed according to the rules.
+   *
+   * @param algorithm the algorithm URI
+   * @return {@code true} if the algorithm is allowed and {@code false} otherwise
+   */
+  boolean isAllowed(final String algorithm) {
+    return (this.included.isEmpty() || this.included.contains(algorithm)) && !this.excluded.contains(algorithm);
+  }
+
+  /**
+   * Tells whether the supplied algorithm is explicitly excluded by the rules.
+   *
+   * @param algorithm the algorithm URI
+   * @return {@code true} if the algorithm is excluded and {@code false} otherwise
+   */
+  boolean isExcluded(final String algorithm) {
+    return this.excluded.contains(algorithm);
+  }
+
+  /**
+   * Tells whether the supplied algorithm is listed in the rules, i.e., whether it is included or excluded.
+   *
+   * @param algorithm the algorithm URI
+   * @return {@code true} if the algorithm is listed and {@code false} otherwise
+   */
+  boolean isListed(final String algorithm) {
+    return this.included.contains(algorithm) || this.excluded.contains(algorithm);
+  }
+
+  private static Set<String> toSet(final Collection<String> algorithms) {
+    return algorithms != null ? Set.copyOf(algorithms) : Set.of();
+  }
+
+}
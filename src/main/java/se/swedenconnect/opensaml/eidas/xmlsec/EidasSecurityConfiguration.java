@@ -56,12 +56,35 @@ import se.swedenconnect.opensaml.xmlsec.config.ExtendedDefaultSecurityConfigurat
  */
 public class EidasSecurityConfiguration extends AbstractSecurityConfiguration {
 
+  /** The compiled algorithm policy, created on first use. */
+  private volatile AlgorithmPolicy algorithmPolicy;
+
   /** {@inheritDoc} */
   @Override
   public String getProfileName() {
     return "eidas";
   }
 
+  /**
+   * Gets the signature validation and decryption rules of this configuration compiled into an {@link AlgorithmPolicy}
+   * that may be used to pre-screen incoming messages.
+   *
+   * @return the algorithm policy
+   */
+  public AlgorithmPolicy getAlgorithmPolicy() {
+    AlgorithmPolicy policy = this.algorithmPolicy;
+    if (policy == null) {
+      synchronized (this) {
+        policy = this.algorithmPolicy;
+        if (policy == null) {
+          policy = AlgorithmPolicy.compile(this);
+          this.algorithmPolicy = policy;
+        }
+      }
+    }
+    return policy;
+  }
+
   /**
    * Creates an encryption configuration for eIDAS according to section 3.2.1 and 3.2.2 of "eIDAS - Cryptographic
    * requirements for the Interoperability Framework version 1.3 and earlier".
@@ -0,0 +1,526 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.xmlsec;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.opensaml.saml.saml2.metadata.EncryptionMethod;
+import org.opensaml.saml.saml2.metadata.KeyDescriptor;
+import org.opensaml.saml.saml2.metadata.RoleDescriptor;
+import org.opensaml.security.SecurityException;
+import org.opensaml.security.credential.UsageType;
+import org.opensaml.xmlsec.EncryptionConfiguration;
+import org.opensaml.xmlsec.KeyAgreementEncryptionConfiguration;
+import org.opensaml.xmlsec.agreement.KeyAgreementParameter;
+import org.opensaml.xmlsec.derivation.impl.ConcatKDF;
+import org.opensaml.xmlsec.encryption.MGF;
+import org.opensaml.xmlsec.encryption.support.EncryptionConstants;
+import org.opensaml.xmlsec.encryption.support.RSAOAEPParameters;
+import org.opensaml.xmlsec.keyinfo.KeyInfoSupport;
+import org.opensaml.xmlsec.signature.DigestMethod;
+import org.opensaml.xmlsec.signature.KeyInfo;
+import org.opensaml.xmlsec.signature.support.SignatureConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.swedenconnect.opensaml.xmlsec.config.AbstractSecurityConfiguration;
+
+import java.security.PublicKey;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Negotiates the encryption parameters to use when encrypting for a given peer.
+ * <p>
+ * The algorithms that a peer declares in the {@code EncryptionMethod} elements of its metadata are intersected with
+ * the data encryption algorithms, key transport algorithms and RSA-OAEP parameters of a security profile (see
+ * {@link EidasSecurityConfiguration}). The profile's order of preference is kept, and a category for which the peer
+ * does not declare any algorithms is not constrained by the peer. For an RSA key, RSA-OAEP or RSA-OAEP 1.1 key
+ * transport is selected, and for an EC key, ECDH-ES key agreement with ConcatKDF key derivation and AES key wrap. If
+ * the peer has several encryption keys, the first key for which the negotiation succeeds is used.
+ * </p>
+ * <p>
+ * Parameters that the peer declares in its metadata, i.e., the RSA-OAEP digest method and mask generation function,
+ * are only used if they are allowed by the profile, in the same way as OpenSAML's
+ * {@code SAMLMetadataEncryptionParametersResolver} does. The ConcatKDF parameters are taken from the key agreement
+ * configuration of the profile, and the negotiation fails if the key derivation algorithm or its digest method is not
+ * allowed.
+ * </p>
+ * <p>
+ * The result is cached per peer metadata object and security profile. Metadata providers create new objects when the
+ * peer's metadata is refreshed, and since the cache holds the metadata objects weakly and compares them by identity,
+ * old results are dropped when the peer's metadata changes. Failed negotiations are cached as well so that a peer with
+ * incompatible metadata is not re-evaluated for each message.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public class EncryptionParametersNegotiator {
+
+  /** Logger instance. */
+  private static final Logger log = LoggerFactory.getLogger(EncryptionParametersNegotiator.class);
+
+  /** The key transport algorithms (RSA). */
+  private static final Set<String> KEY_TRANSPORT_ALGORITHMS = Set.of(
+      EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP,
+      EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP11,
+      EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSA15);
+
+  /** The key wrap algorithms (used with key agreement). */
+  private static final Set<String> KEY_WRAP_ALGORITHMS = Set.of(
+      EncryptionConstants.ALGO_ID_KEYWRAP_AES128,
+      EncryptionConstants.ALGO_ID_KEYWRAP_AES192,
+      EncryptionConstants.ALGO_ID_KEYWRAP_AES256,
+      EncryptionConstants.ALGO_ID_KEYWRAP_TRIPLEDES);
+
+  /** The negotiation results, keyed by peer metadata and then by encryption configuration. */
+  private final Map<RoleDescriptor, Map<EncryptionConfiguration, Outcome>> cache = new WeakHashMap<>();
+
+  /**
+   * Negotiates the encryption parameters to use for the supplied peer using the encryption configuration of the
+   * given security profile.
+   *
+   * @param peer the peer metadata
+   * @param profile the security profile
+   * @return the negotiated parameters
+   * @throws SecurityException if no parameters acceptable to both parties can be found
+   */
+  @Nonnull
+  public NegotiatedEncryptionParameters negotiate(
+      @Nonnull final RoleDescriptor peer, @Nonnull final AbstractSecurityConfiguration profile)
+      throws SecurityException {
+    return this.negotiate(peer,
+        Objects.requireNonNull(profile, "profile must not be null").getEncryptionConfiguration());
+  }
+
+  /**
+   * Negotiates the encryption parameters to use for the supplied peer using the given encryption configuration.
+   *
+   * @param peer the peer metadata
+   * @param configuration the encryption configuration
+   * @return the negotiated parameters
+   * @throws SecurityException if no parameters acceptable to both parties can be found
+   */
+  @Nonnull
+  public NegotiatedEncryptionParameters negotiate(
+      @Nonnull final RoleDescriptor peer, @Nonnull final EncryptionConfiguration configuration)
+      throws SecurityException {
+    Objects.requireNonNull(peer, "peer must not be null");
+    Objects.requireNonNull(configuration, "configuration must not be null");
+
+    Outcome outcome;
+    synchronized (this.cache) {
+      outcome = this.cache.getOrDefault(peer, Map.of()).get(configuration);
+    }
+    if (outcome == null) {
+      outcome = doNegotiate(peer, configuration);
+      synchronized (this.cache) {
+        outcome = this.cache.computeIfAbsent(peer, p -> new IdentityHashMap<>())
+            .merge(configuration, outcome, (existing, computed) -> existing);
+      }
+    }
+    if (outcome.parameters() == null) {
+      throw new SecurityException(outcome.error());
+    }
+    return outcome.parameters();
+  }
+
+  /**
+   * Removes any cached results for the given peer.
+   *
+   * @param peer the peer metadata
+   */
+  public void invalidate(@Nonnull final RoleDescriptor peer) {
+    synchronized (this.cache) {
+      this.cache.remove(peer);
+    }
+  }
+
+  /**
+   * Removes all cached results.
+   */
+  public void clear() {
+    synchronized (this.cache) {
+      this.cache.clear();
+    }
+  }
+
+  /**
+   * Performs the actual negotiation. Each usable encryption key of the peer is tried in document order, and the first
+   * successful negotiation is returned. This means that a peer that publishes several keys, for example during a key
+   * rollover or when it has both an RSA and an EC key, is not rejected because its first key can not be used.
+   *
+   * @param peer the peer metadata
+   * @param configuration the encryption configuration
+   * @return the outcome
+   */
+  private static Outcome doNegotiate(final RoleDescriptor peer, final EncryptionConfiguration configuration) {
+    final List<String> errors = new ArrayList<>();
+    for (final KeyDescriptor keyDescriptor : peer.getKeyDescriptors()) {
+      if (keyDescriptor.getUse() != null && keyDescriptor.getUse() != UsageType.ENCRYPTION
+          && keyDescriptor.getUse() != UsageType.UNSPECIFIED) {
+        continue;
+      }
+      final PublicKey key = getPublicKey(keyDescriptor.getKeyInfo());
+      if (key == null) {
+        continue;
+      }
+      final Outcome outcome = doNegotiate(keyDescriptor, key, configuration);
+      if (outcome.parameters() != null) {
+        return outcome;
+      }
+      log.debug("Peer {} key can not be used - {}", key.getAlgorithm(), outcome.error());
+      errors.add(outcome.error());
+    }
+    if (errors.isEmpty()) {
+      return Outcome.failure("Peer metadata does not contain any usable encryption key");
+    }
+    return Outcome.failure(errors.size() == 1 ? errors.get(0) : String.join("; ", errors));
+  }
+
+  /**
+   * Negotiates the encryption parameters for one of the peer's keys.
+   *
+   * @param keyDescriptor the key descriptor holding the key
+   * @param key the peer's public key
+   * @param configuration the encryption configuration
+   * @return the outcome
+   */
+  private static Outcome doNegotiate(
+      final KeyDescriptor keyDescriptor, final PublicKey key, final EncryptionConfiguration configuration) {
+    final List<EncryptionMethod> methods = keyDescriptor.getEncryptionMethods();
+    final AlgorithmRules rules = AlgorithmRules.of(configuration);
+
+    final List<String> peerData = new ArrayList<>();
+    final List<String> peerKeyTransport = new ArrayList<>();
+    final List<String> peerKeyWrap = new ArrayList<>();
+    for (final EncryptionMethod method : methods) {
+      final String algorithm = method.getAlgorithm();
+      if (algorithm == null || EncryptionConstants.ALGO_ID_KEYAGREEMENT_ECDH_ES.equals(algorithm)) {
+        continue;
+      }
+      if (KEY_TRANSPORT_ALGORITHMS.contains(algorithm)) {
+        peerKeyTransport.add(algorithm);
+      }
+      else if (KEY_WRAP_ALGORITHMS.contains(algorithm)) {
+        peerKeyWrap.add(algorithm);
+      }
+      else {
+        peerData.add(algorithm);
+      }
+    }
+
+    final String dataAlgorithm = select(configuration.getDataEncryptionAlgorithms(), Set.of(), rules, peerData);
+    if (dataAlgorithm == null) {
+      return Outcome.failure("No data encryption algorithm acceptable to both parties - peer declares " + peerData);
+    }
+
+    if (key instanceof RSAPublicKey) {
+      final String keyTransportAlgorithm = select(
+          configuration.getKeyTransportEncryptionAlgorithms(), KEY_TRANSPORT_ALGORITHMS, rules, peerKeyTransport);
+      if (keyTransportAlgorithm == null) {
+        return Outcome.failure(
+            "No key transport algorithm acceptable to both parties - peer declares " + peerKeyTransport);
+      }
+      final RSAOAEPParameters oaepParameters = getOAEPParameters(
+          keyTransportAlgorithm, configuration.getRSAOAEPParameters(), rules, methods);
+      log.debug("Negotiated {}/{} for peer", dataAlgorithm, keyTransportAlgorithm);
+      return Outcome.success(
+          new NegotiatedEncryptionParameters(dataAlgorithm, keyTransportAlgorithm, null, null, oaepParameters));
+    }
+    else if (key instanceof ECPublicKey) {
+      if (!rules.isAllowed(EncryptionConstants.ALGO_ID_KEYAGREEMENT_ECDH_ES)) {
+        return Outcome.failure("Peer has an EC key, but ECDH-ES key agreement is not allowed");
+      }
+      final String keyWrapAlgorithm = select(
+          configuration.getKeyTransportEncryptionAlgorithms(), KEY_WRAP_ALGORITHMS, rules, peerKeyWrap);
+      if (keyWrapAlgorithm == null) {
+        return Outcome.failure("No key wrap algorithm acceptable to both parties - peer declares " + peerKeyWrap);
+      }
+      if (!rules.isAllowed(EncryptionConstants.ALGO_ID_KEYDERIVATION_CONCAT)) {
+        return Outcome.failure("Peer has an EC key, but ConcatKDF key derivation is not allowed");
+      }
+      final ConcatKDF keyDerivation = getConcatKDF(configuration, key);
+      if (keyDerivation.getDigestMethod() == null || !rules.isAllowed(keyDerivation.getDigestMethod())) {
+        return Outcome.failure("ConcatKDF digest method is not allowed - " + keyDerivation.getDigestMethod());
+      }
+      log.debug("Negotiated {}/{}/{} for peer",
+          dataAlgorithm, EncryptionConstants.ALGO_ID_KEYAGREEMENT_ECDH_ES, keyWrapAlgorithm);
+      return Outcome.success(new NegotiatedEncryptionParameters(
+          dataAlgorithm, keyWrapAlgorithm, EncryptionConstants.ALGO_ID_KEYAGREEMENT_ECDH_ES, keyDerivation, null));
+    }
+    return Outcome.failure("Unsupported peer key type - " + key.getAlgorithm());
+  }
+
+  /**
+   * Selects the first algorithm from the profile's preferences that is allowed and, if the peer declares any
+   * algorithms in the category, that the peer declares.
+   *
+   * @param preferences the profile's algorithms in order of preference
+   * @param category the algorithms of the category (empty means all algorithms not belonging to another category)
+   * @param rules the include/exclude rules
+   * @param peerAlgorithms the peer's algorithms in the category
+   * @return the selected algorithm, or {@code null} if none is acceptable
+   */
+  private static String select(final List<String> preferences, final Set<String> category, final AlgorithmRules rules,
+      final List<String> peerAlgorithms) {
+    for (final String algorithm : preferences) {
+      if (category.isEmpty()
+          ? KEY_TRANSPORT_ALGORITHMS.contains(algorithm) || KEY_WRAP_ALGORITHMS.contains(algorithm)
+          : !category.contains(algorithm)) {
+        continue;
+      }
+      if (rules.isAllowed(algorithm) && (peerAlgorithms.isEmpty() || peerAlgorithms.contains(algorithm))) {
+        return algorithm;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Resolves the RSA-OAEP parameters. The profile's parameters are used, but the peer's digest method, mask
+   * generation function and OAEP parameters override them if given for the selected algorithm. A digest method or
+   * mask generation function that is not allowed by the profile is ignored.
+   *
+   * @param algorithm the key transport algorithm
+   * @param defaults the profile's RSA-OAEP parameters
+   * @param rules the include/exclude rules
+   * @param methods the peer's encryption methods
+   * @return the RSA-OAEP parameters, or {@code null} if the algorithm is not RSA-OAEP
+   */
+  private static RSAOAEPParameters getOAEPParameters(final String algorithm, final RSAOAEPParameters defaults,
+      final AlgorithmRules rules, final List<EncryptionMethod> methods) {
+    final boolean oaep11 = EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP11.equals(algorithm);
+    if (!oaep11 && !EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP.equals(algorithm)) {
+      return null;
+    }
+    String digestMethod = defaults != null ? defaults.getDigestMethod() : null;
+    String mgf = defaults != null ? defaults.getMaskGenerationFunction() : null;
+    String oaepParams = defaults != null ? defaults.getOAEPParams() : null;
+
+    final EncryptionMethod method = methods.stream()
+        .filter(m -> algorithm.equals(m.getAlgorithm()))
+        .findFirst()
+        .orElse(null);
+    if (method != null) {
+      for (final Object child : method.getUnknownXMLObjects()) {
+        if (child instanceof final DigestMethod dm && dm.getAlgorithm() != null) {
+          if (rules.isAllowed(dm.getAlgorithm())) {
+            digestMethod = dm.getAlgorithm();
+          }
+          else {
+            log.debug("Ignoring RSA-OAEP digest method '{}' from peer metadata - not allowed", dm.getAlgorithm());
+          }
+        }
+        else if (child instanceof final MGF m && m.getAlgorithm() != null) {
+          if (rules.isAllowed(m.getAlgorithm())) {
+            mgf = m.getAlgorithm();
+          }
+          else {
+            log.debug("Ignoring RSA-OAEP mask generation function '{}' from peer metadata - not allowed",
+                m.getAlgorithm());
+          }
+        }
+      }
+      if (method.getOAEPparams() != null && method.getOAEPparams().getValue() != null) {
+        oaepParams = method.getOAEPparams().getValue();
+      }
+    }
+    // The mask generation function is fixed to MGF1 with SHA-1 for http://www.w3.org/2001/04/xmlenc#rsa-oaep-mgf1p
+    return new RSAOAEPParameters(digestMethod, oaep11 ? mgf : null, oaepParams);
+  }
+
+  /**
+   * Gets the ConcatKDF parameters to use for key agreement. The parameters of the profile's key agreement
+   * configuration for the key type are used if present, otherwise ConcatKDF with SHA-256.
+   *
+   * @param configuration the encryption configuration
+   * @param key the peer's public key
+   * @return the ConcatKDF parameters (a copy that may be modified)
+   */
+  private static ConcatKDF getConcatKDF(final EncryptionConfiguration configuration, final PublicKey key) {
+    final KeyAgreementEncryptionConfiguration keyAgreementConfiguration =
+        configuration.getKeyAgreementConfigurations().get(key.getAlgorithm());
+    if (keyAgreementConfiguration != null && keyAgreementConfiguration.getParameters() != null) {
+      for (final KeyAgreementParameter parameter : keyAgreementConfiguration.getParameters()) {
+        if (parameter instanceof final ConcatKDF concatKDF) {
+          return concatKDF.clone();
+        }
+      }
+    }
+    final ConcatKDF concatKDF = new ConcatKDF();
+    concatKDF.setDigestMethod(SignatureConstants.ALGO_ID_DIGEST_SHA256);
+    return concatKDF;
+  }
+
+  /**
+   * Gets the public key from the first certificate of the supplied key info.
+   *
+   * @param keyInfo the key info
+   * @return the public key, or {@code null} if none is found
+   */
+  private static PublicKey getPublicKey(final KeyInfo keyInfo) {
+    if (keyInfo == null) {
+      return null;
+    }
+    try {
+      final List<X509Certificate> certificates = KeyInfoSupport.getCertificates(keyInfo);
+      return certificates.isEmpty() ? null : certificates.get(0).getPublicKey();
+    }
+    catch (final CertificateException e) {
+      log.info("Failed to decode certificate from peer metadata - {}", e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * The outcome of a negotiation.
+   *
+   * @param parameters the negotiated parameters, or {@code null} if the negotiation failed
+   * @param error the error message for failed negotiations
+   */
+  private record Outcome(NegotiatedEncryptionParameters parameters, String error) {
+
+    static Outcome success(final NegotiatedEncryptionParameters parameters) {
+      return new Outcome(parameters, null);
+    }
+
+    static Outcome failure(final String error) {
+      return new Outcome(null, error);
+    }
+  }
+
+  /**
+   * The negotiated encryption parameters for a peer.
+   */
+  public static final class NegotiatedEncryptionParameters {
+
+    /** The data encryption algorithm. */
+    private final String dataEncryptionAlgorithm;
+
+    /** The key transport algorithm, or key wrap algorithm when key agreement is used. */
+    private final String keyTransportEncryptionAlgorithm;
+
+    /** The key agreement algorithm. */
+    private final String keyAgreementAlgorithm;
+
+    /** The key derivation parameters used with key agreement. */
+    private final ConcatKDF keyDerivation;
+
+    /** The RSA-OAEP parameters. */
+    private final RSAOAEPParameters rsaOaepParameters;
+
+    /**
+     * Constructor.
+     *
+     * @param dataEncryptionAlgorithm the data encryption algorithm
+     * @param keyTransportEncryptionAlgorithm the key transport algorithm, or key wrap algorithm when key agreement is
+     *     used
+     * @param keyAgreementAlgorithm the key agreement algorithm (may be {@code null})
+     * @param keyDerivation the key derivation parameters (may be {@code null})
+     * @param rsaOaepParameters the RSA-OAEP parameters (may be {@code null})
+     */
+    private NegotiatedEncryptionParameters(final String dataEncryptionAlgorithm,
+        final String keyTransportEncryptionAlgorithm, final String keyAgreementAlgorithm,
+        final ConcatKDF keyDerivation, final RSAOAEPParameters rsaOaepParameters) {
+      this.dataEncryptionAlgorithm = dataEncryptionAlgorithm;
+      this.keyTransportEncryptionAlgorithm = keyTransportEncryptionAlgorithm;
+      this.keyAgreementAlgorithm = keyAgreementAlgorithm;
+      this.keyDerivation = keyDerivation;
+      this.rsaOaepParameters = rsaOaepParameters;
+    }
+
+    /**
+     * Gets the data encryption algorithm.
+     *
+     * @return the data encryption algorithm
+     */
+    @Nonnull
+    public String getDataEncryptionAlgorithm() {
+      return this.dataEncryptionAlgorithm;
+    }
+
+    /**
+     * Gets the key transport algorithm. If key agreement is used, this is the key wrap algorithm.
+     *
+     * @return the key transport, or key wrap, algorithm
+     */
+    @Nonnull
+    public String getKeyTransportEncryptionAlgorithm() {
+      return this.keyTransportEncryptionAlgorithm;
+    }
+
+    /**
+     * Gets the key agreement algorithm.
+     *
+     * @return the key agreement algorithm, or {@code null} if key transport is used
+     */
+    @Nullable
+    public String getKeyAgreementAlgorithm() {
+      return this.keyAgreementAlgorithm;
+    }
+
+    /**
+     * Gets the ConcatKDF key derivation parameters to use with the key agreement algorithm. A new copy is returned
+     * for each call, so the caller may modify it, for example when setting up a
+     * {@code KeyAgreementEncryptionConfiguration}.
+     *
+     * @return the key derivation parameters, or {@code null} if key transport is used
+     */
+    @Nullable
+    public ConcatKDF getKeyDerivation() {
+      return this.keyDerivation != null ? this.keyDerivation.clone() : null;
+    }
+
+    /**
+     * Gets the RSA-OAEP parameters.
+     *
+     * @return the RSA-OAEP parameters, or {@code null} if RSA-OAEP is not used
+     */
+    @Nullable
+    public RSAOAEPParameters getRSAOAEPParameters() {
+      return this.rsaOaepParameters;
+    }
+
+    /**
+     * Tells whether key agreement is used.
+     *
+     * @return {@code true} if key agreement is used and {@code false} otherwise
+     */
+    public boolean isKeyAgreement() {
+      return this.keyAgreementAlgorithm != null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+      return String.format(
+          "data-encryption='%s', key-transport='%s', key-agreement='%s', key-derivation-digest='%s', rsa-oaep=%s",
+          this.dataEncryptionAlgorithm, this.keyTransportEncryptionAlgorithm, this.keyAgreementAlgorithm,
+          this.keyDerivation != null ? this.keyDerivation.getDigestMethod() : null, this.rsaOaepParameters);
+    }
+  }
+
+}
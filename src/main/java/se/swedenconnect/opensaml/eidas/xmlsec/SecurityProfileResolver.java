@@ -0,0 +1,316 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.xmlsec;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.opensaml.xmlsec.DecryptionConfiguration;
+import org.opensaml.xmlsec.EncryptionConfiguration;
+import org.opensaml.xmlsec.SignatureSigningConfiguration;
+import org.opensaml.xmlsec.SignatureValidationConfiguration;
+import org.opensaml.xmlsec.criterion.DecryptionConfigurationCriterion;
+import org.opensaml.xmlsec.criterion.EncryptionConfigurationCriterion;
+import org.opensaml.xmlsec.criterion.SignatureSigningConfigurationCriterion;
+import org.opensaml.xmlsec.criterion.SignatureValidationConfigurationCriterion;
+
+import se.swedenconnect.opensaml.xmlsec.config.AbstractSecurityConfiguration;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Resolves the security profile to use for a peer.
+ * <p>
+ * Different countries may require different profiles, for example {@link RelaxedEidasSecurityConfiguration},
+ * {@link Eidas_1_4_SecurityConfiguration} or the strict {@link EidasSecurityConfiguration}. The resolver maps peer
+ * entityIDs and country codes to profiles. A peer is first looked up by its entityID, then by its country, and if
+ * neither is mapped, the default profile is used.
+ * </p>
+ * <p>
+ * For each profile, the signing, signature validation, encryption and decryption configurations, and the OpenSAML
+ * criteria holding them, are resolved once into an immutable {@link ResolvedProfile} that is shared between threads.
+ * The mappings are replaced as a whole using {@link #setMappings(Map, Map)}, and resolved profiles are only built
+ * when the mappings change, so {@link #resolve(String, String)} is just a couple of map lookups.
+ * </p>
+ *
+ * @author Martin Lindström
+ */
+public class SecurityProfileResolver {
+
+  /** The current mappings. */
+  private volatile Mappings mappings;
+
+  /**
+   * Constructor.
+   *
+   * @param defaultProfile the profile to use for peers that are not mapped
+   */
+  public SecurityProfileResolver(@Nonnull final AbstractSecurityConfiguration defaultProfile) {
+    this.mappings = Mappings.create(
+        Objects.requireNonNull(defaultProfile, "defaultProfile must not be null"), Map.of(), Map.of(), null);
+  }
+
+  /**
+   * Assigns the mappings from entityIDs and country codes to profiles. Any previous mappings are replaced.
+   * <p>
+   * Resolved profiles that are still in use after the update are kept, so instances returned by
+   * {@link #resolve(String, String)} remain the same for peers whose profile did not change.
+   * </p>
+   *
+   * @param entityMappings a map where the keys are peer entityIDs and the values the profiles for these peers
+   * @param countryMappings a map where the keys are country codes (ISO 3166-1 alpha-2) and the values the profiles for
+   *     peers from these countries
+   */
+  public synchronized void setMappings(@Nullable final Map<String, AbstractSecurityConfiguration> entityMappings,
+      @Nullable final Map<String, AbstractSecurityConfiguration> countryMappings) {
+    final Mappings current = this.mappings;
+    this.mappings = Mappings.create(current.defaultProfile().getProfile(),
+        entityMappings != null ? entityMappings : Map.of(),
+        countryMappings != null ? countryMappings : Map.of(),
+        current);
+  }
+
+  /**
+   * Resolves the profile for the given peer.
+   *
+   * @param entityID the peer entityID (may be null)
+   * @param country the country code of the peer (may be null)
+   * @return the resolved profile
+   */
+  @Nonnull
+  public ResolvedProfile resolve(@Nullable final String entityID, @Nullable final String country) {
+    final Mappings m = this.mappings;
+    if (entityID != null) {
+      final ResolvedProfile profile = m.entities().get(entityID);
+      if (profile != null) {
+        return profile;
+      }
+    }
+    if (country != null) {
+      ResolvedProfile profile = m.countries().get(country);
+      if (profile == null && country.length() == 2) {
+        profile = m.countries().get(country.toUpperCase(Locale.ROOT));
+      }
+      if (profile != null) {
+        return profile;
+      }
+    }
+    return m.defaultProfile();
+  }
+
+  /**
+   * Resolves the profile for the given peer entityID.
+   *
+   * @param entityID the peer entityID
+   * @return the resolved profile
+   */
+  @Nonnull
+  public ResolvedProfile resolve(@Nullable final String entityID) {
+    return this.resolve(entityID, null);
+  }
+
+  /**
+   * Immutable, resolved configurations for a security profile.
+   */
+  public static final class ResolvedProfile {
+
+    /** The profile. */
+    private final AbstractSecurityConfiguration profile;
+
+    /** The signing configuration criterion. */
+    private final SignatureSigningConfigurationCriterion signingCriterion;
+
+    /** The signature validation configuration criterion. */
+    private final SignatureValidationConfigurationCriterion validationCriterion;
+
+    /** The encryption configuration criterion. */
+    private final EncryptionConfigurationCriterion encryptionCriterion;
+
+    /** The decryption configuration criterion. */
+    private final DecryptionConfigurationCriterion decryptionCriterion;
+
+    /**
+     * Constructor.
+     *
+     * @param profile the profile
+     */
+    private ResolvedProfile(final AbstractSecurityConfiguration profile) {
+      this.profile = profile;
+      this.signingCriterion = new SignatureSigningConfigurationCriterion(profile.getSignatureSigningConfiguration());
+      this.validationCriterion =
+          new SignatureValidationConfigurationCriterion(profile.getSignatureValidationConfiguration());
+      this.encryptionCriterion = new EncryptionConfigurationCriterion(profile.getEncryptionConfiguration());
+      this.decryptionCriterion = new DecryptionConfigurationCriterion(profile.getDecryptionConfiguration());
+    }
+
+    /**
+     * Gets the profile.
+     *
+     * @return the profile
+     */
+    @Nonnull
+    public AbstractSecurityConfiguration getProfile() {
+      return this.profile;
+    }
+
+    /**
+     * Gets the profile name.
+     *
+     * @return the profile name
+     */
+    @Nonnull
+    public String getProfileName() {
+      return this.profile.getProfileName();
+    }
+
+    /**
+     * Gets the signature signing configuration.
+     *
+     * @return the configuration
+     */
+    @Nonnull
+    public SignatureSigningConfiguration getSignatureSigningConfiguration() {
+      return this.profile.getSignatureSigningConfiguration();
+    }
+
+    /**
+     * Gets the signature validation configuration.
+     *
+     * @return the configuration
+     */
+    @Nonnull
+    public SignatureValidationConfiguration getSignatureValidationConfiguration() {
+      return this.profile.getSignatureValidationConfiguration();
+    }
+
+    /**
+     * Gets the encryption configuration.
+     *
+     * @return the configuration
+     */
+    @Nonnull
+    public EncryptionConfiguration getEncryptionConfiguration() {
+      return this.profile.getEncryptionConfiguration();
+    }
+
+    /**
+     * Gets the decryption configuration.
+     *
+     * @return the configuration
+     */
+    @Nonnull
+    public DecryptionConfiguration getDecryptionConfiguration() {
+      return this.profile.getDecryptionConfiguration();
+    }
+
+    /**
+     * Gets a criterion holding the signature signing configuration.
+     *
+     * @return the criterion
+     */
+    @Nonnull
+    public SignatureSigningConfigurationCriterion getSignatureSigningConfigurationCriterion() {
+      return this.signingCriterion;
+    }
+
+    /**
+     * Gets a criterion holding the signature validation configuration.
+     *
+     * @return the criterion
+     */
+    @Nonnull
+    public SignatureValidationConfigurationCriterion getSignatureValidationConfigurationCriterion() {
+      return this.validationCriterion;
+    }
+
+    /**
+     * Gets a criterion holding the encryption configuration.
+     *
+     * @return the criterion
+     */
+    @Nonnull
+    public EncryptionConfigurationCriterion getEncryptionConfigurationCriterion() {
+      return this.encryptionCriterion;
+    }
+
+    /**
+     * Gets a criterion holding the decryption configuration.
+     *
+     * @return the criterion
+     */
+    @Nonnull
+    public DecryptionConfigurationCriterion getDecryptionConfigurationCriterion() {
+      return this.decryptionCriterion;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+      return this.getProfileName();
+    }
+  }
+
+  /**
+   * A snapshot of the mappings.
+   *
+   * @param defaultProfile the default profile
+   * @param entities resolved profiles indexed by entityID
+   * @param countries resolved profiles indexed by country code
+   */
+  private record Mappings(ResolvedProfile defaultProfile, Map<String, ResolvedProfile> entities,
+      Map<String, ResolvedProfile> countries) {
+
+    /**
+     * Creates a snapshot. Resolved profiles from the previous snapshot are reused.
+     *
+     * @param defaultProfile the default profile
+     * @param entityMappings entity mappings
+     * @param countryMappings country mappings
+     * @param previous the previous snapshot (may be null)
+     * @return the snapshot
+     */
+    static Mappings create(final AbstractSecurityConfiguration defaultProfile,
+        final Map<String, AbstractSecurityConfiguration> entityMappings,
+        final Map<String, AbstractSecurityConfiguration> countryMappings, final Mappings previous) {
+
+      final Map<AbstractSecurityConfiguration, ResolvedProfile> resolved = new IdentityHashMap<>();
+      if (previous != null) {
+        resolved.put(previous.defaultProfile().getProfile(), previous.defaultProfile());
+        previous.entities().values().forEach(p -> resolved.put(p.getProfile(), p));
+        previous.countries().values().forEach(p -> resolved.put(p.getProfile(), p));
+      }
+      final ResolvedProfile defaultResolved = resolved.computeIfAbsent(defaultProfile, ResolvedProfile::new);
+
+      final Map<String, ResolvedProfile> entities = new HashMap<>();
+      entityMappings.forEach((entityID, profile) -> entities.put(
+          Objects.requireNonNull(entityID, "entityID must not be null"),
+          resolved.computeIfAbsent(Objects.requireNonNull(profile, "profile must not be null"),
+              ResolvedProfile::new)));
+
+      final Map<String, ResolvedProfile> countries = new HashMap<>();
+      countryMappings.forEach((country, profile) -> countries.put(
+          Objects.requireNonNull(country, "country must not be null").toUpperCase(Locale.ROOT),
+          resolved.computeIfAbsent(Objects.requireNonNull(profile, "profile must not be null"),
+              ResolvedProfile::new)));
+
+      return new Mappings(defaultResolved, Map.copyOf(entities), Map.copyOf(countries));
+    }
+  }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.common;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.saml2.core.AuthnContextClassRef;
+import org.opensaml.saml.saml2.core.AuthnContextComparisonTypeEnumeration;
+import org.opensaml.saml.saml2.core.RequestedAuthnContext;
+
+import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
+
+/**
+ * Test cases for {@code EidasLoaMatcher} and {@code EidasLoaEnum}.
+ *
+ * @author Martin Lindström
+ */
+public class EidasLoaMatcherTest extends OpenSAMLTestBase {
+
+  /**
+   * Tests parsing LoA URIs.
+   */
+  @Test
+  public void testParse() {
+    for (final EidasLoaEnum loa : EidasLoaEnum.values()) {
+      Assertions.assertEquals(loa, EidasLoaEnum.parse(loa.getUri()));
+    }
+    Assertions.assertEquals(EidasLoaEnum.LOA_LOW_NON_NOTIFIED,
+        EidasLoaEnum.parse(EidasConstants.EIDAS_LOA_LOW_NON_NOTIFIED2));
+    Assertions.assertEquals(EidasLoaEnum.LOA_SUBSTANTIAL_NON_NOTIFIED,
+        EidasLoaEnum.parse(EidasConstants.EIDAS_LOA_SUBSTANTIAL_NON_NOTIFIED2));
+    Assertions.assertEquals(EidasLoaEnum.LOA_HIGH_NON_NOTIFIED,
+        EidasLoaEnum.parse(EidasConstants.EIDAS_LOA_HIGH_NON_NOTIFIED2));
+    Assertions.assertNull(EidasLoaEnum.parse("http://id.elegnamnden.se/loa/1.0/loa3"));
+    Assertions.assertNull(EidasLoaEnum.parse(null));
+  }
+
+  /**
+   * Tests the exact comparison method.
+   */
+  @Test
+  public void testExact() {
+    final EidasLoaMatcher matcher = EidasLoaMatcher.compile(createRequestedAuthnContext(null,
+        EidasConstants.EIDAS_LOA_SUBSTANTIAL, EidasConstants.EIDAS_LOA_HIGH_NON_NOTIFIED2));
+
+    Assertions.assertTrue(matcher.matches(EidasLoaEnum.LOA_SUBSTANTIAL));
+    Assertions.assertTrue(matcher.matches(EidasConstants.EIDAS_LOA_HIGH_NON_NOTIFIED));
+    Assertions.assertFalse(matcher.matches(EidasLoaEnum.LOA_HIGH));
+    Assertions.assertFalse(matcher.matches(EidasLoaEnum.LOA_LOW));
+    Assertions.assertFalse(matcher.matches((EidasLoaEnum) null));
+    Assertions.assertFalse(matcher.matches("http://id.elegnamnden.se/loa/1.0/loa3"));
+    Assertions.assertEquals(EnumSet.of(EidasLoaEnum.LOA_SUBSTANTIAL, EidasLoaEnum.LOA_HIGH_NON_NOTIFIED),
+        matcher.getAccepted());
+  }
+
+  /**
+   * Tests the minimum, better and maximum comparison methods.
+   */
+  @Test
+  public void testComparisons() {
+    final EidasLoaMatcher minimum = EidasLoaMatcher.compile(createRequestedAuthnContext(
+        AuthnContextComparisonTypeEnumeration.MINIMUM, EidasConstants.EIDAS_LOA_SUBSTANTIAL));
+    Assertions.assertEquals(EnumSet.of(EidasLoaEnum.LOA_SUBSTANTIAL, EidasLoaEnum.LOA_HIGH_NON_NOTIFIED,
+        EidasLoaEnum.LOA_HIGH), minimum.getAccepted());
+
+    final EidasLoaMatcher better = EidasLoaMatcher.compile(AuthnContextComparisonTypeEnumeration.BETTER,
+        List.of(EidasConstants.EIDAS_LOA_HIGH_NON_NOTIFIED, EidasConstants.EIDAS_LOA_HIGH));
+    Assertions.assertEquals(EnumSet.of(EidasLoaEnum.LOA_HIGH), better.getAccepted());
+
+    final EidasLoaMatcher maximum = EidasLoaMatcher.compile(AuthnContextComparisonTypeEnumeration.MAXIMUM,
+        List.of(EidasConstants.EIDAS_LOA_LOW));
+    Assertions.assertEquals(EnumSet.of(EidasLoaEnum.LOA_LOW_NON_NOTIFIED, EidasLoaEnum.LOA_LOW),
+        maximum.getAccepted());
+
+    final EidasLoaMatcher none = EidasLoaMatcher.compile(AuthnContextComparisonTypeEnumeration.MINIMUM,
+        List.of("http://id.elegnamnden.se/loa/1.0/loa3"));
+    Assertions.assertTrue(none.isEmpty());
+    Assertions.assertFalse(none.matches(EidasLoaEnum.LOA_HIGH));
+  }
+
+  private static RequestedAuthnContext createRequestedAuthnContext(
+      final AuthnContextComparisonTypeEnumeration comparison, final String... uris) {
+    final RequestedAuthnContext requestedAuthnContext =
+        (RequestedAuthnContext) XMLObjectSupport.buildXMLObject(RequestedAuthnContext.DEFAULT_ELEMENT_NAME);
+    requestedAuthnContext.setComparison(comparison);
+    for (final String uri : uris) {
+      final AuthnContextClassRef ref =
+          (AuthnContextClassRef) XMLObjectSupport.buildXMLObject(AuthnContextClassRef.DEFAULT_ELEMENT_NAME);
+      ref.setURI(uri);
+      requestedAuthnContext.getAuthnContextClassRefs().add(ref);
+    }
+    return requestedAuthnContext;
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.core.xml.io.Marshaller;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.w3c.dom.Element;
+import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
+import se.swedenconnect.opensaml.eidas.metadata.MetadataLocation;
+import se.swedenconnect.opensaml.eidas.metadata.MetadataServiceList;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Test cases for {@link XMLObjectProviderInstrumentation}.
+ *
+ * @author Martin Lindström
+ */
+public class XMLObjectProviderInstrumentationTest extends OpenSAMLTestBase {
+
+  @AfterEach
+  public void uninstall() {
+    XMLObjectProviderInstrumentation.uninstall();
+  }
+
+  @Test
+  public void testProviderNames() {
+    Assertions.assertTrue(
+        XMLObjectProviderInstrumentation.getProviderNames().contains(MetadataServiceList.DEFAULT_ELEMENT_NAME));
+  }
+
+  @Test
+  public void testInstrumentation() throws Exception {
+    final Marshaller original =
+        XMLObjectProviderRegistrySupport.getMarshallerFactory().getMarshaller(MetadataServiceList.DEFAULT_ELEMENT_NAME);
+    Assertions.assertFalse(original instanceof InstrumentedMarshaller);
+
+    final InMemoryXMLObjectProviderMetrics metrics = new InMemoryXMLObjectProviderMetrics();
+    XMLObjectProviderInstrumentation.install(metrics);
+    Assertions.assertTrue(XMLObjectProviderInstrumentation.isInstalled());
+
+    // Installing again should not wrap twice
+    XMLObjectProviderInstrumentation.install(metrics);
+
+    final Element element = loadElement("mdservicelist.xml");
+    final MetadataServiceList mdsl =
+        (MetadataServiceList) XMLObjectSupport.getUnmarshaller(element).unmarshall(element);
+
+    final InMemoryXMLObjectProviderMetrics.Statistics mdslStats =
+        metrics.getUnmarshallingStatistics(MetadataServiceList.DEFAULT_ELEMENT_NAME);
+    Assertions.assertNotNull(mdslStats);
+    Assertions.assertEquals(1, mdslStats.getCount());
+    Assertions.assertEquals(1, mdslStats.getSizeCount());
+    Assertions.assertTrue(mdslStats.getTotalSize() > 100);
+    Assertions.assertEquals(1, Arrays.stream(mdslStats.getHistogram()).sum());
+
+    final InMemoryXMLObjectProviderMetrics.Statistics locationStats =
+        metrics.getUnmarshallingStatistics(MetadataLocation.DEFAULT_ELEMENT_NAME);
+    Assertions.assertNotNull(locationStats);
+    Assertions.assertEquals(30, locationStats.getCount());
+
+    // Sizes are only calculated for the outermost element
+    Assertions.assertEquals(0, locationStats.getSizeCount());
+    Assertions.assertEquals(0, locationStats.getTotalSize());
+
+    mdsl.releaseDOM();
+    mdsl.releaseChildrenDOM(true);
+    XMLObjectSupport.marshall(mdsl);
+    Assertions.assertEquals(1, metrics.getMarshallingStatistics(MetadataServiceList.DEFAULT_ELEMENT_NAME).getCount());
+
+    XMLObjectProviderInstrumentation.uninstall();
+    Assertions.assertFalse(XMLObjectProviderInstrumentation.isInstalled());
+    Assertions.assertSame(original, XMLObjectProviderRegistrySupport.getMarshallerFactory()
+        .getMarshaller(MetadataServiceList.DEFAULT_ELEMENT_NAME));
+  }
+
+  @Test
+  public void testSizeNotRequired() throws Exception {
+    final List<Integer> sizes = new CopyOnWriteArrayList<>();
+    XMLObjectProviderInstrumentation.install(new XMLObjectProviderMetrics() {
+      @Override
+      public void unmarshalled(final QName providerName, final long durationNanos, final int size) {
+        sizes.add(size);
+      }
+    });
+
+    final Element element = loadElement("mdservicelist.xml");
+    XMLObjectSupport.getUnmarshaller(element).unmarshall(element);
+
+    Assertions.assertFalse(sizes.isEmpty());
+    Assertions.assertTrue(sizes.stream().allMatch(s -> s == XMLObjectProviderMetrics.UNKNOWN_SIZE));
+  }
+
+}
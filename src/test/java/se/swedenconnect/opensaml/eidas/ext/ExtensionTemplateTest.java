@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.ext;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.saml2.core.AuthnRequest;
+import org.opensaml.saml.saml2.core.Extensions;
+import org.w3c.dom.Element;
+import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
+
+import java.util.List;
+
+/**
+ * Test cases for {@link ExtensionTemplate} and {@link ExtensionTemplateCache}.
+ *
+ * @author Martin Lindström
+ */
+public class ExtensionTemplateTest extends OpenSAMLTestBase {
+
+  @Test
+  public void testCreateExtensions() throws Exception {
+    final ExtensionTemplate template = ExtensionTemplate.create(createExtensionElements("SE"));
+
+    final Extensions e1 = template.createExtensions();
+    final Extensions e2 = template.createExtensions();
+    Assertions.assertNotSame(e1, e2);
+    Assertions.assertNotNull(e1.getDOM());
+    Assertions.assertNotSame(e1.getDOM(), e2.getDOM());
+
+    final AuthnRequest request = (AuthnRequest) XMLObjectSupport.buildXMLObject(AuthnRequest.DEFAULT_ELEMENT_NAME);
+    request.setID("_abc");
+    request.setExtensions(e1);
+    final Element element = XMLObjectSupport.marshall(request);
+
+    final AuthnRequest request2 = (AuthnRequest) XMLObjectSupport.getUnmarshaller(element).unmarshall(element);
+    final List<XMLObject> extensions = request2.getExtensions().getUnknownXMLObjects();
+    Assertions.assertEquals(3, extensions.size());
+    Assertions.assertEquals(SPTypeEnumeration.PUBLIC, ((SPType) extensions.get(0)).getType());
+    Assertions.assertEquals("SE", ((NodeCountry) extensions.get(1)).getNodeCountry());
+    Assertions.assertEquals(2, ((RequestedAttributes) extensions.get(2)).getRequestedAttributes().size());
+
+    // The second copy is still intact
+    Assertions.assertEquals(3, e2.getUnknownXMLObjects().size());
+  }
+
+  @Test
+  public void testCache() throws Exception {
+    final ExtensionTemplateCache<String> cache = new ExtensionTemplateCache<>(2);
+
+    final ExtensionTemplate t1 = cache.get("sp1", () -> createExtensionElements("SE"));
+    Assertions.assertSame(t1, cache.get("sp1", () -> Assertions.fail("Expected cached template")));
+    cache.get("sp2", () -> createExtensionElements("NO"));
+    cache.get("sp1", () -> Assertions.fail("Expected cached template"));
+    cache.get("sp3", () -> createExtensionElements("DK"));
+    Assertions.assertEquals(2, cache.size());
+
+    // sp2 was least recently used and should have been evicted
+    Assertions.assertSame(t1, cache.get("sp1", () -> Assertions.fail("Expected cached template")));
+    final NodeCountry country = (NodeCountry) cache.get("sp2", () -> createExtensionElements("FI"))
+        .createExtensions().getUnknownXMLObjects().get(1);
+    Assertions.assertEquals("FI", country.getNodeCountry());
+
+    cache.clear();
+    Assertions.assertEquals(0, cache.size());
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new ExtensionTemplateCache<String>(0));
+  }
+
+  private static List<XMLObject> createExtensionElements(final String nodeCountry) {
+    final SPType spType = (SPType) XMLObjectSupport.buildXMLObject(SPType.DEFAULT_ELEMENT_NAME);
+    spType.setType(SPTypeEnumeration.PUBLIC);
+    final NodeCountry country = (NodeCountry) XMLObjectSupport.buildXMLObject(NodeCountry.DEFAULT_ELEMENT_NAME);
+    country.setNodeCountry(nodeCountry);
+    final RequestedAttributes requestedAttributes =
+        (RequestedAttributes) XMLObjectSupport.buildXMLObject(RequestedAttributes.DEFAULT_ELEMENT_NAME);
+    requestedAttributes.getRequestedAttributes().add(RequestedAttributeTemplates.PERSON_IDENTIFIER(true, true));
+    requestedAttributes.getRequestedAttributes().add(RequestedAttributeTemplates.DATE_OF_BIRTH(false, false));
+    return List.of(spType, country, requestedAttributes);
+  }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.ext;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.saml2.core.Attribute;
+import org.w3c.dom.Element;
+import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
+import se.swedenconnect.opensaml.eidas.ext.attributes.AttributeConstants;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test cases for {@link RequestedAttributeRegistry}.
+ *
+ * @author Martin Lindström
+ */
+public class RequestedAttributeRegistryTest extends OpenSAMLTestBase {
+
+  @Test
+  public void testCreate() throws Exception {
+    final RequestedAttributeRegistry registry = new RequestedAttributeRegistry();
+
+    final RequestedAttribute ra1 =
+        registry.create(AttributeConstants.EIDAS_PERSON_IDENTIFIER_ATTRIBUTE_NAME, true, true);
+    final RequestedAttribute ra2 =
+        registry.create(AttributeConstants.EIDAS_PERSON_IDENTIFIER_ATTRIBUTE_NAME, true, true);
+    Assertions.assertNotSame(ra1, ra2);
+    Assertions.assertEquals(AttributeConstants.EIDAS_PERSON_IDENTIFIER_ATTRIBUTE_NAME, ra1.getName());
+    Assertions.assertEquals(AttributeConstants.EIDAS_PERSON_IDENTIFIER_ATTRIBUTE_FRIENDLY_NAME, ra1.getFriendlyName());
+    Assertions.assertEquals(Attribute.URI_REFERENCE, ra1.getNameFormat());
+    Assertions.assertTrue(ra1.isRequired());
+
+    final RequestedAttribute expected = RequestedAttributeTemplates.CURRENT_FAMILY_NAME(false, false);
+    final RequestedAttribute ra3 =
+        registry.create(AttributeConstants.EIDAS_CURRENT_FAMILY_NAME_ATTRIBUTE_NAME, false, false);
+    Assertions.assertEquals(expected.getName(), ra3.getName());
+    Assertions.assertNull(ra3.getFriendlyName());
+    Assertions.assertFalse(ra3.isRequired());
+
+    // Friendly name instead of name
+    final RequestedAttribute ra4 = registry.create(
+        AttributeConstants.EIDAS_LEGAL_PERSON_IDENTIFIER_ATTRIBUTE_FRIENDLY_NAME, null, true);
+    Assertions.assertEquals(AttributeConstants.EIDAS_LEGAL_PERSON_IDENTIFIER_ATTRIBUTE_NAME, ra4.getName());
+    Assertions.assertEquals(AttributeConstants.EIDAS_LEGAL_PERSON_IDENTIFIER_ATTRIBUTE_FRIENDLY_NAME,
+        ra4.getFriendlyName());
+
+    // Unknown attribute
+    final RequestedAttribute ra5 = registry.create("http://www.example.com/attr", true, true);
+    Assertions.assertEquals("http://www.example.com/attr", ra5.getName());
+    Assertions.assertNull(ra5.getFriendlyName());
+
+    // Representative legal person and e-Justice attributes
+    final RequestedAttributeRegistry.Definition definition = RequestedAttributeRegistry.Definition.of(
+        AttributeConstants.EIDAS_REPRESENTATIVE_LEI_ATTRIBUTE_FRIENDLY_NAME, false, true);
+    Assertions.assertEquals(AttributeConstants.EIDAS_REPRESENTATIVE_LEI_ATTRIBUTE_NAME, definition.name());
+    Assertions.assertEquals(AttributeConstants.EIDAS_REPRESENTATIVE_LEI_ATTRIBUTE_FRIENDLY_NAME,
+        definition.friendlyName());
+    Assertions.assertEquals(AttributeConstants.EJUSTICE_LEGAL_PERSON_ROLE_ATTRIBUTE_FRIENDLY_NAME,
+        registry.create(AttributeConstants.EJUSTICE_LEGAL_PERSON_ROLE_ATTRIBUTE_NAME, null, true).getFriendlyName());
+  }
+
+  @Test
+  public void testCreateRequestedAttributes() throws Exception {
+    final RequestedAttributeRegistry registry = new RequestedAttributeRegistry();
+
+    final RequestedAttributes attributes = registry.createRequestedAttributes(List.of(
+        RequestedAttributeRegistry.Definition.of(
+            AttributeConstants.EIDAS_PERSON_IDENTIFIER_ATTRIBUTE_NAME, true, true),
+        RequestedAttributeRegistry.Definition.of(
+            AttributeConstants.EIDAS_DATE_OF_BIRTH_ATTRIBUTE_FRIENDLY_NAME, false, false)));
+    Assertions.assertEquals(2, attributes.getRequestedAttributes().size());
+    Assertions.assertEquals(AttributeConstants.EIDAS_DATE_OF_BIRTH_ATTRIBUTE_NAME,
+        attributes.getRequestedAttributes().get(1).getName());
+    Assertions.assertNull(attributes.getRequestedAttributes().get(1).getFriendlyName());
+
+    final Map<String, Boolean> config = new LinkedHashMap<>();
+    config.put("PersonIdentifier", true);
+    config.put("FamilyName", true);
+    config.put("Gender", false);
+    final RequestedAttributes attributes2 = registry.createRequestedAttributes(config, true);
+
+    final Element element = XMLObjectSupport.marshall(attributes2);
+    final RequestedAttributes attributes3 =
+        (RequestedAttributes) XMLObjectSupport.getUnmarshaller(element).unmarshall(element);
+    Assertions.assertEquals(List.of(AttributeConstants.EIDAS_PERSON_IDENTIFIER_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_CURRENT_FAMILY_NAME_ATTRIBUTE_NAME, AttributeConstants.EIDAS_GENDER_ATTRIBUTE_NAME),
+        attributes3.getRequestedAttributes().stream().map(RequestedAttribute::getName).toList());
+    Assertions.assertFalse(attributes3.getRequestedAttributes().get(2).isRequired());
+  }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.ext.attributes;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opensaml.core.xml.XMLObjectBuilder;
+import org.opensaml.core.xml.XMLObjectBuilderFactory;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.core.xml.schema.XSString;
+import org.opensaml.saml.saml2.core.AttributeValue;
+import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
+import se.swedenconnect.opensaml.eidas.ext.attributes.impl.CurrentFamilyNameTypeBuilder;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test cases for {@link AttributeUtils}.
+ *
+ * @author Martin Lindström
+ */
+public class AttributeUtilsTest extends OpenSAMLTestBase {
+
+  @Test
+  public void testCreateEidasAttributeValueObject() {
+    final CurrentFamilyNameType value = AttributeUtils.createAttributeValueObject(CurrentFamilyNameType.class);
+    Assertions.assertEquals(AttributeValue.DEFAULT_ELEMENT_NAME, value.getElementQName());
+    Assertions.assertEquals(CurrentFamilyNameType.TYPE_NAME, value.getSchemaType());
+
+    final CurrentAddressType address = AttributeUtils.createAttributeValueObject(CurrentAddressType.class);
+    Assertions.assertEquals(CurrentAddressType.TYPE_NAME, address.getSchemaType());
+
+    final PersonIdentifierType id = AttributeUtils.createAttributeValueObject(PersonIdentifierType.class);
+    Assertions.assertEquals(PersonIdentifierType.TYPE_NAME, id.getSchemaType());
+  }
+
+  @Test
+  public void testCreateOtherAttributeValueObject() {
+    final XSString value = AttributeUtils.createAttributeValueObject(XSString.class);
+    Assertions.assertEquals(AttributeValue.DEFAULT_ELEMENT_NAME, value.getElementQName());
+    Assertions.assertEquals(XSString.TYPE_NAME, value.getSchemaType());
+  }
+
+  @Test
+  public void testBuilderRegisteredAfterFirstUse() {
+    AttributeUtils.createAttributeValueObject(CurrentFamilyNameType.class);
+
+    final XMLObjectBuilderFactory builderFactory = XMLObjectProviderRegistrySupport.getBuilderFactory();
+    final XMLObjectBuilder<?> original = builderFactory.getBuilder(CurrentFamilyNameType.TYPE_NAME);
+    final AtomicInteger calls = new AtomicInteger();
+    builderFactory.registerBuilder(CurrentFamilyNameType.TYPE_NAME, new CurrentFamilyNameTypeBuilder() {
+      @Override
+      public CurrentFamilyNameType buildObject(
+          final String namespaceURI, final String localName, final String namespacePrefix) {
+        calls.incrementAndGet();
+        return super.buildObject(namespaceURI, localName, namespacePrefix);
+      }
+    });
+    try {
+      AttributeUtils.createAttributeValueObject(CurrentFamilyNameType.class);
+      Assertions.assertEquals(1, calls.get());
+    }
+    finally {
+      builderFactory.registerBuilder(CurrentFamilyNameType.TYPE_NAME, original);
+    }
+  }
+
+  @Test
+  public void testCreateAttributeValueObjectNoTypeName() {
+    Assertions.assertThrows(RuntimeException.class,
+        () -> AttributeUtils.createAttributeValueObject(TransliterationStringType.class));
+  }
+
+}
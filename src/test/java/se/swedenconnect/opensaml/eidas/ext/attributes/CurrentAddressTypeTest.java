@@ -17,7 +17,9 @@ package se.swedenconnect.opensaml.eidas.ext.attributes;
 
 import java.io.ByteArrayInputStream;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
 
 import org.junit.jupiter.api.Assertions;
@@ -27,6 +29,7 @@ import org.opensaml.core.xml.XMLObject;
 import org.opensaml.core.xml.XMLObjectBuilder;
 import org.opensaml.core.xml.XMLObjectBuilderFactory;
 import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.core.xml.io.Marshaller;
 import org.opensaml.core.xml.util.XMLObjectSupport;
 import org.opensaml.saml.saml2.core.Attribute;
 import org.opensaml.saml.saml2.core.AttributeValue;
@@ -38,6 +41,8 @@ import net.shibboleth.shared.codec.Base64Support;
 import net.shibboleth.shared.xml.SerializeSupport;
 import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
 import se.swedenconnect.opensaml.eidas.common.EidasConstants;
+import se.swedenconnect.opensaml.eidas.ext.attributes.address.PostName;
+import se.swedenconnect.opensaml.eidas.ext.attributes.address.impl.PostNameBuilder;
 
 /**
  * Test cases for {@link CurrentAddressType} and {@link CurrentAddressStructuredType}.
@@ -134,6 +139,35 @@ public class CurrentAddressTypeTest extends OpenSAMLTestBase {
 
   }
 
+  /**
+   * Tests that values holding characters that must be escaped, or that are not ASCII, survive a marshalling and
+   * unmarshalling round trip.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testMarshallAndUnmarshallEscapedValues() throws Exception {
+
+    final CurrentAddressType address = (CurrentAddressType) XMLObjectProviderRegistrySupport.getBuilderFactory()
+        .getBuilder(CurrentAddressType.TYPE_NAME)
+        .buildObject(CurrentAddressType.TYPE_NAME.getNamespaceURI(), CurrentAddressType.TYPE_NAME.getLocalPart(),
+            "eidas");
+
+    address.setThoroughfare("Smith & Sons <Lane>");
+    address.setPostName("Arnoltice u Děčína");
+    address.setLocatorName("Grand Hôtel \uD83C\uDFE8");
+
+    final Element element = XMLObjectSupport.marshall(address);
+    final String decoded = new String(Base64Support.decode(element.getFirstChild().getNodeValue()), "UTF-8");
+    Assertions.assertTrue(decoded.contains("<eidas:Thoroughfare>Smith &amp; Sons &lt;Lane&gt;</eidas:Thoroughfare>"));
+
+    final CurrentAddressType address2 =
+        (CurrentAddressType) XMLObjectSupport.getUnmarshaller(CurrentAddressType.TYPE_NAME).unmarshall(element);
+    Assertions.assertEquals("Smith & Sons <Lane>", address2.getThoroughfare());
+    Assertions.assertEquals("Arnoltice u Děčína", address2.getPostName());
+    Assertions.assertEquals("Grand Hôtel \uD83C\uDFE8", address2.getLocatorName());
+  }
+
   /**
    * Test unmarshalling an attribute holding a CurrentAddress type. Example is from eIDAS specs.
    * <p>
@@ -218,6 +252,110 @@ public class CurrentAddressTypeTest extends OpenSAMLTestBase {
     Assertions.assertEquals("Arnoltice", address.getCvaddressArea());
   }
 
+  /**
+   * Tests unmarshalling of address elements that use entity references, CDATA sections, unknown elements and a
+   * namespace prefix bound in an ancestor element.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testUnmarshallMixedContents() throws Exception {
+    final String addressElements = "<np:Thoroughfare>Rue &amp; Avenue</np:Thoroughfare>"
+        + "<np:Unknown>ignored</np:Unknown>"
+        + "<np:PostName><![CDATA[Bruxelles <BE>]]></np:PostName>"
+        + "<np:PostCode>  1040  </np:PostCode>";
+
+    final String xml =
+        "<saml:Attribute xmlns:saml=\"urn:oasis:names:tc:SAML:2.0:assertion\" xmlns:np=\"http://eidas.europa.eu/attributes/naturalperson\" Name=\"http://eidas.europa.eu/attributes/naturalperson/CurrentAddress\" NameFormat=\"urn:oasis:names:tc:SAML:2.0:attrname-format:uri\">"
+            + "<saml:AttributeValue xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xsi:type=\"np:CurrentAddressType\">"
+            + Base64Support.encode(addressElements.getBytes("UTF-8"), true)
+            + "</saml:AttributeValue>"
+            + "</saml:Attribute>";
+
+    final Document doc =
+        XMLObjectProviderRegistrySupport.getParserPool().parse(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+
+    final Attribute attribute = (Attribute) XMLObjectSupport.getUnmarshaller(Attribute.DEFAULT_ELEMENT_NAME)
+        .unmarshall(doc.getDocumentElement());
+
+    final CurrentAddressType address = (CurrentAddressType) attribute.getAttributeValues().get(0);
+    Assertions.assertEquals("Rue & Avenue", address.getThoroughfare());
+    Assertions.assertEquals("Bruxelles <BE>", address.getPostName());
+    Assertions.assertEquals("1040", address.getPostCode());
+    Assertions.assertNull(address.getPoBox());
+    Assertions.assertEquals(3, address.getOrderedChildren().size());
+  }
+
+  /**
+   * Tests unmarshalling of several address values in the same document where the namespace prefix used by the address
+   * elements is bound differently in different scopes.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testUnmarshallSeveralValuesNamespaceScopes() throws Exception {
+    final String value = Base64Support.encode(
+        "<np:PostName>Solna</np:PostName><np:PostCode>19174</np:PostCode>".getBytes("UTF-8"), false);
+
+    final String xml =
+        "<saml:Attribute xmlns:saml=\"urn:oasis:names:tc:SAML:2.0:assertion\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xmlns:np=\"urn:example:other\" xmlns:eidasnp=\"http://eidas.europa.eu/attributes/naturalperson\" Name=\"http://eidas.europa.eu/attributes/naturalperson/CurrentAddress\" NameFormat=\"urn:oasis:names:tc:SAML:2.0:attrname-format:uri\">"
+            + "<saml:AttributeValue xmlns:np=\"http://eidas.europa.eu/attributes/naturalperson\" xsi:type=\"eidasnp:CurrentAddressType\">"
+            + value + "</saml:AttributeValue>"
+            + "<saml:AttributeValue xsi:type=\"eidasnp:CurrentAddressType\">" + value + "</saml:AttributeValue>"
+            + "<saml:AttributeValue xmlns:np=\"http://eidas.europa.eu/attributes/naturalperson\" xsi:type=\"eidasnp:CurrentAddressType\">"
+            + value + "</saml:AttributeValue>"
+            + "</saml:Attribute>";
+
+    final Document doc =
+        XMLObjectProviderRegistrySupport.getParserPool().parse(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+
+    final Attribute attribute = (Attribute) XMLObjectSupport.getUnmarshaller(Attribute.DEFAULT_ELEMENT_NAME)
+        .unmarshall(doc.getDocumentElement());
+
+    final List<XMLObject> values = attribute.getAttributeValues();
+    Assertions.assertEquals(3, values.size());
+    Assertions.assertEquals("Solna", ((CurrentAddressType) values.get(0)).getPostName());
+    Assertions.assertEquals("19174", ((CurrentAddressType) values.get(0)).getPostCode());
+    Assertions.assertNull(((CurrentAddressType) values.get(1)).getPostName());
+    Assertions.assertNull(((CurrentAddressType) values.get(1)).getPostCode());
+    Assertions.assertEquals("Solna", ((CurrentAddressType) values.get(2)).getPostName());
+  }
+
+  /**
+   * Tests that namespace bindings changed between two unmarshalling operations of the same document are honoured.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testUnmarshallAfterNamespaceChange() throws Exception {
+    final String value = Base64Support.encode("<np:PostName>Solna</np:PostName>".getBytes("UTF-8"), false);
+
+    final String xml =
+        "<saml:Attribute xmlns:saml=\"urn:oasis:names:tc:SAML:2.0:assertion\" "
+            + "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" "
+            + "xmlns:eidasnp=\"http://eidas.europa.eu/attributes/naturalperson\" "
+            + "Name=\"http://eidas.europa.eu/attributes/naturalperson/CurrentAddress\" "
+            + "NameFormat=\"urn:oasis:names:tc:SAML:2.0:attrname-format:uri\">"
+            + "<saml:AttributeValue xmlns:np=\"urn:example:other\" xsi:type=\"eidasnp:CurrentAddressType\">"
+            + value + "</saml:AttributeValue>"
+            + "</saml:Attribute>";
+
+    final Document doc =
+        XMLObjectProviderRegistrySupport.getParserPool().parse(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+
+    Attribute attribute = (Attribute) XMLObjectSupport.getUnmarshaller(Attribute.DEFAULT_ELEMENT_NAME)
+        .unmarshall(doc.getDocumentElement());
+    Assertions.assertNull(((CurrentAddressType) attribute.getAttributeValues().get(0)).getPostName());
+
+    final Element attributeValue = (Element) doc.getDocumentElement().getFirstChild();
+    attributeValue.setAttributeNS(
+        XMLConstants.XMLNS_ATTRIBUTE_NS_URI, "xmlns:np", "http://eidas.europa.eu/attributes/naturalperson");
+
+    attribute = (Attribute) XMLObjectSupport.getUnmarshaller(Attribute.DEFAULT_ELEMENT_NAME)
+        .unmarshall(doc.getDocumentElement());
+    Assertions.assertEquals("Solna", ((CurrentAddressType) attribute.getAttributeValues().get(0)).getPostName());
+  }
+
   /**
    * Test that creates an attribute and places a CurrentAddessType as a value.
    *
@@ -265,6 +403,60 @@ public class CurrentAddressTypeTest extends OpenSAMLTestBase {
     verify(address, address2);
   }
 
+  /**
+   * Tests that the prefix used for the address elements follows changes to the namespace declarations of the object
+   * between two marshalling operations.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testPrefixAfterNamespaceDeclarationChange() throws Exception {
+    @SuppressWarnings("unchecked")
+    final XMLObjectBuilder<CurrentAddressType> builder =
+        (XMLObjectBuilder<CurrentAddressType>) XMLObjectSupport.getBuilder(CurrentAddressType.TYPE_NAME);
+    final CurrentAddressType address = builder.buildObject(AttributeValue.DEFAULT_ELEMENT_NAME);
+    fill(address);
+
+    final Marshaller marshaller = XMLObjectSupport.getMarshaller(CurrentAddressType.TYPE_NAME);
+    Element element = marshaller.marshall(address);
+    Assertions.assertTrue(new String(Base64Support.decode(element.getFirstChild().getNodeValue()), "UTF-8")
+        .startsWith("<" + CurrentAddressType.TYPE_NAME.getPrefix() + ":"));
+
+    address.releaseDOM();
+    address.getNamespaceManager().registerNamespaceDeclaration(new Namespace(EidasConstants.EIDAS_NP_NS, "np"));
+    element = marshaller.marshall(address);
+    Assertions.assertTrue(new String(Base64Support.decode(element.getFirstChild().getNodeValue()), "UTF-8")
+        .startsWith("<np:"));
+  }
+
+  /**
+   * Tests that an address element builder registered after the first use is honoured.
+   */
+  @Test
+  public void testAddressElementBuilderRegisteredAfterFirstUse() {
+    final XMLObjectBuilderFactory builderFactory = XMLObjectProviderRegistrySupport.getBuilderFactory();
+    final CurrentAddressType address = AttributeUtils.createAttributeValueObject(CurrentAddressType.class);
+    address.setPostName("Solna");
+
+    final XMLObjectBuilder<?> original = builderFactory.getBuilder(PostName.DEFAULT_ELEMENT_NAME);
+    final AtomicInteger calls = new AtomicInteger();
+    builderFactory.registerBuilder(PostName.DEFAULT_ELEMENT_NAME, new PostNameBuilder() {
+      @Override
+      public PostName buildObject(final String namespaceURI, final String localName, final String namespacePrefix) {
+        calls.incrementAndGet();
+        return super.buildObject(namespaceURI, localName, namespacePrefix);
+      }
+    });
+    try {
+      address.setPostName("Stockholm");
+      Assertions.assertEquals(1, calls.get());
+      Assertions.assertEquals("Stockholm", address.getPostName());
+    }
+    finally {
+      builderFactory.registerBuilder(PostName.DEFAULT_ELEMENT_NAME, original);
+    }
+  }
+
   private static void fill(final CurrentAddressStructuredType address) {
     address.setLocatorDesignator("6 tr");
     address.setLocatorName("10");
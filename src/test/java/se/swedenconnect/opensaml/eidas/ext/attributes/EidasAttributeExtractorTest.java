@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.ext.attributes;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.core.xml.schema.XSAny;
+import org.opensaml.core.xml.schema.XSString;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.saml2.core.Attribute;
+import org.w3c.dom.Element;
+import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Test cases for {@link EidasAttributeExtractor}.
+ *
+ * @author Martin Lindström
+ */
+public class EidasAttributeExtractorTest extends OpenSAMLTestBase {
+
+  /**
+   * Tests extracting natural person, representative and legal person attributes.
+   */
+  @Test
+  public void testExtract() {
+    final EidasAttributes attributes = EidasAttributeExtractor.getInstance().extract(createAttributes());
+
+    final EidasNaturalPerson person = attributes.getNaturalPerson();
+    Assertions.assertNotNull(person);
+    Assertions.assertEquals("ES/AT/02635542Y", person.getPersonIdentifier());
+    Assertions.assertEquals("Garcia", person.getCurrentFamilyName());
+    Assertions.assertEquals(LocalDate.of(1965, 1, 1), person.getDateOfBirth());
+    Assertions.assertEquals(GenderTypeEnumeration.MALE, person.getGender());
+    Assertions.assertNull(person.getCurrentGivenName());
+    Assertions.assertTrue(person.getNationalities().isEmpty());
+
+    final EidasNaturalPerson representative = attributes.getRepresentativeNaturalPerson();
+    Assertions.assertNotNull(representative);
+    Assertions.assertEquals("SE/ES/197001011234", representative.getPersonIdentifier());
+    Assertions.assertNull(representative.getCurrentFamilyName());
+
+    final EidasLegalPerson legalPerson = attributes.getLegalPerson();
+    Assertions.assertNotNull(legalPerson);
+    Assertions.assertEquals("Example Inc", legalPerson.getLegalName());
+    Assertions.assertNull(legalPerson.getLei());
+
+    final EidasLegalPerson representativeLegalPerson = attributes.getRepresentativeLegalPerson();
+    Assertions.assertNotNull(representativeLegalPerson);
+    Assertions.assertEquals("5493001KJTIIGC8Y1R12", representativeLegalPerson.getLei());
+    Assertions.assertNull(representativeLegalPerson.getLegalName());
+    Assertions.assertNull(attributes.getEJusticeNaturalPersonRole());
+  }
+
+  /**
+   * Tests an extractor that only extracts the given attributes.
+   */
+  @Test
+  public void testExtractSelected() {
+    final EidasAttributes attributes = EidasAttributeExtractor.forAttributes(List.of(
+        AttributeConstants.EIDAS_PERSON_IDENTIFIER_ATTRIBUTE_NAME, "http://www.example.com/unknown"))
+        .extract(createAttributes());
+
+    final EidasNaturalPerson person = attributes.getNaturalPerson();
+    Assertions.assertNotNull(person);
+    Assertions.assertEquals("ES/AT/02635542Y", person.getPersonIdentifier());
+    Assertions.assertNull(person.getCurrentFamilyName());
+    Assertions.assertNull(person.getDateOfBirth());
+    Assertions.assertNull(attributes.getRepresentativeNaturalPerson());
+    Assertions.assertNull(attributes.getLegalPerson());
+  }
+
+  /**
+   * Tests that values that are not of the eIDAS types are handled.
+   */
+  @Test
+  public void testNonEidasValueTypes() {
+    final Attribute dateOfBirth = AttributeUtils.createAttribute(
+        AttributeConstants.EIDAS_DATE_OF_BIRTH_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_DATE_OF_BIRTH_ATTRIBUTE_FRIENDLY_NAME);
+    AttributeUtils.addAttributeValue(dateOfBirth, createString("1970-12-24"));
+    final Attribute nationality = AttributeUtils.createAttribute(
+        AttributeConstants.EIDAS_NATIONALITY_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_NATIONALITY_ATTRIBUTE_FRIENDLY_NAME);
+    AttributeUtils.addAttributeValue(nationality, createString("SE"));
+    AttributeUtils.addAttributeValue(nationality, createString("FI"));
+
+    final EidasNaturalPerson person =
+        EidasAttributeExtractor.getInstance().extract(List.of(dateOfBirth, nationality)).getNaturalPerson();
+    Assertions.assertNotNull(person);
+    Assertions.assertEquals(LocalDate.of(1970, 12, 24), person.getDateOfBirth());
+    Assertions.assertEquals(List.of("SE", "FI"), person.getNationalities());
+  }
+
+  /**
+   * Tests that legal person addresses, that are not unmarshalled as {@code CurrentAddressType} values, are decoded.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testLegalPersonAddress() throws Exception {
+    // Address elements declaring their own namespace, and a value without DOM
+    final Attribute address = AttributeUtils.createAttribute(
+        AttributeConstants.EIDAS_LEGAL_PERSON_ADDRESS_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_LEGAL_PERSON_ADDRESS_ATTRIBUTE_FRIENDLY_NAME);
+    AttributeUtils.addAttributeValue(address, createString(Base64.getEncoder().encodeToString((
+        "<eidas-legal:LocatorDesignator xmlns:eidas-legal=\"http://eidas.europa.eu/attributes/legalperson\">22"
+            + "</eidas-legal:LocatorDesignator>"
+            + "<eidas-legal:Thoroughfare xmlns:eidas-legal=\"http://eidas.europa.eu/attributes/legalperson\">"
+            + "Arcacia Avenue</eidas-legal:Thoroughfare>").getBytes(StandardCharsets.UTF_8))));
+
+    // Address elements whose prefix is declared by an ancestor of the (unmarshalled) value
+    final String xml = "<saml2:Attribute xmlns:saml2=\"urn:oasis:names:tc:SAML:2.0:assertion\" "
+        + "xmlns:eidas-legal=\"http://eidas.europa.eu/attributes/legalperson\" "
+        + "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" "
+        + "Name=\"" + AttributeConstants.EIDAS_REPRESENTATIVE_LEGAL_PERSON_ADDRESS_ATTRIBUTE_NAME + "\">"
+        + "<saml2:AttributeValue xsi:type=\"eidas-legal:LegalPersonAddressType\">"
+        + Base64.getEncoder().encodeToString(
+            "<eidas-legal:PostCode>SW1A 1AA</eidas-legal:PostCode><eidas-legal:PostName>London</eidas-legal:PostName>"
+                .getBytes(StandardCharsets.UTF_8))
+        + "</saml2:AttributeValue></saml2:Attribute>";
+    final Element element = XMLObjectProviderRegistrySupport.getParserPool()
+        .parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))).getDocumentElement();
+    final Attribute representativeAddress = (Attribute) XMLObjectSupport.getUnmarshaller(element).unmarshall(element);
+    Assertions.assertInstanceOf(XSAny.class, representativeAddress.getAttributeValues().get(0));
+
+    final EidasAttributes attributes =
+        EidasAttributeExtractor.getInstance().extract(List.of(address, representativeAddress));
+
+    final CurrentAddressType legalPersonAddress = attributes.getLegalPerson().getLegalPersonAddress();
+    Assertions.assertNotNull(legalPersonAddress);
+    Assertions.assertEquals("22", legalPersonAddress.getLocatorDesignator());
+    Assertions.assertEquals("Arcacia Avenue", legalPersonAddress.getThoroughfare());
+
+    final CurrentAddressType representativeLegalPersonAddress =
+        attributes.getRepresentativeLegalPerson().getLegalPersonAddress();
+    Assertions.assertNotNull(representativeLegalPersonAddress);
+    Assertions.assertEquals("SW1A 1AA", representativeLegalPersonAddress.getPostCode());
+    Assertions.assertEquals("London", representativeLegalPersonAddress.getPostName());
+  }
+
+  private static List<Attribute> createAttributes() {
+    final Attribute id = AttributeUtils.createAttribute(
+        AttributeConstants.EIDAS_PERSON_IDENTIFIER_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_PERSON_IDENTIFIER_ATTRIBUTE_FRIENDLY_NAME);
+    final PersonIdentifierType idValue = AttributeUtils.createAttributeValueObject(PersonIdentifierType.class);
+    idValue.setValue("ES/AT/02635542Y");
+    AttributeUtils.addAttributeValue(id, idValue);
+
+    // Non-Latin value first, the Latin value should be picked.
+    final Attribute familyName = AttributeUtils.createAttribute(
+        AttributeConstants.EIDAS_CURRENT_FAMILY_NAME_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_CURRENT_FAMILY_NAME_ATTRIBUTE_FRIENDLY_NAME);
+    final CurrentFamilyNameType nonLatin = AttributeUtils.createAttributeValueObject(CurrentFamilyNameType.class);
+    nonLatin.setValue("Γκαρσία");
+    nonLatin.setLatinScript(Boolean.FALSE);
+    AttributeUtils.addAttributeValue(familyName, nonLatin);
+    final CurrentFamilyNameType latin = AttributeUtils.createAttributeValueObject(CurrentFamilyNameType.class);
+    latin.setValue("Garcia");
+    AttributeUtils.addAttributeValue(familyName, latin);
+
+    final Attribute dateOfBirth = AttributeUtils.createAttribute(
+        AttributeConstants.EIDAS_DATE_OF_BIRTH_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_DATE_OF_BIRTH_ATTRIBUTE_FRIENDLY_NAME);
+    final DateOfBirthType dateOfBirthValue = AttributeUtils.createAttributeValueObject(DateOfBirthType.class);
+    dateOfBirthValue.setDate(1965, 1, 1);
+    AttributeUtils.addAttributeValue(dateOfBirth, dateOfBirthValue);
+
+    final Attribute gender = AttributeUtils.createAttribute(
+        AttributeConstants.EIDAS_GENDER_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_GENDER_ATTRIBUTE_FRIENDLY_NAME);
+    final GenderType genderValue = AttributeUtils.createAttributeValueObject(GenderType.class);
+    genderValue.setGender(GenderTypeEnumeration.MALE);
+    AttributeUtils.addAttributeValue(gender, genderValue);
+
+    final Attribute representativeId = AttributeUtils.createAttribute(
+        AttributeConstants.EIDAS_REPRESENTATIVE_PERSON_IDENTIFIER_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_PERSON_IDENTIFIER_ATTRIBUTE_FRIENDLY_NAME);
+    final PersonIdentifierType representativeIdValue =
+        AttributeUtils.createAttributeValueObject(PersonIdentifierType.class);
+    representativeIdValue.setValue("SE/ES/197001011234");
+    AttributeUtils.addAttributeValue(representativeId, representativeIdValue);
+
+    final Attribute legalName = AttributeUtils.createAttribute(
+        AttributeConstants.EIDAS_LEGAL_NAME_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_LEGAL_NAME_ATTRIBUTE_FRIENDLY_NAME);
+    AttributeUtils.addAttributeValue(legalName, createString("Example Inc"));
+
+    final Attribute representativeLei = AttributeUtils.createAttribute(
+        AttributeConstants.EIDAS_REPRESENTATIVE_LEI_ATTRIBUTE_NAME,
+        AttributeConstants.EIDAS_REPRESENTATIVE_LEI_ATTRIBUTE_FRIENDLY_NAME);
+    AttributeUtils.addAttributeValue(representativeLei, createString("5493001KJTIIGC8Y1R12"));
+
+    return List.of(id, familyName, dateOfBirth, gender, representativeId, legalName, representativeLei);
+  }
+
+  private static XSString createString(final String value) {
+    final XSString s = AttributeUtils.createAttributeValueObject(XSString.class);
+    s.setValue(value);
+    return s;
+  }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.ext.attributes;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
+
+import java.util.List;
+
+/**
+ * Test cases for {@link PersonIdentifier} and {@link PersonIdentifierType}.
+ *
+ * @author Martin Lindström
+ */
+public class PersonIdentifierTest extends OpenSAMLTestBase {
+
+  /**
+   * Tests parsing of identifiers.
+   */
+  @Test
+  public void testParse() {
+    final PersonIdentifier id = PersonIdentifier.parse(" ES/AT/02635542Y\n");
+    Assertions.assertEquals("ES/AT/02635542Y", id.getValue());
+    Assertions.assertEquals("ES", id.getNationalityCode());
+    Assertions.assertEquals("AT", id.getDestinationNationalityCode());
+    Assertions.assertEquals("02635542Y", id.getIdentifierString());
+    Assertions.assertTrue(id.isValid());
+    Assertions.assertEquals(id, PersonIdentifier.parseStrict("ES/AT/02635542Y"));
+
+    final PersonIdentifier partial = PersonIdentifier.parse("ES/");
+    Assertions.assertEquals("ES", partial.getNationalityCode());
+    Assertions.assertNull(partial.getDestinationNationalityCode());
+    Assertions.assertNull(partial.getIdentifierString());
+    Assertions.assertFalse(partial.isValid());
+
+    Assertions.assertEquals("a/b", PersonIdentifier.parse("SE/NO/a/b").getIdentifierString());
+  }
+
+  /**
+   * Tests validation of identifiers.
+   */
+  @Test
+  public void testValidation() {
+    Assertions.assertTrue(PersonIdentifier.isValid("SE/NO/199001011234"));
+    Assertions.assertFalse(PersonIdentifier.isValid(null));
+    Assertions.assertFalse(PersonIdentifier.isValid("SE/NO/"));
+    Assertions.assertFalse(PersonIdentifier.isValid("se/NO/1234"));
+    Assertions.assertFalse(PersonIdentifier.isValid("SWE/NO/1234"));
+    Assertions.assertFalse(PersonIdentifier.isValid("SE/NO/12 34"));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> PersonIdentifier.parseStrict("SE-NO-1234"));
+
+    Assertions.assertEquals(List.of("SE/NO/", "XX"),
+        PersonIdentifier.findInvalid(List.of("SE/NO/1", "SE/NO/", "DK/FI/abc", "XX")));
+    Assertions.assertTrue(PersonIdentifier.findInvalid(List.of("SE/NO/1")).isEmpty());
+  }
+
+  /**
+   * Tests the parsed identifier of a {@link PersonIdentifierType}.
+   */
+  @Test
+  public void testAttributeValue() {
+    final PersonIdentifierType value = AttributeUtils.createAttributeValueObject(PersonIdentifierType.class);
+    Assertions.assertNull(value.getPersonIdentifier());
+    Assertions.assertNull(value.getNationalityCode());
+
+    value.setValue("ES/AT/02635542Y");
+    Assertions.assertEquals("ES", value.getNationalityCode());
+    Assertions.assertEquals("AT", value.getDestinationNationalityCode());
+    Assertions.assertEquals("02635542Y", value.getIdentifierString());
+    Assertions.assertSame(value.getPersonIdentifier(), value.getPersonIdentifier());
+
+    value.parseStringValue("SE/NO/1234");
+    Assertions.assertEquals("NO", value.getDestinationNationalityCode());
+    Assertions.assertEquals("NO", value.getPersonIdentifier().getDestinationNationalityCode());
+  }
+
+  /**
+   * The part accessors of {@link PersonIdentifierType} keep their original semantics, which differ from
+   * {@link PersonIdentifier} for values that are not well-formed.
+   */
+  @Test
+  public void testAttributeValueLegacyParts() {
+    final PersonIdentifierType value = AttributeUtils.createAttributeValueObject(PersonIdentifierType.class);
+
+    value.setValue("SE//a/b");
+    Assertions.assertEquals("SE", value.getNationalityCode());
+    Assertions.assertEquals("", value.getDestinationNationalityCode());
+    Assertions.assertEquals("a", value.getIdentifierString());
+    Assertions.assertNull(value.getPersonIdentifier().getDestinationNationalityCode());
+    Assertions.assertEquals("a/b", value.getPersonIdentifier().getIdentifierString());
+
+    value.setValue(" SE/NO/1234");
+    Assertions.assertEquals(" SE", value.getNationalityCode());
+    Assertions.assertEquals("SE", value.getPersonIdentifier().getNationalityCode());
+  }
+
+}
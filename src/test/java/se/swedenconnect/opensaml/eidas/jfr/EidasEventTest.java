@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.xmlsec.signature.support.SignatureConstants;
+import org.w3c.dom.Element;
+import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
+import se.swedenconnect.opensaml.eidas.ext.attributes.AttributeUtils;
+import se.swedenconnect.opensaml.eidas.ext.attributes.CurrentAddressType;
+import se.swedenconnect.opensaml.eidas.metadata.MetadataServiceList;
+import se.swedenconnect.opensaml.eidas.metadata.MetadataServiceListSignatureValidator;
+import se.swedenconnect.opensaml.eidas.metadata.MetadataServiceListStreamReader;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Test cases for the JFR events.
+ *
+ * @author Martin Lindström
+ */
+public class EidasEventTest extends OpenSAMLTestBase {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  public void testEvents() throws Exception {
+    final Path file = this.tempDir.resolve("eidas.jfr");
+    try (final Recording recording = new Recording()) {
+      recording.enable(SignatureValidationEvent.class).withoutThreshold();
+      recording.enable(MetadataServiceListUnmarshallingEvent.class).withoutThreshold();
+      recording.enable(CurrentAddressEncodingEvent.class).withoutThreshold();
+      recording.enable(CurrentAddressDecodingEvent.class).withoutThreshold();
+      recording.start();
+
+      final Element element = loadElement("mdservicelist.xml");
+      final MetadataServiceList mdsl =
+          (MetadataServiceList) XMLObjectSupport.getUnmarshaller(element).unmarshall(element);
+      new MetadataServiceListSignatureValidator()
+          .validateSignature(mdsl, loadCertificate("eidas-servicelist-validation-cert.crt"));
+
+      final CurrentAddressType address = AttributeUtils.createAttributeValueObject(CurrentAddressType.class);
+      address.setThoroughfare("Korta gatan");
+      address.setPostName("Solna");
+      final Element addressElement = XMLObjectSupport.marshall(address);
+      XMLObjectSupport.getUnmarshaller(addressElement).unmarshall(addressElement);
+
+      recording.stop();
+      recording.dump(file);
+    }
+
+    final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+    final RecordedEvent unmarshalling = find(events, "MetadataServiceListUnmarshalling");
+    Assertions.assertEquals(EidasEvent.SUCCESS, unmarshalling.getString("outcome"));
+    Assertions.assertEquals(14, unmarshalling.getInt("metadataLists"));
+    Assertions.assertEquals(30, unmarshalling.getInt("metadataLocations"));
+
+    final RecordedEvent validation = find(events, "MetadataServiceListSignatureValidation");
+    Assertions.assertEquals(EidasEvent.SUCCESS, validation.getString("outcome"));
+    Assertions.assertEquals(SignatureConstants.ALGO_ID_SIGNATURE_RSA_SHA256, validation.getString("algorithm"));
+
+    final RecordedEvent encoding = find(events, "CurrentAddressEncoding");
+    Assertions.assertEquals(EidasEvent.SUCCESS, encoding.getString("outcome"));
+    Assertions.assertTrue(encoding.getInt("size") > 0);
+
+    final RecordedEvent decoding = find(events, "CurrentAddressDecoding");
+    Assertions.assertEquals(EidasEvent.SUCCESS, decoding.getString("outcome"));
+    Assertions.assertTrue(decoding.getInt("size") > 0);
+  }
+
+  @Test
+  public void testStreamReaderEvent() throws Exception {
+    final Path file = this.tempDir.resolve("eidas-stream.jfr");
+    try (final Recording recording = new Recording()) {
+      recording.enable(MetadataServiceListUnmarshallingEvent.class).withoutThreshold();
+      recording.start();
+
+      final MetadataServiceListStreamReader reader =
+          new MetadataServiceListStreamReader(List.of(loadCertificate("eidas-servicelist-validation-cert.crt")));
+      try (final InputStream is = ClassLoader.getSystemResourceAsStream("mdservicelist.xml")) {
+        reader.read(is, (list, location) -> {
+        });
+      }
+
+      recording.stop();
+      recording.dump(file);
+    }
+
+    // Only the reader emits an event, the unmarshalling of the (list-less) document element is not recorded
+    final List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+        .filter(e -> e.getEventType().getName().endsWith("MetadataServiceListUnmarshalling"))
+        .toList();
+    Assertions.assertEquals(1, events.size());
+    Assertions.assertEquals(EidasEvent.SUCCESS, events.get(0).getString("outcome"));
+    Assertions.assertEquals(14, events.get(0).getInt("metadataLists"));
+    Assertions.assertEquals(30, events.get(0).getInt("metadataLocations"));
+  }
+
+  private static RecordedEvent find(final List<RecordedEvent> events, final String name) {
+    return events.stream()
+        .filter(e -> e.getEventType().getName().equals("se.swedenconnect.opensaml.eidas." + name))
+        .findFirst()
+        .orElseThrow(() -> new AssertionError("No " + name + " event recorded"));
+  }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.metadata;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import org.opensaml.security.x509.X509Credential;
+
+import net.shibboleth.shared.xml.SerializeSupport;
+import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
+import se.swedenconnect.opensaml.eidas.xmlsec.EidasSecurityConfigurationTest;
+
+/**
+ * Test cases for {@code MetadataLocationAggregator}.
+ *
+ * @author Martin Lindström
+ */
+public class MetadataLocationAggregatorTest extends OpenSAMLTestBase {
+
+  private static final String GOOD = "https://good.example.com/metadata";
+  private static final String WRONG_CERT = "https://wrongcert.example.com/metadata";
+  private static final String SUSPENDED = "https://suspended.example.com/metadata";
+  private static final String MISSING = "https://missing.example.com/metadata";
+  private static final String NOT_METADATA = "https://notmetadata.example.com/metadata";
+  private static final String SUSPENDED_LIST = "https://no.example.com/metadata";
+
+  @TempDir
+  static Path dir;
+
+  private static X509Credential signingCredential;
+
+  private static Path metadataFile;
+
+  @BeforeAll
+  public static void createMetadata() throws Exception {
+    signingCredential = loadKeyStoreCredential(
+        ClassLoader.getSystemResourceAsStream("rsa.jks"), "test", "test", "test");
+
+    final EntityDescriptor entityDescriptor =
+        (EntityDescriptor) XMLObjectSupport.buildXMLObject(EntityDescriptor.DEFAULT_ELEMENT_NAME);
+    entityDescriptor.setEntityID(GOOD);
+    entityDescriptor.setID("_metadata");
+    EidasSecurityConfigurationTest.sign(entityDescriptor, signingCredential);
+
+    metadataFile = dir.resolve("metadata.xml");
+    try (final OutputStream os = Files.newOutputStream(metadataFile)) {
+      SerializeSupport.writeNode(XMLObjectSupport.marshall(entityDescriptor), os);
+    }
+  }
+
+  /**
+   * Tests aggregating metadata for all locations of a metadata service list.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testAggregate() throws Exception {
+    final MetadataLocationAggregator aggregator = new MetadataLocationAggregator(new ResourceMetadataLocationFetcher(
+        Map.of(GOOD, metadataFile.toString(),
+            WRONG_CERT, metadataFile.toString(),
+            SUSPENDED, metadataFile.toString(),
+            NOT_METADATA, "classpath:example-assertion.xml",
+            SUSPENDED_LIST, metadataFile.toString())));
+
+    final MetadataLocationAggregator.Result result = aggregator.aggregate(createMetadataServiceList());
+    Assertions.assertEquals(6, result.getResults().size());
+    Assertions.assertEquals(1, result.getSuccessful().size());
+    Assertions.assertEquals(3, result.getFailed().size());
+    Assertions.assertEquals(2, result.getSkipped().size());
+    Assertions.assertNotNull(result.getDuration());
+
+    final MetadataLocationAggregator.LocationResult good = result.getResults().get(0);
+    Assertions.assertEquals(GOOD, good.getLocation());
+    Assertions.assertEquals("SE", good.getTerritory());
+    Assertions.assertEquals(MetadataLocationAggregator.Status.SUCCESS, good.getStatus());
+    Assertions.assertEquals(GOOD, ((EntityDescriptor) good.getMetadata()).getEntityID());
+    Assertions.assertEquals(signingCredential.getEntityCertificate(), good.getVerifiedBy());
+    Assertions.assertNotNull(good.getDuration());
+    Assertions.assertNull(good.getError());
+
+    final MetadataLocationAggregator.LocationResult wrongCert = result.getResults().get(1);
+    Assertions.assertEquals(WRONG_CERT, wrongCert.getLocation());
+    Assertions.assertEquals(MetadataLocationAggregator.Status.FAILED, wrongCert.getStatus());
+    Assertions.assertNull(wrongCert.getMetadata());
+    Assertions.assertNotNull(wrongCert.getError());
+
+    Assertions.assertEquals(MetadataLocationAggregator.Status.SKIPPED, result.getResults().get(2).getStatus());
+    Assertions.assertEquals(MetadataLocationAggregator.Status.FAILED, result.getResults().get(3).getStatus());
+    Assertions.assertEquals(MetadataLocationAggregator.Status.FAILED, result.getResults().get(4).getStatus());
+    Assertions.assertEquals(MetadataLocationAggregator.Status.SKIPPED, result.getResults().get(5).getStatus());
+  }
+
+  /**
+   * Tests that a location that does not respond in time is reported as failed, without affecting the others.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testTimeout() throws Exception {
+    final MetadataLocationFetcher fileFetcher = new ResourceMetadataLocationFetcher(
+        Map.of(GOOD, metadataFile.toString(), WRONG_CERT, metadataFile.toString()));
+    final MetadataLocationAggregator aggregator = new MetadataLocationAggregator(location -> {
+      if (WRONG_CERT.equals(location)) {
+        try {
+          Thread.sleep(10_000);
+        }
+        catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return fileFetcher.fetch(location);
+    });
+    aggregator.setTimeout(Duration.ofMillis(500));
+
+    final MetadataServiceList mdsl = createMetadataServiceList();
+    mdsl.getMetadataLists().get(0).getMetadataLocations().subList(2, 5).clear();
+    mdsl.getMetadataLists().remove(1);
+
+    final MetadataLocationAggregator.Result result = aggregator.aggregate(mdsl);
+    Assertions.assertEquals(1, result.getSuccessful().size());
+    Assertions.assertEquals(1, result.getFailed().size());
+    Assertions.assertTrue(result.getFailed().get(0).getError() instanceof TimeoutException);
+    Assertions.assertTrue(result.getDuration().compareTo(Duration.ofSeconds(5)) < 0);
+  }
+
+  private static MetadataServiceList createMetadataServiceList() throws Exception {
+    final X509Certificate wrongCert = loadCertificate("Litsec_SAML_Signing.crt");
+
+    final MetadataServiceList mdsl =
+        (MetadataServiceList) XMLObjectSupport.buildXMLObject(MetadataServiceList.DEFAULT_ELEMENT_NAME);
+
+    final MetadataList se = (MetadataList) XMLObjectSupport.buildXMLObject(MetadataList.DEFAULT_ELEMENT_NAME);
+    se.setTerritory("SE");
+    se.getMetadataLocations().add(createMetadataLocation(GOOD, wrongCert, signingCredential.getEntityCertificate()));
+    se.getMetadataLocations().add(createMetadataLocation(WRONG_CERT, wrongCert));
+    final MetadataLocation suspended = createMetadataLocation(SUSPENDED, signingCredential.getEntityCertificate());
+    suspended.setSuspend(true);
+    se.getMetadataLocations().add(suspended);
+    se.getMetadataLocations().add(createMetadataLocation(MISSING, signingCredential.getEntityCertificate()));
+    se.getMetadataLocations().add(createMetadataLocation(NOT_METADATA, signingCredential.getEntityCertificate()));
+    mdsl.getMetadataLists().add(se);
+
+    final MetadataList no = (MetadataList) XMLObjectSupport.buildXMLObject(MetadataList.DEFAULT_ELEMENT_NAME);
+    no.setTerritory("NO");
+    no.setSuspend(true);
+    no.getMetadataLocations().add(createMetadataLocation(SUSPENDED_LIST, signingCredential.getEntityCertificate()));
+    mdsl.getMetadataLists().add(no);
+
+    return mdsl;
+  }
+
+  private static MetadataLocation createMetadataLocation(final String location, final X509Certificate... certs) {
+    final MetadataLocation metadataLocation =
+        (MetadataLocation) XMLObjectSupport.buildXMLObject(MetadataLocation.DEFAULT_ELEMENT_NAME);
+    metadataLocation.setLocation(location);
+    for (final X509Certificate cert : certs) {
+      metadataLocation.addX509Certificate(cert);
+    }
+    return metadataLocation;
+  }
+
+}
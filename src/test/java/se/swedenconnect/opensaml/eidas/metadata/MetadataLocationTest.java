@@ -17,7 +17,10 @@ package se.swedenconnect.opensaml.eidas.metadata;
 
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
+import java.security.MessageDigest;
 import java.security.cert.X509Certificate;
+import java.util.HexFormat;
+import java.util.List;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -166,4 +169,62 @@ public class MetadataLocationTest extends OpenSAMLTestBase {
         mdl2.getKeyInfos().get(0).getX509Datas().get(0).getX509Certificates().get(0).getValue());
   }
 
+  /**
+   * Tests the decoded certificate view, and that it is updated when the key infos, or their contents, change.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testX509Certificates() throws Exception {
+    final MetadataLocation mdl = createMetadataLocation();
+
+    final List<X509Certificate> certificates = mdl.getX509Certificates();
+    Assertions.assertEquals(List.of(CERTIFICATE), certificates);
+    Assertions.assertEquals(
+        List.of(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(CERTIFICATE.getEncoded()))),
+        mdl.getX509CertificateFingerprints());
+
+    // Cached
+    Assertions.assertSame(certificates, mdl.getX509Certificates());
+    Assertions.assertThrows(UnsupportedOperationException.class, () -> mdl.getX509Certificates().clear());
+
+    // Add a certificate
+    final X509Certificate otherCert = loadCertificate("Litsec_SAML_Signing.crt");
+    mdl.addX509Certificate(otherCert);
+    Assertions.assertEquals(List.of(CERTIFICATE, otherCert), mdl.getX509Certificates());
+    Assertions.assertEquals(2, mdl.getX509CertificateFingerprints().size());
+
+    // Replace the first key info
+    mdl.getKeyInfos().remove(0);
+    mdl.addX509Certificate(otherCert);
+    Assertions.assertEquals(List.of(otherCert, otherCert), mdl.getX509Certificates());
+
+    // Invalid certificates are skipped
+    final KeyInfo invalid = createMetadataLocation().getKeyInfos().remove(0);
+    invalid.getX509Datas().get(0).getX509Certificates().get(0).setValue("AAAA");
+    mdl.getKeyInfos().set(0, invalid);
+    Assertions.assertEquals(List.of(otherCert), mdl.getX509Certificates());
+
+    // Changes below a key info are detected when the location has a DOM (that is released by the change)
+    XMLObjectSupport.marshall(mdl);
+    Assertions.assertEquals(List.of(otherCert), mdl.getX509Certificates());
+    mdl.getKeyInfos().get(0).getX509Datas().get(0).getX509Certificates().get(0)
+        .setValue(Base64Support.encode(CERTIFICATE.getEncoded(), true));
+    Assertions.assertEquals(List.of(CERTIFICATE, otherCert), mdl.getX509Certificates());
+
+    // ... and also when the location has no DOM
+    mdl.releaseDOM();
+    mdl.releaseChildrenDOM(true);
+    mdl.getKeyInfos().get(1).getX509Datas().get(0).getX509Certificates().get(0)
+        .setValue(Base64Support.encode(CERTIFICATE.getEncoded(), true));
+    Assertions.assertEquals(List.of(CERTIFICATE, CERTIFICATE), mdl.getX509Certificates());
+    mdl.getKeyInfos().get(1).getX509Datas().get(0).getX509Certificates().clear();
+    Assertions.assertEquals(List.of(CERTIFICATE), mdl.getX509Certificates());
+    Assertions.assertEquals(1, mdl.getX509CertificateFingerprints().size());
+
+    mdl.getKeyInfos().clear();
+    Assertions.assertTrue(mdl.getX509Certificates().isEmpty());
+    Assertions.assertTrue(mdl.getX509CertificateFingerprints().isEmpty());
+  }
+
 }
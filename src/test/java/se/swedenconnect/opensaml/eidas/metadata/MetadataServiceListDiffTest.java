@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.metadata;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+
+import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
+
+/**
+ * Test cases for {@code MetadataServiceListDiff}.
+ *
+ * @author Martin Lindström
+ */
+public class MetadataServiceListDiffTest extends OpenSAMLTestBase {
+
+  /**
+   * Tests that comparing two identical lists gives an empty diff.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testNoChanges() throws Exception {
+    final MetadataServiceListDiff diff = MetadataServiceListDiff.compare(load(), load());
+    Assertions.assertTrue(diff.isEmpty());
+    Assertions.assertTrue(diff.getAffectedTerritories().isEmpty());
+  }
+
+  /**
+   * Tests that everything is reported as added if there is no previous list.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testNoPrevious() throws Exception {
+    final MetadataServiceListDiff diff = MetadataServiceListDiff.compare((MetadataServiceList) null, load());
+    Assertions.assertEquals(30, diff.getAddedLocations().size());
+    Assertions.assertEquals(27, diff.getAddedEndpoints().size());
+    Assertions.assertTrue(diff.getRemovedLocations().isEmpty());
+    Assertions.assertTrue(diff.getChangedEndpoints().isEmpty());
+  }
+
+  /**
+   * Tests that suspended, removed and re-keyed locations are detected.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testChanges() throws Exception {
+    final MetadataServiceList previous = load();
+    final MetadataServiceList current = load();
+
+    getMetadataList(current, "DK").setSuspend(true);
+    getMetadataList(current, "NO").getMetadataLocations().remove(1);
+    getMetadataList(current, "SE").getMetadataLocations().get(2)
+        .addX509Certificate(loadCertificate("Litsec_SAML_Signing.crt"));
+
+    final MetadataServiceListDiff diff = MetadataServiceListDiff.compare(previous, current);
+    Assertions.assertFalse(diff.isEmpty());
+
+    Assertions.assertTrue(diff.getAddedLocations().isEmpty());
+    Assertions.assertEquals(1, diff.getRemovedLocations().size());
+    Assertions.assertEquals("https://eidas-test1.difi.eon.no/EidasNode/ConnectorMetadata",
+        diff.getRemovedLocations().get(0).getLocation());
+    Assertions.assertEquals(1, diff.getRekeyedLocations().size());
+    Assertions.assertEquals("https://eunode.qa.sveidas.se/idp/metadata/sp",
+        diff.getRekeyedLocations().get(0).getLocation());
+    Assertions.assertEquals(2, diff.getRekeyedLocations().get(0).getEncodedCertificates().size());
+    Assertions.assertEquals(3, diff.getChangedLocations().size());
+    for (final MetadataServiceListDiff.LocationChange change : diff.getChangedLocations()) {
+      Assertions.assertEquals("DK", change.getCurrent().getTerritory());
+      Assertions.assertTrue(change.isSuspendChanged());
+      Assertions.assertFalse(change.isMoved());
+    }
+
+    Assertions.assertTrue(diff.getAddedEndpoints().isEmpty());
+    Assertions.assertEquals(1, diff.getRemovedEndpoints().size());
+    Assertions.assertEquals(3, diff.getChangedEndpoints().size());
+    for (final MetadataServiceListDiff.EndpointChange change : diff.getChangedEndpoints()) {
+      Assertions.assertEquals("DK", change.getCurrent().getTerritory());
+      Assertions.assertTrue(change.isSuspendChanged());
+      Assertions.assertTrue(change.isHideFromDiscoveryChanged());
+      Assertions.assertFalse(change.isMoved());
+      Assertions.assertTrue(change.getCurrent().isSuspended());
+    }
+
+    Assertions.assertEquals(Set.of("DK", "NO", "SE"), diff.getAffectedTerritories());
+  }
+
+  /**
+   * Tests that a suspended location that has no endpoints is reported.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testSuspendedLocationWithoutEndpoints() throws Exception {
+    final MetadataServiceList previous = load();
+    final MetadataServiceList current = load();
+
+    final MetadataLocation location = getMetadataList(current, "SE").getMetadataLocations().get(0);
+    Assertions.assertTrue(location.getEndpoints().isEmpty());
+    location.setSuspend(true);
+
+    final MetadataServiceListDiff diff = MetadataServiceListDiff.compare(previous, current);
+    Assertions.assertFalse(diff.isEmpty());
+    Assertions.assertEquals(1, diff.getChangedLocations().size());
+    Assertions.assertEquals(location.getLocation(), diff.getChangedLocations().get(0).getCurrent().getLocation());
+    Assertions.assertTrue(diff.getChangedLocations().get(0).isSuspendChanged());
+    Assertions.assertTrue(diff.getChangedEndpoints().isEmpty());
+    Assertions.assertEquals(Set.of("SE"), diff.getAffectedTerritories());
+  }
+
+  /**
+   * Tests that the locations of a metadata list that has no territory are compared.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testLocationsWithoutTerritory() throws Exception {
+    final MetadataServiceList previous = load();
+    getMetadataList(previous, "NO").setTerritory(null);
+    final MetadataServiceList current = load();
+    final MetadataList noTerritory = getMetadataList(current, "NO");
+    noTerritory.setTerritory(null);
+    noTerritory.getMetadataLocations().remove(1);
+
+    MetadataServiceListDiff diff = MetadataServiceListDiff.compare(previous, current);
+    Assertions.assertTrue(diff.getAddedLocations().isEmpty());
+    Assertions.assertEquals(1, diff.getRemovedLocations().size());
+    Assertions.assertEquals("https://eidas-test1.difi.eon.no/EidasNode/ConnectorMetadata",
+        diff.getRemovedLocations().get(0).getLocation());
+    Assertions.assertTrue(diff.getChangedLocations().isEmpty());
+    Assertions.assertEquals(1, diff.getRemovedEndpoints().size());
+
+    // Moving a location from a territory to a list without territory is a change
+    diff = MetadataServiceListDiff.compare(load(), current);
+    Assertions.assertEquals(1, diff.getRemovedLocations().size());
+    Assertions.assertEquals(1, diff.getChangedLocations().size());
+    Assertions.assertTrue(diff.getChangedLocations().get(0).isMoved());
+    Assertions.assertNull(diff.getChangedLocations().get(0).getCurrent().getTerritory());
+    Assertions.assertEquals(Set.of("NO"), diff.getAffectedTerritories());
+  }
+
+  private static MetadataList getMetadataList(final MetadataServiceList mdsl, final String territory) {
+    return mdsl.getMetadataLists().stream()
+        .filter(m -> territory.equals(m.getTerritory()))
+        .findFirst()
+        .orElseThrow();
+  }
+
+  private static MetadataServiceList load() throws Exception {
+    return (MetadataServiceList) XMLObjectSupport.getUnmarshaller(MetadataServiceList.DEFAULT_ELEMENT_NAME)
+        .unmarshall(loadElement("mdservicelist.xml"));
+  }
+
+}
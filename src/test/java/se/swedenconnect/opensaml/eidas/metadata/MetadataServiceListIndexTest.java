@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.metadata;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+
+import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
+
+/**
+ * Test cases for {@code MetadataServiceListIndex}.
+ *
+ * @author Martin Lindström
+ */
+public class MetadataServiceListIndexTest extends OpenSAMLTestBase {
+
+  /**
+   * Tests compiling the index for a "real life" metadata service list.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testCompile() throws Exception {
+    final MetadataServiceListIndex index = MetadataServiceListIndex.compile(load());
+
+    Assertions.assertEquals("SE", index.getSchemeTerritory());
+    Assertions.assertEquals(27, index.getEndpoints().size());
+    Assertions.assertEquals(14, index.getTerritories().size());
+
+    final MetadataServiceListIndex.IndexedEndpoint endpoint =
+        index.getEndpoint("https://eidas-pilot.digst.dk/eidas-ps-dk/ServiceMetadata");
+    Assertions.assertNotNull(endpoint);
+    Assertions.assertEquals("DK", endpoint.getTerritory());
+    Assertions.assertEquals(Endpoint.PROXY_SERVICE_ENDPOINT_TYPE, endpoint.getEndpointType());
+    Assertions.assertEquals("https://eidas-pilot.digst.dk/eidas-ps-dk/ServiceMetadata", endpoint.getLocation());
+    Assertions.assertFalse(endpoint.isSuspended());
+    Assertions.assertFalse(endpoint.isHiddenFromDiscovery());
+
+    Assertions.assertNull(index.getEndpoint("https://not.present.example.com"));
+    Assertions.assertFalse(index.isSuspended("https://not.present.example.com"));
+
+    Assertions.assertEquals(4, index.getLocationsByTerritory("SE").size());
+    Assertions.assertEquals(30, index.getLocations().size());
+    Assertions.assertTrue(index.getLocationsByTerritory("ZZ").isEmpty());
+    Assertions.assertEquals(1, index.getLocationsByTerritory("UK").get(0).getEndpoints().size());
+    Assertions.assertNotNull(index.getLocation("https://eunode.qa.sveidas.se/idp/metadata/sp"));
+
+    Assertions.assertTrue(index.getEndpointsByType(Endpoint.CONNECTOR_ENDPOINT_TYPE).stream()
+        .allMatch(e -> Endpoint.CONNECTOR_ENDPOINT_TYPE.equals(e.getEndpointType())));
+  }
+
+  /**
+   * Tests that an entityID used by both a proxy service and a connector can be looked up by type.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testSameEntityIdForSeveralEndpoints() throws Exception {
+    final MetadataServiceListIndex index = MetadataServiceListIndex.compile(load());
+
+    final String entityId = "https://testeidas.buergerkarte.at/moa-id-auth/eidas/metadata";
+    Assertions.assertEquals(2, index.getEndpoints(entityId).size());
+    Assertions.assertEquals(Endpoint.PROXY_SERVICE_ENDPOINT_TYPE, index.getEndpoint(entityId).getEndpointType());
+    Assertions.assertEquals(Endpoint.CONNECTOR_ENDPOINT_TYPE,
+        index.getEndpoint(entityId, Endpoint.CONNECTOR_ENDPOINT_TYPE).getEndpointType());
+  }
+
+  /**
+   * Tests that the suspend and hide-from-discovery flags are inherited from the metadata list and location.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testEffectiveFlags() throws Exception {
+    final MetadataServiceList mdsl = load();
+    final MetadataList dk = mdsl.getMetadataLists().stream()
+        .filter(m -> "DK".equals(m.getTerritory()))
+        .findFirst()
+        .orElseThrow();
+    dk.setSuspend(true);
+
+    final MetadataList no = mdsl.getMetadataLists().stream()
+        .filter(m -> "NO".equals(m.getTerritory()))
+        .findFirst()
+        .orElseThrow();
+    no.getMetadataLocations().get(0).getEndpoints().get(0).setHideFromDiscovery(true);
+
+    final MetadataServiceListIndex index = MetadataServiceListIndex.compile(mdsl);
+
+    Assertions.assertTrue(index.isSuspended("https://eidas-pilot.digst.dk/eidas-ps-dk/ServiceMetadata"));
+    Assertions.assertTrue(index.getEndpoint("https://eidas-pilot.digst.dk/idp/metadata/sp").isHiddenFromDiscovery());
+    Assertions.assertTrue(index.getLocationsByTerritory("DK").stream()
+        .allMatch(MetadataServiceListIndex.IndexedLocation::isSuspended));
+
+    final MetadataServiceListIndex.IndexedEndpoint noProxy =
+        index.getEndpoint("https://eidas-test1.difi.eon.no/EidasNode/ServiceMetadata");
+    Assertions.assertFalse(noProxy.isSuspended());
+    Assertions.assertTrue(noProxy.isHiddenFromDiscovery());
+
+    Assertions.assertFalse(index.isSuspended("https://eidas-test1.difi.eon.no/EidasNode/ConnectorMetadata"));
+  }
+
+  /**
+   * Tests that the index is not affected by later changes to the metadata service list.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testImmutable() throws Exception {
+    final MetadataServiceList mdsl = load();
+    final MetadataServiceListIndex index = MetadataServiceListIndex.compile(mdsl);
+
+    mdsl.getMetadataLists().clear();
+    Assertions.assertEquals(27, index.getEndpoints().size());
+    Assertions.assertThrows(UnsupportedOperationException.class, () -> index.getEndpoints().clear());
+  }
+
+  private static MetadataServiceList load() throws Exception {
+    return (MetadataServiceList) XMLObjectSupport.getUnmarshaller(MetadataServiceList.DEFAULT_ELEMENT_NAME)
+        .unmarshall(loadElement("mdservicelist.xml"));
+  }
+
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.metadata;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.shibboleth.shared.resolver.ResolverException;
+import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
+
+/**
+ * Test cases for {@code MetadataServiceListResolver}.
+ *
+ * @author Martin Lindström
+ */
+public class MetadataServiceListResolverTest extends OpenSAMLTestBase {
+
+  /**
+   * Tests loading a metadata service list from file.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testInitialize() throws Exception {
+    final MetadataServiceListResolver resolver =
+        new MetadataServiceListResolver(fileFetcher("mdservicelist.xml"), validationCertificate());
+    try {
+      resolver.initialize();
+      Assertions.assertNotNull(resolver.getMetadataServiceList());
+      Assertions.assertNotNull(resolver.getLastUpdate());
+      Assertions.assertEquals(27, resolver.getIndex().getEndpoints().size());
+    }
+    finally {
+      resolver.destroy();
+    }
+  }
+
+  /**
+   * Tests loading a metadata service list when several validation certificates are configured.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testSeveralValidationCertificates() throws Exception {
+    final MetadataServiceListResolver resolver = new MetadataServiceListResolver(fileFetcher("mdservicelist.xml"),
+        List.of(loadCertificate("Litsec_SAML_Signing.crt"), validationCertificate()));
+    try {
+      resolver.initialize();
+      Assertions.assertNotNull(resolver.getMetadataServiceList());
+    }
+    finally {
+      resolver.destroy();
+    }
+  }
+
+  /**
+   * Tests that a list having an invalid signature is not accepted.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testBadSignature() throws Exception {
+    final MetadataServiceListResolver resolver =
+        new MetadataServiceListResolver(fileFetcher("mdservicelist-badsign.xml"), validationCertificate());
+    Assertions.assertThrows(ResolverException.class, resolver::initialize);
+    Assertions.assertNull(resolver.getMetadataServiceList());
+    Assertions.assertNull(resolver.getIndex());
+  }
+
+  /**
+   * Tests that initialization succeeds without a list if fail fast initialization is turned off.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testNoFailFastInitialization() throws Exception {
+    final MetadataServiceListResolver resolver =
+        new MetadataServiceListResolver(fileFetcher("mdservicelist-badsign.xml"), validationCertificate());
+    resolver.setFailFastInitialization(false);
+    try {
+      resolver.initialize();
+      Assertions.assertNull(resolver.getMetadataServiceList());
+    }
+    finally {
+      resolver.destroy();
+    }
+  }
+
+  /**
+   * Tests that the current list is kept if a refresh fails.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testFailedRefreshKeepsList() throws Exception {
+    final MetadataServiceListFetcher fileFetcher = fileFetcher("mdservicelist.xml");
+    final AtomicBoolean fail = new AtomicBoolean(false);
+    final MetadataServiceListResolver resolver = new MetadataServiceListResolver(() -> {
+      if (fail.get()) {
+        throw new IOException("Simulated failure");
+      }
+      return fileFetcher.fetch();
+    }, validationCertificate());
+
+    try {
+      resolver.initialize();
+      final MetadataServiceList mdsl = resolver.getMetadataServiceList();
+      final MetadataServiceListIndex index = resolver.getIndex();
+      Assertions.assertNotNull(mdsl);
+
+      fail.set(true);
+      Assertions.assertThrows(ResolverException.class, resolver::refresh);
+      Assertions.assertSame(mdsl, resolver.getMetadataServiceList());
+      Assertions.assertSame(index, resolver.getIndex());
+
+      fail.set(false);
+      Assertions.assertNotSame(mdsl, resolver.refresh());
+      Assertions.assertNotSame(index, resolver.getIndex());
+    }
+    finally {
+      resolver.destroy();
+    }
+  }
+
+  /**
+   * Tests that refreshes are scheduled in the background (and retried after failures).
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testBackgroundRefresh() throws Exception {
+    final MetadataServiceListFetcher fileFetcher = fileFetcher("mdservicelist.xml");
+    final AtomicInteger calls = new AtomicInteger();
+    final MetadataServiceListResolver resolver = new MetadataServiceListResolver(() -> {
+      if (calls.incrementAndGet() == 2) {
+        throw new IOException("Simulated failure");
+      }
+      return fileFetcher.fetch();
+    }, validationCertificate());
+
+    // NextUpdate of the test list has passed, so the minimum delay will be used.
+    resolver.setMinRefreshDelay(Duration.ofMillis(50));
+    resolver.setJitter(0);
+    try {
+      resolver.initialize();
+      final long deadline = System.currentTimeMillis() + 10_000;
+      while (calls.get() < 4 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(20);
+      }
+      Assertions.assertTrue(calls.get() >= 4);
+      Assertions.assertNotNull(resolver.getMetadataServiceList());
+    }
+    finally {
+      resolver.destroy();
+    }
+  }
+
+  /**
+   * Tests the calculation of refresh delays.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testRefreshDelay() throws Exception {
+    final Instant now = Instant.parse("2026-01-01T00:00:00Z");
+    final MetadataServiceListResolver resolver =
+        new MetadataServiceListResolver(fileFetcher("mdservicelist.xml"), validationCertificate());
+    resolver.setClock(Clock.fixed(now, ZoneOffset.UTC));
+    resolver.setJitter(0);
+
+    Assertions.assertEquals(Duration.ofMinutes(45), resolver.getRefreshDelay(now.plus(Duration.ofHours(1))));
+    Assertions.assertEquals(MetadataServiceListResolver.DEFAULT_MAX_REFRESH_DELAY,
+        resolver.getRefreshDelay(now.plus(Duration.ofDays(7))));
+    Assertions.assertEquals(MetadataServiceListResolver.DEFAULT_MAX_REFRESH_DELAY, resolver.getRefreshDelay(null));
+    Assertions.assertEquals(MetadataServiceListResolver.DEFAULT_MIN_REFRESH_DELAY,
+        resolver.getRefreshDelay(now.minus(Duration.ofDays(7))));
+
+    Assertions.assertEquals(Duration.ofMinutes(5), resolver.getBackoffDelay(1));
+    Assertions.assertEquals(Duration.ofMinutes(10), resolver.getBackoffDelay(2));
+    Assertions.assertEquals(Duration.ofMinutes(20), resolver.getBackoffDelay(3));
+    Assertions.assertEquals(MetadataServiceListResolver.DEFAULT_MAX_REFRESH_DELAY, resolver.getBackoffDelay(100));
+
+    resolver.setJitter(0.5f);
+    for (int i = 0; i < 100; i++) {
+      final Duration delay = resolver.getRefreshDelay(now.plus(Duration.ofHours(2)));
+      Assertions.assertTrue(delay.compareTo(Duration.ofMinutes(45)) >= 0);
+      Assertions.assertTrue(delay.compareTo(Duration.ofMinutes(90)) <= 0);
+    }
+  }
+
+  /**
+   * Tests that a snapshot is written and used by a resolver that is started later.
+   *
+   * @param dir temporary directory
+   * @throws Exception for errors
+   */
+  @Test
+  public void testSnapshot(@TempDir final Path dir) throws Exception {
+    final Path snapshotFile = dir.resolve("mdsl.snapshot");
+
+    final MetadataServiceListResolver resolver =
+        new MetadataServiceListResolver(fileFetcher("mdservicelist.xml"), validationCertificate());
+    resolver.setSnapshotFile(snapshotFile);
+    try {
+      resolver.initialize();
+      Assertions.assertNotNull(resolver.getMetadataServiceList().getSignature());
+      Assertions.assertFalse(resolver.isLoadedFromSnapshot());
+    }
+    finally {
+      resolver.destroy();
+    }
+    Assertions.assertTrue(snapshotFile.toFile().isFile());
+
+    final MetadataServiceListResolver resolver2 =
+        new MetadataServiceListResolver(fileFetcher("mdservicelist.xml"), validationCertificate());
+    resolver2.setSnapshotFile(snapshotFile);
+    try {
+      resolver2.initialize();
+      // Loaded from the snapshot, so there is no signature
+      Assertions.assertNull(resolver2.getMetadataServiceList().getSignature());
+      Assertions.assertTrue(resolver2.isLoadedFromSnapshot());
+      Assertions.assertEquals(27, resolver2.getIndex().getEndpoints().size());
+    }
+    finally {
+      resolver2.destroy();
+    }
+
+    // Another set of validation certificates must not use the snapshot
+    final MetadataServiceListResolver resolver3 = new MetadataServiceListResolver(fileFetcher("mdservicelist.xml"),
+        List.of(loadCertificate("Litsec_SAML_Signing.crt"), validationCertificate()));
+    resolver3.setSnapshotFile(snapshotFile);
+    try {
+      resolver3.initialize();
+      Assertions.assertNotNull(resolver3.getMetadataServiceList().getSignature());
+      Assertions.assertFalse(resolver3.isLoadedFromSnapshot());
+    }
+    finally {
+      resolver3.destroy();
+    }
+  }
+
+  private static MetadataServiceListFetcher fileFetcher(final String resource) throws Exception {
+    return new FileMetadataServiceListFetcher(Path.of(ClassLoader.getSystemResource(resource).toURI()));
+  }
+
+  private static X509Certificate validationCertificate() throws Exception {
+    return loadCertificate("eidas-servicelist-validation-cert.crt");
+  }
+
+}
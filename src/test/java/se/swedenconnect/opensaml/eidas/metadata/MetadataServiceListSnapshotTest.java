@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.metadata;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import javax.xml.namespace.QName;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.xmlsec.signature.KeyName;
+
+import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
+
+/**
+ * Test cases for {@code MetadataServiceListSnapshot}.
+ *
+ * @author Martin Lindström
+ */
+public class MetadataServiceListSnapshotTest extends OpenSAMLTestBase {
+
+  /** The digest used for the tests. */
+  private static final byte[] DIGEST = MetadataServiceListSnapshot.digest("document".getBytes());
+
+  /**
+   * Tests writing and reading a snapshot.
+   *
+   * @param dir temporary directory
+   * @throws Exception for errors
+   */
+  @Test
+  public void testWriteRead(@TempDir final Path dir) throws Exception {
+    final MetadataServiceList mdsl = load();
+
+    // Add content that isn't handled by the typed accessors. The KeyInfo will have no DOM and is marshalled.
+    final MetadataLocation location = mdsl.getMetadataLists().get(0).getMetadataLocations().get(0);
+    location.getUnknownAttributes().put(new QName("urn:example", "flag", "ex"), "value");
+    final KeyName keyName = (KeyName) XMLObjectSupport.buildXMLObject(KeyName.DEFAULT_ELEMENT_NAME);
+    keyName.setValue("Signing key");
+    location.getKeyInfos().get(0).getKeyNames().add(keyName);
+
+    final Path file = dir.resolve("mdsl.snapshot");
+    MetadataServiceListSnapshot.write(mdsl, DIGEST, file);
+
+    final MetadataServiceList mdsl2 = MetadataServiceListSnapshot.read(file, DIGEST);
+    Assertions.assertNotNull(mdsl2);
+    Assertions.assertNull(mdsl2.getSignature());
+    Assertions.assertEquals(mdsl.getVersion().toString(), mdsl2.getVersion().toString());
+    Assertions.assertEquals(mdsl.getID(), mdsl2.getID());
+    Assertions.assertEquals(mdsl.getIssueDate(), mdsl2.getIssueDate());
+    Assertions.assertEquals(mdsl.getNextUpdate(), mdsl2.getNextUpdate());
+    Assertions.assertEquals(mdsl.getSchemeInformation().getIssuerName(),
+        mdsl2.getSchemeInformation().getIssuerName());
+    Assertions.assertEquals(mdsl.getSchemeInformation().getSchemeTerritory(),
+        mdsl2.getSchemeInformation().getSchemeTerritory());
+    Assertions.assertEquals(mdsl.getMetadataLists().size(), mdsl2.getMetadataLists().size());
+
+    // Locations, endpoints, flags and certificates should be the same
+    Assertions.assertTrue(MetadataServiceListDiff.compare(mdsl, mdsl2).isEmpty());
+
+    // Unknown attributes and KeyInfo contents should be preserved
+    final MetadataLocation location2 = mdsl2.getMetadataLists().get(0).getMetadataLocations().get(0);
+    Assertions.assertEquals(location.getUnknownAttributes(), location2.getUnknownAttributes());
+    Assertions.assertEquals("Signing key", location2.getKeyInfos().get(0).getKeyNames().get(0).getValue());
+    Assertions.assertEquals(location.getKeyInfos().size(), location2.getKeyInfos().size());
+
+    // Make sure that the re-created list can be marshalled
+    Assertions.assertNotNull(XMLObjectSupport.marshall(mdsl2));
+  }
+
+  /**
+   * Tests that a snapshot is not used if it is missing or is bound to another document.
+   *
+   * @param dir temporary directory
+   * @throws Exception for errors
+   */
+  @Test
+  public void testNotUsable(@TempDir final Path dir) throws Exception {
+    final Path file = dir.resolve("mdsl.snapshot");
+    Assertions.assertNull(MetadataServiceListSnapshot.read(file, DIGEST));
+
+    MetadataServiceListSnapshot.write(load(), DIGEST, file);
+    Assertions.assertNull(
+        MetadataServiceListSnapshot.read(file, MetadataServiceListSnapshot.digest("other".getBytes())));
+  }
+
+  /**
+   * Tests that a corrupt snapshot is reported.
+   *
+   * @param dir temporary directory
+   * @throws Exception for errors
+   */
+  @Test
+  public void testCorrupt(@TempDir final Path dir) throws Exception {
+    final Path file = dir.resolve("mdsl.snapshot");
+    MetadataServiceListSnapshot.write(load(), DIGEST, file);
+    final byte[] bytes = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+    Assertions.assertThrows(IOException.class, () -> MetadataServiceListSnapshot.read(file, DIGEST));
+
+    Files.write(file, "not a snapshot".getBytes());
+    Assertions.assertThrows(IOException.class, () -> MetadataServiceListSnapshot.read(file, DIGEST));
+
+    // A corrupt version string (magic, format version, digest length, digest and string length precede it)
+    bytes[4 + 4 + 4 + DIGEST.length + 4 + 1] = 'x';
+    Files.write(file, bytes);
+    Assertions.assertThrows(IOException.class, () -> MetadataServiceListSnapshot.read(file, DIGEST));
+  }
+
+  private static MetadataServiceList load() throws Exception {
+    return (MetadataServiceList) XMLObjectSupport.getUnmarshaller(MetadataServiceList.DEFAULT_ELEMENT_NAME)
+        .unmarshall(loadElement("mdservicelist.xml"));
+  }
+
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.metadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.core.xml.io.UnmarshallingException;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.xmlsec.signature.support.SignatureException;
+import org.w3c.dom.Element;
+
+import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
+
+/**
+ * Test cases for {@code MetadataServiceListStreamReader}.
+ *
+ * @author Martin Lindström
+ */
+public class MetadataServiceListStreamReaderTest extends OpenSAMLTestBase {
+
+  /**
+   * Tests reading and validating a "real life" metadata service list, and compares the result with the DOM based
+   * unmarshaller.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testReadAndValidate() throws Exception {
+    final MetadataServiceListStreamReader reader = new MetadataServiceListStreamReader(
+        List.of(loadCertificate("Litsec_SAML_Signing.crt"), validationCertificate()));
+
+    final List<String> streamed = new ArrayList<>();
+    final MetadataServiceList mdsl;
+    try (final InputStream is = ClassLoader.getSystemResourceAsStream("mdservicelist.xml")) {
+      mdsl = reader.read(is, (list, location) -> {
+        Assertions.assertNotNull(list.getTerritory());
+        Assertions.assertTrue(list.getMetadataLocations().isEmpty());
+        streamed.add(toString(list, location));
+      });
+    }
+
+    Assertions.assertEquals(MetadataServiceListVersion.VERSION_10, mdsl.getVersion());
+    Assertions.assertEquals("SE", mdsl.getSchemeInformation().getSchemeTerritory());
+    Assertions.assertEquals("file:///opt/webapp/configEidas/aggregation/mdServiceList.xml",
+        mdsl.getDistributionPoints().getDistributionPoints().get(0).getURI());
+    Assertions.assertTrue(mdsl.isSigned());
+    Assertions.assertTrue(mdsl.getMetadataLists().isEmpty());
+
+    final MetadataServiceList unmarshalled = (MetadataServiceList) XMLObjectSupport
+        .getUnmarshaller(MetadataServiceList.DEFAULT_ELEMENT_NAME).unmarshall(loadElement("mdservicelist.xml"));
+    final List<String> expected = new ArrayList<>();
+    for (final MetadataList list : unmarshalled.getMetadataLists()) {
+      for (final MetadataLocation location : list.getMetadataLocations()) {
+        expected.add(toString(list, location));
+      }
+    }
+    Assertions.assertEquals(30, expected.size());
+    Assertions.assertEquals(expected, streamed);
+  }
+
+  /**
+   * Tests that the locations are passed to the handler before the signature has been verified, and that the handler
+   * is committed after the verification.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testLocationsStreamedBeforeVerification() throws Exception {
+    final MetadataServiceListStreamReader reader =
+        new MetadataServiceListStreamReader(List.of(validationCertificate()));
+    final RecordingHandler handler = new RecordingHandler();
+    try (final InputStream is = ClassLoader.getSystemResourceAsStream("mdservicelist.xml")) {
+      reader.read(is, handler);
+    }
+    Assertions.assertEquals(30, handler.locations.size());
+    Assertions.assertFalse(handler.committedBeforeHandled);
+    Assertions.assertTrue(handler.committed);
+    Assertions.assertNull(handler.aborted);
+  }
+
+  /**
+   * Tests that a bad signature is detected, and that the handler is aborted.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testBadSignature() throws Exception {
+    final MetadataServiceListStreamReader reader =
+        new MetadataServiceListStreamReader(List.of(validationCertificate()));
+    final RecordingHandler handler = new RecordingHandler();
+    try (final InputStream is = ClassLoader.getSystemResourceAsStream("mdservicelist-badsign.xml")) {
+      final SignatureException e = Assertions.assertThrows(SignatureException.class, () -> reader.read(is, handler));
+      Assertions.assertSame(e, handler.aborted);
+    }
+    Assertions.assertFalse(handler.committed);
+  }
+
+  /**
+   * Tests that the handler is aborted if the document can not be read.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testAbortOnReadError() throws Exception {
+    final String xml;
+    try (final InputStream is = ClassLoader.getSystemResourceAsStream("mdservicelist.xml")) {
+      xml = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    final String truncated = xml.substring(0, xml.lastIndexOf("</ser:MetadataList>"));
+
+    final MetadataServiceListStreamReader reader =
+        new MetadataServiceListStreamReader(List.of(validationCertificate()));
+    final RecordingHandler handler = new RecordingHandler();
+    Assertions.assertThrows(UnmarshallingException.class,
+        () -> reader.read(new ByteArrayInputStream(truncated.getBytes(StandardCharsets.UTF_8)), handler));
+    Assertions.assertFalse(handler.locations.isEmpty());
+    Assertions.assertInstanceOf(UnmarshallingException.class, handler.aborted);
+    Assertions.assertFalse(handler.committed);
+  }
+
+  /**
+   * Tests that validation fails if the signer certificate is not trusted.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testUntrustedCertificate() throws Exception {
+    final MetadataServiceListStreamReader reader =
+        new MetadataServiceListStreamReader(List.of(loadCertificate("Litsec_SAML_Signing.crt")));
+    try (final InputStream is = ClassLoader.getSystemResourceAsStream("mdservicelist.xml")) {
+      Assertions.assertThrows(SignatureException.class, () -> reader.read(is, (list, location) -> {
+      }));
+    }
+  }
+
+  /**
+   * Tests reading without signature validation.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testReadWithoutValidation() throws Exception {
+    final MetadataServiceListStreamReader reader = new MetadataServiceListStreamReader();
+    final RecordingHandler handler = new RecordingHandler();
+    try (final InputStream is = ClassLoader.getSystemResourceAsStream("mdservicelist-badsign.xml")) {
+      reader.read(is, handler);
+    }
+    Assertions.assertFalse(handler.locations.isEmpty());
+    Assertions.assertTrue(handler.committed);
+  }
+
+  /**
+   * Applies a number of modifications, some that do not affect the signature (comments, unused namespace
+   * declarations) and some that do (processing instructions, whitespace, added content and signature wrapping), to a
+   * signed metadata service list, and verifies that the stream reader reaches the same verdict as the DOM based
+   * validator (i.e., Santuario).
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testEquivalenceWithDomValidation() throws Exception {
+    final String xml;
+    try (final InputStream is = ClassLoader.getSystemResourceAsStream("mdservicelist.xml")) {
+      xml = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    final String rootDeclaration = "xmlns:ser=\"http://eidas.europa.eu/metadata/servicelist\">";
+    final String signature = xml.substring(xml.indexOf("<ds:Signature"), xml.indexOf("</ds:Signature>") + 15);
+    final String unsigned = xml.replace(signature, "");
+
+    final Map<String, String> valid = new LinkedHashMap<>();
+    valid.put("original", xml);
+    valid.put("comment", xml.replace("<ser:SchemeInformation>", "<ser:SchemeInformation><!-- injected -->"));
+    valid.put("unused namespace", xml.replace(rootDeclaration,
+        rootDeclaration.replace(">", " xmlns:foo=\"urn:foo\">")));
+    valid.put("redundant namespace", xml.replace("<ser:SchemeInformation>",
+        "<ser:SchemeInformation xmlns:ser=\"http://eidas.europa.eu/metadata/servicelist\">"));
+
+    final Map<String, String> invalid = new LinkedHashMap<>();
+    invalid.put("processing instruction", xml.replace("<ser:SchemeInformation>", "<ser:SchemeInformation><?pi x?>"));
+    invalid.put("processing instruction outside root", xml.replace("-->\n<ser:MetadataServiceList",
+        "-->\n<?pi x?><ser:MetadataServiceList"));
+    invalid.put("whitespace", xml.replace("<ser:IssuerName>Swedish", "<ser:IssuerName> Swedish"));
+    invalid.put("value", xml.replace("SE</ser:SchemeTerritory>", "DK</ser:SchemeTerritory>"));
+    invalid.put("added attribute", xml.replace(rootDeclaration, rootDeclaration.replace(">", " ID=\"_x\">")));
+    invalid.put("appended list", xml.replace("</ser:MetadataServiceList>",
+        "<ser:MetadataList Territory=\"XX\"><ser:MetadataLocation Location=\"https://evil.example.com\"/>"
+            + "</ser:MetadataList></ser:MetadataServiceList>"));
+    invalid.put("two signatures", xml.replace(signature, signature + signature));
+    invalid.put("wrapped signature", unsigned.replace("<ser:SchemeInformation>",
+        "<ser:SchemeInformation>" + signature));
+    invalid.put("signature in location", unsigned.replace("</ser:MetadataLocation>",
+        signature + "</ser:MetadataLocation>"));
+
+    for (final Map.Entry<String, String> e : valid.entrySet()) {
+      Assertions.assertTrue(validateDom(e.getValue()), e.getKey());
+      Assertions.assertTrue(validateStream(e.getValue()), e.getKey());
+    }
+    for (final Map.Entry<String, String> e : invalid.entrySet()) {
+      Assertions.assertFalse(validateDom(e.getValue()), e.getKey());
+      Assertions.assertFalse(validateStream(e.getValue()), e.getKey());
+    }
+  }
+
+  private static boolean validateDom(final String xml) throws Exception {
+    try {
+      final Element element = XMLObjectProviderRegistrySupport.getParserPool()
+          .parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))).getDocumentElement();
+      final MetadataServiceList mdsl = (MetadataServiceList) XMLObjectSupport
+          .getUnmarshaller(MetadataServiceList.DEFAULT_ELEMENT_NAME).unmarshall(element);
+      new MetadataServiceListSignatureValidator().validateSignature(mdsl, validationCertificate());
+      return true;
+    }
+    catch (final SignatureException | UnmarshallingException e) {
+      return false;
+    }
+  }
+
+  private static boolean validateStream(final String xml) throws Exception {
+    final MetadataServiceListStreamReader reader =
+        new MetadataServiceListStreamReader(List.of(validationCertificate()));
+    final RecordingHandler handler = new RecordingHandler();
+    try {
+      reader.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), handler);
+      Assertions.assertFalse(handler.locations.isEmpty());
+      Assertions.assertTrue(handler.committed);
+      return true;
+    }
+    catch (final SignatureException | UnmarshallingException e) {
+      Assertions.assertFalse(handler.committed);
+      Assertions.assertSame(e, handler.aborted);
+      return false;
+    }
+  }
+
+  private static String toString(final MetadataList list, final MetadataLocation location) {
+    final StringBuilder sb = new StringBuilder(list.getTerritory()).append(' ').append(location.getLocation());
+    for (final Endpoint endpoint : location.getEndpoints()) {
+      sb.append(' ').append(endpoint.getEndpointType()).append('=').append(endpoint.getEntityID());
+    }
+    return sb.append(" keyInfos=").append(location.getKeyInfos().size()).toString();
+  }
+
+  private static X509Certificate validationCertificate() throws Exception {
+    return loadCertificate("eidas-servicelist-validation-cert.crt");
+  }
+
+  private static class RecordingHandler implements MetadataServiceListStreamReader.MetadataLocationHandler {
+
+    private final List<MetadataLocation> locations = new ArrayList<>();
+
+    private boolean committed;
+
+    private boolean committedBeforeHandled;
+
+    private Exception aborted;
+
+    @Override
+    public void handle(final MetadataList metadataList, final MetadataLocation metadataLocation) {
+      this.committedBeforeHandled |= this.committed;
+      this.locations.add(metadataLocation);
+    }
+
+    @Override
+    public void commit() {
+      this.committed = true;
+    }
+
+    @Override
+    public void abort(final Exception cause) {
+      this.aborted = cause;
+    }
+  }
+
+}
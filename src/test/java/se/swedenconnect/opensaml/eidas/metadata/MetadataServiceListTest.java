@@ -16,6 +16,12 @@
 package se.swedenconnect.opensaml.eidas.metadata;
 
 import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -111,4 +117,98 @@ public class MetadataServiceListTest extends OpenSAMLTestBase {
     });
   }
 
+  /**
+   * Tests the verified signature cache.
+   *
+   * @throws Exception for errors
+   */
+  @Test
+  public void testSignatureValidateCached() throws Exception {
+    final X509Certificate cert = loadCertificate("eidas-servicelist-validation-cert.crt");
+    final MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+
+    final MetadataServiceListSignatureValidator validator = new MetadataServiceListSignatureValidator();
+    validator.setVerifiedSignatureCacheSize(10);
+    validator.setVerifiedSignatureCacheTtl(Duration.ofMinutes(10));
+    validator.setClock(clock);
+
+    final MetadataServiceList mdsl = loadServiceList("mdservicelist.xml");
+    validator.validateSignature(mdsl, cert);
+    Assertions.assertEquals(0, validator.getCacheHits());
+    Assertions.assertEquals(1, validator.getCacheMisses());
+
+    // The same object should be served by the cache.
+    validator.validateSignature(mdsl, cert);
+    Assertions.assertEquals(1, validator.getCacheHits());
+
+    // But not the same list parsed again.
+    validator.validateSignature(loadServiceList("mdservicelist.xml"), cert);
+    Assertions.assertEquals(1, validator.getCacheHits());
+
+    // Another certificate should not be served by the cache.
+    final X509Certificate otherCert = loadCertificate("Litsec_SAML_Signing.crt");
+    Assertions.assertThrows(SignatureException.class, () -> validator.validateSignature(mdsl, otherCert));
+    Assertions.assertEquals(1, validator.getCacheHits());
+
+    // And neither should a bad signature.
+    final MetadataServiceList badMdsl = loadServiceList("mdservicelist-badsign.xml");
+    Assertions.assertThrows(SignatureException.class, () -> validator.validateSignature(badMdsl, cert));
+    Assertions.assertThrows(SignatureException.class, () -> validator.validateSignature(badMdsl, cert));
+    Assertions.assertEquals(1, validator.getCacheHits());
+
+    // Expired entries are validated again.
+    clock.advance(Duration.ofMinutes(11));
+    validator.validateSignature(mdsl, cert);
+    Assertions.assertEquals(1, validator.getCacheHits());
+    validator.validateSignature(mdsl, cert);
+    Assertions.assertEquals(2, validator.getCacheHits());
+
+    // A modified object has its DOM released and is never served by the cache.
+    mdsl.setID("_modified");
+    Assertions.assertNull(mdsl.getDOM());
+    try {
+      validator.validateSignature(mdsl, cert);
+    }
+    catch (final SignatureException e) {
+      // Whether the validation succeeds or not is not the point of this test
+    }
+    Assertions.assertEquals(2, validator.getCacheHits());
+  }
+
+  private static MetadataServiceList loadServiceList(final String resource) throws Exception {
+    return (MetadataServiceList) XMLObjectSupport.getUnmarshaller(MetadataServiceList.DEFAULT_ELEMENT_NAME)
+        .unmarshall(loadElement(resource));
+  }
+
+  /**
+   * A clock that can be moved forward.
+   */
+  private static class MutableClock extends Clock {
+
+    private Instant instant;
+
+    MutableClock(final Instant instant) {
+      this.instant = instant;
+    }
+
+    void advance(final Duration duration) {
+      this.instant = this.instant.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(final ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return this.instant;
+    }
+  }
+
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.metadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.w3c.dom.Document;
+
+import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
+
+/**
+ * Differential test cases for {@code StreamingExclusiveCanonicalizer}, where the output is compared with the output of
+ * the Santuario Exclusive XML Canonicalization implementation.
+ *
+ * @author Martin Lindström
+ */
+public class StreamingExclusiveCanonicalizerTest extends OpenSAMLTestBase {
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+      // Inherited and visibly utilized namespaces
+      "<a:root xmlns:a=\"urn:a\" xmlns:b=\"urn:b\" xmlns=\"urn:d\"><a:child b:attr=\"1\"><b:x/><y/><c xmlns=\"\"/>"
+          + "</a:child></a:root>",
+      // A prefix bound to different namespaces in different scopes
+      "<p:root xmlns:p=\"urn:1\"><p:child xmlns:p=\"urn:2\"><p:gc xmlns:p=\"urn:1\"/></p:child><p:c/></p:root>",
+      // Unused and redundant declarations
+      "<root xmlns:unused=\"urn:u\" xmlns:a=\"urn:a\"><child a:attr=\"v\" xmlns:a=\"urn:a\"><a:gc/></child></root>",
+      // Default namespace undeclaration
+      "<root xmlns=\"urn:d\"><child xmlns=\"\"><gc/></child><x:e xmlns:x=\"urn:x\" xmlns=\"\"/></root>",
+      // Comments and processing instructions, inside and outside of the document element
+      "<?before data?><!-- before --><root><!-- inner --><?target some data?><?empty?>text<!--x--><c/></root>"
+          + "<!-- after --><?after?>",
+      // Whitespace, line breaks and escaping
+      "<root a=\"  x&#9;y&#10;z&#13;&quot;&lt;&gt;&amp;'\">\n  t&amp;&lt;&gt;&#13;\"'\t\n"
+          + " <![CDATA[<cdata> & ]]>\n\n <c>  </c>\n</root>",
+      // Attribute ordering
+      "<root xmlns:z=\"urn:a\" xmlns:a=\"urn:z\" z:b=\"1\" a:a=\"2\" c=\"3\" b=\"4\" a:c=\"5\"/>",
+      // The xml namespace
+      "<root xml:lang=\"sv\" xmlns:x=\"urn:x\"><x:c xml:space=\"preserve\"> </x:c></root>",
+      // Non-ASCII characters
+      "<root attr=\"Österåker\">Παπαδόπουλος &#x1F600;</root>"
+  })
+  public void testEquivalence(final String xml) throws Exception {
+    Assertions.assertEquals(santuario(xml), streaming(xml));
+  }
+
+  private static String streaming(final String xml) throws Exception {
+    final XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final StreamingExclusiveCanonicalizer canonicalizer = new StreamingExclusiveCanonicalizer(out);
+    final XMLStreamReader reader = factory.createXMLStreamReader(new StringReader(xml));
+    int depth = 0;
+    while (reader.hasNext()) {
+      switch (reader.next()) {
+      case XMLStreamConstants.START_ELEMENT -> {
+        depth++;
+        canonicalizer.startElement(reader);
+      }
+      case XMLStreamConstants.END_ELEMENT -> {
+        depth--;
+        canonicalizer.endElement(reader);
+      }
+      case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+        if (depth > 0) {
+          canonicalizer.characters(reader.getText());
+        }
+      }
+      case XMLStreamConstants.PROCESSING_INSTRUCTION -> {
+        if (depth > 0) {
+          canonicalizer.processingInstruction(reader.getPITarget(), reader.getPIData());
+        }
+      }
+      default -> {
+      }
+      }
+    }
+    canonicalizer.flush();
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  private static String santuario(final String xml) throws Exception {
+    final Document document = XMLObjectProviderRegistrySupport.getParserPool()
+        .parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Canonicalizer.getInstance(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS)
+        .canonicalizeSubtree(document.getDocumentElement(), out);
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.xmlsec;
+
+import net.shibboleth.shared.resolver.CriteriaSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.encryption.Encrypter;
+import org.opensaml.security.SecurityException;
+import org.opensaml.xmlsec.EncryptionParameters;
+import org.opensaml.xmlsec.criterion.EncryptionConfigurationCriterion;
+import org.opensaml.xmlsec.encryption.support.DataEncryptionParameters;
+import org.opensaml.xmlsec.encryption.support.EncryptionConstants;
+import org.opensaml.xmlsec.encryption.support.KeyEncryptionParameters;
+import org.opensaml.xmlsec.impl.BasicDecryptionConfiguration;
+import org.opensaml.xmlsec.impl.BasicEncryptionConfiguration;
+import org.opensaml.xmlsec.impl.BasicEncryptionParametersResolver;
+import org.opensaml.xmlsec.impl.BasicSignatureValidationConfiguration;
+import org.opensaml.xmlsec.signature.support.SignatureConstants;
+import org.w3c.dom.Element;
+import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test cases for {@link AlgorithmPolicy}.
+ *
+ * @author Martin Lindström
+ */
+public class AlgorithmPolicyTest extends OpenSAMLTestBase {
+
+  @Test
+  public void testSignatureAlgorithms() throws Exception {
+    // The service list is signed using RSA-SHA256 which is not allowed by the strict eIDAS profile
+    final Element mdsl = loadElement("mdservicelist.xml");
+
+    final AlgorithmPolicy strict = new EidasSecurityConfiguration().getAlgorithmPolicy();
+    Assertions.assertEquals(SignatureConstants.ALGO_ID_SIGNATURE_RSA_SHA256, strict.findDisallowedAlgorithm(mdsl));
+    Assertions.assertThrows(SecurityException.class, () -> strict.check(mdsl));
+    Assertions.assertEquals(Map.of(SignatureConstants.ALGO_ID_SIGNATURE_RSA_SHA256, 2L), strict.getRejectionCounts());
+
+    final AlgorithmPolicy relaxed = new RelaxedEidasSecurityConfiguration().getAlgorithmPolicy();
+    Assertions.assertNull(relaxed.findDisallowedAlgorithm(mdsl));
+    Assertions.assertTrue(relaxed.getRejectionCounts().isEmpty());
+    Assertions.assertFalse(relaxed.isSignatureAlgorithmAllowed(SignatureConstants.ALGO_ID_DIGEST_SHA1));
+  }
+
+  @Test
+  public void testEncryptionAlgorithms() throws Exception {
+    final Element gcmOaep = createEncryptedData(
+        EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES256_GCM, EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP);
+    final Element cbc = createEncryptedData(
+        EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128, EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP11);
+    final Element rsa15 = createEncryptedData(
+        EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES256_GCM, EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSA15);
+
+    final AlgorithmPolicy strict = new EidasSecurityConfiguration().getAlgorithmPolicy();
+    Assertions.assertNull(strict.findDisallowedAlgorithm(gcmOaep));
+    Assertions.assertEquals(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128, strict.findDisallowedAlgorithm(cbc));
+    Assertions.assertEquals(EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSA15, strict.findDisallowedAlgorithm(rsa15));
+
+    final AlgorithmPolicy eidas14 = new Eidas_1_4_SecurityConfiguration().getAlgorithmPolicy();
+    Assertions.assertEquals(EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP, eidas14.findDisallowedAlgorithm(gcmOaep));
+
+    final AlgorithmPolicy relaxed = new RelaxedEidasSecurityConfiguration().getAlgorithmPolicy();
+    Assertions.assertNull(relaxed.findDisallowedAlgorithm(cbc));
+  }
+
+  @Test
+  public void testStrictEncryption() throws Exception {
+    final EidasSecurityConfiguration configuration = new EidasSecurityConfiguration();
+    final AlgorithmPolicy strict = configuration.getAlgorithmPolicy();
+
+    for (final String keyStore : List.of("rsa.jks", "ec.jks")) {
+      final BasicEncryptionConfiguration peerConfiguration = new BasicEncryptionConfiguration();
+      peerConfiguration.setKeyTransportEncryptionCredentials(List.of(
+          loadKeyStoreCredential(ClassLoader.getSystemResourceAsStream(keyStore), "test", "test", "test")));
+      final EncryptionParameters parameters = new BasicEncryptionParametersResolver().resolveSingle(new CriteriaSet(
+          new EncryptionConfigurationCriterion(peerConfiguration, configuration.getEncryptionConfiguration())));
+      Assertions.assertNotNull(parameters);
+
+      final Encrypter encrypter = new Encrypter(
+          new DataEncryptionParameters(parameters), new KeyEncryptionParameters(parameters, null));
+      final Assertion assertion = (Assertion) XMLObjectSupport.buildXMLObject(Assertion.DEFAULT_ELEMENT_NAME);
+      assertion.setID("_" + keyStore);
+      final Element encryptedAssertion = XMLObjectSupport.marshall(encrypter.encrypt(assertion));
+
+      Assertions.assertDoesNotThrow(() -> strict.check(encryptedAssertion), keyStore);
+    }
+    Assertions.assertTrue(strict.getRejectionCounts().isEmpty());
+  }
+
+  @Test
+  public void testRejectionCounts() throws Exception {
+    final AlgorithmPolicy strict = new EidasSecurityConfiguration().getAlgorithmPolicy();
+
+    for (int i = 0; i < 3; i++) {
+      Assertions.assertEquals("urn:example:algorithm:" + i, strict.findDisallowedAlgorithm(createEncryptedData(
+          "urn:example:algorithm:" + i, EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP)));
+    }
+    strict.findDisallowedAlgorithm(createEncryptedData(
+        EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES256_GCM, EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSA15));
+
+    Assertions.assertEquals(
+        Map.of(AlgorithmPolicy.OTHER_ALGORITHMS, 3L, EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSA15, 1L),
+        strict.getRejectionCounts());
+  }
+
+  @Test
+  public void testKeyTransportParameters() throws Exception {
+    final BasicDecryptionConfiguration decryptionConfiguration = new BasicDecryptionConfiguration();
+    decryptionConfiguration.setExcludedAlgorithms(
+        List.of(SignatureConstants.ALGO_ID_DIGEST_SHA1, EncryptionConstants.ALGO_ID_MGF1_SHA1));
+    final AlgorithmPolicy policy =
+        AlgorithmPolicy.compile(new BasicSignatureValidationConfiguration(), decryptionConfiguration);
+
+    final Element sha256 = createEncryptedData(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES256_GCM,
+        EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP11, oaepParameters(
+            SignatureConstants.ALGO_ID_DIGEST_SHA256, EncryptionConstants.ALGO_ID_MGF1_SHA256));
+    Assertions.assertNull(policy.findDisallowedAlgorithm(sha256));
+
+    final Element sha1Digest = createEncryptedData(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES256_GCM,
+        EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP, oaepParameters(SignatureConstants.ALGO_ID_DIGEST_SHA1, null));
+    Assertions.assertEquals(SignatureConstants.ALGO_ID_DIGEST_SHA1, policy.findDisallowedAlgorithm(sha1Digest));
+
+    final Element sha1Mgf = createEncryptedData(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES256_GCM,
+        EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP11, oaepParameters(
+            SignatureConstants.ALGO_ID_DIGEST_SHA256, EncryptionConstants.ALGO_ID_MGF1_SHA1));
+    Assertions.assertEquals(EncryptionConstants.ALGO_ID_MGF1_SHA1, policy.findDisallowedAlgorithm(sha1Mgf));
+  }
+
+  @Test
+  public void testKeyDerivationParameters() throws Exception {
+    final BasicDecryptionConfiguration decryptionConfiguration = new BasicDecryptionConfiguration();
+    decryptionConfiguration.setExcludedAlgorithms(List.of(SignatureConstants.ALGO_ID_DIGEST_SHA1));
+    final AlgorithmPolicy policy =
+        AlgorithmPolicy.compile(new BasicSignatureValidationConfiguration(), decryptionConfiguration);
+
+    Assertions.assertNull(policy.findDisallowedAlgorithm(createKeyAgreement(SignatureConstants.ALGO_ID_DIGEST_SHA256)));
+    Assertions.assertEquals(SignatureConstants.ALGO_ID_DIGEST_SHA1,
+        policy.findDisallowedAlgorithm(createKeyAgreement(SignatureConstants.ALGO_ID_DIGEST_SHA1)));
+  }
+
+  @Test
+  public void testPolicyIsCompiledOnce() {
+    final EidasSecurityConfiguration configuration = new EidasSecurityConfiguration();
+    Assertions.assertSame(configuration.getAlgorithmPolicy(), configuration.getAlgorithmPolicy());
+  }
+
+  private static String oaepParameters(final String digestMethod, final String mgf) {
+    return String.format("<ds:DigestMethod Algorithm=\"%s\"/>", digestMethod)
+        + (mgf != null ? String.format("<xenc11:MGF Algorithm=\"%s\"/>", mgf) : "");
+  }
+
+  private static Element createKeyAgreement(final String kdfDigestMethod) throws Exception {
+    final String agreementMethod = String.format("""
+        <xenc:AgreementMethod Algorithm="%s">
+          <xenc11:KeyDerivationMethod Algorithm="%s">
+            <xenc11:ConcatKDFParams AlgorithmID="00" PartyUInfo="00" PartyVInfo="00">
+              <ds:DigestMethod Algorithm="%s"/>
+            </xenc11:ConcatKDFParams>
+          </xenc11:KeyDerivationMethod>
+        </xenc:AgreementMethod>""", EncryptionConstants.ALGO_ID_KEYAGREEMENT_ECDH_ES,
+        EncryptionConstants.ALGO_ID_KEYDERIVATION_CONCAT, kdfDigestMethod);
+    return createEncryptedData(
+        EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES256_GCM, EncryptionConstants.ALGO_ID_KEYWRAP_AES256, "",
+        agreementMethod);
+  }
+
+  private static Element createEncryptedData(final String dataAlgorithm, final String keyTransportAlgorithm)
+      throws Exception {
+    return createEncryptedData(dataAlgorithm, keyTransportAlgorithm,
+        oaepParameters(SignatureConstants.ALGO_ID_DIGEST_SHA1, null));
+  }
+
+  private static Element createEncryptedData(
+      final String dataAlgorithm, final String keyTransportAlgorithm, final String keyTransportParameters)
+      throws Exception {
+    return createEncryptedData(dataAlgorithm, keyTransportAlgorithm, keyTransportParameters, "");
+  }
+
+  private static Element createEncryptedData(final String dataAlgorithm, final String keyTransportAlgorithm,
+      final String keyTransportParameters, final String keyInfo) throws Exception {
+    final String xml = String.format("""
+        <xenc:EncryptedData xmlns:xenc="http://www.w3.org/2001/04/xmlenc#"
+            xmlns:xenc11="http://www.w3.org/2009/xmlenc11#"
+            xmlns:ds="http://www.w3.org/2000/09/xmldsig#">
+          <xenc:EncryptionMethod Algorithm="%s"/>
+          <ds:KeyInfo>
+            <xenc:EncryptedKey>
+              <xenc:EncryptionMethod Algorithm="%s">%s</xenc:EncryptionMethod>
+              <ds:KeyInfo>%s</ds:KeyInfo>
+            </xenc:EncryptedKey>
+          </ds:KeyInfo>
+        </xenc:EncryptedData>""", dataAlgorithm, keyTransportAlgorithm, keyTransportParameters, keyInfo);
+    return XMLObjectProviderRegistrySupport.getParserPool()
+        .parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)))
+        .getDocumentElement();
+  }
+
+}
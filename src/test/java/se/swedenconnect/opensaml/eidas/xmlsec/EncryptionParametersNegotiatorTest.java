@@ -0,0 +1,229 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.xmlsec;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.saml2.metadata.EncryptionMethod;
+import org.opensaml.saml.saml2.metadata.KeyDescriptor;
+import org.opensaml.saml.saml2.metadata.SPSSODescriptor;
+import org.opensaml.security.SecurityException;
+import org.opensaml.security.credential.UsageType;
+import org.opensaml.xmlsec.derivation.impl.ConcatKDF;
+import org.opensaml.xmlsec.encryption.MGF;
+import org.opensaml.xmlsec.encryption.support.EncryptionConstants;
+import org.opensaml.xmlsec.impl.BasicEncryptionConfiguration;
+import org.opensaml.xmlsec.keyinfo.KeyInfoSupport;
+import org.opensaml.xmlsec.signature.DigestMethod;
+import org.opensaml.xmlsec.signature.KeyInfo;
+import org.opensaml.xmlsec.signature.support.SignatureConstants;
+
+import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
+import se.swedenconnect.opensaml.eidas.xmlsec.EncryptionParametersNegotiator.NegotiatedEncryptionParameters;
+
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test cases for {@link EncryptionParametersNegotiator}.
+ *
+ * @author Martin Lindström
+ */
+public class EncryptionParametersNegotiatorTest extends OpenSAMLTestBase {
+
+  @Test
+  public void testRsaDefaults() throws Exception {
+    final EncryptionParametersNegotiator negotiator = new EncryptionParametersNegotiator();
+    final SPSSODescriptor peer = createPeer("rsa.jks");
+
+    final NegotiatedEncryptionParameters p = negotiator.negotiate(peer, new EidasSecurityConfiguration());
+    Assertions.assertEquals(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES256_GCM, p.getDataEncryptionAlgorithm());
+    Assertions.assertEquals(EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP, p.getKeyTransportEncryptionAlgorithm());
+    Assertions.assertFalse(p.isKeyAgreement());
+    Assertions.assertEquals(SignatureConstants.ALGO_ID_DIGEST_SHA256, p.getRSAOAEPParameters().getDigestMethod());
+    Assertions.assertNull(p.getRSAOAEPParameters().getMaskGenerationFunction());
+  }
+
+  @Test
+  public void testPeerRestrictsAlgorithms() throws Exception {
+    final EncryptionParametersNegotiator negotiator = new EncryptionParametersNegotiator();
+    final SPSSODescriptor peer = createPeer("rsa.jks",
+        EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128_GCM, EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP11);
+    final EncryptionMethod oaep11 = peer.getKeyDescriptors().get(0).getEncryptionMethods().get(1);
+    final MGF mgf = (MGF) XMLObjectSupport.buildXMLObject(MGF.DEFAULT_ELEMENT_NAME);
+    mgf.setAlgorithm(EncryptionConstants.ALGO_ID_MGF1_SHA256);
+    oaep11.getUnknownXMLObjects().add(mgf);
+
+    final NegotiatedEncryptionParameters p = negotiator.negotiate(peer, new EidasSecurityConfiguration());
+    Assertions.assertEquals(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128_GCM, p.getDataEncryptionAlgorithm());
+    Assertions.assertEquals(EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP11,
+        p.getKeyTransportEncryptionAlgorithm());
+    Assertions.assertEquals(EncryptionConstants.ALGO_ID_MGF1_SHA256,
+        p.getRSAOAEPParameters().getMaskGenerationFunction());
+  }
+
+  @Test
+  public void testEidas14RequiresOaep11() throws Exception {
+    final EncryptionParametersNegotiator negotiator = new EncryptionParametersNegotiator();
+    final NegotiatedEncryptionParameters p =
+        negotiator.negotiate(createPeer("rsa.jks"), new Eidas_1_4_SecurityConfiguration());
+    Assertions.assertEquals(EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP11,
+        p.getKeyTransportEncryptionAlgorithm());
+
+    final SPSSODescriptor legacyPeer = createPeer("rsa.jks", EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP);
+    Assertions.assertThrows(SecurityException.class,
+        () -> negotiator.negotiate(legacyPeer, new Eidas_1_4_SecurityConfiguration()));
+  }
+
+  @Test
+  public void testEcKeyAgreement() throws Exception {
+    final EncryptionParametersNegotiator negotiator = new EncryptionParametersNegotiator();
+    final SPSSODescriptor peer = createPeer("ec.jks", EncryptionConstants.ALGO_ID_KEYWRAP_AES128);
+
+    final NegotiatedEncryptionParameters p = negotiator.negotiate(peer, new EidasSecurityConfiguration());
+    Assertions.assertTrue(p.isKeyAgreement());
+    Assertions.assertEquals(EncryptionConstants.ALGO_ID_KEYAGREEMENT_ECDH_ES, p.getKeyAgreementAlgorithm());
+    Assertions.assertEquals(EncryptionConstants.ALGO_ID_KEYWRAP_AES128, p.getKeyTransportEncryptionAlgorithm());
+    Assertions.assertNull(p.getRSAOAEPParameters());
+
+    final ConcatKDF keyDerivation = p.getKeyDerivation();
+    Assertions.assertNotNull(keyDerivation);
+    Assertions.assertEquals(EncryptionConstants.ALGO_ID_KEYDERIVATION_CONCAT, keyDerivation.getAlgorithm());
+    Assertions.assertNotNull(keyDerivation.getDigestMethod());
+    Assertions.assertNotSame(keyDerivation, p.getKeyDerivation());
+  }
+
+  @Test
+  public void testKeyDerivationDigestNotAllowed() throws Exception {
+    final EncryptionParametersNegotiator negotiator = new EncryptionParametersNegotiator();
+    final BasicEncryptionConfiguration configuration = excluding(SignatureConstants.ALGO_ID_DIGEST_SHA256);
+
+    final SecurityException e = Assertions.assertThrows(SecurityException.class,
+        () -> negotiator.negotiate(createPeer("ec.jks"), configuration));
+    Assertions.assertTrue(e.getMessage().contains("ConcatKDF"));
+  }
+
+  @Test
+  public void testPeerParametersNotAllowed() throws Exception {
+    final EncryptionParametersNegotiator negotiator = new EncryptionParametersNegotiator();
+    final SPSSODescriptor peer = createPeer("rsa.jks", EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP11);
+    final EncryptionMethod oaep11 = peer.getKeyDescriptors().get(0).getEncryptionMethods().get(0);
+    final DigestMethod digestMethod = (DigestMethod) XMLObjectSupport.buildXMLObject(DigestMethod.DEFAULT_ELEMENT_NAME);
+    digestMethod.setAlgorithm(SignatureConstants.ALGO_ID_DIGEST_SHA1);
+    oaep11.getUnknownXMLObjects().add(digestMethod);
+    final MGF mgf = (MGF) XMLObjectSupport.buildXMLObject(MGF.DEFAULT_ELEMENT_NAME);
+    mgf.setAlgorithm(EncryptionConstants.ALGO_ID_MGF1_SHA224);
+    oaep11.getUnknownXMLObjects().add(mgf);
+
+    final NegotiatedEncryptionParameters p = negotiator.negotiate(peer,
+        excluding(SignatureConstants.ALGO_ID_DIGEST_SHA1, EncryptionConstants.ALGO_ID_MGF1_SHA224));
+    Assertions.assertEquals(EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP11,
+        p.getKeyTransportEncryptionAlgorithm());
+    Assertions.assertEquals(SignatureConstants.ALGO_ID_DIGEST_SHA256, p.getRSAOAEPParameters().getDigestMethod());
+    Assertions.assertEquals(EncryptionConstants.ALGO_ID_MGF1_SHA1,
+        p.getRSAOAEPParameters().getMaskGenerationFunction());
+  }
+
+  @Test
+  public void testSeveralKeys() throws Exception {
+    final EncryptionParametersNegotiator negotiator = new EncryptionParametersNegotiator();
+
+    // The first key is an EC key for which the peer only declares a key wrap algorithm that the profile does not use
+    final SPSSODescriptor peer = createPeer("ec.jks", EncryptionConstants.ALGO_ID_KEYWRAP_TRIPLEDES);
+    peer.getKeyDescriptors().add(createKeyDescriptor("rsa.jks"));
+    final NegotiatedEncryptionParameters p = negotiator.negotiate(peer, new EidasSecurityConfiguration());
+    Assertions.assertFalse(p.isKeyAgreement());
+    Assertions.assertEquals(EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP, p.getKeyTransportEncryptionAlgorithm());
+
+    // Key rollover - the old key only supports RSA-OAEP, which is not allowed by eIDAS 1.4
+    final SPSSODescriptor rollover = createPeer("rsa.jks", EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP);
+    rollover.getKeyDescriptors().add(
+        createKeyDescriptor("rsa.jks", EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP11));
+    Assertions.assertEquals(EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP11,
+        negotiator.negotiate(rollover, new Eidas_1_4_SecurityConfiguration()).getKeyTransportEncryptionAlgorithm());
+
+    // The first usable key wins
+    final SPSSODescriptor ecFirst = createPeer("ec.jks");
+    ecFirst.getKeyDescriptors().add(createKeyDescriptor("rsa.jks"));
+    Assertions.assertTrue(negotiator.negotiate(ecFirst, new EidasSecurityConfiguration()).isKeyAgreement());
+
+    // No key can be used
+    final SPSSODescriptor none = createPeer("ec.jks", EncryptionConstants.ALGO_ID_KEYWRAP_TRIPLEDES);
+    none.getKeyDescriptors().add(createKeyDescriptor("rsa.jks", EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSA15));
+    final SecurityException e = Assertions.assertThrows(SecurityException.class,
+        () -> negotiator.negotiate(none, new EidasSecurityConfiguration()));
+    Assertions.assertTrue(e.getMessage().contains("key wrap") && e.getMessage().contains("key transport"));
+  }
+
+  @Test
+  public void testCaching() throws Exception {
+    final EncryptionParametersNegotiator negotiator = new EncryptionParametersNegotiator();
+    final EidasSecurityConfiguration profile = new EidasSecurityConfiguration();
+    final SPSSODescriptor peer = createPeer("rsa.jks");
+
+    final NegotiatedEncryptionParameters p1 = negotiator.negotiate(peer, profile);
+    Assertions.assertSame(p1, negotiator.negotiate(peer, profile));
+
+    // Refreshed metadata gives a new negotiation
+    final SPSSODescriptor refreshed = createPeer("rsa.jks", EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES192_GCM);
+    final NegotiatedEncryptionParameters p2 = negotiator.negotiate(refreshed, profile);
+    Assertions.assertNotSame(p1, p2);
+    Assertions.assertEquals(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES192_GCM, p2.getDataEncryptionAlgorithm());
+
+    negotiator.invalidate(peer);
+    Assertions.assertNotSame(p1, negotiator.negotiate(peer, profile));
+  }
+
+  private static BasicEncryptionConfiguration excluding(final String... algorithms) {
+    final BasicEncryptionConfiguration configuration =
+        (BasicEncryptionConfiguration) new EidasSecurityConfiguration().getEncryptionConfiguration();
+    final List<String> excluded = new ArrayList<>(configuration.getExcludedAlgorithms());
+    excluded.addAll(List.of(algorithms));
+    configuration.setExcludedAlgorithms(excluded);
+    return configuration;
+  }
+
+  private static SPSSODescriptor createPeer(final String keyStore, final String... algorithms) throws Exception {
+    final SPSSODescriptor descriptor =
+        (SPSSODescriptor) XMLObjectSupport.buildXMLObject(SPSSODescriptor.DEFAULT_ELEMENT_NAME);
+    descriptor.getKeyDescriptors().add(createKeyDescriptor(keyStore, algorithms));
+    return descriptor;
+  }
+
+  private static KeyDescriptor createKeyDescriptor(final String keyStore, final String... algorithms)
+      throws Exception {
+    final X509Certificate certificate = loadKeyStoreCredential(
+        ClassLoader.getSystemResourceAsStream(keyStore), "test", "test", "test").getEntityCertificate();
+
+    final KeyInfo keyInfo = (KeyInfo) XMLObjectSupport.buildXMLObject(KeyInfo.DEFAULT_ELEMENT_NAME);
+    KeyInfoSupport.addCertificate(keyInfo, certificate);
+
+    final KeyDescriptor keyDescriptor =
+        (KeyDescriptor) XMLObjectSupport.buildXMLObject(KeyDescriptor.DEFAULT_ELEMENT_NAME);
+    keyDescriptor.setUse(UsageType.ENCRYPTION);
+    keyDescriptor.setKeyInfo(keyInfo);
+    for (final String algorithm : algorithms) {
+      final EncryptionMethod method =
+          (EncryptionMethod) XMLObjectSupport.buildXMLObject(EncryptionMethod.DEFAULT_ELEMENT_NAME);
+      method.setAlgorithm(algorithm);
+      keyDescriptor.getEncryptionMethods().add(method);
+    }
+    return keyDescriptor;
+  }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016-2026 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.opensaml.eidas.xmlsec;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import se.swedenconnect.opensaml.eidas.OpenSAMLTestBase;
+import se.swedenconnect.opensaml.xmlsec.config.AbstractSecurityConfiguration;
+
+import java.util.Map;
+
+/**
+ * Test cases for {@link SecurityProfileResolver}.
+ *
+ * @author Martin Lindström
+ */
+public class SecurityProfileResolverTest extends OpenSAMLTestBase {
+
+  @Test
+  public void testResolve() {
+    final AbstractSecurityConfiguration strict = new EidasSecurityConfiguration();
+    final AbstractSecurityConfiguration relaxed = new RelaxedEidasSecurityConfiguration();
+    final AbstractSecurityConfiguration eidas14 = new Eidas_1_4_SecurityConfiguration();
+
+    final SecurityProfileResolver resolver = new SecurityProfileResolver(strict);
+    Assertions.assertEquals("eidas", resolver.resolve("https://eidas.example.com", "DE").getProfileName());
+
+    resolver.setMappings(
+        Map.of("https://eidas.example.com", relaxed),
+        Map.of("DE", eidas14, "no", relaxed));
+
+    final SecurityProfileResolver.ResolvedProfile p1 = resolver.resolve("https://eidas.example.com", "DE");
+    Assertions.assertEquals("eidas-relaxed", p1.getProfileName());
+    Assertions.assertSame(relaxed.getSignatureSigningConfiguration(), p1.getSignatureSigningConfiguration());
+    Assertions.assertSame(relaxed.getDecryptionConfiguration(),
+        p1.getDecryptionConfigurationCriterion().getConfigurations().get(0));
+
+    Assertions.assertEquals("eidas_1_4", resolver.resolve("https://other.example.com", "DE").getProfileName());
+    Assertions.assertEquals("eidas_1_4", resolver.resolve(null, "de").getProfileName());
+    Assertions.assertSame(p1, resolver.resolve(null, "NO"));
+    Assertions.assertEquals("eidas", resolver.resolve("https://other.example.com", "SE").getProfileName());
+    Assertions.assertEquals("eidas", resolver.resolve(null).getProfileName());
+
+    // Resolved profiles are kept when the mappings change
+    resolver.setMappings(null, Map.of("SE", relaxed));
+    Assertions.assertSame(p1, resolver.resolve(null, "SE"));
+    Assertions.assertEquals("eidas", resolver.resolve("https://eidas.example.com", "DE").getProfileName());
+  }
+
+}